@@ -0,0 +1,48 @@
+package com.ecommerce.config;
+
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gives streamed newline-delimited JSON responses, such as the full catalog export, a timeout long
+ * enough to write them out. Other async requests keep the servlet container's default timeout.
+ */
+@Configuration
+public class AsyncConfig implements WebMvcConfigurer {
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private final long streamTimeoutMillis;
+
+    @Autowired
+    public AsyncConfig(@Value("${app.catalog.stream.timeout-minutes:10}") long streamTimeoutMinutes) {
+        this.streamTimeoutMillis = TimeUnit.MINUTES.toMillis(streamTimeoutMinutes);
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.registerCallableInterceptors(new CallableProcessingInterceptor() {
+            @Override
+            public <T> void beforeConcurrentHandling(NativeWebRequest request, Callable<T> task) {
+                // The streaming body has written its headers by now, and async processing has not started
+                HttpServletResponse response = request.getNativeResponse(HttpServletResponse.class);
+                if (request instanceof AsyncWebRequest asyncRequest && response != null
+                        && response.getContentType() != null
+                        && NDJSON.isCompatibleWith(MediaType.parseMediaType(response.getContentType()))) {
+                    asyncRequest.setTimeout(streamTimeoutMillis);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,150 @@
+package com.ecommerce.config;
+
+import com.ecommerce.service.CartService;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Guest cart held in a signed cookie, so anonymous shoppers (and bots) can fill a cart without any
+ * server-side state. The value is {@code productId:quantity} pairs, base64url encoded and signed
+ * with HMAC-SHA256; cookies that are malformed or fail verification are treated as an empty cart.
+ * Without a configured secret a random one is generated, so guest carts do not survive a restart
+ * and are not shared between instances.
+ */
+@Component
+public class GuestCartCookie {
+
+    public static final String NAME = "guest_cart";
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private final SecretKeySpec key;
+    private final Duration maxAge;
+    private final boolean secure;
+
+    @Autowired
+    public GuestCartCookie(@Value("${app.cart.guest.secret:}") String secret,
+                           @Value("${app.cart.guest.max-age-days:30}") long maxAgeDays,
+                           @Value("${app.cart.guest.secure:false}") boolean secure) {
+        byte[] keyBytes;
+        if (secret.isEmpty()) {
+            keyBytes = new byte[32];
+            new SecureRandom().nextBytes(keyBytes);
+        } else {
+            keyBytes = secret.getBytes(StandardCharsets.UTF_8);
+        }
+        this.key = new SecretKeySpec(keyBytes, ALGORITHM);
+        this.maxAge = Duration.ofDays(maxAgeDays);
+        this.secure = secure;
+    }
+
+    /**
+     * Read the guest cart items of a request as product ID to quantity, in the order they were added.
+     */
+    public Map<Long, Integer> read(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies != null) {
+            for (Cookie cookie : cookies) {
+                if (NAME.equals(cookie.getName())) {
+                    return decode(cookie.getValue());
+                }
+            }
+        }
+        return new LinkedHashMap<>();
+    }
+
+    /**
+     * Write guest cart items to the response; empty items delete the cookie.
+     */
+    public void write(HttpServletResponse response, Map<Long, Integer> items) {
+        ResponseCookie.ResponseCookieBuilder cookie = items.isEmpty()
+                ? ResponseCookie.from(NAME, "").maxAge(Duration.ZERO)
+                : ResponseCookie.from(NAME, encode(items)).maxAge(maxAge);
+        response.addHeader(HttpHeaders.SET_COOKIE, cookie
+                .path("/")
+                .httpOnly(true)
+                .secure(secure)
+                .sameSite("Lax")
+                .build()
+                .toString());
+    }
+
+    /**
+     * Delete the guest cart cookie.
+     */
+    public void clear(HttpServletResponse response) {
+        write(response, Map.of());
+    }
+
+    String encode(Map<Long, Integer> items) {
+        StringBuilder payload = new StringBuilder();
+        items.forEach((productId, quantity) -> {
+            if (payload.length() > 0) {
+                payload.append(',');
+            }
+            payload.append(productId).append(':').append(quantity);
+        });
+        byte[] bytes = payload.toString().getBytes(StandardCharsets.US_ASCII);
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        return encoder.encodeToString(bytes) + "." + encoder.encodeToString(sign(bytes));
+    }
+
+    Map<Long, Integer> decode(String value) {
+        Map<Long, Integer> items = new LinkedHashMap<>();
+        int separator = value == null ? -1 : value.indexOf('.');
+        if (separator < 0) {
+            return items;
+        }
+        try {
+            Base64.Decoder decoder = Base64.getUrlDecoder();
+            byte[] bytes = decoder.decode(value.substring(0, separator));
+            byte[] signature = decoder.decode(value.substring(separator + 1));
+            if (!MessageDigest.isEqual(sign(bytes), signature)) {
+                return items;
+            }
+            String payload = new String(bytes, StandardCharsets.US_ASCII);
+            if (payload.isEmpty()) {
+                return items;
+            }
+            for (String line : payload.split(",", CartService.GUEST_CART_MAX_LINES + 1)) {
+                int colon = line.indexOf(':');
+                long productId = Long.parseLong(line.substring(0, colon));
+                int quantity = Integer.parseInt(line.substring(colon + 1));
+                if (items.size() >= CartService.GUEST_CART_MAX_LINES || quantity < 1) {
+                    return new LinkedHashMap<>();
+                }
+                items.put(productId, quantity);
+            }
+            return items;
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            return new LinkedHashMap<>();
+        }
+    }
+
+    private byte[] sign(byte[] payload) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac.doFinal(payload);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot sign guest cart", e);
+        }
+    }
+}
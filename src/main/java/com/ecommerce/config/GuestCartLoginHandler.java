@@ -0,0 +1,80 @@
+package com.ecommerce.config;
+
+import com.ecommerce.service.CartService;
+import com.ecommerce.service.UserPrincipal;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.authentication.event.InteractiveAuthenticationSuccessEvent;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.web.authentication.SimpleUrlAuthenticationSuccessHandler;
+import org.springframework.security.web.authentication.rememberme.RememberMeAuthenticationFilter;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Form login success handler that merges the guest cart cookie into the user's cart, then
+ * redirects to the home page. Remember-me logins merge it too, without redirecting.
+ */
+@Component
+public class GuestCartLoginHandler extends SimpleUrlAuthenticationSuccessHandler {
+
+    private static final Logger log = LoggerFactory.getLogger(GuestCartLoginHandler.class);
+
+    private final CartService cartService;
+    private final GuestCartCookie guestCartCookie;
+
+    @Autowired
+    public GuestCartLoginHandler(CartService cartService, GuestCartCookie guestCartCookie) {
+        super("/");
+        setAlwaysUseDefaultTargetUrl(true);
+        this.cartService = cartService;
+        this.guestCartCookie = guestCartCookie;
+    }
+
+    @Override
+    public void onAuthenticationSuccess(HttpServletRequest request, HttpServletResponse response,
+                                        Authentication authentication) throws IOException, ServletException {
+        mergeGuestCart(request, response, authentication);
+        super.onAuthenticationSuccess(request, response, authentication);
+    }
+
+    /**
+     * Merge the guest cart when a remember-me cookie logs the user in. The remember-me filter
+     * continues the request rather than calling a success handler, so this listens for its event.
+     */
+    @EventListener
+    public void onInteractiveAuthenticationSuccess(InteractiveAuthenticationSuccessEvent event) {
+        if (event.getGeneratedBy() == RememberMeAuthenticationFilter.class
+                && RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes
+                && attributes.getResponse() != null) {
+            mergeGuestCart(attributes.getRequest(), attributes.getResponse(), event.getAuthentication());
+        }
+    }
+
+    /**
+     * Merge the guest cart of the request, if any, into the authenticated user's cart and delete
+     * the cookie. A failed merge is logged and does not fail the login.
+     */
+    public void mergeGuestCart(HttpServletRequest request, HttpServletResponse response,
+                               Authentication authentication) {
+        Map<Long, Integer> items = guestCartCookie.read(request);
+        if (items.isEmpty() || !(authentication.getPrincipal() instanceof UserPrincipal principal)) {
+            return;
+        }
+        try {
+            cartService.mergeGuestCart(principal.getUserId(), principal.getCartId(), items);
+        } catch (RuntimeException e) {
+            log.warn("Could not merge guest cart for user {}", principal.getUserId(), e);
+        }
+        guestCartCookie.clear(response);
+    }
+}
@@ -0,0 +1,13 @@
+package com.ecommerce.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables the periodic background jobs (@Scheduled methods). They share the task scheduler
+ * configured under spring.task.scheduling.* rather than each owning a thread.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
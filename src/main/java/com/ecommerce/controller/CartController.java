@@ -1,35 +1,46 @@
 package com.ecommerce.controller;
 
+import com.ecommerce.config.GuestCartCookie;
 import com.ecommerce.model.Cart;
 import com.ecommerce.service.CartService;
+import com.ecommerce.service.UserPrincipal;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.core.Authentication;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
+import java.util.Map;
+
 /**
  * Controller for shopping cart operations.
+ * Anonymous visitors get a guest cart kept in a signed cookie until they log in.
  */
 @Controller
 @RequestMapping("/cart")
 public class CartController {
 
     private final CartService cartService;
+    private final GuestCartCookie guestCartCookie;
 
     @Autowired
-    public CartController(CartService cartService) {
+    public CartController(CartService cartService, GuestCartCookie guestCartCookie) {
         this.cartService = cartService;
+        this.guestCartCookie = guestCartCookie;
     }
 
     /**
      * Display cart contents.
      */
     @GetMapping
-    public String viewCart(Authentication authentication, Model model) {
-        String userEmail = authentication.getName();
-        Cart cart = cartService.getCartByUserEmail(userEmail);
+    public String viewCart(@AuthenticationPrincipal UserPrincipal principal, HttpServletRequest request,
+                           Model model) {
+        Cart cart = principal == null
+                ? cartService.getGuestCart(guestCartCookie.read(request))
+                : cartService.getCart(principal.getUserId(), principal.getCartId());
 
         model.addAttribute("cart", cart);
         model.addAttribute("cartItems", cart.getItems());
@@ -46,12 +57,18 @@ public class CartController {
     public String addToCart(
             @RequestParam("productId") Long productId,
             @RequestParam(value = "quantity", defaultValue = "1") int quantity,
-            Authentication authentication,
+            @AuthenticationPrincipal UserPrincipal principal,
+            HttpServletRequest request, HttpServletResponse response,
             RedirectAttributes redirectAttributes) {
 
         try {
-            String userEmail = authentication.getName();
-            cartService.addToCart(userEmail, productId, quantity);
+            if (principal == null) {
+                Map<Long, Integer> items = guestCartCookie.read(request);
+                cartService.addToGuestCart(items, productId, quantity);
+                guestCartCookie.write(response, items);
+            } else {
+                cartService.addToCart(principal.getUserId(), principal.getCartId(), productId, quantity);
+            }
             redirectAttributes.addFlashAttribute("successMessage", "Item added to cart!");
         } catch (Exception e) {
             redirectAttributes.addFlashAttribute("errorMessage", e.getMessage());
@@ -68,12 +85,18 @@ public class CartController {
             @RequestParam("productId") Long productId,
             @RequestParam(value = "quantity", defaultValue = "1") int quantity,
             @RequestParam(value = "returnUrl", defaultValue = "/products") String returnUrl,
-            Authentication authentication,
+            @AuthenticationPrincipal UserPrincipal principal,
+            HttpServletRequest request, HttpServletResponse response,
             RedirectAttributes redirectAttributes) {
 
         try {
-            String userEmail = authentication.getName();
-            cartService.addToCart(userEmail, productId, quantity);
+            if (principal == null) {
+                Map<Long, Integer> items = guestCartCookie.read(request);
+                cartService.addToGuestCart(items, productId, quantity);
+                guestCartCookie.write(response, items);
+            } else {
+                cartService.addToCart(principal.getUserId(), principal.getCartId(), productId, quantity);
+            }
             redirectAttributes.addFlashAttribute("successMessage", "Item added to cart!");
         } catch (Exception e) {
             redirectAttributes.addFlashAttribute("errorMessage", e.getMessage());
@@ -88,12 +111,18 @@ public class CartController {
     @PostMapping("/remove/{productId}")
     public String removeFromCart(
             @PathVariable("productId") Long productId,
-            Authentication authentication,
+            @AuthenticationPrincipal UserPrincipal principal,
+            HttpServletRequest request, HttpServletResponse response,
             RedirectAttributes redirectAttributes) {
 
         try {
-            String userEmail = authentication.getName();
-            cartService.removeFromCart(userEmail, productId);
+            if (principal == null) {
+                Map<Long, Integer> items = guestCartCookie.read(request);
+                items.remove(productId);
+                guestCartCookie.write(response, items);
+            } else {
+                cartService.removeFromCart(principal.getUserId(), principal.getCartId(), productId);
+            }
             redirectAttributes.addFlashAttribute("successMessage", "Item removed from cart.");
         } catch (Exception e) {
             redirectAttributes.addFlashAttribute("errorMessage", e.getMessage());
@@ -109,16 +138,22 @@ public class CartController {
     public String updateCartItem(
             @RequestParam("productId") Long productId,
             @RequestParam("quantity") int quantity,
-            Authentication authentication,
+            @AuthenticationPrincipal UserPrincipal principal,
+            HttpServletRequest request, HttpServletResponse response,
             RedirectAttributes redirectAttributes) {
 
         try {
-            String userEmail = authentication.getName();
-            if (quantity <= 0) {
-                cartService.removeFromCart(userEmail, productId);
+            if (principal == null) {
+                Map<Long, Integer> items = guestCartCookie.read(request);
+                cartService.updateGuestCartItemQuantity(items, productId, quantity);
+                guestCartCookie.write(response, items);
+                redirectAttributes.addFlashAttribute("successMessage",
+                        quantity <= 0 ? "Item removed from cart." : "Cart updated.");
+            } else if (quantity <= 0) {
+                cartService.removeFromCart(principal.getUserId(), principal.getCartId(), productId);
                 redirectAttributes.addFlashAttribute("successMessage", "Item removed from cart.");
             } else {
-                cartService.updateCartItemQuantity(userEmail, productId, quantity);
+                cartService.updateCartItemQuantity(principal.getUserId(), principal.getCartId(), productId, quantity);
                 redirectAttributes.addFlashAttribute("successMessage", "Cart updated.");
             }
         } catch (Exception e) {
@@ -133,12 +168,16 @@ public class CartController {
      */
     @PostMapping("/clear")
     public String clearCart(
-            Authentication authentication,
+            @AuthenticationPrincipal UserPrincipal principal,
+            HttpServletResponse response,
             RedirectAttributes redirectAttributes) {
 
         try {
-            String userEmail = authentication.getName();
-            cartService.clearCart(userEmail);
+            if (principal == null) {
+                guestCartCookie.clear(response);
+            } else {
+                cartService.clearCart(principal.getUserId(), principal.getCartId());
+            }
             redirectAttributes.addFlashAttribute("successMessage", "Cart cleared.");
         } catch (Exception e) {
             redirectAttributes.addFlashAttribute("errorMessage", e.getMessage());
@@ -152,11 +191,10 @@ public class CartController {
      */
     @GetMapping("/count")
     @ResponseBody
-    public int getCartCount(Authentication authentication) {
-        if (authentication == null) {
-            return 0;
+    public int getCartCount(@AuthenticationPrincipal UserPrincipal principal, HttpServletRequest request) {
+        if (principal == null) {
+            return guestCartCookie.read(request).values().stream().mapToInt(Integer::intValue).sum();
         }
-        String userEmail = authentication.getName();
-        return cartService.getCartItemCount(userEmail);
+        return cartService.getCartItemCount(principal.getUserId());
     }
 }
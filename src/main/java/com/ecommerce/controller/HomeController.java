@@ -1,25 +1,23 @@
 package com.ecommerce.controller;
 
-import com.ecommerce.model.Product;
-import com.ecommerce.service.ProductService;
+import com.ecommerce.dto.HomePageDto;
+import com.ecommerce.service.FeaturedProductsService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 
-import java.util.List;
-
 /**
  * Controller for home page and general navigation.
  */
 @Controller
 public class HomeController {
 
-    private final ProductService productService;
+    private final FeaturedProductsService featuredProductsService;
 
     @Autowired
-    public HomeController(ProductService productService) {
-        this.productService = productService;
+    public HomeController(FeaturedProductsService featuredProductsService) {
+        this.featuredProductsService = featuredProductsService;
     }
 
     /**
@@ -27,17 +25,11 @@ public class HomeController {
      */
     @GetMapping({"/", "/index"})
     public String home(Model model) {
-        // Get recent products for home page
-        List<Product> products = productService.getAllProducts();
-        List<String> categories = productService.getAllCategories();
-
-        // Limit to 8 featured products
-        if (products.size() > 8) {
-            products = products.subList(0, 8);
-        }
+        // Newest products and categories, served from the home page cache
+        HomePageDto homePage = featuredProductsService.getHomePage();
 
-        model.addAttribute("products", products);
-        model.addAttribute("categories", categories);
+        model.addAttribute("products", homePage.getFeaturedProducts());
+        model.addAttribute("categories", homePage.getCategories());
         model.addAttribute("pageTitle", "Home");
 
         return "index";
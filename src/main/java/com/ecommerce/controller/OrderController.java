@@ -5,8 +5,9 @@ import com.ecommerce.model.Cart;
 import com.ecommerce.model.Order;
 import com.ecommerce.service.CartService;
 import com.ecommerce.service.OrderService;
+import com.ecommerce.service.UserPrincipal;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.core.Authentication;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
@@ -36,10 +37,9 @@ public class OrderController {
      * Display checkout page.
      */
     @GetMapping("/checkout")
-    public String checkoutPage(Authentication authentication, Model model,
+    public String checkoutPage(@AuthenticationPrincipal UserPrincipal principal, Model model,
                                RedirectAttributes redirectAttributes) {
-        String userEmail = authentication.getName();
-        Cart cart = cartService.getCartByUserEmail(userEmail);
+        Cart cart = cartService.getCart(principal.getUserId(), principal.getCartId());
 
         if (cart.isEmpty()) {
             redirectAttributes.addFlashAttribute("errorMessage", "Your cart is empty.");
@@ -62,12 +62,10 @@ public class OrderController {
     public String processCheckout(
             @Valid @ModelAttribute("checkoutDto") CheckoutDto checkoutDto,
             BindingResult bindingResult,
-            Authentication authentication,
+            @AuthenticationPrincipal UserPrincipal principal,
             Model model,
             RedirectAttributes redirectAttributes) {
-
-        String userEmail = authentication.getName();
-        Cart cart = cartService.getCartByUserEmail(userEmail);
+        Cart cart = cartService.getCart(principal.getUserId(), principal.getCartId());
 
         if (bindingResult.hasErrors()) {
             model.addAttribute("cart", cart);
@@ -78,7 +76,7 @@ public class OrderController {
         }
 
         try {
-            Order order = orderService.placeOrder(userEmail, checkoutDto);
+            Order order = orderService.placeOrder(principal.getUserId(), principal.getCartId(), checkoutDto);
             redirectAttributes.addFlashAttribute("successMessage",
                     "Order placed successfully! Order #" + order.getOrderId());
             return "redirect:/orders/" + order.getOrderId() + "/confirmation";
@@ -98,12 +96,10 @@ public class OrderController {
     @GetMapping("/orders/{orderId}/confirmation")
     public String orderConfirmation(
             @PathVariable("orderId") Long orderId,
-            Authentication authentication,
+            @AuthenticationPrincipal UserPrincipal principal,
             Model model,
             RedirectAttributes redirectAttributes) {
-
-        String userEmail = authentication.getName();
-        Optional<Order> order = orderService.getOrderByIdForUser(orderId, userEmail);
+        Optional<Order> order = orderService.getOrderByIdForUser(orderId, principal.getUserId());
 
         if (order.isPresent()) {
             model.addAttribute("order", order.get());
@@ -119,9 +115,8 @@ public class OrderController {
      * Display order history.
      */
     @GetMapping("/orders")
-    public String orderHistory(Authentication authentication, Model model) {
-        String userEmail = authentication.getName();
-        List<Order> orders = orderService.getOrdersForUser(userEmail);
+    public String orderHistory(@AuthenticationPrincipal UserPrincipal principal, Model model) {
+        List<Order> orders = orderService.getOrdersForUser(principal.getUserId());
 
         model.addAttribute("orders", orders);
         model.addAttribute("pageTitle", "Order History");
@@ -135,12 +130,10 @@ public class OrderController {
     @GetMapping("/orders/{orderId}")
     public String orderDetails(
             @PathVariable("orderId") Long orderId,
-            Authentication authentication,
+            @AuthenticationPrincipal UserPrincipal principal,
             Model model,
             RedirectAttributes redirectAttributes) {
-
-        String userEmail = authentication.getName();
-        Optional<Order> order = orderService.getOrderByIdForUser(orderId, userEmail);
+        Optional<Order> order = orderService.getOrderByIdForUser(orderId, principal.getUserId());
 
         if (order.isPresent()) {
             model.addAttribute("order", order.get());
@@ -158,12 +151,11 @@ public class OrderController {
     @PostMapping("/orders/{orderId}/cancel")
     public String cancelOrder(
             @PathVariable("orderId") Long orderId,
-            Authentication authentication,
+            @AuthenticationPrincipal UserPrincipal principal,
             RedirectAttributes redirectAttributes) {
 
         try {
-            String userEmail = authentication.getName();
-            orderService.cancelOrder(orderId, userEmail);
+            orderService.cancelOrder(orderId, principal.getUserId());
             redirectAttributes.addFlashAttribute("successMessage", "Order cancelled successfully.");
         } catch (Exception e) {
             redirectAttributes.addFlashAttribute("errorMessage", e.getMessage());
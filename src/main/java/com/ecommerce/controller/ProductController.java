@@ -1,5 +1,7 @@
 package com.ecommerce.controller;
 
+import com.ecommerce.dto.CursorPage;
+import com.ecommerce.dto.ProductSummaryDto;
 import com.ecommerce.model.Product;
 import com.ecommerce.service.ProductService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -28,14 +30,20 @@ public class ProductController {
 
     /**
      * Display all products with optional pagination.
+     * Passing a cursor parameter (empty for the first page) switches to cursor pagination.
      */
     @GetMapping("/products")
     public String listProducts(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "12") int size,
+            @RequestParam(required = false) String cursor,
             Model model) {
 
-        Page<Product> productPage = productService.getAllProducts(page, size);
+        if (cursor != null) {
+            return scrollProducts(null, cursor, size, model);
+        }
+
+        Page<ProductSummaryDto> productPage = productService.getAllProducts(page, size);
         List<String> categories = productService.getAllCategories();
 
         model.addAttribute("products", productPage.getContent());
@@ -60,11 +68,7 @@ public class ProductController {
             model.addAttribute("pageTitle", product.get().getName());
 
             // Get related products from the same category
-            List<Product> relatedProducts = productService.getProductsByCategory(product.get().getCategory());
-            relatedProducts.removeIf(p -> p.getProductId().equals(productId));
-            if (relatedProducts.size() > 4) {
-                relatedProducts = relatedProducts.subList(0, 4);
-            }
+            List<Product> relatedProducts = productService.getRelatedProducts(product.get());
             model.addAttribute("relatedProducts", relatedProducts);
 
             return "product-details";
@@ -81,9 +85,15 @@ public class ProductController {
             @PathVariable("category") String category,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "12") int size,
+            @RequestParam(required = false) String cursor,
             Model model) {
 
-        Page<Product> productPage = productService.getProductsByCategory(category, page, size);
+        if (cursor != null) {
+            model.addAttribute("selectedCategory", category);
+            return scrollProducts(category, cursor, size, model);
+        }
+
+        Page<ProductSummaryDto> productPage = productService.getProductsByCategory(category, page, size);
         List<String> categories = productService.getAllCategories();
 
         model.addAttribute("products", productPage.getContent());
@@ -98,16 +108,39 @@ public class ProductController {
     }
 
     /**
-     * Search products.
+     * Display one page of a newest-first listing using cursor pagination.
+     */
+    private String scrollProducts(String category, String cursor, int size, Model model) {
+        CursorPage<ProductSummaryDto> productPage;
+        try {
+            productPage = productService.getProductsAfter(category, cursor, size);
+        } catch (IllegalArgumentException e) {
+            return "redirect:/products?error=Invalid page";
+        }
+        List<String> categories = productService.getAllCategories();
+
+        model.addAttribute("products", productPage.getContent());
+        model.addAttribute("nextCursor", productPage.getNextCursor());
+        model.addAttribute("size", productPage.getSize());
+        model.addAttribute("listingUrl", category != null ? "/category/" + category : "/products");
+        model.addAttribute("categories", categories);
+        model.addAttribute("pageTitle", category != null ? category : "Products");
+
+        return "products";
+    }
+
+    /**
+     * Search products. With fuzzy=true, terms also match words a typo or two away.
      */
     @GetMapping("/search")
     public String searchProducts(
             @RequestParam("q") String searchTerm,
+            @RequestParam(defaultValue = "false") boolean fuzzy,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "12") int size,
             Model model) {
 
-        Page<Product> productPage = productService.searchProducts(searchTerm, page, size);
+        Page<ProductSummaryDto> productPage = productService.searchProducts(searchTerm, fuzzy, page, size);
         List<String> categories = productService.getAllCategories();
 
         model.addAttribute("products", productPage.getContent());
@@ -116,6 +149,7 @@ public class ProductController {
         model.addAttribute("totalItems", productPage.getTotalElements());
         model.addAttribute("categories", categories);
         model.addAttribute("searchTerm", searchTerm);
+        model.addAttribute("fuzzy", fuzzy);
         model.addAttribute("pageTitle", "Search: " + searchTerm);
 
         return "products";
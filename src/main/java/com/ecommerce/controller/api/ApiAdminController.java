@@ -0,0 +1,182 @@
+package com.ecommerce.controller.api;
+
+import com.ecommerce.dto.ProductFeedResult;
+import com.ecommerce.dto.ProductImportResult;
+import com.ecommerce.dto.StockDiscrepancyDto;
+import com.ecommerce.model.Product;
+import com.ecommerce.service.FlashSaleService;
+import com.ecommerce.service.InventoryLedger;
+import com.ecommerce.service.ProductCatalogCache;
+import com.ecommerce.service.ProductCounts;
+import com.ecommerce.service.ProductFeedService;
+import com.ecommerce.service.ProductImportService;
+import com.ecommerce.service.ProductService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/v1/admin")
+@Tag(name = "Admin", description = "Catalog administration API (admin only)")
+@CrossOrigin(origins = "*")
+public class ApiAdminController {
+
+    private static final String NDJSON = "application/x-ndjson";
+
+    private final ProductCatalogCache catalogCache;
+    private final ProductCounts productCounts;
+    private final ProductImportService productImportService;
+    private final ProductFeedService productFeedService;
+    private final FlashSaleService flashSaleService;
+    private final ProductService productService;
+    private final InventoryLedger inventoryLedger;
+
+    @Autowired
+    public ApiAdminController(ProductCatalogCache catalogCache, ProductCounts productCounts,
+                              ProductImportService productImportService, ProductFeedService productFeedService,
+                              FlashSaleService flashSaleService, ProductService productService,
+                              InventoryLedger inventoryLedger) {
+        this.catalogCache = catalogCache;
+        this.productCounts = productCounts;
+        this.productImportService = productImportService;
+        this.productFeedService = productFeedService;
+        this.flashSaleService = flashSaleService;
+        this.productService = productService;
+        this.inventoryLedger = inventoryLedger;
+    }
+
+    @GetMapping("/cache/stats")
+    @Operation(summary = "Get catalog cache hit/miss/eviction statistics")
+    public ResponseEntity<Map<String, Map<String, Object>>> getCacheStats() {
+        return ResponseEntity.ok(catalogCache.getStats());
+    }
+
+    @DeleteMapping("/cache")
+    @Operation(summary = "Clear the catalog cache and reload listing totals")
+    public ResponseEntity<Void> clearCache() {
+        catalogCache.clear();
+        productCounts.clear();
+        return ResponseEntity.noContent().build();
+    }
+
+    @PostMapping(value = "/products/import", consumes = "text/csv")
+    @Operation(summary = "Bulk import products from CSV",
+               description = "Streams a CSV file with a header row (productId, name, description, price, "
+                       + "stockQuantity, category, imageUrl). Rows with a productId update the fields of their "
+                       + "non-empty cells on that product; others are inserted. Invalid rows are reported and "
+                       + "skipped.")
+    public ResponseEntity<?> importProductsCsv(InputStream body) throws IOException {
+        try {
+            return ResponseEntity.ok(productImportService.importCsv(body));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @PostMapping(value = "/products/import", consumes = NDJSON)
+    @Operation(summary = "Bulk import products from NDJSON",
+               description = "Streams one product JSON object per line. Rows with a productId update the "
+                       + "fields they contain on that product; others are inserted. Invalid rows are reported "
+                       + "and skipped.")
+    public ResponseEntity<ProductImportResult> importProductsNdjson(InputStream body) throws IOException {
+        return ResponseEntity.ok(productImportService.importNdjson(body));
+    }
+
+    @PostMapping("/feeds")
+    @Operation(summary = "Generate a gzip-compressed product feed file in the feed directory",
+               description = "Writes the whole catalog, or with since only the products changed at or after "
+                       + "that time. The returned watermark is the since value for the next incremental feed.")
+    public ResponseEntity<?> generateFeed(@RequestParam(defaultValue = "xml") String format,
+                                          @RequestParam(required = false)
+                                          @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime since)
+            throws IOException {
+        ProductFeedService.Format feedFormat;
+        try {
+            feedFormat = ProductFeedService.Format.fromName(format);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+        ProductFeedResult result = productFeedService.writeFeedFile(feedFormat, since);
+        return ResponseEntity.ok(result);
+    }
+
+    @PostMapping("/flash-sales")
+    @Operation(summary = "Start a flash sale",
+               description = "Takes quantity units of the product out of stock into the sale's token pool. "
+                       + "Body: {\"productId\": 1, \"quantity\": 100}")
+    public ResponseEntity<?> startFlashSale(@RequestBody Map<String, Object> request) {
+        try {
+            Long productId = Long.valueOf(request.get("productId").toString());
+            int quantity = Integer.parseInt(request.get("quantity").toString());
+            return ResponseEntity.ok(flashSaleService.startSale(productId, quantity));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @DeleteMapping("/flash-sales/{productId}")
+    @Operation(summary = "End a flash sale and return unclaimed units to stock")
+    public ResponseEntity<?> endFlashSale(@PathVariable Long productId) {
+        try {
+            return ResponseEntity.ok(Map.of("returnedToStock", flashSaleService.endSale(productId)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @PutMapping("/products/{productId}/stock-shards")
+    @Operation(summary = "Split a hot product's stock into sub-counters",
+               description = "Spreads the product's stock over the given number of shard rows, so concurrent "
+                       + "orders for it lock different rows. 0 keeps the stock in the products row again. "
+                       + "Body: {\"shards\": 8}")
+    public ResponseEntity<?> reshardStock(@PathVariable Long productId, @RequestBody Map<String, Integer> request) {
+        try {
+            int shards = request.getOrDefault("shards", 0);
+            Product product = productService.reshardStock(productId, shards);
+            return ResponseEntity.ok(Map.of("productId", productId, "shards", shards,
+                    "stockQuantity", product.getStockQuantity()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/products/{productId}/stock-movements")
+    @Operation(summary = "Get a product's stock ledger",
+               description = "Lists the product's stock movements after the given movement ID, oldest first, "
+                       + "with its stock replayed from the ledger.")
+    public ResponseEntity<?> getStockMovements(@PathVariable Long productId,
+                                               @RequestParam(defaultValue = "0") long after,
+                                               @RequestParam(defaultValue = "100") int limit) {
+        if (limit < 1 || limit > 1000) {
+            return ResponseEntity.badRequest().body(Map.of("error", "limit must be between 1 and 1000"));
+        }
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("productId", productId);
+        response.put("ledgerStock", inventoryLedger.getStock(productId));
+        response.put("movements", inventoryLedger.getMovements(productId, after, limit));
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/inventory/reconciliation")
+    @Operation(summary = "Compare every product's stock with its ledger",
+               description = "Replays the stock ledger of all products and lists those whose stock differs.")
+    public ResponseEntity<List<StockDiscrepancyDto>> reconcileInventory() {
+        return ResponseEntity.ok(inventoryLedger.reconcile());
+    }
+
+    @PostMapping("/inventory/snapshots")
+    @Operation(summary = "Fold the settled stock movements into snapshots now")
+    public ResponseEntity<Map<String, Integer>> snapshotInventory() {
+        return ResponseEntity.ok(Map.of("snapshots", inventoryLedger.snapshot()));
+    }
+}
@@ -1,10 +1,14 @@
 package com.ecommerce.controller.api;
 
+import com.ecommerce.config.GuestCartLoginHandler;
 import com.ecommerce.dto.UserRegistrationDto;
 import com.ecommerce.model.User;
+import com.ecommerce.service.UserPrincipal;
 import com.ecommerce.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -13,6 +17,7 @@ import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.Map;
@@ -25,11 +30,14 @@ public class ApiAuthController {
 
     private final UserService userService;
     private final AuthenticationManager authenticationManager;
+    private final GuestCartLoginHandler guestCartLoginHandler;
 
     @Autowired
-    public ApiAuthController(UserService userService, AuthenticationManager authenticationManager) {
+    public ApiAuthController(UserService userService, AuthenticationManager authenticationManager,
+                             GuestCartLoginHandler guestCartLoginHandler) {
         this.userService = userService;
         this.authenticationManager = authenticationManager;
+        this.guestCartLoginHandler = guestCartLoginHandler;
     }
 
     @PostMapping("/register")
@@ -49,7 +57,8 @@ public class ApiAuthController {
 
     @PostMapping("/login")
     @Operation(summary = "Login")
-    public ResponseEntity<?> login(@RequestBody Map<String, String> credentials) {
+    public ResponseEntity<?> login(@RequestBody Map<String, String> credentials,
+                                   HttpServletRequest request, HttpServletResponse response) {
         try {
             Authentication authentication = authenticationManager.authenticate(
                     new UsernamePasswordAuthenticationToken(
@@ -57,7 +66,8 @@ public class ApiAuthController {
                             credentials.get("password")
                     )
             );
-            User user = userService.getCurrentUser(credentials.get("email"));
+            guestCartLoginHandler.mergeGuestCart(request, response, authentication);
+            User user = userService.getCurrentUser(((UserPrincipal) authentication.getPrincipal()).getUserId());
             return ResponseEntity.ok(Map.of(
                     "message", "Login successful",
                     "userId", user.getUserId(),
@@ -73,12 +83,12 @@ public class ApiAuthController {
 
     @GetMapping("/me")
     @Operation(summary = "Get current user info")
-    public ResponseEntity<?> getCurrentUser(Authentication authentication) {
-        if (authentication == null) {
+    public ResponseEntity<?> getCurrentUser(@AuthenticationPrincipal UserPrincipal principal) {
+        if (principal == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(Map.of("error", "Not authenticated"));
         }
-        User user = userService.getCurrentUser(authentication.getName());
+        User user = userService.getCurrentUser(principal.getUserId());
         return ResponseEntity.ok(Map.of(
                 "userId", user.getUserId(),
                 "email", user.getEmail(),
@@ -1,76 +1,139 @@
 package com.ecommerce.controller.api;
 
+import com.ecommerce.config.GuestCartCookie;
+import com.ecommerce.dto.CartContentsDto;
+import com.ecommerce.dto.CartOperationDto;
+import com.ecommerce.dto.CartSummaryDto;
 import com.ecommerce.model.Cart;
 import com.ecommerce.service.CartService;
+import com.ecommerce.service.UserPrincipal;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
-import java.math.BigDecimal;
+import java.util.List;
 import java.util.Map;
 
 @RestController
 @RequestMapping("/api/v1/cart")
-@Tag(name = "Cart", description = "Shopping cart API")
+@Tag(name = "Cart", description = "Shopping cart API. Anonymous callers get a guest cart kept in a signed "
+        + "cookie, which is merged into their cart when they log in.")
 @CrossOrigin(origins = "*")
 public class ApiCartController {
 
     private final CartService cartService;
+    private final GuestCartCookie guestCartCookie;
 
     @Autowired
-    public ApiCartController(CartService cartService) {
+    public ApiCartController(CartService cartService, GuestCartCookie guestCartCookie) {
         this.cartService = cartService;
+        this.guestCartCookie = guestCartCookie;
     }
 
     @GetMapping
     @Operation(summary = "Get current user's cart")
-    public ResponseEntity<Cart> getCart(Authentication authentication) {
-        Cart cart = cartService.getCartByUserEmail(authentication.getName());
+    public ResponseEntity<Cart> getCart(@AuthenticationPrincipal UserPrincipal principal,
+                                        HttpServletRequest httpRequest) {
+        if (principal == null) {
+            return ResponseEntity.ok(cartService.getGuestCart(guestCartCookie.read(httpRequest)));
+        }
+        Cart cart = cartService.getCart(principal.getUserId(), principal.getCartId());
         return ResponseEntity.ok(cart);
     }
 
     @PostMapping("/items")
     @Operation(summary = "Add item to cart")
-    public ResponseEntity<Cart> addToCart(Authentication authentication,
-                                          @RequestBody Map<String, Object> request) {
+    public ResponseEntity<Cart> addToCart(@AuthenticationPrincipal UserPrincipal principal,
+                                          @RequestBody Map<String, Object> request,
+                                          HttpServletRequest httpRequest, HttpServletResponse httpResponse) {
         Long productId = Long.valueOf(request.get("productId").toString());
         int quantity = Integer.parseInt(request.get("quantity").toString());
-        Cart cart = cartService.addToCart(authentication.getName(), productId, quantity);
+        if (principal == null) {
+            Map<Long, Integer> items = guestCartCookie.read(httpRequest);
+            cartService.addToGuestCart(items, productId, quantity);
+            guestCartCookie.write(httpResponse, items);
+            return ResponseEntity.ok(cartService.getGuestCart(items));
+        }
+        Cart cart = cartService.addToCart(principal.getUserId(), principal.getCartId(), productId, quantity);
         return ResponseEntity.ok(cart);
     }
 
     @PutMapping("/items/{productId}")
     @Operation(summary = "Update cart item quantity")
-    public ResponseEntity<Cart> updateCartItem(Authentication authentication,
+    public ResponseEntity<Cart> updateCartItem(@AuthenticationPrincipal UserPrincipal principal,
                                                 @PathVariable Long productId,
-                                                @RequestBody Map<String, Integer> request) {
-        Cart cart = cartService.updateCartItemQuantity(authentication.getName(), productId, request.get("quantity"));
+                                                @RequestBody Map<String, Integer> request,
+                                                HttpServletRequest httpRequest, HttpServletResponse httpResponse) {
+        if (principal == null) {
+            Map<Long, Integer> items = guestCartCookie.read(httpRequest);
+            cartService.updateGuestCartItemQuantity(items, productId, request.get("quantity"));
+            guestCartCookie.write(httpResponse, items);
+            return ResponseEntity.ok(cartService.getGuestCart(items));
+        }
+        Cart cart = cartService.updateCartItemQuantity(principal.getUserId(), principal.getCartId(), productId, request.get("quantity"));
         return ResponseEntity.ok(cart);
     }
 
     @DeleteMapping("/items/{productId}")
     @Operation(summary = "Remove item from cart")
-    public ResponseEntity<Cart> removeFromCart(Authentication authentication,
-                                               @PathVariable Long productId) {
-        Cart cart = cartService.removeFromCart(authentication.getName(), productId);
+    public ResponseEntity<Cart> removeFromCart(@AuthenticationPrincipal UserPrincipal principal,
+                                               @PathVariable Long productId,
+                                               HttpServletRequest httpRequest, HttpServletResponse httpResponse) {
+        if (principal == null) {
+            Map<Long, Integer> items = guestCartCookie.read(httpRequest);
+            items.remove(productId);
+            guestCartCookie.write(httpResponse, items);
+            return ResponseEntity.ok(cartService.getGuestCart(items));
+        }
+        Cart cart = cartService.removeFromCart(principal.getUserId(), principal.getCartId(), productId);
         return ResponseEntity.ok(cart);
     }
 
+    @PatchMapping
+    @Operation(summary = "Apply several cart line changes at once",
+               description = "Takes a list of {action: ADD|UPDATE|REMOVE, productId, quantity} operations, "
+                       + "applies them in order in one transaction and returns the resulting lines and totals. "
+                       + "If any operation fails, the cart is left unchanged.")
+    public ResponseEntity<?> updateCart(@AuthenticationPrincipal UserPrincipal principal,
+                                        @RequestBody List<CartOperationDto> operations,
+                                        HttpServletRequest httpRequest, HttpServletResponse httpResponse) {
+        try {
+            if (principal == null) {
+                Map<Long, Integer> items = guestCartCookie.read(httpRequest);
+                CartContentsDto contents = cartService.applyGuestCartOperations(items, operations);
+                guestCartCookie.write(httpResponse, items);
+                return ResponseEntity.ok(contents);
+            }
+            return ResponseEntity.ok(cartService.applyCartOperations(principal.getUserId(), principal.getCartId(), operations));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
     @DeleteMapping
     @Operation(summary = "Clear cart")
-    public ResponseEntity<Void> clearCart(Authentication authentication) {
-        cartService.clearCart(authentication.getName());
+    public ResponseEntity<Void> clearCart(@AuthenticationPrincipal UserPrincipal principal,
+                                          HttpServletResponse httpResponse) {
+        if (principal == null) {
+            guestCartCookie.clear(httpResponse);
+            return ResponseEntity.noContent().build();
+        }
+        cartService.clearCart(principal.getUserId(), principal.getCartId());
         return ResponseEntity.noContent().build();
     }
 
     @GetMapping("/total")
     @Operation(summary = "Get cart total")
-    public ResponseEntity<Map<String, Object>> getCartTotal(Authentication authentication) {
-        BigDecimal total = cartService.getCartTotal(authentication.getName());
-        int itemCount = cartService.getCartItemCount(authentication.getName());
-        return ResponseEntity.ok(Map.of("total", total, "itemCount", itemCount));
+    public ResponseEntity<Map<String, Object>> getCartTotal(@AuthenticationPrincipal UserPrincipal principal,
+                                                            HttpServletRequest httpRequest) {
+        CartSummaryDto summary = principal == null
+                ? cartService.getGuestCartSummary(guestCartCookie.read(httpRequest))
+                : cartService.getCartSummary(principal.getUserId());
+        return ResponseEntity.ok(Map.of("total", summary.getTotal(), "itemCount", summary.getItemCount()));
     }
 }
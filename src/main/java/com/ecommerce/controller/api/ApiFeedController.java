@@ -0,0 +1,56 @@
+package com.ecommerce.controller.api;
+
+import com.ecommerce.service.ProductFeedService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/v1/products/feed")
+@Tag(name = "Product Feed", description = "Shopping/price feed export for marketplaces and ad platforms")
+@CrossOrigin(origins = "*")
+public class ApiFeedController {
+
+    static final String WATERMARK_HEADER = "X-Feed-Watermark";
+
+    private final ProductFeedService productFeedService;
+
+    @Autowired
+    public ApiFeedController(ProductFeedService productFeedService) {
+        this.productFeedService = productFeedService;
+    }
+
+    @GetMapping
+    @Operation(summary = "Download the product feed as gzip-compressed XML or CSV",
+               description = "Streams the whole catalog, or with since only the products changed at or after "
+                       + "that time. The X-Feed-Watermark response header is the since value for the next "
+                       + "incremental feed.")
+    public ResponseEntity<?> getFeed(@RequestParam(defaultValue = "xml") String format,
+                                     @RequestParam(required = false)
+                                     @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime since) {
+        ProductFeedService.Format feedFormat;
+        try {
+            feedFormat = ProductFeedService.Format.fromName(format);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+        LocalDateTime watermark = productFeedService.nextWatermark();
+        StreamingResponseBody body = outputStream -> productFeedService.writeFeed(outputStream, feedFormat, since);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/gzip"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(productFeedService.getFileName(feedFormat, since)).build().toString())
+                .header(WATERMARK_HEADER, watermark.toString())
+                .body(body);
+    }
+}
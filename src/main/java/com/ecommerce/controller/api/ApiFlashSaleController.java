@@ -0,0 +1,66 @@
+package com.ecommerce.controller.api;
+
+import com.ecommerce.dto.CheckoutDto;
+import com.ecommerce.dto.FlashSaleStatusDto;
+import com.ecommerce.model.Order;
+import com.ecommerce.service.FlashSaleService;
+import com.ecommerce.service.OrderService;
+import com.ecommerce.service.UserPrincipal;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/v1/flash-sales")
+@Tag(name = "Flash Sales", description = "Waiting room and checkout for products on flash sale. Shoppers join "
+        + "the queue, poll their position until admitted, then buy one unit within the claim window.")
+@CrossOrigin(origins = "*")
+public class ApiFlashSaleController {
+
+    private final FlashSaleService flashSaleService;
+    private final OrderService orderService;
+
+    @Autowired
+    public ApiFlashSaleController(FlashSaleService flashSaleService, OrderService orderService) {
+        this.flashSaleService = flashSaleService;
+        this.orderService = orderService;
+    }
+
+    @GetMapping("/{productId}")
+    @Operation(summary = "Get the current user's place in a flash sale")
+    public ResponseEntity<?> getStatus(@AuthenticationPrincipal UserPrincipal principal, @PathVariable Long productId) {
+        if (!flashSaleService.isOnSale(productId)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(flashSaleService.getStatus(productId, principal.getUserId()));
+    }
+
+    @PostMapping("/{productId}/queue")
+    @Operation(summary = "Join the waiting room of a flash sale")
+    public ResponseEntity<?> join(@AuthenticationPrincipal UserPrincipal principal, @PathVariable Long productId) {
+        if (!flashSaleService.isOnSale(productId)) {
+            return ResponseEntity.notFound().build();
+        }
+        FlashSaleStatusDto status = flashSaleService.join(productId, principal.getUserId());
+        return ResponseEntity.ok(status);
+    }
+
+    @PostMapping("/{productId}/orders")
+    @Operation(summary = "Buy one unit with the current user's admission")
+    public ResponseEntity<?> placeOrder(@AuthenticationPrincipal UserPrincipal principal, @PathVariable Long productId,
+                                        @Valid @RequestBody CheckoutDto checkoutDto) {
+        try {
+            Order order = orderService.placeFlashSaleOrder(principal.getUserId(), productId, checkoutDto);
+            return ResponseEntity.status(HttpStatus.CREATED).body(order);
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        }
+    }
+}
@@ -3,13 +3,14 @@ package com.ecommerce.controller.api;
 import com.ecommerce.dto.CheckoutDto;
 import com.ecommerce.model.Order;
 import com.ecommerce.service.OrderService;
+import com.ecommerce.service.UserPrincipal;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -29,30 +30,30 @@ public class ApiOrderController {
 
     @PostMapping
     @Operation(summary = "Place a new order")
-    public ResponseEntity<Order> placeOrder(Authentication authentication,
+    public ResponseEntity<Order> placeOrder(@AuthenticationPrincipal UserPrincipal principal,
                                              @Valid @RequestBody CheckoutDto checkoutDto) {
-        Order order = orderService.placeOrder(authentication.getName(), checkoutDto);
+        Order order = orderService.placeOrder(principal.getUserId(), principal.getCartId(), checkoutDto);
         return ResponseEntity.status(HttpStatus.CREATED).body(order);
     }
 
     @GetMapping
     @Operation(summary = "Get all orders for current user")
-    public ResponseEntity<List<Order>> getMyOrders(Authentication authentication) {
-        return ResponseEntity.ok(orderService.getOrdersForUser(authentication.getName()));
+    public ResponseEntity<List<Order>> getMyOrders(@AuthenticationPrincipal UserPrincipal principal) {
+        return ResponseEntity.ok(orderService.getOrdersForUser(principal.getUserId()));
     }
 
     @GetMapping("/{id}")
     @Operation(summary = "Get order by ID")
-    public ResponseEntity<Order> getOrder(Authentication authentication, @PathVariable Long id) {
-        return orderService.getOrderByIdForUser(id, authentication.getName())
+    public ResponseEntity<Order> getOrder(@AuthenticationPrincipal UserPrincipal principal, @PathVariable Long id) {
+        return orderService.getOrderByIdForUser(id, principal.getUserId())
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
 
     @PostMapping("/{id}/cancel")
     @Operation(summary = "Cancel an order")
-    public ResponseEntity<Order> cancelOrder(Authentication authentication, @PathVariable Long id) {
-        Order order = orderService.cancelOrder(id, authentication.getName());
+    public ResponseEntity<Order> cancelOrder(@AuthenticationPrincipal UserPrincipal principal, @PathVariable Long id) {
+        Order order = orderService.cancelOrder(id, principal.getUserId());
         return ResponseEntity.ok(order);
     }
 
@@ -1,18 +1,38 @@
 package com.ecommerce.controller.api;
 
+import com.ecommerce.dto.CatalogVersion;
+import com.ecommerce.dto.CursorPage;
 import com.ecommerce.dto.ProductDto;
+import com.ecommerce.dto.ProductSummaryDto;
+import com.ecommerce.dto.SuggestionDto;
 import com.ecommerce.model.Product;
 import com.ecommerce.service.ProductService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/v1/products")
@@ -20,43 +40,161 @@ import java.util.List;
 @CrossOrigin(origins = "*")
 public class ApiProductController {
 
+    private static final String NDJSON = "application/x-ndjson";
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+
     private final ProductService productService;
+    private final ObjectMapper objectMapper;
+    private final CacheControl catalogCacheControl;
 
     @Autowired
-    public ApiProductController(ProductService productService) {
+    public ApiProductController(ProductService productService, ObjectMapper objectMapper,
+                                @Value("${app.catalog.http.max-age-seconds:30}") long maxAgeSeconds,
+                                @Value("${app.catalog.http.shared-max-age-seconds:60}") long sharedMaxAgeSeconds) {
         this.productService = productService;
+        this.objectMapper = objectMapper;
+        // Catalog responses are the same for every user, so shared caches (CDNs) may store them
+        this.catalogCacheControl = CacheControl.maxAge(Duration.ofSeconds(maxAgeSeconds))
+                .sMaxAge(Duration.ofSeconds(sharedMaxAgeSeconds))
+                .cachePublic();
     }
 
     @GetMapping
-    @Operation(summary = "Get all products", description = "Retrieve all products with optional pagination")
-    public ResponseEntity<List<Product>> getAllProducts() {
-        return ResponseEntity.ok(productService.getAllProducts());
+    @Operation(summary = "Get products newest first",
+               description = "Returns at most size products (max 100). When more follow, a Link header with "
+                       + "rel=\"next\" points at the next page. Request application/x-ndjson to stream the whole catalog.")
+    public ResponseEntity<?> getAllProducts(@RequestParam(required = false) String cursor,
+                                            @RequestParam(defaultValue = "20") int size,
+                                            WebRequest request) {
+        return linkedPage(null, cursor, size, request);
+    }
+
+    @GetMapping(produces = NDJSON)
+    @Operation(summary = "Stream all products as newline-delimited JSON")
+    public ResponseEntity<StreamingResponseBody> streamAllProducts(WebRequest request) {
+        if (isNotModified(request, productService.getCatalogVersion(null))) {
+            return notModified();
+        }
+        ObjectWriter writer = objectMapper.writerFor(Product.class);
+        StreamingResponseBody body = outputStream -> {
+            OutputStream out = new BufferedOutputStream(outputStream, STREAM_BUFFER_SIZE);
+            productService.streamAllProducts(product -> {
+                try {
+                    out.write(writer.writeValueAsBytes(product));
+                    out.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            out.flush();
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(NDJSON))
+                .cacheControl(catalogCacheControl)
+                .body(body);
+    }
+
+    @GetMapping("/scroll")
+    @Operation(summary = "Get products newest first with cursor pagination",
+               description = "Pass the returned nextCursor to fetch the following page")
+    public ResponseEntity<?> scrollProducts(@RequestParam(required = false) String cursor,
+                                            @RequestParam(required = false) String category,
+                                            @RequestParam(defaultValue = "20") int size,
+                                            WebRequest request) {
+        if (isNotModified(request, productService.getCatalogVersion(category))) {
+            return notModified();
+        }
+        try {
+            CursorPage<ProductSummaryDto> page = productService.getProductsAfter(category, cursor, size);
+            return ResponseEntity.ok().cacheControl(catalogCacheControl).body(page);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
     }
 
     @GetMapping("/{id}")
     @Operation(summary = "Get product by ID")
-    public ResponseEntity<Product> getProductById(@PathVariable Long id) {
+    public ResponseEntity<Product> getProductById(@PathVariable Long id, WebRequest request) {
+        Optional<CatalogVersion> version = productService.getProductVersion(id);
+        if (version.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (isNotModified(request, version.get())) {
+            return notModified();
+        }
         return productService.getProductById(id)
-                .map(ResponseEntity::ok)
+                .map(product -> ResponseEntity.ok().cacheControl(catalogCacheControl).body(product))
                 .orElse(ResponseEntity.notFound().build());
     }
 
     @GetMapping("/category/{category}")
-    @Operation(summary = "Get products by category")
-    public ResponseEntity<List<Product>> getProductsByCategory(@PathVariable String category) {
-        return ResponseEntity.ok(productService.getProductsByCategory(category));
+    @Operation(summary = "Get products of a category newest first",
+               description = "Returns at most size products (max 100). When more follow, a Link header with "
+                       + "rel=\"next\" points at the next page.")
+    public ResponseEntity<?> getProductsByCategory(@PathVariable String category,
+                                                   @RequestParam(required = false) String cursor,
+                                                   @RequestParam(defaultValue = "20") int size,
+                                                   WebRequest request) {
+        return linkedPage(category, cursor, size, request);
     }
 
     @GetMapping("/search")
-    @Operation(summary = "Search products")
-    public ResponseEntity<List<Product>> searchProducts(@RequestParam String q) {
-        return ResponseEntity.ok(productService.searchProducts(q));
+    @Operation(summary = "Search products",
+               description = "Returns one page of at most size matches (max 100), best match first. When more follow, "
+                       + "a Link header with rel=\"next\" points at the next page. With fuzzy=true, search terms "
+                       + "also match words within one or two typos")
+    public ResponseEntity<List<ProductSummaryDto>> searchProducts(@RequestParam String q,
+                                                                  @RequestParam(defaultValue = "false") boolean fuzzy,
+                                                                  @RequestParam(defaultValue = "0") int page,
+                                                                  @RequestParam(defaultValue = "20") int size) {
+        Page<ProductSummaryDto> results = productService.searchProducts(q, fuzzy, page, size);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (results.hasNext()) {
+            String next = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("page", results.getNumber() + 1)
+                    .replaceQueryParam("size", results.getSize())
+                    .toUriString();
+            response.header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+        }
+        return response.body(results.getContent());
+    }
+
+    @GetMapping("/filter")
+    @Operation(summary = "Filter products by category, price band and stock",
+               description = "Repeat category or priceBand to match any of several values. The response includes, "
+                       + "for each facet, how many products each of its values would match")
+    public ResponseEntity<?> filterProducts(@RequestParam(required = false) List<String> category,
+                                            @RequestParam(required = false) List<String> priceBand,
+                                            @RequestParam(required = false) Boolean inStock,
+                                            @RequestParam(defaultValue = "0") int page,
+                                            @RequestParam(defaultValue = "20") int size) {
+        try {
+            return ResponseEntity.ok(productService.filterProducts(
+                    category != null ? category : List.of(), priceBand != null ? priceBand : List.of(),
+                    inStock, page, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/suggest")
+    @Operation(summary = "Autocomplete product names and categories",
+               description = "Returns the most popular product names and categories starting with the prefix, "
+                       + "or containing a word that starts with it")
+    public ResponseEntity<List<SuggestionDto>> suggestProducts(@RequestParam String prefix,
+                                                               @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(productService.suggestProducts(prefix, limit));
     }
 
     @GetMapping("/categories")
     @Operation(summary = "Get all categories")
-    public ResponseEntity<List<String>> getAllCategories() {
-        return ResponseEntity.ok(productService.getAllCategories());
+    public ResponseEntity<List<String>> getAllCategories(WebRequest request) {
+        if (isNotModified(request, productService.getCatalogVersion(null))) {
+            return notModified();
+        }
+        return ResponseEntity.ok().cacheControl(catalogCacheControl).body(productService.getAllCategories());
     }
 
     @PostMapping
@@ -77,4 +215,40 @@ public class ApiProductController {
         productService.deleteProduct(id);
         return ResponseEntity.noContent().build();
     }
+
+    /**
+     * Check the request's validators against a catalog version. Adds the ETag and Last-Modified
+     * headers to the response and returns true if the client's copy is still current.
+     */
+    /**
+     * Respond with one page of products of the catalog or a category, and a Link header to the next page.
+     */
+    private ResponseEntity<?> linkedPage(String category, String cursor, int size, WebRequest request) {
+        if (isNotModified(request, productService.getCatalogVersion(category))) {
+            return notModified();
+        }
+        CursorPage<ProductSummaryDto> page;
+        try {
+            page = productService.getProductsAfter(category, cursor, size);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().cacheControl(catalogCacheControl);
+        if (page.getNextCursor() != null) {
+            String next = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("cursor", page.getNextCursor())
+                    .replaceQueryParam("size", page.getSize())
+                    .toUriString();
+            response.header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+        }
+        return response.body(page.getContent());
+    }
+
+    private boolean isNotModified(WebRequest request, CatalogVersion version) {
+        return request.checkNotModified(version.getETag(), version.getLastModifiedMillis());
+    }
+
+    private <T> ResponseEntity<T> notModified() {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(catalogCacheControl).build();
+    }
 }
@@ -0,0 +1,30 @@
+package com.ecommerce.dto;
+
+/**
+ * A cart left idle with items in it, and who to remind about it.
+ */
+public class AbandonedCartDto {
+
+    private final Long cartId;
+    private final String email;
+    private final String name;
+
+    public AbandonedCartDto(Long cartId, String email, String name) {
+        this.cartId = cartId;
+        this.email = email;
+        this.name = name;
+    }
+
+    // Getters
+    public Long getCartId() {
+        return cartId;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getName() {
+        return name;
+    }
+}
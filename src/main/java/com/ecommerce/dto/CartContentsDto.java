@@ -0,0 +1,33 @@
+package com.ecommerce.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Compact view of a cart: its lines as product ID and quantity, plus the item count and total price.
+ */
+public class CartContentsDto {
+
+    private final List<CartItemDto> items;
+    private final int itemCount;
+    private final BigDecimal total;
+
+    public CartContentsDto(List<CartItemDto> items, int itemCount, BigDecimal total) {
+        this.items = items;
+        this.itemCount = itemCount;
+        this.total = total;
+    }
+
+    // Getters
+    public List<CartItemDto> getItems() {
+        return items;
+    }
+
+    public int getItemCount() {
+        return itemCount;
+    }
+
+    public BigDecimal getTotal() {
+        return total;
+    }
+}
@@ -0,0 +1,54 @@
+package com.ecommerce.dto;
+
+/**
+ * DTO for one line change in a batch cart update.
+ */
+public class CartOperationDto {
+
+    /**
+     * ADD increases the quantity of a line (creating it), UPDATE sets the quantity of an existing
+     * line (0 removes it) and REMOVE deletes a line.
+     */
+    public enum Action {
+        ADD, UPDATE, REMOVE
+    }
+
+    private Action action;
+    private Long productId;
+    private int quantity;
+
+    // Constructors
+    public CartOperationDto() {
+    }
+
+    public CartOperationDto(Action action, Long productId, int quantity) {
+        this.action = action;
+        this.productId = productId;
+        this.quantity = quantity;
+    }
+
+    // Getters and Setters
+    public Action getAction() {
+        return action;
+    }
+
+    public void setAction(Action action) {
+        this.action = action;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public void setProductId(Long productId) {
+        this.productId = productId;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(int quantity) {
+        this.quantity = quantity;
+    }
+}
@@ -0,0 +1,35 @@
+package com.ecommerce.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Aggregates of a shopping cart: the number of items and the total price.
+ */
+public class CartSummaryDto {
+
+    public static final CartSummaryDto EMPTY = new CartSummaryDto(0, BigDecimal.ZERO);
+
+    private final int itemCount;
+    private final BigDecimal total;
+
+    public CartSummaryDto(int itemCount, BigDecimal total) {
+        this.itemCount = itemCount;
+        this.total = total;
+    }
+
+    /**
+     * Constructor for JPQL aggregate queries, where the sums are null for an empty cart.
+     */
+    public CartSummaryDto(Long itemCount, BigDecimal total) {
+        this(itemCount != null ? itemCount.intValue() : 0, total != null ? total : BigDecimal.ZERO);
+    }
+
+    // Getters
+    public int getItemCount() {
+        return itemCount;
+    }
+
+    public BigDecimal getTotal() {
+        return total;
+    }
+}
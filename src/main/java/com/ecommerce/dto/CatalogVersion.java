@@ -0,0 +1,53 @@
+package com.ecommerce.dto;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * Version of a product or product collection, used as the HTTP validator for catalog responses.
+ * A collection changes version whenever a product in it is added, removed or modified.
+ */
+public class CatalogVersion {
+
+    private final long count;
+
+    private final LocalDateTime lastModified;
+
+    public CatalogVersion(Long count, LocalDateTime lastModified) {
+        this.count = count != null ? count : 0;
+        this.lastModified = lastModified;
+    }
+
+    // Getters
+    public long getCount() {
+        return count;
+    }
+
+    public LocalDateTime getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * Get this version moved forward to a later modification of one of its products.
+     */
+    public CatalogVersion modifiedAt(LocalDateTime modified) {
+        if (lastModified != null && !modified.isAfter(lastModified)) {
+            return this;
+        }
+        return new CatalogVersion(count, modified);
+    }
+
+    /**
+     * Last modification time in epoch milliseconds, or -1 if unknown.
+     */
+    public long getLastModifiedMillis() {
+        return lastModified != null ? lastModified.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : -1;
+    }
+
+    /**
+     * Strong entity tag built from the product count and last modification time.
+     */
+    public String getETag() {
+        return "\"" + count + "-" + Math.max(getLastModifiedMillis(), 0) + "\"";
+    }
+}
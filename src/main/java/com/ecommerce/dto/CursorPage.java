@@ -0,0 +1,58 @@
+package com.ecommerce.dto;
+
+import java.util.List;
+
+/**
+ * A page of results from keyset (cursor) pagination.
+ * Pass {@code nextCursor} back to fetch the following page; it is null on the last page.
+ */
+public class CursorPage<T> {
+
+    private List<T> content;
+
+    private String nextCursor;
+
+    private int size;
+
+    // Constructors
+    public CursorPage() {
+    }
+
+    public CursorPage(List<T> content, String nextCursor, int size) {
+        this.content = content;
+        this.nextCursor = nextCursor;
+        this.size = size;
+    }
+
+    // Getters and Setters
+    public List<T> getContent() {
+        return content;
+    }
+
+    public void setContent(List<T> content) {
+        this.content = content;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public void setSize(int size) {
+        this.size = size;
+    }
+
+    /**
+     * Check if there is a page after this one.
+     */
+    public boolean isHasNext() {
+        return nextCursor != null;
+    }
+}
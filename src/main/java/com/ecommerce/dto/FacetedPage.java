@@ -0,0 +1,50 @@
+package com.ecommerce.dto;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A page of filtered products with, for each facet, the number of products matching each of its values.
+ */
+public class FacetedPage {
+
+    private final List<ProductSummaryDto> content;
+
+    private final int page;
+
+    private final int size;
+
+    private final long totalElements;
+
+    private final Map<String, Map<String, Long>> facets;
+
+    public FacetedPage(List<ProductSummaryDto> content, int page, int size, long totalElements,
+                       Map<String, Map<String, Long>> facets) {
+        this.content = content;
+        this.page = page;
+        this.size = size;
+        this.totalElements = totalElements;
+        this.facets = facets;
+    }
+
+    // Getters
+    public List<ProductSummaryDto> getContent() {
+        return content;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public long getTotalElements() {
+        return totalElements;
+    }
+
+    public Map<String, Map<String, Long>> getFacets() {
+        return facets;
+    }
+}
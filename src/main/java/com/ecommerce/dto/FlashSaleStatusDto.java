@@ -0,0 +1,58 @@
+package com.ecommerce.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * A shopper's place in a flash sale: their queue status, how many shoppers are ahead of them, the
+ * tokens left in the pool and, once admitted, until when they can check out.
+ */
+public class FlashSaleStatusDto {
+
+    /**
+     * Queue status of a shopper.
+     */
+    public enum Status {
+        NOT_QUEUED,
+        WAITING,
+        ADMITTED,
+        CLAIMED,
+        EXPIRED,
+        SOLD_OUT
+    }
+
+    private final Long productId;
+    private final Status status;
+    private final long position;
+    private final int tokensLeft;
+    private final LocalDateTime admissionExpiresAt;
+
+    public FlashSaleStatusDto(Long productId, Status status, long position, int tokensLeft,
+                              LocalDateTime admissionExpiresAt) {
+        this.productId = productId;
+        this.status = status;
+        this.position = position;
+        this.tokensLeft = tokensLeft;
+        this.admissionExpiresAt = admissionExpiresAt;
+    }
+
+    // Getters
+    public Long getProductId() {
+        return productId;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public long getPosition() {
+        return position;
+    }
+
+    public int getTokensLeft() {
+        return tokensLeft;
+    }
+
+    public LocalDateTime getAdmissionExpiresAt() {
+        return admissionExpiresAt;
+    }
+}
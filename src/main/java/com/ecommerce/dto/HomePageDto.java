@@ -0,0 +1,36 @@
+package com.ecommerce.dto;
+
+import com.ecommerce.model.Product;
+
+import java.util.List;
+
+/**
+ * Model for the home page: the newest products and the category list.
+ */
+public class HomePageDto {
+
+    private final List<Product> featuredProducts;
+
+    private final List<String> categories;
+
+    public HomePageDto(List<Product> featuredProducts, List<String> categories) {
+        this.featuredProducts = featuredProducts;
+        this.categories = categories;
+    }
+
+    // Getters
+    public List<Product> getFeaturedProducts() {
+        return featuredProducts;
+    }
+
+    public List<String> getCategories() {
+        return categories;
+    }
+
+    /**
+     * Check if a product is shown among the featured products.
+     */
+    public boolean isFeatured(Long productId) {
+        return featuredProducts.stream().anyMatch(p -> p.getProductId().equals(productId));
+    }
+}
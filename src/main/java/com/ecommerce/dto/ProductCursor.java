@@ -0,0 +1,67 @@
+package com.ecommerce.dto;
+
+import com.ecommerce.model.Product;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Position in the newest-first product listing, ordered by (createdAt, productId).
+ * Encoded as an opaque URL-safe string for clients.
+ */
+public class ProductCursor {
+
+    private final LocalDateTime createdAt;
+
+    private final Long productId;
+
+    public ProductCursor(LocalDateTime createdAt, Long productId) {
+        this.createdAt = createdAt;
+        this.productId = productId;
+    }
+
+    /**
+     * Cursor pointing just after the given product.
+     */
+    public static ProductCursor after(Product product) {
+        return new ProductCursor(product.getCreatedAt(), product.getProductId());
+    }
+
+    /**
+     * Cursor pointing just after the given listed product.
+     */
+    public static ProductCursor after(ProductSummaryDto product) {
+        return new ProductCursor(product.getCreatedAt(), product.getProductId());
+    }
+
+    /**
+     * Decode a cursor previously returned by {@link #encode()}.
+     *
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    public static ProductCursor decode(String cursor) {
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = value.lastIndexOf('|');
+            return new ProductCursor(LocalDateTime.parse(value.substring(0, separator)),
+                    Long.valueOf(value.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+    }
+
+    public String encode() {
+        String value = createdAt + "|" + productId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Getters
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+}
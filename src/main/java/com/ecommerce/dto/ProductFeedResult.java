@@ -0,0 +1,39 @@
+package com.ecommerce.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * A generated feed file: its name, how many products and bytes it holds, and the watermark to
+ * pass as {@code since} for the next incremental feed.
+ */
+public class ProductFeedResult {
+
+    private final String fileName;
+    private final long products;
+    private final long bytes;
+    private final LocalDateTime watermark;
+
+    public ProductFeedResult(String fileName, long products, long bytes, LocalDateTime watermark) {
+        this.fileName = fileName;
+        this.products = products;
+        this.bytes = bytes;
+        this.watermark = watermark;
+    }
+
+    // Getters
+    public String getFileName() {
+        return fileName;
+    }
+
+    public long getProducts() {
+        return products;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public LocalDateTime getWatermark() {
+        return watermark;
+    }
+}
@@ -0,0 +1,78 @@
+package com.ecommerce.dto;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk product import: row counts, throughput and the rejected rows.
+ * Only the first rejected rows are listed; {@code failed} counts all of them.
+ */
+public class ProductImportResult {
+
+    private final long rowsRead;
+    private final long inserted;
+    private final long updated;
+    private final long failed;
+    private final long elapsedMillis;
+    private final List<RowError> errors;
+
+    public ProductImportResult(long rowsRead, long inserted, long updated, long failed, long elapsedMillis,
+                               List<RowError> errors) {
+        this.rowsRead = rowsRead;
+        this.inserted = inserted;
+        this.updated = updated;
+        this.failed = failed;
+        this.elapsedMillis = elapsedMillis;
+        this.errors = errors;
+    }
+
+    // Getters
+    public long getRowsRead() {
+        return rowsRead;
+    }
+
+    public long getInserted() {
+        return inserted;
+    }
+
+    public long getUpdated() {
+        return updated;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public long getRowsPerSecond() {
+        return elapsedMillis == 0 ? rowsRead : rowsRead * 1000 / elapsedMillis;
+    }
+
+    public List<RowError> getErrors() {
+        return errors;
+    }
+
+    /**
+     * A rejected row. Rows are numbered from 1, not counting a CSV header.
+     */
+    public static class RowError {
+
+        private final long row;
+        private final String message;
+
+        public RowError(long row, String message) {
+            this.row = row;
+            this.message = message;
+        }
+
+        public long getRow() {
+            return row;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.ecommerce.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Lean read-only view of a product for listing pages and list APIs.
+ * Populated directly by projection queries, so the description column is never read.
+ */
+public class ProductSummaryDto {
+
+    private final Long productId;
+
+    private final String name;
+
+    private final BigDecimal price;
+
+    private final String imageUrl;
+
+    private final String category;
+
+    private final boolean inStock;
+
+    private final LocalDateTime createdAt;
+
+    public ProductSummaryDto(Long productId, String name, BigDecimal price, String imageUrl,
+                             String category, Integer stockQuantity, LocalDateTime createdAt) {
+        this.productId = productId;
+        this.name = name;
+        this.price = price;
+        this.imageUrl = imageUrl;
+        this.category = category;
+        this.inStock = stockQuantity != null && stockQuantity > 0;
+        this.createdAt = createdAt;
+    }
+
+    // Getters
+    public Long getProductId() {
+        return productId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public BigDecimal getPrice() {
+        return price;
+    }
+
+    public String getImageUrl() {
+        return imageUrl;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public boolean isInStock() {
+        return inStock;
+    }
+
+    /**
+     * Listing sort key, used to build pagination cursors.
+     */
+    @JsonIgnore
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+}
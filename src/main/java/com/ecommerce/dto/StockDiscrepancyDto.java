@@ -0,0 +1,31 @@
+package com.ecommerce.dto;
+
+/**
+ * A product whose stock does not match the stock replayed from its ledger. The ledger stock is
+ * null if the product has no ledger entries.
+ */
+public class StockDiscrepancyDto {
+
+    private final Long productId;
+    private final int stockQuantity;
+    private final Integer ledgerStock;
+
+    public StockDiscrepancyDto(Long productId, int stockQuantity, Integer ledgerStock) {
+        this.productId = productId;
+        this.stockQuantity = stockQuantity;
+        this.ledgerStock = ledgerStock;
+    }
+
+    // Getters
+    public Long getProductId() {
+        return productId;
+    }
+
+    public int getStockQuantity() {
+        return stockQuantity;
+    }
+
+    public Integer getLedgerStock() {
+        return ledgerStock;
+    }
+}
@@ -0,0 +1,53 @@
+package com.ecommerce.dto;
+
+import com.ecommerce.model.StockMovement;
+
+import java.time.LocalDateTime;
+
+/**
+ * One entry of a product's stock ledger.
+ */
+public class StockMovementDto {
+
+    private final Long movementId;
+    private final Long productId;
+    private final StockMovement.Type type;
+    private final int quantity;
+    private final Long referenceId;
+    private final LocalDateTime createdAt;
+
+    public StockMovementDto(Long movementId, Long productId, StockMovement.Type type, int quantity,
+                            Long referenceId, LocalDateTime createdAt) {
+        this.movementId = movementId;
+        this.productId = productId;
+        this.type = type;
+        this.quantity = quantity;
+        this.referenceId = referenceId;
+        this.createdAt = createdAt;
+    }
+
+    // Getters
+    public Long getMovementId() {
+        return movementId;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public StockMovement.Type getType() {
+        return type;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public Long getReferenceId() {
+        return referenceId;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+}
@@ -0,0 +1,28 @@
+package com.ecommerce.dto;
+
+/**
+ * An autocomplete suggestion: a product name or a category.
+ */
+public class SuggestionDto {
+
+    public static final String TYPE_PRODUCT = "product";
+    public static final String TYPE_CATEGORY = "category";
+
+    private final String text;
+
+    private final String type;
+
+    public SuggestionDto(String text, String type) {
+        this.text = text;
+        this.type = type;
+    }
+
+    // Getters
+    public String getText() {
+        return text;
+    }
+
+    public String getType() {
+        return type;
+    }
+}
@@ -0,0 +1,89 @@
+package com.ecommerce.event;
+
+import com.ecommerce.model.Product;
+
+import java.util.Objects;
+
+/**
+ * Event published whenever a product is created, updated, deleted or has its stock changed.
+ * Listeners that keep derived catalog state (caches, indexes) should subscribe with
+ * {@code @TransactionalEventListener} so they only react once the change is committed.
+ */
+public class ProductChangedEvent {
+
+    public enum ChangeType {
+        CREATED,
+        UPDATED,
+        DELETED,
+        STOCK_CHANGED
+    }
+
+    private final Long productId;
+    private final ChangeType changeType;
+    private final Product product;
+    private final String previousCategory;
+    private final String category;
+
+    private ProductChangedEvent(Long productId, ChangeType changeType, Product product,
+                                String previousCategory, String category) {
+        this.productId = productId;
+        this.changeType = changeType;
+        this.product = product;
+        this.previousCategory = previousCategory;
+        this.category = category;
+    }
+
+    public static ProductChangedEvent created(Product product) {
+        return new ProductChangedEvent(product.getProductId(), ChangeType.CREATED, product,
+                null, product.getCategory());
+    }
+
+    public static ProductChangedEvent updated(Product product, String previousCategory) {
+        return new ProductChangedEvent(product.getProductId(), ChangeType.UPDATED, product,
+                previousCategory, product.getCategory());
+    }
+
+    public static ProductChangedEvent deleted(Long productId, String category) {
+        return new ProductChangedEvent(productId, ChangeType.DELETED, null, category, category);
+    }
+
+    public static ProductChangedEvent stockChanged(Product product) {
+        return new ProductChangedEvent(product.getProductId(), ChangeType.STOCK_CHANGED, product,
+                product.getCategory(), product.getCategory());
+    }
+
+    // Getters
+    public Long getProductId() {
+        return productId;
+    }
+
+    public ChangeType getChangeType() {
+        return changeType;
+    }
+
+    /**
+     * The product as of the change, or null when it was deleted.
+     */
+    public Product getProduct() {
+        return product;
+    }
+
+    public String getPreviousCategory() {
+        return previousCategory;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    /**
+     * Check if the change adds or removes the product from a listing
+     * (as opposed to only changing its displayed fields).
+     */
+    public boolean isMembershipChange() {
+        if (changeType == ChangeType.CREATED || changeType == ChangeType.DELETED) {
+            return true;
+        }
+        return changeType == ChangeType.UPDATED && !Objects.equals(previousCategory, category);
+    }
+}
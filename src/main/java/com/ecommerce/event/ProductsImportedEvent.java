@@ -0,0 +1,27 @@
+package com.ecommerce.event;
+
+/**
+ * Event published after a bulk product import has committed.
+ * Imported rows are written with batched JDBC statements and do not publish a
+ * {@link ProductChangedEvent} each, so listeners that keep derived catalog state
+ * should reload it from the database instead.
+ */
+public class ProductsImportedEvent {
+
+    private final long inserted;
+    private final long updated;
+
+    public ProductsImportedEvent(long inserted, long updated) {
+        this.inserted = inserted;
+        this.updated = updated;
+    }
+
+    // Getters
+    public long getInserted() {
+        return inserted;
+    }
+
+    public long getUpdated() {
+        return updated;
+    }
+}
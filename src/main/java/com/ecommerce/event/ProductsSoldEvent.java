@@ -0,0 +1,35 @@
+package com.ecommerce.event;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Event published when an order is placed or cancelled, carrying the units of each product it sold.
+ * A cancellation carries negative quantities, so summing every event gives the units ordered by
+ * orders that are not cancelled. Listeners should subscribe with {@code @TransactionalEventListener}.
+ */
+public class ProductsSoldEvent {
+
+    private final Map<Long, Integer> quantities;
+
+    private ProductsSoldEvent(Map<Long, Integer> quantities) {
+        this.quantities = quantities;
+    }
+
+    public static ProductsSoldEvent orderPlaced(Map<Long, Integer> quantities) {
+        return new ProductsSoldEvent(Map.copyOf(quantities));
+    }
+
+    public static ProductsSoldEvent orderCancelled(Map<Long, Integer> quantities) {
+        Map<Long, Integer> negated = new HashMap<>();
+        quantities.forEach((productId, quantity) -> negated.put(productId, -quantity));
+        return new ProductsSoldEvent(Map.copyOf(negated));
+    }
+
+    /**
+     * Units sold by product ID; negative when an order is cancelled.
+     */
+    public Map<Long, Integer> getQuantities() {
+        return quantities;
+    }
+}
@@ -2,6 +2,7 @@ package com.ecommerce.model;
 
 import jakarta.persistence.*;
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -25,6 +26,17 @@ public class Cart {
     @OneToMany(mappedBy = "cart", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.EAGER)
     private List<CartItem> items = new ArrayList<>();
 
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @Column(name = "reminder_sent_at")
+    private LocalDateTime reminderSentAt;
+
+    @PrePersist
+    protected void onCreate() {
+        updatedAt = LocalDateTime.now();
+    }
+
     // Constructors
     public Cart() {
     }
@@ -58,6 +70,22 @@ public class Cart {
         this.items = items;
     }
 
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public LocalDateTime getReminderSentAt() {
+        return reminderSentAt;
+    }
+
+    public void setReminderSentAt(LocalDateTime reminderSentAt) {
+        this.reminderSentAt = reminderSentAt;
+    }
+
     // Helper Methods
 
     /**
@@ -97,6 +125,15 @@ public class Cart {
         }
     }
 
+    /**
+     * Record that the items changed: the cart is no longer idle and may get a new reminder.
+     * Item changes do not dirty the cart itself, so callers touch it before saving.
+     */
+    public void touch() {
+        updatedAt = LocalDateTime.now();
+        reminderSentAt = null;
+    }
+
     /**
      * Clear all items from the cart.
      */
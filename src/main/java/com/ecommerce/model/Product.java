@@ -1,10 +1,12 @@
 package com.ecommerce.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import org.hibernate.annotations.Formula;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
@@ -36,6 +38,17 @@ public class Product {
     @Column(name = "stock_quantity")
     private Integer stockQuantity = 0;
 
+    // Number of stock shards, written only by resharding; 0 if the product's stock is not sharded
+    @Column(name = "stock_shards", nullable = false, insertable = false, updatable = false,
+            columnDefinition = "INT DEFAULT 0")
+    private int stockShards;
+
+    // Stock held in shard rows, or null if the product's stock is not sharded. Only products with
+    // shards run the subquery.
+    @Formula("(CASE WHEN stock_shards > 0 THEN (SELECT SUM(s.quantity) FROM product_stock_shards s "
+            + "WHERE s.product_id = product_id) END)")
+    private Integer shardedStock;
+
     @Column(name = "category", length = 100)
     private String category;
 
@@ -45,9 +58,18 @@ public class Product {
     @Column(name = "created_at")
     private LocalDateTime createdAt;
 
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
+        updatedAt = createdAt;
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
     }
 
     // Constructors
@@ -95,12 +117,46 @@ public class Product {
         this.price = price;
     }
 
-    public Integer getStockQuantity() {
+    /**
+     * Get the stock held in the products row. For a product with sharded stock this is only part
+     * of its stock, see {@link #getStockQuantity()}.
+     */
+    @JsonIgnore
+    public Integer getRowStock() {
         return stockQuantity;
     }
 
-    public void setStockQuantity(Integer stockQuantity) {
-        this.stockQuantity = stockQuantity;
+    /**
+     * Set the stock held in the products row. To set the whole stock of a product with sharded stock,
+     * empty its shards with {@code ProductRepository.clearStockShards} as well.
+     */
+    public void setRowStock(Integer rowStock) {
+        this.stockQuantity = rowStock;
+    }
+
+    /**
+     * Get the stock: the products row plus, for a product with sharded stock, its shards.
+     * There is no setter; see {@link #setRowStock(Integer)}.
+     */
+    public Integer getStockQuantity() {
+        if (shardedStock == null || stockQuantity == null) {
+            return stockQuantity;
+        }
+        return stockQuantity + shardedStock;
+    }
+
+    @JsonIgnore
+    public Integer getShardedStock() {
+        return shardedStock;
+    }
+
+    public void setShardedStock(Integer shardedStock) {
+        this.shardedStock = shardedStock;
+    }
+
+    @JsonIgnore
+    public boolean isStockSharded() {
+        return shardedStock != null;
     }
 
     public String getCategory() {
@@ -127,17 +183,27 @@ public class Product {
         this.createdAt = createdAt;
     }
 
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
     /**
      * Check if product is in stock.
      */
     public boolean isInStock() {
-        return stockQuantity != null && stockQuantity > 0;
+        Integer stock = getStockQuantity();
+        return stock != null && stock > 0;
     }
 
     /**
      * Check if requested quantity is available.
      */
     public boolean hasAvailableStock(int requestedQuantity) {
-        return stockQuantity != null && stockQuantity >= requestedQuantity;
+        Integer stock = getStockQuantity();
+        return stock != null && stock >= requestedQuantity;
     }
 }
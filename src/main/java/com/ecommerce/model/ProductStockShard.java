@@ -0,0 +1,105 @@
+package com.ecommerce.model;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * Entity representing one sub-counter of a product's sharded stock. Shard rows are written with
+ * plain SQL by the product repository; the entity maps the table for the schema.
+ */
+@Entity
+@Table(name = "product_stock_shards")
+@IdClass(ProductStockShard.Key.class)
+public class ProductStockShard {
+
+    @Id
+    @Column(name = "product_id")
+    private Long productId;
+
+    @Id
+    @Column(name = "shard_no")
+    private Integer shardNo;
+
+    @Column(nullable = false)
+    private Integer quantity = 0;
+
+    // Set when an order takes stock from the shard, until the product's updated_at is bumped for it
+    @Column(nullable = false)
+    private Boolean changed = false;
+
+    // Constructors
+    public ProductStockShard() {
+    }
+
+    public ProductStockShard(Long productId, Integer shardNo, Integer quantity) {
+        this.productId = productId;
+        this.shardNo = shardNo;
+        this.quantity = quantity;
+    }
+
+    // Getters and Setters
+    public Long getProductId() {
+        return productId;
+    }
+
+    public void setProductId(Long productId) {
+        this.productId = productId;
+    }
+
+    public Integer getShardNo() {
+        return shardNo;
+    }
+
+    public void setShardNo(Integer shardNo) {
+        this.shardNo = shardNo;
+    }
+
+    public Integer getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(Integer quantity) {
+        this.quantity = quantity;
+    }
+
+    public Boolean getChanged() {
+        return changed;
+    }
+
+    public void setChanged(Boolean changed) {
+        this.changed = changed;
+    }
+
+    /**
+     * Composite primary key (product_id, shard_no).
+     */
+    public static class Key implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private Long productId;
+        private Integer shardNo;
+
+        public Key() {
+        }
+
+        public Key(Long productId, Integer shardNo) {
+            this.productId = productId;
+            this.shardNo = shardNo;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key key)) return false;
+            return Objects.equals(productId, key.productId) && Objects.equals(shardNo, key.shardNo);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(productId, shardNo);
+        }
+    }
+}
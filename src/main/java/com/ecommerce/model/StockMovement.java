@@ -0,0 +1,123 @@
+package com.ecommerce.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entity representing one entry of the append-only stock ledger. Movements are appended with
+ * plain SQL by the inventory ledger; the entity maps the table for the schema.
+ */
+@Entity
+@Table(name = "stock_movements")
+public class StockMovement {
+
+    /**
+     * Kinds of stock movement. Absolute types set the stock to their quantity; the others add
+     * their quantity, which is negative for stock taken. A flash sale claim moves no stock, as the
+     * sale took it when it started; it counts the unit an order bought against the sale.
+     */
+    public enum Type {
+        CREATED(true, 0),
+        STOCK_SET(true, 0),
+        IMPORT(true, 0),
+        ORDER(false, -1),
+        ORDER_CANCELLED(false, 1),
+        FLASH_SALE(false, -1),
+        FLASH_SALE_RETURN(false, 1),
+        FLASH_SALE_CLAIM(false, 0);
+
+        private final boolean absolute;
+        private final int sign;
+
+        Type(boolean absolute, int sign) {
+            this.absolute = absolute;
+            this.sign = sign;
+        }
+
+        public boolean isAbsolute() {
+            return absolute;
+        }
+
+        /**
+         * Get the quantity to store for a movement of this type, given the units moved or the new stock.
+         */
+        public int toQuantity(int quantity) {
+            return isAbsolute() ? quantity : sign * quantity;
+        }
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "movement_id")
+    private Long movementId;
+
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "movement_type", nullable = false, length = 20)
+    private Type type;
+
+    @Column(nullable = false)
+    private Integer quantity;
+
+    @Column(name = "reference_id")
+    private Long referenceId;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    // Constructors
+    public StockMovement() {
+    }
+
+    // Getters and Setters
+    public Long getMovementId() {
+        return movementId;
+    }
+
+    public void setMovementId(Long movementId) {
+        this.movementId = movementId;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public void setProductId(Long productId) {
+        this.productId = productId;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public void setType(Type type) {
+        this.type = type;
+    }
+
+    public Integer getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(Integer quantity) {
+        this.quantity = quantity;
+    }
+
+    public Long getReferenceId() {
+        return referenceId;
+    }
+
+    public void setReferenceId(Long referenceId) {
+        this.referenceId = referenceId;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
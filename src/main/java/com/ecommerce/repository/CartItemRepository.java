@@ -1,9 +1,12 @@
 package com.ecommerce.repository;
 
+import com.ecommerce.dto.CartSummaryDto;
 import com.ecommerce.model.Cart;
 import com.ecommerce.model.CartItem;
 import com.ecommerce.model.Product;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -29,4 +32,11 @@ public interface CartItemRepository extends JpaRepository<CartItem, Long> {
      * Delete all items from a cart.
      */
     void deleteByCart(Cart cart);
+
+    /**
+     * Sum the item quantities and prices of a user's cart without loading it.
+     */
+    @Query("SELECT new com.ecommerce.dto.CartSummaryDto(SUM(ci.quantity), SUM(p.price * ci.quantity)) " +
+           "FROM CartItem ci JOIN ci.product p WHERE ci.cart.user.userId = :userId")
+    CartSummaryDto summarizeByUserId(@Param("userId") Long userId);
 }
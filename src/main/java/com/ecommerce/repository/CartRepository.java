@@ -3,6 +3,8 @@ package com.ecommerce.repository;
 import com.ecommerce.model.Cart;
 import com.ecommerce.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -22,4 +24,10 @@ public interface CartRepository extends JpaRepository<Cart, Long> {
      * Find cart by user ID.
      */
     Optional<Cart> findByUserUserId(Long userId);
+
+    /**
+     * Find the ID of a user's cart without loading it.
+     */
+    @Query("SELECT c.cartId FROM Cart c WHERE c.user.userId = :userId")
+    Optional<Long> findCartIdByUserId(@Param("userId") Long userId);
 }
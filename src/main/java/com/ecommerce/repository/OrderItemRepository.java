@@ -3,6 +3,7 @@ package com.ecommerce.repository;
 import com.ecommerce.model.Order;
 import com.ecommerce.model.OrderItem;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -22,4 +23,13 @@ public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
      * Find all items by order ID.
      */
     List<OrderItem> findByOrderOrderId(Long orderId);
+
+    /**
+     * Get the total quantity ordered of each product by orders that are not cancelled,
+     * as [productId, quantity] rows.
+     */
+    @Query("SELECT oi.product.productId, SUM(oi.quantity) FROM OrderItem oi " +
+           "WHERE oi.product IS NOT NULL AND oi.order.status <> com.ecommerce.model.Order$OrderStatus.CANCELLED " +
+           "GROUP BY oi.product.productId")
+    List<Object[]> sumQuantityByProduct();
 }
@@ -1,20 +1,40 @@
 package com.ecommerce.repository;
 
+import com.ecommerce.dto.CatalogVersion;
+import com.ecommerce.dto.ProductSummaryDto;
 import com.ecommerce.model.Product;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Repository interface for Product entity operations.
  */
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Long> {
+public interface ProductRepository extends JpaRepository<Product, Long>, ProductRepositoryCustom {
+
+    /**
+     * Stock of a product including its shards, see {@link Product#getStockQuantity()}.
+     */
+    String STOCK = "(p.stockQuantity + COALESCE(p.shardedStock, 0))";
+
+    /**
+     * Projection selecting only the columns listing pages need (no description).
+     */
+    String SELECT_SUMMARY = "SELECT new com.ecommerce.dto.ProductSummaryDto(p.productId, p.name, p.price, " +
+                            "p.imageUrl, p.category, " + STOCK + ", p.createdAt) FROM Product p";
+
+    String SEARCH_CONDITION = " WHERE LOWER(p.name) LIKE LOWER(CONCAT('%', :searchTerm, '%')) " +
+                              "OR LOWER(p.description) LIKE LOWER(CONCAT('%', :searchTerm, '%'))";
 
     /**
      * Find products by category.
@@ -26,6 +46,35 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
      */
     Page<Product> findByCategory(String category, Pageable pageable);
 
+    /**
+     * Find a slice of product summaries, without counting the catalog.
+     */
+    @Query(SELECT_SUMMARY)
+    Slice<ProductSummaryDto> findAllSummaries(Pageable pageable);
+
+    /**
+     * Find a slice of product summaries by category, without counting the category.
+     */
+    @Query(SELECT_SUMMARY + " WHERE p.category = :category")
+    Slice<ProductSummaryDto> findSummariesByCategory(@Param("category") String category, Pageable pageable);
+
+    /**
+     * Count products per category, as [category, count] rows.
+     */
+    @Query("SELECT p.category, COUNT(p) FROM Product p GROUP BY p.category")
+    List<Object[]> countGroupedByCategory();
+
+    /**
+     * Find product summaries by ID.
+     */
+    @Query(SELECT_SUMMARY + " WHERE p.productId IN :productIds")
+    List<ProductSummaryDto> findSummariesByIdIn(@Param("productIds") Collection<Long> productIds);
+
+    /**
+     * Find a few other products in the same category.
+     */
+    List<Product> findTop4ByCategoryAndProductIdNot(String category, Long productId);
+
     /**
      * Search products by name containing search term (case insensitive).
      */
@@ -45,20 +94,100 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
            "OR LOWER(p.description) LIKE LOWER(CONCAT('%', :searchTerm, '%'))")
     Page<Product> searchProducts(@Param("searchTerm") String searchTerm, Pageable pageable);
 
+    /**
+     * Search a slice of product summaries, without counting the matches.
+     */
+    @Query(SELECT_SUMMARY + SEARCH_CONDITION)
+    Slice<ProductSummaryDto> searchSummaries(@Param("searchTerm") String searchTerm, Pageable pageable);
+
+    /**
+     * Count the products matching a search term.
+     */
+    @Query("SELECT COUNT(p) FROM Product p" + SEARCH_CONDITION)
+    long countSearchResults(@Param("searchTerm") String searchTerm);
+
+    /**
+     * Find a product's last modification time without loading the entity.
+     */
+    @Query("SELECT p.updatedAt FROM Product p WHERE p.productId = :productId")
+    Optional<LocalDateTime> findUpdatedAtById(@Param("productId") Long productId);
+
+    /**
+     * Get the product count and latest modification time of the catalog.
+     */
+    @Query("SELECT new com.ecommerce.dto.CatalogVersion(COUNT(p), MAX(p.updatedAt)) FROM Product p")
+    CatalogVersion findCatalogVersion();
+
+    /**
+     * Get the product count and latest modification time of a category.
+     */
+    @Query("SELECT new com.ecommerce.dto.CatalogVersion(COUNT(p), MAX(p.updatedAt)) FROM Product p " +
+           "WHERE p.category = :category")
+    CatalogVersion findCatalogVersionByCategory(@Param("category") String category);
+
     /**
      * Find all distinct categories.
      */
     @Query("SELECT DISTINCT p.category FROM Product p WHERE p.category IS NOT NULL ORDER BY p.category")
     List<String> findAllCategories();
 
+    /**
+     * Find the newest products (first page of a keyset listing).
+     */
+    List<Product> findAllByOrderByCreatedAtDescProductIdDesc(Pageable pageable);
+
+    /**
+     * Find the newest product summaries (first page of a keyset listing).
+     */
+    @Query(SELECT_SUMMARY + " ORDER BY p.createdAt DESC, p.productId DESC")
+    List<ProductSummaryDto> findNewestSummaries(Pageable pageable);
+
+    /**
+     * Find the product summaries listed after a cursor position, newest first.
+     */
+    @Query(SELECT_SUMMARY + " WHERE p.createdAt < :createdAt " +
+           "OR (p.createdAt = :createdAt AND p.productId < :productId) " +
+           "ORDER BY p.createdAt DESC, p.productId DESC")
+    List<ProductSummaryDto> findSummariesAfterCursor(@Param("createdAt") LocalDateTime createdAt,
+                                                     @Param("productId") Long productId, Pageable pageable);
+
+    /**
+     * Find the newest product summaries in a category (first page of a keyset listing).
+     */
+    @Query(SELECT_SUMMARY + " WHERE p.category = :category ORDER BY p.createdAt DESC, p.productId DESC")
+    List<ProductSummaryDto> findNewestSummariesByCategory(@Param("category") String category, Pageable pageable);
+
+    /**
+     * Find the product summaries in a category listed after a cursor position, newest first.
+     */
+    @Query(SELECT_SUMMARY + " WHERE p.category = :category AND (p.createdAt < :createdAt " +
+           "OR (p.createdAt = :createdAt AND p.productId < :productId)) " +
+           "ORDER BY p.createdAt DESC, p.productId DESC")
+    List<ProductSummaryDto> findSummariesByCategoryAfterCursor(@Param("category") String category,
+                                                               @Param("createdAt") LocalDateTime createdAt,
+                                                               @Param("productId") Long productId,
+                                                               Pageable pageable);
+
+    /**
+     * Find the next batch of products after a given ID, in ID order (keyset iteration).
+     */
+    List<Product> findByProductIdGreaterThanOrderByProductIdAsc(Long productId, Pageable pageable);
+
+    /**
+     * Find the category of a product without loading the entity.
+     */
+    @Query("SELECT p.category FROM Product p WHERE p.productId = :productId")
+    Optional<String> findCategoryById(@Param("productId") Long productId);
+
     /**
      * Find products that are in stock.
      */
-    List<Product> findByStockQuantityGreaterThan(int quantity);
+    @Query("SELECT p FROM Product p WHERE " + STOCK + " > :quantity")
+    List<Product> findByStockQuantityGreaterThan(@Param("quantity") int quantity);
 
     /**
      * Find products by category and in stock.
      */
-    @Query("SELECT p FROM Product p WHERE p.category = :category AND p.stockQuantity > 0")
+    @Query("SELECT p FROM Product p WHERE p.category = :category AND " + STOCK + " > 0")
     List<Product> findByCategoryInStock(@Param("category") String category);
 }
@@ -0,0 +1,78 @@
+package com.ecommerce.repository;
+
+import com.ecommerce.model.Product;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Custom product repository operations that need direct EntityManager access.
+ */
+public interface ProductRepositoryCustom {
+
+    /**
+     * Stream every product in ID order through a forward-only cursor.
+     * Products are detached as they are read so the persistence context does not grow with the
+     * catalog. Must be called inside a transaction, and the stream must be closed.
+     */
+    Stream<Product> streamAllProducts();
+
+    /**
+     * Stream the products modified at or after the given time, oldest change first, through a
+     * forward-only cursor. Same rules as {@link #streamAllProducts()}.
+     */
+    Stream<Product> streamProductsUpdatedSince(LocalDateTime since);
+
+    /**
+     * Take stock from products with one JDBC batch of conditional updates
+     * ({@code stock_quantity = stock_quantity - ? ... AND stock_quantity >= ?}), so concurrent orders
+     * cannot oversell and no entity is written. Rows are updated in product ID order to keep lock
+     * order consistent between transactions. The given instances are updated in memory to the new
+     * stock and update time and marked read-only, so they can be published in events without being
+     * flushed over the database values.
+     * Products with sharded stock take their quantity from a shard instead, see
+     * {@link StockShards#decrement}; their products row, including updated_at, is usually not
+     * touched until the next {@link #rebalanceStockShards(Long)}.
+     *
+     * @param quantities product to quantity to take
+     * @return the products whose stock was too low; their rows were not changed
+     */
+    List<Product> decrementStock(Map<Product, Integer> quantities);
+
+    /**
+     * Put stock back on products with one JDBC batch, the counterpart of
+     * {@link #decrementStock(Map)}.
+     *
+     * @param quantities product to quantity to add
+     */
+    void incrementStock(Map<Product, Integer> quantities);
+
+    /**
+     * Empty the shards of a product with sharded stock, so that the stock set on it with
+     * {@link Product#setRowStock(Integer)} is its whole stock. Does nothing for other products.
+     * Call it before the product is flushed: shards are locked before the products row.
+     */
+    void clearStockShards(Product product);
+
+    /**
+     * Split a product's stock into the given number of shards, or with zero shards put it back into
+     * the products row. The total stock is unchanged.
+     *
+     * @return false if the product does not exist
+     */
+    boolean reshardStock(Long productId, int shards);
+
+    /**
+     * Spread a product's stock evenly over its shards again, and set its updated_at if orders took
+     * stock from its shards since the last rebalance.
+     */
+    void rebalanceStockShards(Long productId);
+
+    /**
+     * Find the products with sharded stock that need a rebalance: a shard orders took stock from,
+     * stock left in the products row, or a shard holding less than half the average.
+     */
+    List<Long> findUnbalancedStockShards();
+}
@@ -0,0 +1,176 @@
+package com.ecommerce.repository;
+
+import com.ecommerce.model.Product;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.hibernate.Session;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Implementation of {@link ProductRepositoryCustom}.
+ */
+public class ProductRepositoryImpl implements ProductRepositoryCustom {
+
+    private static final String DECREMENT_STOCK_SQL = "UPDATE products SET stock_quantity = stock_quantity - ?, "
+            + "updated_at = ? WHERE product_id = ? AND stock_quantity >= ?";
+    private static final String INCREMENT_STOCK_SQL = "UPDATE products SET stock_quantity = stock_quantity + ?, "
+            + "updated_at = ? WHERE product_id = ?";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${app.catalog.stream.fetch-size:500}")
+    private int fetchSize;
+
+    @Override
+    public Stream<Product> streamAllProducts() {
+        return stream(entityManager.createQuery("SELECT p FROM Product p ORDER BY p.productId", Product.class));
+    }
+
+    @Override
+    public Stream<Product> streamProductsUpdatedSince(LocalDateTime since) {
+        return stream(entityManager.createQuery(
+                        "SELECT p FROM Product p WHERE p.updatedAt >= :since ORDER BY p.updatedAt, p.productId",
+                        Product.class)
+                .setParameter("since", since));
+    }
+
+    @Override
+    public List<Product> decrementStock(Map<Product, Integer> quantities) {
+        List<Map.Entry<Product, Integer>> lines = new ArrayList<>();
+        List<Map.Entry<Product, Integer>> shardedLines = new ArrayList<>();
+        for (Map.Entry<Product, Integer> line : sortedByProductId(quantities)) {
+            (line.getKey().isStockSharded() ? shardedLines : lines).add(line);
+        }
+        LocalDateTime now = LocalDateTime.now();
+        int[] counts = executeBatch(DECREMENT_STOCK_SQL, lines, now, true);
+        List<Product> insufficient = new ArrayList<>();
+        for (int i = 0; i < lines.size(); i++) {
+            Map.Entry<Product, Integer> line = lines.get(i);
+            if (counts[i] == 0) {
+                // The instance may predate the product being sharded
+                shardedLines.add(line);
+            } else {
+                setStock(line.getKey(), -line.getValue(), 0, now);
+            }
+        }
+        shardedLines.sort(Comparator.comparing(line -> line.getKey().getProductId()));
+        Session session = entityManager.unwrap(Session.class);
+        Timestamp updatedAt = Timestamp.valueOf(now);
+        for (Map.Entry<Product, Integer> line : shardedLines) {
+            Product product = line.getKey();
+            int fromRow = session.doReturningWork(connection ->
+                    StockShards.decrement(connection, product.getProductId(), line.getValue(), updatedAt));
+            if (fromRow < 0) {
+                insufficient.add(product);
+            } else if (product.isStockSharded()) {
+                setStock(product, -fromRow, fromRow - line.getValue(), fromRow > 0 ? now : product.getUpdatedAt());
+            } else {
+                setStock(product, -line.getValue(), 0, product.getUpdatedAt());
+            }
+        }
+        return insufficient;
+    }
+
+    @Override
+    public void incrementStock(Map<Product, Integer> quantities) {
+        List<Map.Entry<Product, Integer>> lines = sortedByProductId(quantities);
+        LocalDateTime now = LocalDateTime.now();
+        executeBatch(INCREMENT_STOCK_SQL, lines, now, false);
+        for (Map.Entry<Product, Integer> line : lines) {
+            setStock(line.getKey(), line.getValue(), 0, now);
+        }
+    }
+
+    @Override
+    public void clearStockShards(Product product) {
+        if (!product.isStockSharded()) {
+            return;
+        }
+        entityManager.unwrap(Session.class).doWork(connection -> StockShards.clear(connection, product.getProductId()));
+        product.setShardedStock(0);
+    }
+
+    @Override
+    public boolean reshardStock(Long productId, int shards) {
+        return entityManager.unwrap(Session.class).doReturningWork(connection ->
+                StockShards.reshard(connection, productId, shards));
+    }
+
+    @Override
+    public void rebalanceStockShards(Long productId) {
+        Timestamp updatedAt = Timestamp.valueOf(LocalDateTime.now());
+        entityManager.unwrap(Session.class).doWork(connection ->
+                StockShards.rebalance(connection, productId, updatedAt));
+    }
+
+    @Override
+    public List<Long> findUnbalancedStockShards() {
+        return entityManager.unwrap(Session.class).doReturningWork(StockShards::findUnbalanced);
+    }
+
+    private static List<Map.Entry<Product, Integer>> sortedByProductId(Map<Product, Integer> quantities) {
+        List<Map.Entry<Product, Integer>> lines = new ArrayList<>(quantities.entrySet());
+        lines.sort(Comparator.comparing(line -> line.getKey().getProductId()));
+        return lines;
+    }
+
+    private int[] executeBatch(String sql, List<Map.Entry<Product, Integer>> lines, LocalDateTime now,
+                               boolean conditional) {
+        if (lines.isEmpty()) {
+            return new int[0];
+        }
+        Timestamp updatedAt = Timestamp.valueOf(now);
+        return entityManager.unwrap(Session.class).doReturningWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                for (Map.Entry<Product, Integer> line : lines) {
+                    statement.setInt(1, line.getValue());
+                    statement.setTimestamp(2, updatedAt);
+                    statement.setLong(3, line.getKey().getProductId());
+                    if (conditional) {
+                        statement.setInt(4, line.getValue());
+                    }
+                    statement.addBatch();
+                }
+                return statement.executeBatch();
+            }
+        });
+    }
+
+    /**
+     * Bring an instance in line with its updated rows without making it dirty.
+     */
+    private void setStock(Product product, int rowChange, int shardChange, LocalDateTime updatedAt) {
+        if (entityManager.contains(product)) {
+            entityManager.unwrap(Session.class).setReadOnly(product, true);
+        }
+        Integer sharded = product.getShardedStock();
+        product.setRowStock(product.getRowStock() + rowChange);
+        if (sharded != null) {
+            product.setShardedStock(sharded + shardChange);
+        }
+        product.setUpdatedAt(updatedAt);
+    }
+
+    private Stream<Product> stream(TypedQuery<Product> query) {
+        return query
+                .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream()
+                .map(product -> {
+                    entityManager.detach(product);
+                    return product;
+                });
+    }
+}
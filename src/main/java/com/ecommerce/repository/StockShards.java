@@ -0,0 +1,247 @@
+package com.ecommerce.repository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Statements for sharded product stock, run on the caller's connection and transaction. A product
+ * with rows in product_stock_shards has the stock of its products row plus that of its shards,
+ * numbered 0 to N-1, with N kept in the products row's stock_shards column. Orders take their
+ * quantity from one shard picked at random, so concurrent orders for a hot product mostly lock
+ * different rows; the products row only takes over when the shards run low, and a rebalance spreads
+ * the stock evenly over the shards again.
+ * <p>
+ * Every statement here locks a product's rows in the same order, its shards by increasing number
+ * and then its products row, so orders, rebalances and reshards of one product cannot deadlock on
+ * each other. Callers that write the products row themselves must empty or delete the shards first.
+ * <p>
+ * A write to the products row sets its updated_at. A shard write only flags the shard as changed,
+ * so that orders do not queue on the products row; {@link #rebalance} clears the flags and sets
+ * updated_at for them.
+ */
+public final class StockShards {
+
+    private static final String READ_SHARDS_SQL =
+            "SELECT quantity FROM product_stock_shards WHERE product_id = ? AND shard_no >= ? ORDER BY shard_no";
+    private static final String LOCK_SHARDS_SQL = READ_SHARDS_SQL + " FOR UPDATE";
+    private static final String LOCK_PRODUCT_SQL = "SELECT stock_quantity FROM products WHERE product_id = ? FOR UPDATE";
+    private static final String TAKE_FROM_SHARD_SQL = "UPDATE product_stock_shards SET quantity = quantity - ?, "
+            + "changed = TRUE WHERE product_id = ? AND shard_no = ? AND quantity >= ?";
+    private static final String DRAIN_SHARD_SQL =
+            "UPDATE product_stock_shards SET quantity = ?, changed = TRUE WHERE product_id = ? AND shard_no = ?";
+    private static final String DRAIN_PRODUCT_SQL =
+            "UPDATE products SET stock_quantity = ?, updated_at = ? WHERE product_id = ?";
+    private static final String SET_SHARD_SQL =
+            "UPDATE product_stock_shards SET quantity = ? WHERE product_id = ? AND shard_no = ?";
+    private static final String SET_PRODUCT_SQL = "UPDATE products SET stock_quantity = ? WHERE product_id = ?";
+    private static final String RESHARD_PRODUCT_SQL =
+            "UPDATE products SET stock_quantity = ?, stock_shards = ? WHERE product_id = ?";
+    private static final String CLEAR_CHANGED_SQL =
+            "UPDATE product_stock_shards SET changed = FALSE WHERE product_id = ? AND changed";
+    private static final String TOUCH_PRODUCT_SQL = "UPDATE products SET updated_at = ? WHERE product_id = ?";
+    private static final String CLEAR_SHARDS_SQL = "UPDATE product_stock_shards SET quantity = 0 WHERE product_id = ?";
+    private static final String DELETE_SHARDS_SQL = "DELETE FROM product_stock_shards WHERE product_id = ?";
+    private static final String INSERT_SHARD_SQL =
+            "INSERT INTO product_stock_shards (product_id, shard_no, quantity) VALUES (?, ?, ?)";
+    // Products with a changed shard, with stock in the products row, or with a shard below half the
+    // average while every shard could hold at least one unit
+    private static final String UNBALANCED_SQL = "SELECT s.product_id FROM product_stock_shards s "
+            + "JOIN products p ON p.product_id = s.product_id GROUP BY s.product_id, p.stock_quantity "
+            + "HAVING SUM(CASE WHEN s.changed THEN 1 ELSE 0 END) > 0 OR p.stock_quantity > 0 "
+            + "OR (SUM(s.quantity) >= COUNT(*) AND MIN(s.quantity) * 2 * COUNT(*) < SUM(s.quantity)) "
+            + "ORDER BY s.product_id";
+
+    private StockShards() {
+    }
+
+    /**
+     * Take stock from a product with sharded stock. The whole quantity is taken with a conditional
+     * update from a random shard that has it, so stock cannot go negative. If no shard has it, all
+     * shards and then the products row are locked and the quantity is gathered from them. If another
+     * order emptied the chosen shard first, that shard stays locked, so only it, the shards after it
+     * and the products row can be gathered from without breaking the lock order; the stock of the
+     * shards before it is out of reach for this order. The products row's updated_at is set only if
+     * stock was taken from it.
+     *
+     * @return the part of the quantity taken from the products row, or -1 if the stock is too low
+     */
+    public static int decrement(Connection connection, long productId, int quantity, Timestamp updatedAt)
+            throws SQLException {
+        // Unlocked read, only used to pick a shard that covers the quantity
+        int[] shards = readShards(connection, productId, 0, false);
+        int covering = 0;
+        for (int shard : shards) {
+            if (shard >= quantity) {
+                covering++;
+            }
+        }
+        if (covering == 0) {
+            return gather(connection, productId, quantity, 0, updatedAt);
+        }
+        int pick = ThreadLocalRandom.current().nextInt(covering);
+        int shard = 0;
+        while (shards[shard] < quantity || pick-- > 0) {
+            shard++;
+        }
+        if (update(connection, TAKE_FROM_SHARD_SQL, quantity, productId, shard, quantity) == 1) {
+            return 0;
+        }
+        return gather(connection, productId, quantity, shard, updatedAt);
+    }
+
+    /**
+     * Spread a product's stock evenly over its shards and empty its products row. If stock was taken
+     * from a shard since the last rebalance, the products row's updated_at is set as well.
+     */
+    public static void rebalance(Connection connection, long productId, Timestamp updatedAt) throws SQLException {
+        int[] shards = readShards(connection, productId, 0, true);
+        int row = lockProduct(connection, productId);
+        if (row < 0 || shards.length == 0) {
+            return;
+        }
+        if (update(connection, CLEAR_CHANGED_SQL, productId) > 0) {
+            update(connection, TOUCH_PRODUCT_SQL, updatedAt, productId);
+        }
+        int total = row + sum(shards);
+        if (row != 0) {
+            update(connection, SET_PRODUCT_SQL, 0, productId);
+        }
+        for (int shard = 0; shard < shards.length; shard++) {
+            int quantity = share(total, shards.length, shard);
+            if (shards[shard] != quantity) {
+                update(connection, SET_SHARD_SQL, quantity, productId, shard);
+            }
+        }
+    }
+
+    /**
+     * Change the number of shards of a product and spread its stock evenly over them. With zero
+     * shards the whole stock goes back to the products row and the product is no longer sharded.
+     *
+     * @return false if the product does not exist
+     */
+    public static boolean reshard(Connection connection, long productId, int shardCount) throws SQLException {
+        int[] shards = readShards(connection, productId, 0, true);
+        int row = lockProduct(connection, productId);
+        if (row < 0) {
+            return false;
+        }
+        int total = row + sum(shards);
+        update(connection, DELETE_SHARDS_SQL, productId);
+        update(connection, RESHARD_PRODUCT_SQL, shardCount > 0 ? 0 : total, shardCount, productId);
+        if (shardCount > 0) {
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_SHARD_SQL)) {
+                for (int shard = 0; shard < shardCount; shard++) {
+                    statement.setLong(1, productId);
+                    statement.setInt(2, shard);
+                    statement.setInt(3, share(total, shardCount, shard));
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Empty the shards of a product, leaving the products row as its whole stock.
+     */
+    public static void clear(Connection connection, long productId) throws SQLException {
+        update(connection, CLEAR_SHARDS_SQL, productId);
+    }
+
+    /**
+     * Find the sharded products that need a {@link #rebalance}: stock was taken from one of their
+     * shards, or their stock is not spread evenly enough over their shards.
+     */
+    public static List<Long> findUnbalanced(Connection connection) throws SQLException {
+        List<Long> productIds = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(UNBALANCED_SQL);
+             ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                productIds.add(resultSet.getLong(1));
+            }
+        }
+        return productIds;
+    }
+
+    /**
+     * Take the quantity from the products row and the shards numbered {@code firstShard} and up,
+     * locking those shards and then the products row.
+     */
+    private static int gather(Connection connection, long productId, int quantity, int firstShard,
+                              Timestamp updatedAt) throws SQLException {
+        int[] shards = readShards(connection, productId, firstShard, true);
+        int row = lockProduct(connection, productId);
+        if (row < 0 || row + sum(shards) < quantity) {
+            return -1;
+        }
+        int fromRow = Math.min(row, quantity);
+        if (fromRow > 0) {
+            update(connection, DRAIN_PRODUCT_SQL, row - fromRow, updatedAt, productId);
+        }
+        int remaining = quantity - fromRow;
+        for (int shard = 0; shard < shards.length && remaining > 0; shard++) {
+            int taken = Math.min(shards[shard], remaining);
+            if (taken > 0) {
+                update(connection, DRAIN_SHARD_SQL, shards[shard] - taken, productId, firstShard + shard);
+                remaining -= taken;
+            }
+        }
+        return fromRow;
+    }
+
+    private static int share(int total, int shardCount, int shard) {
+        return total / shardCount + (shard < total % shardCount ? 1 : 0);
+    }
+
+    private static int sum(int[] quantities) {
+        int sum = 0;
+        for (int quantity : quantities) {
+            sum += quantity;
+        }
+        return sum;
+    }
+
+    private static int lockProduct(Connection connection, long productId) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(LOCK_PRODUCT_SQL)) {
+            statement.setLong(1, productId);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? resultSet.getInt(1) : -1;
+            }
+        }
+    }
+
+    /**
+     * Read the quantities of the shards numbered {@code firstShard} and up, in order, optionally locking them.
+     */
+    private static int[] readShards(Connection connection, long productId, int firstShard, boolean lock)
+            throws SQLException {
+        List<Integer> quantities = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(lock ? LOCK_SHARDS_SQL : READ_SHARDS_SQL)) {
+            statement.setLong(1, productId);
+            statement.setInt(2, firstShard);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    quantities.add(resultSet.getInt(1));
+                }
+            }
+        }
+        return quantities.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static int update(Connection connection, String sql, Object... parameters) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < parameters.length; i++) {
+                statement.setObject(i + 1, parameters[i]);
+            }
+            return statement.executeUpdate();
+        }
+    }
+}
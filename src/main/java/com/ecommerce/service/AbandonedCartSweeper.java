@@ -0,0 +1,232 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.AbandonedCartDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodic cleanup of idle shopping carts (app.cart.sweeper.*). Carts with items that have not
+ * changed for the reminder threshold get one reminder email; carts that have not changed for the
+ * purge threshold are deleted with their items (a user's cart is created again on next use).
+ * Idle carts are walked through the (updated_at, cart_id) index in chunks using keyset pagination,
+ * and every chunk is marked or deleted in its own short transaction with a batched statement, so
+ * no lock is held for the whole run. A cart that changes while it is swept is skipped: every
+ * statement checks that updated_at is still the value that was read.
+ */
+@Component
+public class AbandonedCartSweeper {
+
+    private static final Logger log = LoggerFactory.getLogger(AbandonedCartSweeper.class);
+
+    private static final Timestamp KEYSET_START = new Timestamp(0);
+    private static final String REMINDER_CANDIDATES_SQL =
+            "SELECT c.cart_id, c.updated_at, u.email, u.name FROM cart c JOIN users u ON u.user_id = c.user_id "
+            + "WHERE c.updated_at < ? AND (c.updated_at > ? OR (c.updated_at = ? AND c.cart_id > ?)) "
+            + "AND c.reminder_sent_at IS NULL "
+            + "AND EXISTS (SELECT 1 FROM cart_items ci WHERE ci.cart_id = c.cart_id) "
+            + "ORDER BY c.updated_at, c.cart_id LIMIT ?";
+    private static final String MARK_REMINDED_SQL =
+            "UPDATE cart SET reminder_sent_at = ? WHERE cart_id = ? AND updated_at = ? AND reminder_sent_at IS NULL";
+    private static final String PURGE_CANDIDATES_SQL =
+            "SELECT cart_id, user_id, updated_at FROM cart "
+            + "WHERE updated_at < ? AND (updated_at > ? OR (updated_at = ? AND cart_id > ?)) "
+            + "ORDER BY updated_at, cart_id LIMIT ?";
+    private static final String PURGE_SQL = "DELETE FROM cart WHERE cart_id = ? AND updated_at = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final EmailService emailService;
+    private final WriteBehindCartStore cartStore;
+    private final CartTotals cartTotals;
+    private final Duration reminderAfter;
+    private final Duration purgeAfter;
+    private final int chunkSize;
+    private final boolean enabled;
+
+    @Autowired
+    public AbandonedCartSweeper(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                EmailService emailService, WriteBehindCartStore cartStore, CartTotals cartTotals,
+                                @Value("${app.cart.sweeper.enabled:true}") boolean enabled,
+                                @Value("${app.cart.sweeper.reminder-after-hours:24}") long reminderAfterHours,
+                                @Value("${app.cart.sweeper.purge-after-days:30}") long purgeAfterDays,
+                                @Value("${app.cart.sweeper.chunk-size:500}") int chunkSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.emailService = emailService;
+        this.cartStore = cartStore;
+        this.cartTotals = cartTotals;
+        this.reminderAfter = Duration.ofHours(reminderAfterHours);
+        this.purgeAfter = Duration.ofDays(purgeAfterDays);
+        this.chunkSize = chunkSize;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Purge carts idle past the purge threshold, then queue reminders for carts idle past the
+     * reminder threshold.
+     */
+    public void sweep() {
+        int purged = purgeStaleCarts();
+        int reminded = sendReminders();
+        if (purged > 0 || reminded > 0) {
+            log.info("Abandoned cart sweep purged {} carts and queued {} reminders", purged, reminded);
+        }
+    }
+
+    /**
+     * Delete carts, and through the foreign key their items, that have not changed for the purge
+     * threshold. Carts currently held by the write-behind store are left alone.
+     *
+     * @return number of carts deleted
+     */
+    public int purgeStaleCarts() {
+        if (purgeAfter.isZero()) {
+            return 0;
+        }
+        Timestamp cutoff = Timestamp.valueOf(LocalDateTime.now().minus(purgeAfter));
+        Timestamp lastUpdatedAt = KEYSET_START;
+        long lastCartId = 0;
+        int purged = 0;
+        while (true) {
+            List<IdleCart> chunk = jdbcTemplate.query(PURGE_CANDIDATES_SQL,
+                    (rs, rowNum) -> new IdleCart(rs.getLong("cart_id"), rs.getLong("user_id"),
+                            rs.getTimestamp("updated_at"), null, null),
+                    cutoff, lastUpdatedAt, lastUpdatedAt, lastCartId, chunkSize);
+            if (chunk.isEmpty()) {
+                return purged;
+            }
+            List<IdleCart> stale = new ArrayList<>(chunk.size());
+            for (IdleCart cart : chunk) {
+                if (!cartStore.isActive(cart.userId)) {
+                    stale.add(cart);
+                }
+            }
+            if (!stale.isEmpty()) {
+                int[][] counts = transactionTemplate.execute(status -> jdbcTemplate.batchUpdate(PURGE_SQL, stale,
+                        stale.size(), (statement, cart) -> {
+                            statement.setLong(1, cart.cartId);
+                            statement.setTimestamp(2, cart.updatedAt);
+                        }));
+                purged += countAffected(counts);
+                stale.forEach(cart -> cartTotals.clear(cart.userId));
+            }
+            if (chunk.size() < chunkSize) {
+                return purged;
+            }
+            IdleCart last = chunk.get(chunk.size() - 1);
+            lastUpdatedAt = last.updatedAt;
+            lastCartId = last.cartId;
+        }
+    }
+
+    /**
+     * Mark carts with items that have not changed for the reminder threshold as reminded and queue
+     * one reminder email per cart, a chunk at a time. Only carts this call managed to mark are
+     * emailed, so concurrent sweeps on several instances do not send duplicates.
+     *
+     * @return number of reminders queued
+     */
+    public int sendReminders() {
+        if (reminderAfter.isZero()) {
+            return 0;
+        }
+        Timestamp cutoff = Timestamp.valueOf(LocalDateTime.now().minus(reminderAfter));
+        Timestamp lastUpdatedAt = KEYSET_START;
+        long lastCartId = 0;
+        int reminded = 0;
+        while (true) {
+            List<IdleCart> chunk = jdbcTemplate.query(REMINDER_CANDIDATES_SQL,
+                    (rs, rowNum) -> new IdleCart(rs.getLong("cart_id"), null, rs.getTimestamp("updated_at"),
+                            rs.getString("email"), rs.getString("name")),
+                    cutoff, lastUpdatedAt, lastUpdatedAt, lastCartId, chunkSize);
+            if (chunk.isEmpty()) {
+                return reminded;
+            }
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            int[][] counts = transactionTemplate.execute(status -> jdbcTemplate.batchUpdate(MARK_REMINDED_SQL, chunk,
+                    chunk.size(), (statement, cart) -> {
+                        statement.setTimestamp(1, now);
+                        statement.setLong(2, cart.cartId);
+                        statement.setTimestamp(3, cart.updatedAt);
+                    }));
+            List<AbandonedCartDto> reminders = new ArrayList<>(chunk.size());
+            int index = 0;
+            for (int[] batch : counts) {
+                for (int count : batch) {
+                    IdleCart cart = chunk.get(index++);
+                    if (count != 0) {
+                        reminders.add(new AbandonedCartDto(cart.cartId, cart.email, cart.name));
+                    }
+                }
+            }
+            if (!reminders.isEmpty()) {
+                emailService.sendCartReminders(reminders);
+                reminded += reminders.size();
+            }
+            if (chunk.size() < chunkSize) {
+                return reminded;
+            }
+            IdleCart last = chunk.get(chunk.size() - 1);
+            lastUpdatedAt = last.updatedAt;
+            lastCartId = last.cartId;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.cart.sweeper.interval-minutes:60}",
+            initialDelayString = "${app.cart.sweeper.interval-minutes:60}", timeUnit = TimeUnit.MINUTES)
+    void sweepQuietly() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            sweep();
+        } catch (RuntimeException e) {
+            log.error("Abandoned cart sweep failed", e);
+        }
+    }
+
+    /**
+     * Count affected rows; drivers that rewrite batches report unknown counts, which are counted as one.
+     */
+    private static int countAffected(int[][] counts) {
+        int affected = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                affected += count != 0 ? 1 : 0;
+            }
+        }
+        return affected;
+    }
+
+    private static final class IdleCart {
+        private final long cartId;
+        private final Long userId;
+        private final Timestamp updatedAt;
+        private final String email;
+        private final String name;
+
+        private IdleCart(long cartId, Long userId, Timestamp updatedAt, String email, String name) {
+            this.cartId = cartId;
+            this.userId = userId;
+            this.updatedAt = updatedAt;
+            this.email = email;
+            this.name = name;
+        }
+    }
+}
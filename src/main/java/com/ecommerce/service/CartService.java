@@ -1,5 +1,9 @@
 package com.ecommerce.service;
 
+import com.ecommerce.dto.CartContentsDto;
+import com.ecommerce.dto.CartItemDto;
+import com.ecommerce.dto.CartOperationDto;
+import com.ecommerce.dto.CartSummaryDto;
 import com.ecommerce.model.Cart;
 import com.ecommerce.model.CartItem;
 import com.ecommerce.model.Product;
@@ -13,26 +17,54 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * Service for shopping cart operations.
+ * With the write-behind cart store enabled, carts are read and changed in memory and the returned
+ * carts are detached views whose products come from the catalog cache.
+ * Cart line quantities are held in {@link StockReservations} while they are in a user's cart.
  */
 @Service
 public class CartService {
 
+    private static final int MAX_OPERATIONS = 100;
+    // Also the most lines a guest cart cookie is read with
+    public static final int GUEST_CART_MAX_LINES = 50;
+
     private final CartRepository cartRepository;
     private final CartItemRepository cartItemRepository;
     private final ProductRepository productRepository;
     private final UserRepository userRepository;
+    private final ProductService productService;
+    private final WriteBehindCartStore cartStore;
+    private final CartTotals cartTotals;
+    private final StockReservations reservations;
 
     @Autowired
     public CartService(CartRepository cartRepository, CartItemRepository cartItemRepository,
-                       ProductRepository productRepository, UserRepository userRepository) {
+                       ProductRepository productRepository, UserRepository userRepository,
+                       ProductService productService, WriteBehindCartStore cartStore,
+                       CartTotals cartTotals, StockReservations reservations) {
         this.cartRepository = cartRepository;
         this.cartItemRepository = cartItemRepository;
         this.productRepository = productRepository;
         this.userRepository = userRepository;
+        this.productService = productService;
+        this.cartStore = cartStore;
+        this.cartTotals = cartTotals;
+        this.reservations = reservations;
     }
 
     /**
@@ -52,9 +84,18 @@ public class CartService {
      */
     @Transactional
     public Cart getCartByUserEmail(String email) {
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-        return getOrCreateCart(user);
+        return getCart(findUserId(email), null);
+    }
+
+    /**
+     * Get cart by user ID. The cart ID is optional and saves looking the cart up by user.
+     */
+    @Transactional
+    public Cart getCart(Long userId, Long cartId) {
+        if (cartStore.isEnabled()) {
+            return toCart(userId, cartStore.getItems(userId));
+        }
+        return loadCart(userId, cartId);
     }
 
     /**
@@ -62,10 +103,24 @@ public class CartService {
      */
     @Transactional
     public Cart addToCart(String userEmail, Long productId, int quantity) {
-        User user = userRepository.findByEmail(userEmail)
-                .orElseThrow(() -> new RuntimeException("User not found"));
+        return addToCart(findUserId(userEmail), null, productId, quantity);
+    }
+
+    /**
+     * Add item to a user's cart by user ID.
+     */
+    @Transactional
+    public Cart addToCart(Long userId, Long cartId, Long productId, int quantity) {
+        if (cartStore.isEnabled()) {
+            Product product = getCachedProduct(productId, quantity);
+            return updateStoredCart(userId, items -> {
+                int newQuantity = items.getOrDefault(productId, 0) + quantity;
+                reservations.reserve(userId, product, newQuantity);
+                items.put(productId, newQuantity);
+            });
+        }
 
-        Cart cart = getOrCreateCart(user);
+        Cart cart = loadCart(userId, cartId);
 
         Product product = productRepository.findById(productId)
                 .orElseThrow(() -> new RuntimeException("Product not found"));
@@ -75,24 +130,25 @@ public class CartService {
             throw new RuntimeException("Insufficient stock. Available: " + product.getStockQuantity());
         }
 
-        // Check if item already in cart
-        Optional<CartItem> existingItem = cartItemRepository.findByCartAndProduct(cart, product);
+        // Check if item already in cart (the items are loaded with the cart)
+        Optional<CartItem> existingItem = cart.getItems().stream()
+                .filter(item -> item.getProduct().getProductId().equals(productId))
+                .findFirst();
 
         if (existingItem.isPresent()) {
             CartItem item = existingItem.get();
             int newQuantity = item.getQuantity() + quantity;
-            if (!product.hasAvailableStock(newQuantity)) {
-                throw new RuntimeException("Insufficient stock. Available: " + product.getStockQuantity());
-            }
+            reservations.reserve(userId, product, newQuantity);
             item.setQuantity(newQuantity);
             cartItemRepository.save(item);
         } else {
+            reservations.reserve(userId, product, quantity);
             CartItem newItem = new CartItem(cart, product, quantity);
             cart.getItems().add(newItem);
             cartItemRepository.save(newItem);
         }
 
-        return cartRepository.save(cart);
+        return saveCart(userId, cart);
     }
 
     /**
@@ -100,14 +156,24 @@ public class CartService {
      */
     @Transactional
     public Cart removeFromCart(String userEmail, Long productId) {
-        User user = userRepository.findByEmail(userEmail)
-                .orElseThrow(() -> new RuntimeException("User not found"));
+        return removeFromCart(findUserId(userEmail), null, productId);
+    }
 
-        Cart cart = getOrCreateCart(user);
+    /**
+     * Remove item from a user's cart by user ID.
+     */
+    @Transactional
+    public Cart removeFromCart(Long userId, Long cartId, Long productId) {
+        reservations.release(userId, List.of(productId));
+        if (cartStore.isEnabled()) {
+            return updateStoredCart(userId, items -> items.remove(productId));
+        }
+
+        Cart cart = loadCart(userId, cartId);
 
         cart.getItems().removeIf(item -> item.getProduct().getProductId().equals(productId));
 
-        return cartRepository.save(cart);
+        return saveCart(userId, cart);
     }
 
     /**
@@ -115,15 +181,30 @@ public class CartService {
      */
     @Transactional
     public Cart updateCartItemQuantity(String userEmail, Long productId, int quantity) {
-        User user = userRepository.findByEmail(userEmail)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-
-        Cart cart = getOrCreateCart(user);
+        return updateCartItemQuantity(findUserId(userEmail), null, productId, quantity);
+    }
 
+    /**
+     * Update item quantity in a user's cart by user ID.
+     */
+    @Transactional
+    public Cart updateCartItemQuantity(Long userId, Long cartId, Long productId, int quantity) {
         if (quantity <= 0) {
-            return removeFromCart(userEmail, productId);
+            return removeFromCart(userId, cartId, productId);
         }
 
+        if (cartStore.isEnabled()) {
+            Product product = getCachedProduct(productId, quantity);
+            return updateStoredCart(userId, items -> {
+                if (items.containsKey(productId)) {
+                    reservations.reserve(userId, product, quantity);
+                    items.put(productId, quantity);
+                }
+            });
+        }
+
+        Cart cart = loadCart(userId, cartId);
+
         Product product = productRepository.findById(productId)
                 .orElseThrow(() -> new RuntimeException("Product not found"));
 
@@ -134,13 +215,14 @@ public class CartService {
 
         for (CartItem item : cart.getItems()) {
             if (item.getProduct().getProductId().equals(productId)) {
+                reservations.reserve(userId, product, quantity);
                 item.setQuantity(quantity);
                 cartItemRepository.save(item);
                 break;
             }
         }
 
-        return cartRepository.save(cart);
+        return saveCart(userId, cart);
     }
 
     /**
@@ -148,28 +230,232 @@ public class CartService {
      */
     @Transactional
     public void clearCart(String userEmail) {
-        User user = userRepository.findByEmail(userEmail)
-                .orElseThrow(() -> new RuntimeException("User not found"));
+        clearCart(findUserId(userEmail), null);
+    }
+
+    /**
+     * Clear all items from a user's cart by user ID.
+     */
+    @Transactional
+    public void clearCart(Long userId, Long cartId) {
+        if (cartStore.isEnabled()) {
+            List<Long> released = new ArrayList<>();
+            cartStore.update(userId, items -> {
+                released.addAll(items.keySet());
+                items.clear();
+            });
+            reservations.release(userId, released);
+            cartTotals.clear(userId);
+            return;
+        }
 
-        Cart cart = getOrCreateCart(user);
+        Cart cart = loadCart(userId, cartId);
+        reservations.release(userId, cart.getItems().stream()
+                .map(item -> item.getProduct().getProductId())
+                .collect(Collectors.toList()));
         cart.getItems().clear();
+        cart.touch();
         cartRepository.save(cart);
+        cartTotals.clear(userId);
+    }
+
+    /**
+     * Apply several line changes to a user's cart, see {@link #applyCartOperations(Long, Long, List)}.
+     */
+    @Transactional
+    public CartContentsDto applyCartOperations(String userEmail, List<CartOperationDto> operations) {
+        return applyCartOperations(findUserId(userEmail), null, operations);
+    }
+
+    /**
+     * Apply several line changes to a user's cart in one transaction, in the given order. Stock is
+     * checked once for the final quantities, loading all affected products with one query; if any
+     * operation is invalid nothing is changed.
+     *
+     * @throws IllegalArgumentException if an operation is invalid, a product does not exist or
+     *                                  does not have enough stock
+     */
+    @Transactional
+    public CartContentsDto applyCartOperations(Long userId, Long cartId, List<CartOperationDto> operations) {
+        Map<Long, Product> products = loadOperationProducts(operations);
+        return toContents(changeCart(userId, cartId, items -> {
+            Map<Long, Integer> before = new LinkedHashMap<>(items);
+            applyOperations(items, operations, products);
+            reserveChanges(userId, before, items, products);
+        }, products));
+    }
+
+    /**
+     * Merge a guest cart into a user's cart after login. Quantities of products in both carts are
+     * added up and capped at the stock available to the user; products that no longer exist or are out of stock
+     * are dropped, so a merge never fails the login.
+     */
+    @Transactional
+    public void mergeGuestCart(Long userId, Long cartId, Map<Long, Integer> guestItems) {
+        if (guestItems.isEmpty()) {
+            return;
+        }
+        Map<Long, Product> products = productRepository.findAllById(guestItems.keySet()).stream()
+                .collect(Collectors.toMap(Product::getProductId, Function.identity()));
+        changeCart(userId, cartId, items -> {
+            Map<Long, Integer> before = new LinkedHashMap<>(items);
+            guestItems.forEach((productId, quantity) -> {
+                Product product = products.get(productId);
+                if (product == null) {
+                    return;
+                }
+                int merged = Math.min(items.getOrDefault(productId, 0) + quantity,
+                        reservations.getAvailableToSell(userId, product));
+                if (merged > 0) {
+                    items.put(productId, merged);
+                }
+            });
+            reserveChanges(userId, before, items, products);
+        }, products);
+    }
+
+    // Guest carts: product ID to quantity maps kept by the caller (e.g. in a cookie), never stored
+
+    /**
+     * Build a detached cart for display from guest cart items, skipping products that no longer exist.
+     */
+    public Cart getGuestCart(Map<Long, Integer> items) {
+        List<Product> products = new ArrayList<>(items.size());
+        for (Long productId : items.keySet()) {
+            productService.getProductById(productId).ifPresent(products::add);
+        }
+        return buildCart(items, products);
+    }
+
+    /**
+     * Add item to guest cart items.
+     */
+    public void addToGuestCart(Map<Long, Integer> items, Long productId, int quantity) {
+        Product product = getCachedProduct(productId, quantity);
+        if (!items.containsKey(productId) && items.size() >= GUEST_CART_MAX_LINES) {
+            throw new RuntimeException("Guest carts hold at most " + GUEST_CART_MAX_LINES
+                    + " different products. Please log in to add more.");
+        }
+        int newQuantity = items.getOrDefault(productId, 0) + quantity;
+        if (!product.hasAvailableStock(newQuantity)) {
+            throw new RuntimeException("Insufficient stock. Available: " + product.getStockQuantity());
+        }
+        items.put(productId, newQuantity);
+    }
+
+    /**
+     * Update item quantity in guest cart items; a quantity of 0 or less removes the item.
+     */
+    public void updateGuestCartItemQuantity(Map<Long, Integer> items, Long productId, int quantity) {
+        if (quantity <= 0) {
+            items.remove(productId);
+            return;
+        }
+        getCachedProduct(productId, quantity);
+        items.computeIfPresent(productId, (id, current) -> quantity);
+    }
+
+    /**
+     * Apply several line changes to guest cart items, see {@link #applyCartOperations(Long, Long, List)}.
+     */
+    public CartContentsDto applyGuestCartOperations(Map<Long, Integer> items, List<CartOperationDto> operations) {
+        Map<Long, Product> products = loadOperationProducts(operations);
+        Map<Long, Integer> changed = new LinkedHashMap<>(items);
+        applyOperations(changed, operations, products);
+        if (changed.size() > GUEST_CART_MAX_LINES) {
+            throw new IllegalArgumentException("Guest carts hold at most " + GUEST_CART_MAX_LINES
+                    + " different products");
+        }
+        items.clear();
+        items.putAll(changed);
+        return toContents(getGuestCart(items));
+    }
+
+    /**
+     * Get the item count and total price of guest cart items.
+     */
+    public CartSummaryDto getGuestCartSummary(Map<Long, Integer> items) {
+        return CartTotals.summarize(getGuestCart(items));
+    }
+
+    /**
+     * Get the cart to order at checkout. Must be called in the checkout transaction; with the
+     * write-behind store the products are loaded from the database so stock can be reduced on them.
+     * The holds of all lines are renewed first, so a line whose hold expired and whose stock was
+     * taken by other carts fails here, before the order is built.
+     *
+     * @throws IllegalArgumentException if a line exceeds the stock available to the user
+     */
+    @Transactional
+    public Cart getCartForCheckout(Long userId, Long cartId) {
+        Cart cart;
+        if (cartStore.isEnabled()) {
+            Map<Long, Integer> items = cartStore.beginCheckout(userId);
+            cart = buildCart(items, productRepository.findAllById(items.keySet()));
+        } else {
+            cart = loadCart(userId, cartId);
+        }
+        Map<Long, Integer> lines = new LinkedHashMap<>();
+        Map<Long, Product> products = new HashMap<>();
+        for (CartItem item : cart.getItems()) {
+            Product product = item.getProduct();
+            lines.merge(product.getProductId(), item.getQuantity(), Integer::sum);
+            products.put(product.getProductId(), product);
+        }
+        reservations.reserveAll(userId, lines, products);
+        return cart;
+    }
+
+    /**
+     * Empty the cart after its order was placed, in the same transaction as the order.
+     */
+    @Transactional
+    public void completeCheckout(Long userId, Long cartId) {
+        if (cartStore.isEnabled()) {
+            reservations.release(userId, cartStore.getItems(userId).keySet());
+            cartStore.completeCheckout(userId);
+        } else {
+            clearCart(userId, cartId);
+        }
+        cartTotals.evictAfterCompletion(userId);
+    }
+
+    /**
+     * Get the item count and total price of a user's cart by user email.
+     */
+    public CartSummaryDto getCartSummary(String userEmail) {
+        return getCartSummary(findUserId(userEmail));
+    }
+
+    /**
+     * Get the item count and total price of a user's cart. Served from maintained aggregates; a
+     * miss is computed with one aggregate query (or from memory with the write-behind store).
+     */
+    public CartSummaryDto getCartSummary(Long userId) {
+        return cartTotals.get(userId, () -> cartStore.isEnabled()
+                ? CartTotals.summarize(toCart(userId, cartStore.getItems(userId)))
+                : cartItemRepository.summarizeByUserId(userId));
     }
 
     /**
      * Get cart total.
      */
     public BigDecimal getCartTotal(String userEmail) {
-        Cart cart = getCartByUserEmail(userEmail);
-        return cart.getTotalPrice();
+        return getCartSummary(userEmail).getTotal();
     }
 
     /**
      * Get cart item count.
      */
     public int getCartItemCount(String userEmail) {
-        Cart cart = getCartByUserEmail(userEmail);
-        return cart.getTotalItems();
+        return getCartSummary(userEmail).getItemCount();
+    }
+
+    /**
+     * Get cart item count by user ID.
+     */
+    public int getCartItemCount(Long userId) {
+        return getCartSummary(userId).getItemCount();
     }
 
     /**
@@ -179,4 +465,196 @@ public class CartService {
         Cart cart = getCartByUserEmail(userEmail);
         return cart.isEmpty();
     }
+
+    /**
+     * Validate batch operations and load the products they add or update with one query.
+     */
+    private Map<Long, Product> loadOperationProducts(List<CartOperationDto> operations) {
+        if (operations == null || operations.isEmpty()) {
+            throw new IllegalArgumentException("At least one operation is required");
+        }
+        if (operations.size() > MAX_OPERATIONS) {
+            throw new IllegalArgumentException("At most " + MAX_OPERATIONS + " operations are allowed");
+        }
+        Set<Long> stockChecked = new HashSet<>();
+        for (CartOperationDto operation : operations) {
+            if (operation == null || operation.getAction() == null || operation.getProductId() == null) {
+                throw new IllegalArgumentException("Each operation needs an action and a product ID");
+            }
+            if (operation.getAction() != CartOperationDto.Action.REMOVE) {
+                int minimum = operation.getAction() == CartOperationDto.Action.ADD ? 1 : 0;
+                if (operation.getQuantity() < minimum) {
+                    throw new IllegalArgumentException("Quantity must be at least " + minimum);
+                }
+                stockChecked.add(operation.getProductId());
+            }
+        }
+        return productRepository.findAllById(stockChecked).stream()
+                .collect(Collectors.toMap(Product::getProductId, Function.identity()));
+    }
+
+    /**
+     * Apply a change to the product ID to quantity items of a user's cart and store the result with
+     * one save. Products added by the change must be in the given map.
+     */
+    private Cart changeCart(Long userId, Long cartId, Consumer<Map<Long, Integer>> change,
+                            Map<Long, Product> products) {
+        if (cartStore.isEnabled()) {
+            return updateStoredCart(userId, change);
+        }
+
+        Cart cart = loadCart(userId, cartId);
+        Map<Long, Integer> items = new LinkedHashMap<>();
+        for (CartItem item : cart.getItems()) {
+            items.merge(item.getProduct().getProductId(), item.getQuantity(), Integer::sum);
+        }
+        change.accept(items);
+
+        cart.getItems().removeIf(item -> !items.containsKey(item.getProduct().getProductId()));
+        for (CartItem item : cart.getItems()) {
+            item.setQuantity(items.get(item.getProduct().getProductId()));
+        }
+        Set<Long> present = cart.getItems().stream()
+                .map(item -> item.getProduct().getProductId())
+                .collect(Collectors.toSet());
+        items.forEach((productId, quantity) -> {
+            if (!present.contains(productId)) {
+                cart.getItems().add(new CartItem(cart, products.get(productId), quantity));
+            }
+        });
+        return saveCart(userId, cart);
+    }
+
+    /**
+     * Hold the lines whose quantity changed and release the holds of removed lines.
+     */
+    private void reserveChanges(Long userId, Map<Long, Integer> before, Map<Long, Integer> after,
+                                Map<Long, Product> products) {
+        Map<Long, Integer> changed = new LinkedHashMap<>();
+        after.forEach((productId, quantity) -> {
+            if (!quantity.equals(before.get(productId))) {
+                changed.put(productId, quantity);
+            }
+        });
+        reservations.reserveAll(userId, changed, products);
+        List<Long> removed = before.keySet().stream()
+                .filter(productId -> !after.containsKey(productId))
+                .collect(Collectors.toList());
+        reservations.release(userId, removed);
+    }
+
+    /**
+     * Apply operations to product ID to quantity items and check the resulting quantities against
+     * the loaded products.
+     */
+    private static void applyOperations(Map<Long, Integer> items, List<CartOperationDto> operations,
+                                        Map<Long, Product> products) {
+        for (CartOperationDto operation : operations) {
+            Long productId = operation.getProductId();
+            switch (operation.getAction()) {
+                case ADD -> items.merge(productId, operation.getQuantity(), Integer::sum);
+                case UPDATE -> {
+                    if (operation.getQuantity() == 0) {
+                        items.remove(productId);
+                    } else {
+                        items.computeIfPresent(productId, (id, current) -> operation.getQuantity());
+                    }
+                }
+                case REMOVE -> items.remove(productId);
+            }
+        }
+        for (CartOperationDto operation : operations) {
+            Long productId = operation.getProductId();
+            Integer quantity = items.get(productId);
+            if (quantity == null || operation.getAction() == CartOperationDto.Action.REMOVE) {
+                continue;
+            }
+            Product product = products.get(productId);
+            if (product == null) {
+                throw new IllegalArgumentException("Product not found: " + productId);
+            }
+            if (!product.hasAvailableStock(quantity)) {
+                throw new IllegalArgumentException("Insufficient stock for " + product.getName()
+                        + ". Available: " + product.getStockQuantity());
+            }
+        }
+    }
+
+    private static CartContentsDto toContents(Cart cart) {
+        List<CartItemDto> items = cart.getItems().stream()
+                .map(item -> new CartItemDto(item.getProduct().getProductId(), item.getQuantity()))
+                .collect(Collectors.toList());
+        CartSummaryDto summary = CartTotals.summarize(cart);
+        return new CartContentsDto(items, summary.getItemCount(), summary.getTotal());
+    }
+
+    private Long findUserId(String email) {
+        return userRepository.findByEmail(email)
+                .orElseThrow(() -> new RuntimeException("User not found"))
+                .getUserId();
+    }
+
+    /**
+     * Load a user's cart by cart ID if known, otherwise by user, creating it if needed.
+     */
+    private Cart loadCart(Long userId, Long cartId) {
+        if (cartId != null) {
+            Optional<Cart> cart = cartRepository.findById(cartId);
+            if (cart.isPresent()) {
+                return cart.get();
+            }
+        }
+        return cartRepository.findByUserUserId(userId)
+                .orElseGet(() -> cartRepository.save(new Cart(userRepository.getReferenceById(userId))));
+    }
+
+    private Cart saveCart(Long userId, Cart cart) {
+        cart.touch();
+        Cart saved = cartRepository.save(cart);
+        cartTotals.update(userId, saved);
+        return saved;
+    }
+
+    private Cart updateStoredCart(Long userId, Consumer<Map<Long, Integer>> mutation) {
+        Cart cart = toCart(userId, cartStore.update(userId, mutation));
+        cartTotals.update(userId, cart);
+        return cart;
+    }
+
+    private Product getCachedProduct(Long productId, int quantity) {
+        Product product = productService.getProductById(productId)
+                .orElseThrow(() -> new RuntimeException("Product not found"));
+        if (!product.hasAvailableStock(quantity)) {
+            throw new RuntimeException("Insufficient stock. Available: " + product.getStockQuantity());
+        }
+        return product;
+    }
+
+    /**
+     * Build a detached cart from in-memory items, dropping products that no longer exist.
+     */
+    private Cart toCart(Long userId, Map<Long, Integer> items) {
+        List<Product> products = new ArrayList<>(items.size());
+        List<Long> missing = new ArrayList<>();
+        for (Long productId : items.keySet()) {
+            productService.getProductById(productId).ifPresentOrElse(products::add, () -> missing.add(productId));
+        }
+        if (!missing.isEmpty()) {
+            items = cartStore.update(userId, current -> current.keySet().removeAll(missing));
+        }
+        return buildCart(items, products);
+    }
+
+    private static Cart buildCart(Map<Long, Integer> items, Collection<Product> products) {
+        Map<Long, Product> productsById = products.stream()
+                .collect(Collectors.toMap(Product::getProductId, Function.identity()));
+        Cart cart = new Cart();
+        items.forEach((productId, quantity) -> {
+            Product product = productsById.get(productId);
+            if (product != null) {
+                cart.getItems().add(new CartItem(cart, product, quantity));
+            }
+        });
+        return cart;
+    }
 }
@@ -0,0 +1,125 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.CartSummaryDto;
+import com.ecommerce.event.ProductChangedEvent;
+import com.ecommerce.event.ProductsImportedEvent;
+import com.ecommerce.model.Cart;
+import com.ecommerce.model.CartItem;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Per-cart item count and total price, keyed by user ID, for the cart badge and totals
+ * endpoints. Every cart mutation stores the aggregates of the cart it just changed, so reads never
+ * load the cart graph; a miss is filled with one aggregate query. Product price changes and
+ * deletions drop all entries, since any cart may hold the product. Entries expire after a TTL to
+ * pick up carts changed by other instances.
+ */
+@Component
+public class CartTotals {
+
+    private final Cache<Long, CartSummaryDto> summaries;
+
+    @Autowired
+    public CartTotals(@Value("${app.cart.totals.max-carts:100000}") long maxCarts,
+                      @Value("${app.cart.totals.ttl-seconds:300}") long ttlSeconds) {
+        this.summaries = Caffeine.newBuilder()
+                .maximumSize(maxCarts)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
+    }
+
+    /**
+     * Get the aggregates of a user's cart, computing them on a miss.
+     */
+    public CartSummaryDto get(Long userId, Supplier<CartSummaryDto> loader) {
+        return summaries.get(userId, key -> loader.get());
+    }
+
+    /**
+     * Store the aggregates of a cart that was just changed, once the current transaction commits.
+     */
+    public void update(Long userId, Cart cart) {
+        putAfterCommit(userId, summarize(cart));
+    }
+
+    /**
+     * Store the aggregates of a cart that was just emptied, once the current transaction commits.
+     */
+    public void clear(Long userId) {
+        putAfterCommit(userId, CartSummaryDto.EMPTY);
+    }
+
+    /**
+     * Drop the aggregates of a user's cart, and again once the current transaction completes so a
+     * read racing with the transaction cannot keep the state from before it.
+     */
+    public void evictAfterCompletion(Long userId) {
+        summaries.invalidate(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    summaries.invalidate(userId);
+                }
+            });
+        }
+    }
+
+    /**
+     * Store aggregates when the current transaction commits, or right away without one. Until then
+     * readers keep the aggregates of the committed cart, and a rollback leaves them as they are.
+     */
+    private void putAfterCommit(Long userId, CartSummaryDto summary) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            summaries.put(userId, summary);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                summaries.put(userId, summary);
+            }
+        });
+    }
+
+    /**
+     * Compute the aggregates of a loaded cart.
+     */
+    public static CartSummaryDto summarize(Cart cart) {
+        int itemCount = 0;
+        BigDecimal total = BigDecimal.ZERO;
+        for (CartItem item : cart.getItems()) {
+            itemCount += item.getQuantity();
+            total = total.add(item.getSubtotal());
+        }
+        return new CartSummaryDto(itemCount, total);
+    }
+
+    /**
+     * Drop all aggregates when a product's price may have changed or the product was removed.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.getChangeType() == ProductChangedEvent.ChangeType.UPDATED
+                || event.getChangeType() == ProductChangedEvent.ChangeType.DELETED) {
+            summaries.invalidateAll();
+        }
+    }
+
+    @EventListener
+    public void onProductsImported(ProductsImportedEvent event) {
+        summaries.invalidateAll();
+    }
+}
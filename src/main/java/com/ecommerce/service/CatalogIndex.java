@@ -0,0 +1,209 @@
+package com.ecommerce.service;
+
+import com.ecommerce.event.ProductChangedEvent;
+import com.ecommerce.model.Product;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Base of the in-memory indexes derived from the catalog. {@link CatalogIndexes} builds them all from
+ * one scan of the catalog; each is then kept current from committed {@link ProductChangedEvent}s.
+ * A new build is made aside and swapped in when complete, so lookups keep using the previous one
+ * meanwhile. Subclasses supply the index type and how a product is added and a change applied.
+ *
+ * @param <I> the index data of one build
+ */
+public abstract class CatalogIndex<I> {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogIndex.class);
+
+    private final boolean stockDependent;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile I current;
+
+    private volatile boolean ready;
+    // Changes applied while a rebuild scans the catalog, replayed onto the new index before it is swapped in
+    private List<Consumer<I>> changedDuringBuild;
+
+    /**
+     * @param stockDependent whether stock changes affect the index; if not they are not applied
+     */
+    protected CatalogIndex(boolean stockDependent) {
+        this.stockDependent = stockDependent;
+    }
+
+    /**
+     * Create an empty index.
+     */
+    protected abstract I newIndex();
+
+    /**
+     * Add a product to an index being built.
+     */
+    protected abstract void add(I index, Product product);
+
+    /**
+     * Apply a product change to an index, replacing or removing the product's entry.
+     */
+    protected abstract void apply(I index, ProductChangedEvent event);
+
+    /**
+     * Load anything a new build needs besides the products, before the catalog is scanned.
+     */
+    protected void prepare(I index) {
+    }
+
+    /**
+     * Finish a new build once every product has been added, before it is swapped in.
+     */
+    protected void complete(I index) {
+    }
+
+    /**
+     * Describe the size of a build for the log.
+     */
+    protected String describe(I index) {
+        return "";
+    }
+
+    /**
+     * Check if the index should be built at all.
+     */
+    protected boolean isEnabled() {
+        return true;
+    }
+
+    /**
+     * Check if the index has been built and can answer lookups.
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Apply a committed product change.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (!stockDependent && event.getChangeType() == ProductChangedEvent.ChangeType.STOCK_CHANGED) {
+            return;
+        }
+        update(index -> apply(index, event));
+    }
+
+    /**
+     * Apply a change to the current index, and to the one being built if a rebuild is running.
+     */
+    protected void update(Consumer<I> change) {
+        lock.writeLock().lock();
+        try {
+            if (changedDuringBuild != null) {
+                changedDuringBuild.add(change);
+            }
+            change.accept(current());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Run a lookup against the current index.
+     */
+    protected <T> T read(Function<I, T> lookup) {
+        lock.readLock().lock();
+        try {
+            return lookup.apply(current());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Until the first build the index is empty; it is created on first use since subclasses are not
+    // initialized yet while this constructor runs
+    private I current() {
+        I index = current;
+        if (index == null) {
+            synchronized (this) {
+                if (current == null) {
+                    I empty = newIndex();
+                    complete(empty);
+                    current = empty;
+                }
+                index = current;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Start a new build. Changes applied from now on are recorded to be replayed onto it.
+     */
+    Build startBuild() {
+        Build build = new Build();
+        lock.writeLock().lock();
+        try {
+            changedDuringBuild = build.changes;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        try {
+            prepare(build.fresh);
+        } catch (RuntimeException e) {
+            build.abandon();
+            throw e;
+        }
+        return build;
+    }
+
+    /**
+     * A build in progress, fed the catalog one batch at a time.
+     */
+    final class Build {
+
+        private final long start = System.currentTimeMillis();
+        private final I fresh = newIndex();
+        private final List<Consumer<I>> changes = new ArrayList<>();
+
+        void addAll(List<Product> batch) {
+            for (Product product : batch) {
+                add(fresh, product);
+            }
+        }
+
+        void abandon() {
+            lock.writeLock().lock();
+            try {
+                if (changedDuringBuild == changes) {
+                    changedDuringBuild = null;
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void finish() {
+            complete(fresh);
+            lock.writeLock().lock();
+            try {
+                // The scan may have read a product before a change to it committed
+                changes.forEach(change -> change.accept(fresh));
+                changedDuringBuild = null;
+                current = fresh;
+                ready = true;
+                log.info("{} built: {} in {} ms", CatalogIndex.this.getClass().getSimpleName(), describe(fresh),
+                        System.currentTimeMillis() - start);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.ecommerce.service;
+
+import com.ecommerce.event.ProductsImportedEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds every {@link CatalogIndex} from a single scan of the catalog, once the application has
+ * started and again after each bulk import. Rebuilds never overlap and requests made during one
+ * are coalesced.
+ */
+@Component
+public class CatalogIndexes {
+
+    private final CatalogScanner catalogScanner;
+    private final List<CatalogIndex<?>> indexes;
+
+    private final RebuildCoordinator rebuilds = new RebuildCoordinator();
+
+    @Autowired
+    public CatalogIndexes(CatalogScanner catalogScanner, List<CatalogIndex<?>> indexes) {
+        this.catalogScanner = catalogScanner;
+        this.indexes = indexes;
+    }
+
+    /**
+     * Build the indexes from the database in the background once the application has started.
+     */
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    /**
+     * Rebuild the indexes in the background after a bulk import.
+     */
+    @Async
+    @EventListener
+    public void onProductsImported(ProductsImportedEvent event) {
+        rebuild();
+    }
+
+    /**
+     * Rebuild every enabled index from the database, walking the catalog once in primary key order.
+     */
+    public void rebuild() {
+        rebuilds.run(this::build);
+    }
+
+    private void build() {
+        List<CatalogIndex<?>.Build> builds = new ArrayList<>();
+        try {
+            for (CatalogIndex<?> index : indexes) {
+                if (index.isEnabled()) {
+                    builds.add(index.startBuild());
+                }
+            }
+            if (builds.isEmpty()) {
+                return;
+            }
+            catalogScanner.forEachBatch(batch -> builds.forEach(build -> build.addAll(batch)));
+        } catch (RuntimeException e) {
+            builds.forEach(CatalogIndex.Build::abandon);
+            throw e;
+        }
+        builds.forEach(CatalogIndex.Build::finish);
+    }
+}
@@ -0,0 +1,44 @@
+package com.ecommerce.service;
+
+import com.ecommerce.model.Product;
+import com.ecommerce.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Walks the whole catalog in primary key order, one bounded batch at a time.
+ * Used by {@link CatalogIndexes} to build the in-memory catalog indexes without holding a long
+ * transaction or loading every product at once.
+ */
+@Component
+public class CatalogScanner {
+
+    private static final int BATCH_SIZE = 1000;
+
+    private final ProductRepository productRepository;
+
+    @Autowired
+    public CatalogScanner(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+    }
+
+    /**
+     * Pass every product to the action in batches of up to 1000, in ID order.
+     */
+    public void forEachBatch(Consumer<List<Product>> action) {
+        long lastId = 0;
+        List<Product> batch;
+        do {
+            batch = productRepository.findByProductIdGreaterThanOrderByProductIdAsc(
+                    lastId, PageRequest.of(0, BATCH_SIZE));
+            if (!batch.isEmpty()) {
+                action.accept(batch);
+                lastId = batch.get(batch.size() - 1).getProductId();
+            }
+        } while (batch.size() == BATCH_SIZE);
+    }
+}
@@ -1,5 +1,6 @@
 package com.ecommerce.service;
 
+import com.ecommerce.dto.AbandonedCartDto;
 import com.ecommerce.model.Order;
 import com.ecommerce.model.OrderItem;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -14,6 +15,7 @@ import jakarta.mail.MessagingException;
 import jakarta.mail.internet.MimeMessage;
 import java.text.NumberFormat;
 import java.time.format.DateTimeFormatter;
+import java.util.List;
 import java.util.Locale;
 
 /**
@@ -201,6 +203,37 @@ public class EmailService {
         return text.toString();
     }
 
+    /**
+     * Send abandoned cart reminders. The whole batch goes over one mail server connection.
+     */
+    @Async
+    public void sendCartReminders(List<AbandonedCartDto> carts) {
+        SimpleMailMessage[] messages = carts.stream()
+                .map(this::buildCartReminder)
+                .toArray(SimpleMailMessage[]::new);
+        try {
+            mailSender.send(messages);
+        } catch (Exception e) {
+            System.err.println("Failed to send cart reminders: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Build plain text abandoned cart reminder.
+     */
+    private SimpleMailMessage buildCartReminder(AbandonedCartDto cart) {
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setFrom(fromEmail);
+        message.setTo(cart.getEmail());
+        message.setSubject("You left something in your cart");
+        message.setText("Dear " + cart.getName() + ",\n\n"
+                + "The items in your " + appName + " shopping cart are still waiting for you.\n"
+                + "Log in to complete your order before they sell out.\n\n"
+                + "-".repeat(50) + "\n"
+                + "This is an automated message. Please do not reply.\n");
+        return message;
+    }
+
     /**
      * Send generic notification email.
      */
@@ -0,0 +1,77 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.HomePageDto;
+import com.ecommerce.event.ProductChangedEvent;
+import com.ecommerce.event.ProductsImportedEvent;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+
+/**
+ * Service for the home page's featured (newest) products.
+ * The home page model is held in a refresh-ahead cache: once an entry is older than the refresh
+ * interval it is reloaded in the background while requests keep being served the current one.
+ * Catalog writes that change what the home page shows invalidate it.
+ */
+@Service
+public class FeaturedProductsService {
+
+    private static final String HOME_PAGE_KEY = "home";
+
+    private final ProductService productService;
+    private final int featuredCount;
+    private final LoadingCache<String, HomePageDto> homePage;
+
+    @Autowired
+    public FeaturedProductsService(ProductService productService,
+                                   @Value("${app.catalog.featured.size:8}") int featuredCount,
+                                   @Value("${app.catalog.featured.refresh-seconds:60}") long refreshSeconds) {
+        this.productService = productService;
+        this.featuredCount = featuredCount;
+        this.homePage = Caffeine.newBuilder()
+                .maximumSize(1)
+                .refreshAfterWrite(Duration.ofSeconds(refreshSeconds))
+                .recordStats()
+                .build(key -> loadHomePage());
+    }
+
+    /**
+     * Get the home page model.
+     */
+    public HomePageDto getHomePage() {
+        return homePage.get(HOME_PAGE_KEY);
+    }
+
+    /**
+     * Drop the cached home page if a committed change affects it: a product was added or removed,
+     * a category may have appeared or disappeared, or a featured product changed.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        HomePageDto current = homePage.getIfPresent(HOME_PAGE_KEY);
+        if (current == null) {
+            return;
+        }
+        if (event.isMembershipChange() || current.isFeatured(event.getProductId())) {
+            homePage.invalidate(HOME_PAGE_KEY);
+        }
+    }
+
+    /**
+     * Drop the cached home page after a bulk import, which may have added new products.
+     */
+    @EventListener
+    public void onProductsImported(ProductsImportedEvent event) {
+        homePage.invalidate(HOME_PAGE_KEY);
+    }
+
+    private HomePageDto loadHomePage() {
+        return new HomePageDto(productService.getNewestProducts(featuredCount), productService.getAllCategories());
+    }
+}
@@ -0,0 +1,460 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.FlashSaleStatusDto;
+import com.ecommerce.dto.FlashSaleStatusDto.Status;
+import com.ecommerce.event.ProductChangedEvent;
+import com.ecommerce.model.Product;
+import com.ecommerce.model.StockMovement;
+import com.ecommerce.repository.ProductRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+
+/**
+ * Flash sales for selected products. Starting a sale moves its quantity out of stock_quantity into
+ * an in-memory token pool (an atomic counter). Shoppers join a FIFO waiting room and are admitted
+ * in arrival order, a batch per tick, each admission taking one token; an admitted shopper can
+ * place a one-unit order until the claim window ends, after which the token goes back to the pool.
+ * Flash sale orders never update the products row, so the hot row sees no contention. Ending a
+ * sale reconciles unclaimed tokens back to stock_quantity. Sales live in the memory of one
+ * instance; they are ended, and their tokens returned, on shutdown. Running sales are also kept in
+ * the flash_sales table under the ID of the instance running them, which renews their heartbeat.
+ * A sale whose heartbeat is older than the lease was left by an instance that is gone; any instance
+ * closes it, returning the units its orders did not claim.
+ */
+@Service
+public class FlashSaleService {
+
+    private static final Logger log = LoggerFactory.getLogger(FlashSaleService.class);
+
+    private static final String INSERT_SALE_SQL = "INSERT INTO flash_sales (product_id, quantity, started_at, "
+            + "owner, heartbeat_at) VALUES (?, ?, ?, ?, ?)";
+    private static final String DELETE_SALE_SQL = "DELETE FROM flash_sales WHERE product_id = ? AND owner = ?";
+    private static final String DELETE_EXPIRED_SALE_SQL =
+            "DELETE FROM flash_sales WHERE product_id = ? AND owner = ? AND heartbeat_at < ?";
+    private static final String HEARTBEAT_SQL = "UPDATE flash_sales SET heartbeat_at = ? WHERE owner = ?";
+    private static final String EXPIRED_SALES_SQL = "SELECT product_id, quantity, owner FROM flash_sales "
+            + "WHERE heartbeat_at < ? AND owner <> ? ORDER BY product_id";
+
+    private final ProductRepository productRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final InventoryLedger inventoryLedger;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final long claimWindowMillis;
+    private final int admissionBatch;
+    private final long leaseMillis;
+    // Marks the flash_sales rows of this instance; a restarted instance does not own its old rows
+    private final String instanceId = UUID.randomUUID().toString();
+    private final LongSupplier clock;
+    private final Map<Long, Sale> sales = new ConcurrentHashMap<>();
+    // Products whose sale is being started, reserved before their stock is taken
+    private final Set<Long> starting = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public FlashSaleService(ProductRepository productRepository, ApplicationEventPublisher eventPublisher,
+                            InventoryLedger inventoryLedger, JdbcTemplate jdbcTemplate,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${app.flash-sale.claim-window-seconds:120}") long claimWindowSeconds,
+                            @Value("${app.flash-sale.admission-batch:100}") int admissionBatch,
+                            @Value("${app.flash-sale.lease-seconds:60}") long leaseSeconds) {
+        this(productRepository, eventPublisher, inventoryLedger, jdbcTemplate, transactionManager,
+                TimeUnit.SECONDS.toMillis(claimWindowSeconds), admissionBatch, TimeUnit.SECONDS.toMillis(leaseSeconds),
+                System::currentTimeMillis);
+    }
+
+    FlashSaleService(ProductRepository productRepository, ApplicationEventPublisher eventPublisher,
+                     InventoryLedger inventoryLedger, JdbcTemplate jdbcTemplate,
+                     PlatformTransactionManager transactionManager, long claimWindowMillis, int admissionBatch,
+                     long leaseMillis, LongSupplier clock) {
+        this.productRepository = productRepository;
+        this.eventPublisher = eventPublisher;
+        this.inventoryLedger = inventoryLedger;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.claimWindowMillis = claimWindowMillis;
+        this.admissionBatch = admissionBatch;
+        this.leaseMillis = leaseMillis;
+        this.clock = clock;
+    }
+
+    /**
+     * Start a flash sale, taking its quantity from the product's stock.
+     *
+     * @throws IllegalArgumentException if a sale is already running for the product, the product
+     *                                  does not exist or does not have the quantity in stock
+     */
+    public FlashSaleStatusDto startSale(Long productId, int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Sale quantity must be positive");
+        }
+        if (!starting.add(productId)) {
+            throw new IllegalArgumentException("A flash sale is already running for product " + productId);
+        }
+        try {
+            if (sales.containsKey(productId)) {
+                throw new IllegalArgumentException("A flash sale is already running for product " + productId);
+            }
+            transactionTemplate.executeWithoutResult(status -> {
+                Product product = productRepository.findById(productId)
+                        .orElseThrow(() -> new IllegalArgumentException("Product not found"));
+                if (!productRepository.decrementStock(Map.of(product, quantity)).isEmpty()) {
+                    throw new IllegalArgumentException("Insufficient stock to allocate " + quantity
+                            + " units. Available: " + product.getStockQuantity());
+                }
+                inventoryLedger.record(productId, StockMovement.Type.FLASH_SALE, quantity, null);
+                jdbcTemplate.update(INSERT_SALE_SQL, productId, quantity, Timestamp.valueOf(LocalDateTime.now()),
+                        instanceId, new Timestamp(clock.getAsLong()));
+                eventPublisher.publishEvent(ProductChangedEvent.stockChanged(product));
+            });
+            // The tokens exist only once the stock they stand for has been taken
+            sales.put(productId, new Sale(productId, quantity));
+        } finally {
+            starting.remove(productId);
+        }
+        return getStatus(productId, null);
+    }
+
+    /**
+     * End a flash sale and put the tokens that were not claimed back into stock_quantity. If the
+     * sale's lease ran out and another instance closed it meanwhile, nothing is returned.
+     *
+     * @return number of units returned to stock
+     * @throws IllegalArgumentException if no sale is running for the product
+     */
+    public int endSale(Long productId) {
+        Sale sale = sales.remove(productId);
+        if (sale == null) {
+            throw new IllegalArgumentException("No flash sale is running for product " + productId);
+        }
+        int unclaimed = takeUnclaimed(sale);
+        Integer returned = transactionTemplate.execute(status -> {
+            if (jdbcTemplate.update(DELETE_SALE_SQL, productId, instanceId) == 0) {
+                log.warn("The flash sale of product {} was closed by another instance", productId);
+                return 0;
+            }
+            returnToStock(productId, unclaimed);
+            return unclaimed;
+        });
+        return returned != null ? returned : 0;
+    }
+
+    /**
+     * Close the sales whose lease ran out, left running by an instance that stopped without ending
+     * them, returning to stock the units of each that no flash sale order claimed. Sales of running
+     * instances are left alone, as they renew their heartbeat well within the lease.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recoverSales() {
+        Timestamp expiredBefore = new Timestamp(clock.getAsLong() - leaseMillis);
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        Map<Long, String> owners = new LinkedHashMap<>();
+        jdbcTemplate.query(EXPIRED_SALES_SQL, rs -> {
+            quantities.put(rs.getLong(1), rs.getInt(2));
+            owners.put(rs.getLong(1), rs.getString(3));
+        }, expiredBefore, instanceId);
+        quantities.forEach((productId, quantity) -> {
+            if (!starting.add(productId)) {
+                return;
+            }
+            try {
+                if (!sales.containsKey(productId)) {
+                    closeExpired(productId, quantity, owners.get(productId), expiredBefore);
+                }
+            } catch (RuntimeException e) {
+                log.error("Could not close the flash sale of product {} left running", productId, e);
+            } finally {
+                starting.remove(productId);
+            }
+        });
+    }
+
+    /**
+     * Close an expired sale. Deleting its row only succeeds while it still has the owner and the
+     * expired heartbeat it was read with, so only one instance closes it, and not after a renewal.
+     */
+    private void closeExpired(Long productId, int quantity, String owner, Timestamp expiredBefore) {
+        Integer unclaimed = transactionTemplate.execute(status -> {
+            if (jdbcTemplate.update(DELETE_EXPIRED_SALE_SQL, productId, owner, expiredBefore) == 0) {
+                return null;
+            }
+            int units = Math.max(0, quantity - inventoryLedger.countFlashSaleClaims(productId));
+            returnToStock(productId, units);
+            return units;
+        });
+        if (unclaimed != null) {
+            log.warn("Closed the flash sale of product {} left running, returning {} unclaimed units",
+                    productId, unclaimed);
+        }
+    }
+
+    /**
+     * Join the waiting room of a sale. Joining again returns the existing place in the queue,
+     * unless the shopper's admission expired, which puts them at the back.
+     *
+     * @throws IllegalArgumentException if no sale is running for the product
+     */
+    public FlashSaleStatusDto join(Long productId, Long userId) {
+        Sale sale = getSale(productId);
+        sale.tickets.compute(userId, (id, current) ->
+                current != null && current.state.get() != Status.EXPIRED ? current : sale.enqueue(id));
+        return getStatus(productId, userId);
+    }
+
+    /**
+     * Get a shopper's status in a sale, or the state of the sale if the user ID is null.
+     *
+     * @throws IllegalArgumentException if no sale is running for the product
+     */
+    public FlashSaleStatusDto getStatus(Long productId, Long userId) {
+        Sale sale = getSale(productId);
+        int tokensLeft = sale.tokens.get();
+        boolean soldOut = tokensLeft == 0 && sale.outstanding.get() == 0;
+        Ticket ticket = userId != null ? sale.tickets.get(userId) : null;
+        if (ticket == null) {
+            return new FlashSaleStatusDto(productId, soldOut ? Status.SOLD_OUT : Status.NOT_QUEUED,
+                    sale.waiting.size(), tokensLeft, null);
+        }
+        Status status = ticket.state.get();
+        return switch (status) {
+            case WAITING -> new FlashSaleStatusDto(productId, soldOut ? Status.SOLD_OUT : Status.WAITING,
+                    Math.max(1, ticket.sequence - sale.admittedSequence), tokensLeft, null);
+            case ADMITTED -> new FlashSaleStatusDto(productId, status, 0, tokensLeft,
+                    LocalDateTime.ofInstant(Instant.ofEpochMilli(ticket.expiresAt), ZoneId.systemDefault()));
+            default -> new FlashSaleStatusDto(productId, status, 0, tokensLeft, null);
+        };
+    }
+
+    /**
+     * Check whether a flash sale is running for a product.
+     */
+    public boolean isOnSale(Long productId) {
+        return sales.containsKey(productId);
+    }
+
+    /**
+     * Use a shopper's admission to buy one unit. Must be called in the order transaction; if it
+     * rolls back the shopper is admitted again until their claim window ends.
+     *
+     * @throws IllegalStateException if the shopper holds no unexpired admission for the sale
+     */
+    public void claim(Long productId, Long userId) {
+        Sale sale = sales.get(productId);
+        Ticket ticket = sale != null ? sale.tickets.get(userId) : null;
+        if (ticket == null || ticket.expiresAt < clock.getAsLong()
+                || !ticket.state.compareAndSet(Status.ADMITTED, Status.CLAIMED)) {
+            throw new IllegalStateException("You have not been admitted to this flash sale. "
+                    + "Join the queue and wait for your turn.");
+        }
+        sale.admitted.remove(userId);
+        sale.outstanding.decrementAndGet();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        unclaim(sale, ticket);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Expire admissions whose claim window ended, then admit the next waiting shoppers in arrival
+     * order while tokens are left, at most one batch per sale.
+     *
+     * @return number of shoppers admitted
+     */
+    public int admit() {
+        long now = clock.getAsLong();
+        int admitted = 0;
+        for (Sale sale : sales.values()) {
+            expire(sale, now);
+            for (int i = 0; i < admissionBatch && takeToken(sale); i++) {
+                Ticket ticket = sale.waiting.poll();
+                if (ticket == null) {
+                    sale.tokens.incrementAndGet();
+                    break;
+                }
+                sale.admittedSequence = ticket.sequence;
+                ticket.expiresAt = now + claimWindowMillis;
+                sale.outstanding.incrementAndGet();
+                sale.admitted.put(ticket.userId, ticket);
+                ticket.state.set(Status.ADMITTED);
+                admitted++;
+            }
+        }
+        return admitted;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Long productId : List.copyOf(sales.keySet())) {
+            try {
+                endSale(productId);
+            } catch (RuntimeException e) {
+                log.error("Could not return flash sale tokens of product {} to stock", productId, e);
+            }
+        }
+    }
+
+    private Sale getSale(Long productId) {
+        Sale sale = sales.get(productId);
+        if (sale == null) {
+            throw new IllegalArgumentException("No flash sale is running for product " + productId);
+        }
+        return sale;
+    }
+
+    private static boolean takeToken(Sale sale) {
+        while (true) {
+            int tokens = sale.tokens.get();
+            if (tokens == 0) {
+                return false;
+            }
+            if (sale.tokens.compareAndSet(tokens, tokens - 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Take the tokens left in a sale's pool and those of its unclaimed admissions.
+     */
+    private static int takeUnclaimed(Sale sale) {
+        int unclaimed = sale.tokens.getAndSet(0);
+        for (Ticket ticket : sale.admitted.values()) {
+            if (ticket.state.compareAndSet(Status.ADMITTED, Status.EXPIRED)) {
+                unclaimed++;
+            }
+        }
+        return unclaimed;
+    }
+
+    private static void expire(Sale sale, long now) {
+        for (Ticket ticket : sale.admitted.values()) {
+            if (ticket.expiresAt < now && ticket.state.compareAndSet(Status.ADMITTED, Status.EXPIRED)) {
+                sale.admitted.remove(ticket.userId, ticket);
+                sale.outstanding.decrementAndGet();
+                sale.tokens.incrementAndGet();
+            }
+        }
+    }
+
+    private void unclaim(Sale sale, Ticket ticket) {
+        if (sales.get(sale.productId) != sale) {
+            // The sale ended meanwhile, so the token is no longer in a pool: give the unit back
+            returnToStock(sale.productId, 1);
+            return;
+        }
+        sale.outstanding.incrementAndGet();
+        sale.admitted.put(ticket.userId, ticket);
+        ticket.state.set(Status.ADMITTED);
+    }
+
+    /**
+     * Put units of a sale back into stock, in the caller's transaction if there is one.
+     */
+    private void returnToStock(Long productId, int quantity) {
+        if (quantity == 0) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status ->
+                productRepository.findById(productId).ifPresent(product -> {
+                    productRepository.incrementStock(Map.of(product, quantity));
+                    inventoryLedger.record(productId, StockMovement.Type.FLASH_SALE_RETURN, quantity, null);
+                    eventPublisher.publishEvent(ProductChangedEvent.stockChanged(product));
+                }));
+    }
+
+    @Scheduled(fixedDelayString = "${app.flash-sale.admission-interval-ms:200}",
+            initialDelayString = "${app.flash-sale.admission-interval-ms:200}")
+    void admitQuietly() {
+        try {
+            admit();
+        } catch (RuntimeException e) {
+            log.error("Flash sale admission failed", e);
+        }
+    }
+
+    /**
+     * Renew the heartbeat of this instance's sales, then close the sales whose owner is gone.
+     */
+    @Scheduled(fixedDelayString = "${app.flash-sale.heartbeat-interval-seconds:10}",
+            initialDelayString = "${app.flash-sale.heartbeat-interval-seconds:10}", timeUnit = TimeUnit.SECONDS)
+    void heartbeat() {
+        try {
+            if (!sales.isEmpty()) {
+                jdbcTemplate.update(HEARTBEAT_SQL, new Timestamp(clock.getAsLong()), instanceId);
+            }
+            recoverSales();
+        } catch (RuntimeException e) {
+            log.error("Flash sale heartbeat failed", e);
+        }
+    }
+
+    private static final class Sale {
+        private final Long productId;
+        private final AtomicInteger tokens;
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private final AtomicLong nextSequence = new AtomicLong();
+        private final ConcurrentLinkedQueue<Ticket> waiting = new ConcurrentLinkedQueue<>();
+        private final Map<Long, Ticket> tickets = new ConcurrentHashMap<>();
+        private final Map<Long, Ticket> admitted = new ConcurrentHashMap<>();
+        // Written by the admission thread only
+        private volatile long admittedSequence;
+
+        private Sale(Long productId, int quantity) {
+            this.productId = productId;
+            this.tokens = new AtomicInteger(quantity);
+        }
+
+        private Ticket enqueue(Long userId) {
+            Ticket ticket = new Ticket(userId, nextSequence.incrementAndGet());
+            waiting.add(ticket);
+            return ticket;
+        }
+    }
+
+    private static final class Ticket {
+        private final Long userId;
+        private final long sequence;
+        private final AtomicReference<Status> state = new AtomicReference<>(Status.WAITING);
+        private volatile long expiresAt;
+
+        private Ticket(Long userId, long sequence) {
+            this.userId = userId;
+            this.sequence = sequence;
+        }
+    }
+}
@@ -0,0 +1,328 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.StockDiscrepancyDto;
+import com.ecommerce.dto.StockMovementDto;
+import com.ecommerce.model.StockMovement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Append-only ledger of stock movements (app.inventory.ledger.*). Every change of a product's stock
+ * appends a movement in the transaction that makes it; a transaction's movements are written as one
+ * JDBC batch just before it commits, so they land exactly when the stock change does. Inserts only
+ * take the auto-increment key, so recording never waits on the products row.
+ * <p>
+ * The stock counters stay authoritative for taking stock, because they are what stops concurrent
+ * orders overselling; the ledger is their replayable history. A product's ledger stock is its
+ * latest snapshot plus the movements after it. Snapshots are folded forward periodically for the
+ * products that moved, only up to movements older than a settle time, so movements of transactions
+ * still committing are not skipped. Reconciliation replays the ledger of every product and reports
+ * those whose stock does not match.
+ */
+@Component
+public class InventoryLedger {
+
+    private static final Logger log = LoggerFactory.getLogger(InventoryLedger.class);
+
+    private static final String INSERT_MOVEMENT_SQL = "INSERT INTO stock_movements "
+            + "(product_id, movement_type, quantity, reference_id, created_at) VALUES (?, ?, ?, ?, ?)";
+    private static final String MOVEMENTS_SQL = "SELECT movement_id, product_id, movement_type, quantity, "
+            + "reference_id, created_at FROM stock_movements WHERE product_id = ? AND movement_id > ? "
+            + "ORDER BY movement_id LIMIT ?";
+    private static final String FLASH_SALE_CLAIMS_SQL = "SELECT COUNT(*) FROM stock_movements "
+            + "WHERE product_id = ? AND movement_type = ? AND movement_id > (SELECT COALESCE(MAX(movement_id), 0) "
+            + "FROM stock_movements WHERE product_id = ? AND movement_type = ?)";
+    private static final String SNAPSHOT_WATERMARK_SQL = "SELECT COALESCE(MAX(movement_id), 0) FROM stock_snapshots";
+    private static final String SETTLED_WATERMARK_SQL =
+            "SELECT MAX(movement_id) FROM stock_movements WHERE movement_id > ? AND created_at <= ?";
+    private static final String MOVED_PRODUCTS_SQL = "SELECT DISTINCT product_id FROM stock_movements "
+            + "WHERE movement_id > ? AND movement_id <= ? AND product_id > ? ORDER BY product_id LIMIT ?";
+    private static final String UPDATE_SNAPSHOT_SQL = "UPDATE stock_snapshots SET movement_id = ?, quantity = ?, "
+            + "taken_at = ? WHERE product_id = ? AND movement_id < ?";
+    private static final String INSERT_SNAPSHOT_SQL =
+            "INSERT INTO stock_snapshots (product_id, movement_id, quantity, taken_at) VALUES (?, ?, ?, ?)";
+    private static final String PRODUCT_STOCK_SQL = "SELECT p.product_id, COALESCE(p.stock_quantity, 0) + "
+            + "COALESCE((SELECT SUM(s.quantity) FROM product_stock_shards s WHERE s.product_id = p.product_id), 0) "
+            + "FROM products p WHERE p.product_id > ? ORDER BY p.product_id LIMIT ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration settleTime;
+    private final int chunkSize;
+    private final boolean snapshotEnabled;
+    // Highest movement folded into snapshots by this instance, -1 until read from the snapshots
+    private volatile long snapshotWatermark = -1;
+
+    @Autowired
+    public InventoryLedger(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                           @Value("${app.inventory.ledger.snapshot-enabled:true}") boolean snapshotEnabled,
+                           @Value("${app.inventory.ledger.settle-seconds:60}") long settleSeconds,
+                           @Value("${app.inventory.ledger.chunk-size:500}") int chunkSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.settleTime = Duration.ofSeconds(settleSeconds);
+        this.chunkSize = chunkSize;
+        this.snapshotEnabled = snapshotEnabled;
+    }
+
+    /**
+     * Record a stock movement of one product, see {@link #record(Map, StockMovement.Type, Long)}.
+     */
+    public void record(Long productId, StockMovement.Type type, int quantity, Long referenceId) {
+        record(Map.of(productId, quantity), type, referenceId);
+    }
+
+    /**
+     * Record stock movements of one type. They are inserted when the current transaction commits
+     * and dropped if it rolls back; without a transaction they are inserted right away.
+     *
+     * @param quantities  product ID to units moved, or to the new stock for absolute types
+     * @param referenceId ID of the order behind the movements, or null
+     */
+    public void record(Map<Long, Integer> quantities, StockMovement.Type type, Long referenceId) {
+        if (quantities.isEmpty()) {
+            return;
+        }
+        List<Object[]> movements = new ArrayList<>(quantities.size());
+        quantities.forEach((productId, quantity) ->
+                movements.add(new Object[]{productId, type.name(), type.toQuantity(quantity), referenceId}));
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            insert(movements);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                insert(movements);
+            }
+        });
+    }
+
+    /**
+     * Get a product's stock replayed from its ledger: the latest snapshot plus the movements after it.
+     *
+     * @return the ledger stock, or null if the product has no ledger entries
+     */
+    public Integer getStock(Long productId) {
+        Balance balance = replay(List.of(productId), Long.MAX_VALUE).get(productId);
+        return balance != null ? balance.quantity : null;
+    }
+
+    /**
+     * Get a product's movements after the given one, oldest first.
+     */
+    public List<StockMovementDto> getMovements(Long productId, long afterMovementId, int limit) {
+        return jdbcTemplate.query(MOVEMENTS_SQL, (rs, row) -> new StockMovementDto(rs.getLong(1), rs.getLong(2),
+                StockMovement.Type.valueOf(rs.getString(3)), rs.getInt(4), rs.getObject(5, Long.class),
+                rs.getTimestamp(6).toLocalDateTime()), productId, afterMovementId, limit);
+    }
+
+    /**
+     * Count the units of a product's latest flash sale that orders claimed, that is its
+     * FLASH_SALE_CLAIM movements after its latest FLASH_SALE movement.
+     */
+    public int countFlashSaleClaims(Long productId) {
+        return jdbcTemplate.queryForObject(FLASH_SALE_CLAIMS_SQL, Integer.class, productId,
+                StockMovement.Type.FLASH_SALE_CLAIM.name(), productId, StockMovement.Type.FLASH_SALE.name());
+    }
+
+    /**
+     * Fold the settled movements since the last run into the snapshots of the products they moved,
+     * a chunk of products per transaction.
+     *
+     * @return number of snapshots written
+     */
+    public int snapshot() {
+        if (snapshotWatermark < 0) {
+            snapshotWatermark = jdbcTemplate.queryForObject(SNAPSHOT_WATERMARK_SQL, Long.class);
+        }
+        long from = snapshotWatermark;
+        Long settled = jdbcTemplate.queryForObject(SETTLED_WATERMARK_SQL, Long.class, from,
+                Timestamp.valueOf(LocalDateTime.now().minus(settleTime)));
+        if (settled == null) {
+            return 0;
+        }
+        int written = 0;
+        long afterProductId = 0;
+        while (true) {
+            List<Long> productIds = jdbcTemplate.queryForList(MOVED_PRODUCTS_SQL, Long.class, from, settled,
+                    afterProductId, chunkSize);
+            if (productIds.isEmpty()) {
+                break;
+            }
+            written += transactionTemplate.execute(status -> writeSnapshots(productIds, settled));
+            afterProductId = productIds.get(productIds.size() - 1);
+            if (productIds.size() < chunkSize) {
+                break;
+            }
+        }
+        snapshotWatermark = settled;
+        if (written > 0) {
+            log.debug("Wrote {} stock snapshots up to movement {}", written, settled);
+        }
+        return written;
+    }
+
+    /**
+     * Replay the ledger of every product, a chunk per transaction, and report the products whose
+     * stock (including stock shards) differs from it.
+     */
+    public List<StockDiscrepancyDto> reconcile() {
+        List<StockDiscrepancyDto> discrepancies = new ArrayList<>();
+        long afterProductId = 0;
+        while (true) {
+            long after = afterProductId;
+            Map<Long, Integer> stock = new LinkedHashMap<>();
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.query(PRODUCT_STOCK_SQL, rs -> {
+                    stock.put(rs.getLong(1), rs.getInt(2));
+                }, after, chunkSize);
+                Map<Long, Balance> balances = replay(List.copyOf(stock.keySet()), Long.MAX_VALUE);
+                stock.forEach((productId, quantity) -> {
+                    Balance balance = balances.get(productId);
+                    if (balance == null || balance.quantity != quantity) {
+                        discrepancies.add(new StockDiscrepancyDto(productId, quantity,
+                                balance != null ? balance.quantity : null));
+                    }
+                });
+            });
+            if (stock.size() < chunkSize) {
+                break;
+            }
+            afterProductId = Collections.max(stock.keySet());
+        }
+        return discrepancies;
+    }
+
+    private void insert(List<Object[]> movements) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERT_MOVEMENT_SQL, movements, movements.size(), (ps, movement) -> {
+            ps.setLong(1, (Long) movement[0]);
+            ps.setString(2, (String) movement[1]);
+            ps.setInt(3, (Integer) movement[2]);
+            if (movement[3] == null) {
+                ps.setNull(4, Types.BIGINT);
+            } else {
+                ps.setLong(4, (Long) movement[3]);
+            }
+            ps.setTimestamp(5, now);
+        });
+    }
+
+    private int writeSnapshots(List<Long> productIds, long upToMovementId) {
+        Map<Long, Balance> balances = replay(productIds, upToMovementId);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Balance> updates = new ArrayList<>();
+        List<Balance> inserts = new ArrayList<>();
+        for (Balance balance : balances.values()) {
+            if (balance.movementId > balance.snapshotMovementId) {
+                (balance.snapshotMovementId >= 0 ? updates : inserts).add(balance);
+            }
+        }
+        jdbcTemplate.batchUpdate(UPDATE_SNAPSHOT_SQL, updates, updates.size(), (ps, balance) -> {
+            ps.setLong(1, balance.movementId);
+            ps.setInt(2, balance.quantity);
+            ps.setTimestamp(3, now);
+            ps.setLong(4, balance.productId);
+            ps.setLong(5, balance.movementId);
+        });
+        jdbcTemplate.batchUpdate(INSERT_SNAPSHOT_SQL, inserts, inserts.size(), (ps, balance) -> {
+            ps.setLong(1, balance.productId);
+            ps.setLong(2, balance.movementId);
+            ps.setInt(3, balance.quantity);
+            ps.setTimestamp(4, now);
+        });
+        return updates.size() + inserts.size();
+    }
+
+    /**
+     * Replay the ledgers of some products: their snapshots plus the movements after them, up to a
+     * movement. Products with neither are left out.
+     */
+    private Map<Long, Balance> replay(List<Long> productIds, long upToMovementId) {
+        Map<Long, Balance> balances = new HashMap<>();
+        if (productIds.isEmpty()) {
+            return balances;
+        }
+        String in = String.join(", ", Collections.nCopies(productIds.size(), "?"));
+        jdbcTemplate.query("SELECT product_id, movement_id, quantity FROM stock_snapshots WHERE product_id IN ("
+                + in + ")", rs -> {
+            Balance balance = new Balance(rs.getLong(1), rs.getLong(2));
+            balance.movementId = balance.snapshotMovementId;
+            balance.quantity = rs.getInt(3);
+            balances.put(balance.productId, balance);
+        }, productIds.toArray());
+
+        // One index range per product, starting after its snapshot
+        StringBuilder sql = new StringBuilder("SELECT product_id, movement_id, movement_type, quantity "
+                + "FROM stock_movements WHERE movement_id <= ? AND (");
+        List<Object> parameters = new ArrayList<>();
+        parameters.add(upToMovementId);
+        for (int i = 0; i < productIds.size(); i++) {
+            Long productId = productIds.get(i);
+            Balance balance = balances.get(productId);
+            sql.append(i > 0 ? " OR " : "").append("(product_id = ? AND movement_id > ?)");
+            parameters.add(productId);
+            parameters.add(balance != null ? balance.snapshotMovementId : 0L);
+        }
+        sql.append(") ORDER BY product_id, movement_id");
+        jdbcTemplate.query(sql.toString(), rs -> {
+            Balance balance = balances.computeIfAbsent(rs.getLong(1), productId -> new Balance(productId, -1));
+            balance.movementId = rs.getLong(2);
+            int quantity = rs.getInt(4);
+            balance.quantity = StockMovement.Type.valueOf(rs.getString(3)).isAbsolute()
+                    ? quantity : balance.quantity + quantity;
+        }, parameters.toArray());
+        return balances;
+    }
+
+    @Scheduled(fixedDelayString = "${app.inventory.ledger.snapshot-interval-minutes:5}",
+            initialDelayString = "${app.inventory.ledger.snapshot-interval-minutes:5}", timeUnit = TimeUnit.MINUTES)
+    void snapshotQuietly() {
+        if (!snapshotEnabled) {
+            return;
+        }
+        try {
+            snapshot();
+        } catch (RuntimeException e) {
+            log.error("Stock snapshot failed", e);
+        }
+    }
+
+    /**
+     * A product's replayed stock and the movement it is as of.
+     */
+    private static final class Balance {
+        private final long productId;
+        // Movement of the stored snapshot, -1 if the product has none
+        private final long snapshotMovementId;
+        private long movementId;
+        private int quantity;
+
+        private Balance(long productId, long snapshotMovementId) {
+            this.productId = productId;
+            this.snapshotMovementId = snapshotMovementId;
+        }
+    }
+}
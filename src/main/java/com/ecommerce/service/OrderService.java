@@ -1,15 +1,20 @@
 package com.ecommerce.service;
 
 import com.ecommerce.dto.CheckoutDto;
+import com.ecommerce.event.ProductChangedEvent;
+import com.ecommerce.event.ProductsSoldEvent;
 import com.ecommerce.model.*;
 import com.ecommerce.repository.OrderRepository;
 import com.ecommerce.repository.ProductRepository;
 import com.ecommerce.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -23,16 +28,23 @@ public class OrderService {
     private final ProductRepository productRepository;
     private final CartService cartService;
     private final EmailService emailService;
+    private final FlashSaleService flashSaleService;
+    private final InventoryLedger inventoryLedger;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Autowired
     public OrderService(OrderRepository orderRepository, UserRepository userRepository,
                         ProductRepository productRepository, CartService cartService,
-                        EmailService emailService) {
+                        EmailService emailService, FlashSaleService flashSaleService,
+                        InventoryLedger inventoryLedger, ApplicationEventPublisher eventPublisher) {
         this.orderRepository = orderRepository;
         this.userRepository = userRepository;
         this.productRepository = productRepository;
         this.cartService = cartService;
         this.emailService = emailService;
+        this.flashSaleService = flashSaleService;
+        this.inventoryLedger = inventoryLedger;
+        this.eventPublisher = eventPublisher;
     }
 
     /**
@@ -42,13 +54,31 @@ public class OrderService {
     public Order placeOrder(String userEmail, CheckoutDto checkoutDto) {
         User user = userRepository.findByEmail(userEmail)
                 .orElseThrow(() -> new RuntimeException("User not found"));
+        return placeOrder(user.getUserId(), null, checkoutDto);
+    }
 
-        Cart cart = cartService.getCartByUserEmail(userEmail);
+    /**
+     * Place a new order from the cart of a user identified by ID. The cart ID is optional.
+     */
+    @Transactional
+    public Order placeOrder(Long userId, Long cartId, CheckoutDto checkoutDto) {
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+
+        // Renews the stock holds of the cart lines, failing before any work if one cannot be held
+        Cart cart = cartService.getCartForCheckout(userId, cartId);
 
         if (cart.isEmpty()) {
             throw new RuntimeException("Cannot place order with empty cart");
         }
 
+        // Verify stock availability of all lines before changing anything
+        for (CartItem cartItem : cart.getItems()) {
+            if (!cartItem.getProduct().hasAvailableStock(cartItem.getQuantity())) {
+                throw new RuntimeException("Insufficient stock for product: " + cartItem.getProduct().getName());
+            }
+        }
+
         // Create order
         Order order = new Order();
         order.setUser(user);
@@ -56,23 +86,21 @@ public class OrderService {
         order.setStatus(Order.OrderStatus.PENDING);
         order.setPaymentStatus(Order.PaymentStatus.PENDING);
 
-        // Add items from cart to order and reduce stock
+        // Add items from cart to order
+        Map<Product, Integer> quantities = new LinkedHashMap<>();
         for (CartItem cartItem : cart.getItems()) {
-            Product product = cartItem.getProduct();
-
-            // Verify stock availability
-            if (!product.hasAvailableStock(cartItem.getQuantity())) {
-                throw new RuntimeException("Insufficient stock for product: " + product.getName());
-            }
-
-            // Create order item
             OrderItem orderItem = OrderItem.fromCartItem(cartItem);
             order.addItem(orderItem);
+            quantities.merge(cartItem.getProduct(), cartItem.getQuantity(), Integer::sum);
+        }
 
-            // Reduce product stock
-            product.setStockQuantity(product.getStockQuantity() - cartItem.getQuantity());
-            productRepository.save(product);
+        // Reduce stock of all lines with one batch of conditional updates; a line whose stock ran
+        // out since it was read changes no row and rolls the whole order back
+        List<Product> insufficient = productRepository.decrementStock(quantities);
+        if (!insufficient.isEmpty()) {
+            throw new RuntimeException("Insufficient stock for product: " + insufficient.get(0).getName());
         }
+        quantities.keySet().forEach(product -> eventPublisher.publishEvent(ProductChangedEvent.stockChanged(product)));
 
         // Calculate total
         order.calculateTotalAmount();
@@ -90,9 +118,11 @@ public class OrderService {
 
         // Save order
         order = orderRepository.save(order);
+        inventoryLedger.record(byProductId(quantities), StockMovement.Type.ORDER, order.getOrderId());
+        eventPublisher.publishEvent(ProductsSoldEvent.orderPlaced(byProductId(quantities)));
 
         // Clear the cart
-        cartService.clearCart(userEmail);
+        cartService.completeCheckout(userId, cartId);
 
         // Send confirmation email
         try {
@@ -105,6 +135,48 @@ public class OrderService {
         return order;
     }
 
+    /**
+     * Place a one-unit order for a product on flash sale. The user must have been admitted from the
+     * sale's waiting room; their admission token stands for a unit already taken out of stock, so
+     * the products row is not updated. The ledger counts the unit against the sale, which tells the
+     * units still unclaimed if the sale has to be closed after a crash. If the order fails the user
+     * keeps their admission.
+     */
+    @Transactional
+    public Order placeFlashSaleOrder(Long userId, Long productId, CheckoutDto checkoutDto) {
+        flashSaleService.claim(productId, userId);
+
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+        Product product = productRepository.findById(productId)
+                .orElseThrow(() -> new RuntimeException("Product not found"));
+
+        Order order = new Order();
+        order.setUser(user);
+        order.setShippingAddress(checkoutDto.getFullAddress());
+        order.addItem(new OrderItem(order, product, 1, product.getPrice()));
+        order.calculateTotalAmount();
+
+        if (processPayment(checkoutDto)) {
+            order.setPaymentStatus(Order.PaymentStatus.COMPLETED);
+            order.setStatus(Order.OrderStatus.CONFIRMED);
+        } else {
+            throw new RuntimeException("Payment failed. Please try again.");
+        }
+
+        order = orderRepository.save(order);
+        inventoryLedger.record(productId, StockMovement.Type.FLASH_SALE_CLAIM, 1, order.getOrderId());
+        eventPublisher.publishEvent(ProductsSoldEvent.orderPlaced(Map.of(productId, 1)));
+
+        try {
+            emailService.sendOrderConfirmation(order);
+        } catch (Exception e) {
+            System.err.println("Failed to send order confirmation email: " + e.getMessage());
+        }
+
+        return order;
+    }
+
     /**
      * Simulated payment processing - always succeeds.
      */
@@ -129,6 +201,14 @@ public class OrderService {
                 .filter(order -> order.getUser().getEmail().equals(userEmail));
     }
 
+    /**
+     * Get order by ID for a user identified by ID.
+     */
+    public Optional<Order> getOrderByIdForUser(Long orderId, Long userId) {
+        return orderRepository.findById(orderId)
+                .filter(order -> order.getUser().getUserId().equals(userId));
+    }
+
     /**
      * Get all orders for a user.
      */
@@ -138,6 +218,13 @@ public class OrderService {
         return orderRepository.findByUserOrderByCreatedAtDesc(user);
     }
 
+    /**
+     * Get all orders for a user identified by ID.
+     */
+    public List<Order> getOrdersForUser(Long userId) {
+        return orderRepository.findByUserUserIdOrderByCreatedAtDesc(userId);
+    }
+
     /**
      * Get all orders (admin).
      */
@@ -168,7 +255,25 @@ public class OrderService {
         if (!order.getUser().getEmail().equals(userEmail)) {
             throw new RuntimeException("Unauthorized access to order");
         }
+        return cancel(order);
+    }
+
+    /**
+     * Cancel an order of a user identified by ID.
+     */
+    @Transactional
+    public Order cancelOrder(Long orderId, Long userId) {
+        Order order = orderRepository.findById(orderId)
+                .orElseThrow(() -> new RuntimeException("Order not found"));
+
+        // Verify user owns this order
+        if (!order.getUser().getUserId().equals(userId)) {
+            throw new RuntimeException("Unauthorized access to order");
+        }
+        return cancel(order);
+    }
 
+    private Order cancel(Order order) {
         // Can only cancel pending or confirmed orders
         if (order.getStatus() != Order.OrderStatus.PENDING &&
             order.getStatus() != Order.OrderStatus.CONFIRMED) {
@@ -176,16 +281,25 @@ public class OrderService {
         }
 
         // Restore stock
+        Map<Product, Integer> quantities = new LinkedHashMap<>();
         for (OrderItem item : order.getItems()) {
-            Product product = item.getProduct();
-            product.setStockQuantity(product.getStockQuantity() + item.getQuantity());
-            productRepository.save(product);
+            quantities.merge(item.getProduct(), item.getQuantity(), Integer::sum);
         }
+        productRepository.incrementStock(quantities);
+        inventoryLedger.record(byProductId(quantities), StockMovement.Type.ORDER_CANCELLED, order.getOrderId());
+        eventPublisher.publishEvent(ProductsSoldEvent.orderCancelled(byProductId(quantities)));
+        quantities.keySet().forEach(product -> eventPublisher.publishEvent(ProductChangedEvent.stockChanged(product)));
 
         order.setStatus(Order.OrderStatus.CANCELLED);
         return orderRepository.save(order);
     }
 
+    private static Map<Long, Integer> byProductId(Map<Product, Integer> quantities) {
+        Map<Long, Integer> byId = new LinkedHashMap<>();
+        quantities.forEach((product, quantity) -> byId.merge(product.getProductId(), quantity, Integer::sum));
+        return byId;
+    }
+
     /**
      * Get orders by status.
      */
@@ -0,0 +1,186 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.CatalogVersion;
+import com.ecommerce.dto.ProductSummaryDto;
+import com.ecommerce.event.ProductChangedEvent;
+import com.ecommerce.event.ProductsImportedEvent;
+import com.ecommerce.model.Product;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Bounded in-process cache for catalog reads (products by ID, the category list and listing pages).
+ * Entries are evicted by size and TTL, and invalidated after commit whenever a
+ * {@link ProductChangedEvent} is published. Cached products are shared between requests
+ * and must be treated as read-only.
+ */
+@Component
+public class ProductCatalogCache {
+
+    private static final String CATEGORIES_KEY = "categories";
+
+    private final Cache<Long, Product> products;
+    private final Cache<String, List<String>> categories;
+    private final Cache<PageKey, Page<ProductSummaryDto>> pages;
+    private final Cache<VersionKey, CatalogVersion> versions;
+
+    @Autowired
+    public ProductCatalogCache(@Value("${app.catalog.cache.max-products:10000}") long maxProducts,
+                               @Value("${app.catalog.cache.max-pages:2000}") long maxPages,
+                               @Value("${app.catalog.cache.ttl-seconds:300}") long ttlSeconds) {
+        Duration ttl = Duration.ofSeconds(ttlSeconds);
+        this.products = Caffeine.newBuilder()
+                .maximumSize(maxProducts)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.categories = Caffeine.newBuilder()
+                .maximumSize(1)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.pages = Caffeine.newBuilder()
+                .maximumSize(maxPages)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.versions = Caffeine.newBuilder()
+                .maximumSize(maxPages)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Get a product by ID, loading it on a miss. Missing products are not cached.
+     */
+    public Optional<Product> getProduct(Long productId, Function<Long, Optional<Product>> loader) {
+        return Optional.ofNullable(products.get(productId, id -> loader.apply(id).orElse(null)));
+    }
+
+    /**
+     * Get the list of categories, loading it on a miss.
+     */
+    public List<String> getCategories(Supplier<List<String>> loader) {
+        return categories.get(CATEGORIES_KEY, key -> List.copyOf(loader.get()));
+    }
+
+    /**
+     * Get a listing page, loading it on a miss. A null category means the all-products listing.
+     */
+    public Page<ProductSummaryDto> getPage(String category, int page, int size,
+                                           Supplier<Page<ProductSummaryDto>> loader) {
+        return pages.get(new PageKey(category, page, size), key -> loader.get());
+    }
+
+    /**
+     * Get the version of a listing, loading it on a miss. A null category means the whole catalog.
+     */
+    public CatalogVersion getVersion(String category, Supplier<CatalogVersion> loader) {
+        return versions.get(new VersionKey(category), key -> loader.get());
+    }
+
+    /**
+     * Invalidate whatever a committed product change makes stale.
+     * Adding or removing a product from a listing shifts every page of it, so the whole listing
+     * is dropped; a change to a product's fields only drops the pages that display it.
+     * Listing versions are only reloaded when their product count changes; otherwise the cached
+     * ones are moved to the product's modification time, so stock changes from orders do not
+     * send the next conditional request to the database.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        Long productId = event.getProductId();
+        products.invalidate(productId);
+        List<VersionKey> versionKeys = List.of(new VersionKey(null), new VersionKey(event.getCategory()),
+                new VersionKey(event.getPreviousCategory()));
+        LocalDateTime modified = event.getProduct() != null ? event.getProduct().getUpdatedAt() : null;
+        if (event.isMembershipChange() || modified == null) {
+            versions.invalidateAll(versionKeys);
+        } else {
+            versionKeys.forEach(key -> versions.asMap().computeIfPresent(key,
+                    (k, version) -> version.modifiedAt(modified)));
+        }
+
+        if (event.isMembershipChange()) {
+            categories.invalidateAll();
+            pages.asMap().keySet().removeIf(key -> key.isAllProducts()
+                    || Objects.equals(key.category(), event.getPreviousCategory())
+                    || Objects.equals(key.category(), event.getCategory()));
+        } else {
+            pages.asMap().entrySet().removeIf(entry -> contains(entry.getValue(), productId));
+        }
+    }
+
+    /**
+     * Drop every cached entry after a bulk import, which does not publish per-product change events.
+     */
+    @EventListener
+    public void onProductsImported(ProductsImportedEvent event) {
+        clear();
+    }
+
+    /**
+     * Drop every cached entry.
+     */
+    public void clear() {
+        products.invalidateAll();
+        categories.invalidateAll();
+        pages.invalidateAll();
+        versions.invalidateAll();
+    }
+
+    /**
+     * Get hit, miss and eviction statistics for each cache region.
+     */
+    public Map<String, Map<String, Object>> getStats() {
+        Map<String, Map<String, Object>> stats = new LinkedHashMap<>();
+        stats.put("products", describe(products));
+        stats.put("categories", describe(categories));
+        stats.put("pages", describe(pages));
+        stats.put("versions", describe(versions));
+        return stats;
+    }
+
+    private static boolean contains(Page<ProductSummaryDto> page, Long productId) {
+        return page.getContent().stream().anyMatch(p -> productId.equals(p.getProductId()));
+    }
+
+    private static Map<String, Object> describe(Cache<?, ?> cache) {
+        CacheStats stats = cache.stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("size", cache.estimatedSize());
+        result.put("hitCount", stats.hitCount());
+        result.put("missCount", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("evictionCount", stats.evictionCount());
+        return result;
+    }
+
+    private record PageKey(String category, int page, int size) {
+
+        boolean isAllProducts() {
+            return category == null;
+        }
+    }
+
+    private record VersionKey(String category) {
+    }
+}
@@ -0,0 +1,140 @@
+package com.ecommerce.service;
+
+import com.ecommerce.event.ProductChangedEvent;
+import com.ecommerce.event.ProductsImportedEvent;
+import com.ecommerce.repository.ProductRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Product totals for paginated listings, so listing pages can be read as slices without a COUNT query.
+ * Catalog and per-category counts are loaded with one grouped query and then adjusted from committed
+ * {@link ProductChangedEvent}s; they are reloaded periodically to pick up writes made by other
+ * instances. Search result counts are cached for a short TTL.
+ */
+@Component
+public class ProductCounts {
+
+    private final ProductRepository productRepository;
+    private final long refreshMillis;
+    private final Cache<String, Long> searchCounts;
+
+    // Guarded by this
+    private final Map<String, Long> categoryCounts = new HashMap<>();
+    private long totalCount;
+    private long loadedAt;
+    private boolean loaded;
+
+    @Autowired
+    public ProductCounts(ProductRepository productRepository,
+                         @Value("${app.catalog.counts.refresh-seconds:300}") long refreshSeconds,
+                         @Value("${app.catalog.counts.search-ttl-seconds:30}") long searchTtlSeconds) {
+        this.productRepository = productRepository;
+        this.refreshMillis = Duration.ofSeconds(refreshSeconds).toMillis();
+        this.searchCounts = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(Duration.ofSeconds(searchTtlSeconds))
+                .build();
+    }
+
+    /**
+     * Get the number of products in the catalog.
+     */
+    public synchronized long countAll() {
+        ensureLoaded();
+        return totalCount;
+    }
+
+    /**
+     * Get the number of products in a category.
+     */
+    public synchronized long countByCategory(String category) {
+        ensureLoaded();
+        return categoryCounts.getOrDefault(category, 0L);
+    }
+
+    /**
+     * Get the number of products matching a search term, counting them on a miss.
+     * Matching is case-insensitive, so terms differing only in case share an entry.
+     */
+    public long countSearchResults(String searchTerm, Supplier<Long> counter) {
+        return searchCounts.get(searchTerm.toLowerCase(Locale.ROOT), key -> counter.get());
+    }
+
+    /**
+     * Adjust the counts for a committed product change.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onProductChanged(ProductChangedEvent event) {
+        if (!loaded) {
+            return;
+        }
+        switch (event.getChangeType()) {
+            case CREATED -> {
+                totalCount++;
+                adjust(event.getCategory(), 1);
+            }
+            case DELETED -> {
+                totalCount--;
+                adjust(event.getCategory(), -1);
+            }
+            case UPDATED -> {
+                if (!Objects.equals(event.getPreviousCategory(), event.getCategory())) {
+                    adjust(event.getPreviousCategory(), -1);
+                    adjust(event.getCategory(), 1);
+                }
+            }
+            default -> {
+                // Stock changes do not move products between listings
+            }
+        }
+    }
+
+    /**
+     * Reload the counts after a bulk import, which does not publish per-product change events.
+     */
+    @EventListener
+    public void onProductsImported(ProductsImportedEvent event) {
+        clear();
+    }
+
+    /**
+     * Drop the counts so the next read reloads them.
+     */
+    public synchronized void clear() {
+        loaded = false;
+        searchCounts.invalidateAll();
+    }
+
+    private void ensureLoaded() {
+        long now = System.currentTimeMillis();
+        if (loaded && now - loadedAt < refreshMillis) {
+            return;
+        }
+        categoryCounts.clear();
+        totalCount = 0;
+        for (Object[] row : productRepository.countGroupedByCategory()) {
+            long count = ((Number) row[1]).longValue();
+            categoryCounts.put((String) row[0], count);
+            totalCount += count;
+        }
+        loadedAt = now;
+        loaded = true;
+    }
+
+    private void adjust(String category, long delta) {
+        categoryCounts.merge(category, delta, (count, change) -> count + change > 0 ? count + change : null);
+    }
+}
@@ -0,0 +1,260 @@
+package com.ecommerce.service;
+
+import com.ecommerce.event.ProductChangedEvent;
+import com.ecommerce.model.Product;
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * In-memory bitmap index for faceted product filtering by category, price band and stock.
+ * Each facet value is a compressed bitmap of dense int document IDs, so a combined filter is a few
+ * bitmap intersections and a facet count is an intersection cardinality, with no table scan.
+ * Documents are numbered in product ID order, by the rebuild's ID-ordered scan and then as new
+ * products arrive, so the highest document is the newest product whatever the range of its ID.
+ * Kept current from {@link ProductChangedEvent}s, including stock changes from orders.
+ */
+@Component
+public class ProductFacetIndex extends CatalogIndex<ProductFacetIndex.Index> {
+
+    public static final String CATEGORY = "category";
+    public static final String PRICE_BAND = "priceBand";
+    public static final String IN_STOCK = "inStock";
+
+    private final BigDecimal[] bandLimits;
+    private final String[] bandLabels;
+
+    @Autowired
+    public ProductFacetIndex(
+            @Value("${app.catalog.facets.price-bands:25,50,100,250,500}") List<BigDecimal> bandLimits) {
+        super(true);
+        this.bandLimits = bandLimits.stream().sorted().toArray(BigDecimal[]::new);
+        this.bandLabels = new String[this.bandLimits.length + 1];
+        for (int i = 0; i < bandLabels.length; i++) {
+            String from = i == 0 ? "0" : this.bandLimits[i - 1].toPlainString();
+            bandLabels[i] = i < this.bandLimits.length ? from + "-" + this.bandLimits[i].toPlainString() : from + "+";
+        }
+    }
+
+    @Override
+    protected Index newIndex() {
+        return new Index();
+    }
+
+    @Override
+    protected void add(Index index, Product product) {
+        index.add(product);
+    }
+
+    @Override
+    protected void apply(Index index, ProductChangedEvent event) {
+        index.apply(event);
+    }
+
+    @Override
+    protected void complete(Index index) {
+        index.all.runOptimize();
+        index.inStock.runOptimize();
+        index.outOfStock.runOptimize();
+    }
+
+    @Override
+    protected String describe(Index index) {
+        return index.all.getCardinality() + " products, " + index.categories.size() + " categories";
+    }
+
+    /**
+     * Get the labels of the configured price bands, lowest first (e.g. "0-25", "500+").
+     */
+    public List<String> getPriceBands() {
+        return List.of(bandLabels);
+    }
+
+    /**
+     * Find the products matching every given filter, newest (highest ID) first, along with facet counts.
+     * Values within one facet are alternatives; empty collections and a null stock flag do not filter.
+     * Each facet's counts apply all the other facets' filters but not its own, so they show how many
+     * products choosing that value instead would match.
+     *
+     * @throws IllegalArgumentException if a price band is not one of {@link #getPriceBands()}
+     */
+    public Result filter(Collection<String> categoryValues, Collection<String> priceBands, Boolean stock,
+                         int offset, int limit) {
+        List<Integer> bandIndexes = new ArrayList<>();
+        for (String priceBand : priceBands) {
+            int index = List.of(bandLabels).indexOf(priceBand);
+            if (index < 0) {
+                throw new IllegalArgumentException("Unknown price band: " + priceBand);
+            }
+            bandIndexes.add(index);
+        }
+
+        return read(index -> {
+            Map<String, RoaringBitmap> categories = index.categories;
+            RoaringBitmap[] bands = index.bands;
+            RoaringBitmap inStock = index.inStock;
+            RoaringBitmap outOfStock = index.outOfStock;
+            RoaringBitmap categoryFilter = categoryValues.isEmpty() ? null : FastAggregation.or(
+                    categoryValues.stream().map(c -> categories.getOrDefault(c, new RoaringBitmap())).iterator());
+            RoaringBitmap bandFilter = bandIndexes.isEmpty() ? null : FastAggregation.or(
+                    bandIndexes.stream().map(i -> bands[i]).iterator());
+            RoaringBitmap stockFilter = stock == null ? null : stock ? inStock : outOfStock;
+
+            Map<String, Map<String, Long>> facets = new LinkedHashMap<>();
+            RoaringBitmap withoutCategory = index.intersect(bandFilter, stockFilter);
+            Map<String, Long> categoryCounts = new LinkedHashMap<>();
+            for (Map.Entry<String, RoaringBitmap> entry : categories.entrySet()) {
+                categoryCounts.put(entry.getKey(), (long) RoaringBitmap.andCardinality(entry.getValue(), withoutCategory));
+            }
+            facets.put(CATEGORY, categoryCounts);
+
+            RoaringBitmap withoutBand = index.intersect(categoryFilter, stockFilter);
+            Map<String, Long> bandCounts = new LinkedHashMap<>();
+            for (int i = 0; i < bands.length; i++) {
+                bandCounts.put(bandLabels[i], (long) RoaringBitmap.andCardinality(bands[i], withoutBand));
+            }
+            facets.put(PRICE_BAND, bandCounts);
+
+            RoaringBitmap withoutStock = index.intersect(categoryFilter, bandFilter);
+            long inStockCount = RoaringBitmap.andCardinality(inStock, withoutStock);
+            Map<String, Long> stockCounts = new LinkedHashMap<>();
+            stockCounts.put("true", inStockCount);
+            stockCounts.put("false", (long) RoaringBitmap.andCardinality(outOfStock, withoutStock));
+            facets.put(IN_STOCK, stockCounts);
+
+            RoaringBitmap matches = index.intersect(categoryFilter, bandFilter, stockFilter);
+            int total = matches.getCardinality();
+            List<Long> productIds = new ArrayList<>();
+            for (int rank = total - 1 - offset; rank >= 0 && productIds.size() < limit; rank--) {
+                productIds.add(index.productIds[matches.select(rank)]);
+            }
+            return new Result(productIds, total, facets);
+        });
+    }
+
+    private int bandOf(BigDecimal price) {
+        int band = 0;
+        while (band < bandLimits.length && price != null && price.compareTo(bandLimits[band]) >= 0) {
+            band++;
+        }
+        return band;
+    }
+
+    /**
+     * The facet bitmaps of one build of the index.
+     */
+    final class Index {
+
+        private final RoaringBitmap all = new RoaringBitmap();
+        private final RoaringBitmap inStock = new RoaringBitmap();
+        private final RoaringBitmap outOfStock = new RoaringBitmap();
+        private final Map<String, RoaringBitmap> categories = new TreeMap<>();
+        private final RoaringBitmap[] bands = new RoaringBitmap[bandLabels.length];
+        // A product keeps its document across changes, so its rank does not move
+        private final Map<Long, Integer> docsByProduct = new HashMap<>();
+        private long[] productIds = new long[1024];
+        private int nextDoc;
+
+        Index() {
+            for (int i = 0; i < bands.length; i++) {
+                bands[i] = new RoaringBitmap();
+            }
+        }
+
+        void apply(ProductChangedEvent event) {
+            remove(event.getProductId());
+            if (event.getProduct() != null) {
+                add(event.getProduct());
+            } else {
+                docsByProduct.remove(event.getProductId());
+            }
+        }
+
+        /**
+         * Intersect all products with the given filters, skipping null (unfiltered) ones.
+         */
+        RoaringBitmap intersect(RoaringBitmap... filters) {
+            RoaringBitmap result = all;
+            for (RoaringBitmap filter : filters) {
+                if (filter != null) {
+                    result = RoaringBitmap.and(result, filter);
+                }
+            }
+            return result;
+        }
+
+        void add(Product product) {
+            int doc = docsByProduct.computeIfAbsent(product.getProductId(), this::newDoc);
+            all.add(doc);
+            (product.isInStock() ? inStock : outOfStock).add(doc);
+            if (product.getCategory() != null) {
+                categories.computeIfAbsent(product.getCategory(), c -> new RoaringBitmap()).add(doc);
+            }
+            bands[bandOf(product.getPrice())].add(doc);
+        }
+
+        void remove(Long productId) {
+            Integer doc = docsByProduct.get(productId);
+            if (doc == null || !all.checkedRemove(doc)) {
+                return;
+            }
+            if (!inStock.checkedRemove(doc)) {
+                outOfStock.remove(doc);
+            }
+            categories.values().removeIf(bitmap -> bitmap.checkedRemove(doc) && bitmap.isEmpty());
+            for (RoaringBitmap band : bands) {
+                if (band.checkedRemove(doc)) {
+                    break;
+                }
+            }
+        }
+
+        private int newDoc(Long productId) {
+            if (nextDoc == productIds.length) {
+                productIds = Arrays.copyOf(productIds, productIds.length * 2);
+            }
+            productIds[nextDoc] = productId;
+            return nextDoc++;
+        }
+    }
+
+    /**
+     * A page of matching product IDs with the total match count and facet counts.
+     */
+    public static class Result {
+
+        private final List<Long> productIds;
+        private final long total;
+        private final Map<String, Map<String, Long>> facets;
+
+        public Result(List<Long> productIds, long total, Map<String, Map<String, Long>> facets) {
+            this.productIds = productIds;
+            this.total = total;
+            this.facets = facets;
+        }
+
+        public List<Long> getProductIds() {
+            return productIds;
+        }
+
+        public long getTotal() {
+            return total;
+        }
+
+        public Map<String, Map<String, Long>> getFacets() {
+            return facets;
+        }
+    }
+}
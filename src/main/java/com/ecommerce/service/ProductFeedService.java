@@ -0,0 +1,262 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.ProductFeedResult;
+import com.ecommerce.model.Product;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.function.Consumer;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Service for shopping/price feeds (the whole catalog as gzip-compressed CSV or Google Merchant
+ * style RSS XML). Products are streamed through a forward-only cursor and written straight into
+ * the compressed output, so heap use stays flat however large the catalog is.
+ * Incremental feeds contain only the products modified since a watermark returned by an earlier feed.
+ */
+@Service
+public class ProductFeedService {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String GOOGLE_NAMESPACE = "http://base.google.com/ns/1.0";
+    private static final String[] CSV_HEADER =
+            {"id", "title", "description", "link", "image_link", "price", "availability", "product_type", "updated_at"};
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss");
+
+    private final ProductService productService;
+    private final String baseUrl;
+    private final String currency;
+    private final Path directory;
+    private final Duration watermarkOverlap;
+    private final XMLOutputFactory xmlOutputFactory = XMLOutputFactory.newFactory();
+
+    @Autowired
+    public ProductFeedService(ProductService productService,
+                              @Value("${app.catalog.feed.base-url:http://localhost:8080}") String baseUrl,
+                              @Value("${app.catalog.feed.currency:USD}") String currency,
+                              @Value("${app.catalog.feed.directory:feeds}") String directory,
+                              @Value("${app.catalog.feed.watermark-overlap-seconds:60}") long watermarkOverlapSeconds) {
+        this.productService = productService;
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.currency = currency;
+        this.directory = Paths.get(directory);
+        this.watermarkOverlap = Duration.ofSeconds(watermarkOverlapSeconds);
+    }
+
+    /**
+     * Feed file formats.
+     */
+    public enum Format {
+        CSV("csv"),
+        XML("xml");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        /**
+         * Parse a format name, ignoring case.
+         *
+         * @throws IllegalArgumentException if the name is not a known format
+         */
+        public static Format fromName(String name) {
+            for (Format format : values()) {
+                if (format.extension.equalsIgnoreCase(name)) {
+                    return format;
+                }
+            }
+            throw new IllegalArgumentException("Unknown feed format: " + name);
+        }
+    }
+
+    /**
+     * Get the watermark to hand out with a feed that is about to be generated. Passing it back as
+     * {@code since} yields every product changed after this feed started. It lags the clock by a
+     * configurable overlap so changes committed while the feed was being read are not missed; the
+     * products in the overlap appear in both feeds.
+     */
+    public LocalDateTime nextWatermark() {
+        return LocalDateTime.now().minus(watermarkOverlap);
+    }
+
+    /**
+     * Get the file name for a feed, e.g. {@code products.xml.gz} or
+     * {@code products-since-20240101T000000.csv.gz}.
+     */
+    public String getFileName(Format format, LocalDateTime since) {
+        String name = since == null ? "products" : "products-since-" + FILE_TIMESTAMP.format(since);
+        return name + "." + format.getExtension() + ".gz";
+    }
+
+    /**
+     * Write a gzip-compressed feed to the stream. The stream is finished but not closed.
+     *
+     * @param since only include products modified at or after this time, or null for a full feed
+     * @return number of products written
+     */
+    public long writeFeed(OutputStream output, Format format, LocalDateTime since) throws IOException {
+        GZIPOutputStream gzip = new GZIPOutputStream(output, BUFFER_SIZE);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(gzip, StandardCharsets.UTF_8), BUFFER_SIZE);
+        long count;
+        try {
+            count = format == Format.CSV ? writeCsv(writer, since) : writeXml(writer, since);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+        gzip.finish();
+        return count;
+    }
+
+    /**
+     * Write a gzip-compressed feed file into the feed directory. The file is written under a
+     * temporary name and then moved into place, so readers never see a partial feed.
+     *
+     * @param since only include products modified at or after this time, or null for a full feed
+     */
+    public ProductFeedResult writeFeedFile(Format format, LocalDateTime since) throws IOException {
+        LocalDateTime watermark = nextWatermark();
+        Files.createDirectories(directory);
+        Path target = directory.resolve(getFileName(format, since));
+        Path temporary = Files.createTempFile(directory, "products-", ".tmp");
+        try {
+            long count;
+            try (OutputStream output = Files.newOutputStream(temporary)) {
+                count = writeFeed(output, format, since);
+            }
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return new ProductFeedResult(target.getFileName().toString(), count, Files.size(target), watermark);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private long writeCsv(Writer writer, LocalDateTime since) throws IOException {
+        writeCsvRow(writer, CSV_HEADER);
+        return stream(since, product -> {
+            try {
+                writeCsvRow(writer, String.valueOf(product.getProductId()), product.getName(),
+                        product.getDescription(), getLink(product), product.getImageUrl(),
+                        formatPrice(product.getPrice()), getAvailability(product), product.getCategory(),
+                        product.getUpdatedAt() != null ? product.getUpdatedAt().toString() : null);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private static void writeCsvRow(Writer writer, String... fields) throws IOException {
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            String field = fields[i];
+            if (field == null) {
+                continue;
+            }
+            if (field.indexOf(',') >= 0 || field.indexOf('"') >= 0 || field.indexOf('\n') >= 0
+                    || field.indexOf('\r') >= 0) {
+                writer.write('"');
+                writer.write(field.replace("\"", "\"\""));
+                writer.write('"');
+            } else {
+                writer.write(field);
+            }
+        }
+        writer.write('\n');
+    }
+
+    private long writeXml(Writer writer, LocalDateTime since) throws IOException {
+        try {
+            XMLStreamWriter xml = xmlOutputFactory.createXMLStreamWriter(writer);
+            xml.writeStartDocument("UTF-8", "1.0");
+            xml.writeStartElement("rss");
+            xml.writeAttribute("version", "2.0");
+            xml.writeNamespace("g", GOOGLE_NAMESPACE);
+            xml.writeStartElement("channel");
+            writeElement(xml, null, "title", "E-Commerce Platform Products");
+            writeElement(xml, null, "link", baseUrl);
+            long count = stream(since, product -> {
+                try {
+                    xml.writeStartElement("item");
+                    writeElement(xml, GOOGLE_NAMESPACE, "id", String.valueOf(product.getProductId()));
+                    writeElement(xml, GOOGLE_NAMESPACE, "title", product.getName());
+                    writeElement(xml, GOOGLE_NAMESPACE, "description", product.getDescription());
+                    writeElement(xml, GOOGLE_NAMESPACE, "link", getLink(product));
+                    writeElement(xml, GOOGLE_NAMESPACE, "image_link", product.getImageUrl());
+                    writeElement(xml, GOOGLE_NAMESPACE, "price", formatPrice(product.getPrice()));
+                    writeElement(xml, GOOGLE_NAMESPACE, "availability", getAvailability(product));
+                    writeElement(xml, GOOGLE_NAMESPACE, "product_type", product.getCategory());
+                    xml.writeEndElement();
+                } catch (XMLStreamException e) {
+                    throw new UncheckedIOException(new IOException(e));
+                }
+            });
+            xml.writeEndElement();
+            xml.writeEndElement();
+            xml.writeEndDocument();
+            xml.flush();
+            return count;
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static void writeElement(XMLStreamWriter xml, String namespace, String name, String value)
+            throws XMLStreamException {
+        if (value == null) {
+            return;
+        }
+        if (namespace == null) {
+            xml.writeStartElement(name);
+        } else {
+            xml.writeStartElement("g", name, namespace);
+        }
+        xml.writeCharacters(value);
+        xml.writeEndElement();
+    }
+
+    private long stream(LocalDateTime since, Consumer<Product> action) {
+        return since == null
+                ? productService.streamAllProducts(action)
+                : productService.streamProductsUpdatedSince(since, action);
+    }
+
+    private String getLink(Product product) {
+        return baseUrl + "/products/" + product.getProductId();
+    }
+
+    private String formatPrice(BigDecimal price) {
+        return price == null ? null : price.toPlainString() + " " + currency.toUpperCase(Locale.ROOT);
+    }
+
+    private static String getAvailability(Product product) {
+        return product.isInStock() ? "in_stock" : "out_of_stock";
+    }
+}
@@ -0,0 +1,515 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.ProductDto;
+import com.ecommerce.dto.ProductImportResult;
+import com.ecommerce.event.ProductsImportedEvent;
+import com.ecommerce.model.StockMovement;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Path;
+import jakarta.validation.TraversableResolver;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.lang.annotation.ElementType;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Service for bulk product imports from CSV or NDJSON.
+ * Rows are read one at a time, validated against the {@link ProductDto} constraints and written
+ * with batched JDBC statements, committing every chunk separately so a large import neither holds
+ * one long transaction nor keeps the catalog in memory. Rows with a product ID update the fields
+ * they supply on that product and leave the others unchanged; rows without one insert a new product.
+ * The imported stock quantities are recorded in the inventory ledger with each chunk.
+ */
+@Service
+public class ProductImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductImportService.class);
+
+    private static final int MAX_REPORTED_ERRORS = 100;
+    private static final List<String> CSV_COLUMNS =
+            List.of("productid", "name", "description", "price", "stockquantity", "category", "imageurl");
+
+    private static final String INSERT_SQL = "INSERT INTO products "
+            + "(name, description, price, stock_quantity, category, image_url, created_at, updated_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    // An imported stock quantity is the whole stock, so a sharded product's shards are emptied
+    private static final String CLEAR_STOCK_SHARDS_SQL =
+            "UPDATE product_stock_shards SET quantity = 0 WHERE product_id = ?";
+    private static final Column[] COLUMNS = Column.values();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Validator validator;
+    private final ObjectReader productReader;
+    private final Map<Set<Column>, String> updateStatements = new ConcurrentHashMap<>();
+    private final ApplicationEventPublisher eventPublisher;
+    private final InventoryLedger inventoryLedger;
+    private final int chunkSize;
+
+    @Autowired
+    public ProductImportService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                ValidatorFactory validatorFactory, ObjectMapper objectMapper,
+                                ApplicationEventPublisher eventPublisher, InventoryLedger inventoryLedger,
+                                @Value("${app.catalog.import.chunk-size:1000}") int chunkSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // Import rows are plain DTOs, so skip the JPA lazy-loading check made for every property of every row
+        this.validator = validatorFactory.usingContext().traversableResolver(new ReachableResolver()).getValidator();
+        this.productReader = objectMapper.readerFor(ProductDto.class);
+        this.eventPublisher = eventPublisher;
+        this.inventoryLedger = inventoryLedger;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Import products from CSV with a header row. Columns are matched by name, ignoring case and
+     * underscores: productId, name, description, price, stockQuantity, category and imageUrl;
+     * name and price are required unless there is a productId column. An update row leaves the
+     * fields of its empty cells unchanged.
+     *
+     * @throws IllegalArgumentException if the header is missing or names an unknown column
+     */
+    public ProductImportResult importCsv(InputStream input) throws IOException {
+        CsvRecordReader reader = new CsvRecordReader(new BufferedReader(
+                new InputStreamReader(input, StandardCharsets.UTF_8)));
+        List<String> header = reader.next();
+        if (header == null) {
+            throw new IllegalArgumentException("CSV header row is required");
+        }
+        int[] columns = new int[header.size()];
+        for (int i = 0; i < header.size(); i++) {
+            String name = header.get(i).strip().replace("_", "").toLowerCase(Locale.ROOT);
+            // A UTF-8 byte order mark sticks to the first column name
+            columns[i] = CSV_COLUMNS.indexOf(name.replace("\uFEFF", ""));
+            if (columns[i] < 0) {
+                throw new IllegalArgumentException("Unknown CSV column: " + header.get(i));
+            }
+        }
+        if (indexOf(columns, 0) < 0 && (indexOf(columns, 1) < 0 || indexOf(columns, 3) < 0)) {
+            throw new IllegalArgumentException("CSV columns name and price are required");
+        }
+
+        ImportRun run = new ImportRun();
+        try {
+            List<String> fields;
+            while ((fields = nextRecord(reader, run)) != null) {
+                if (fields.size() == 1 && fields.get(0).isBlank()) {
+                    continue;
+                }
+                long row = ++run.rowsRead;
+                if (fields.size() != columns.length) {
+                    run.reject(row, "Expected " + columns.length + " fields but found " + fields.size());
+                    continue;
+                }
+                try {
+                    ProductDto product = toProductDto(columns, fields);
+                    Set<Column> present = product.getProductId() == null ? Set.of() : presentColumns(columns, fields);
+                    run.accept(row, product, present);
+                } catch (IllegalArgumentException e) {
+                    run.reject(row, e.getMessage());
+                }
+            }
+            run.flush();
+        } finally {
+            run.publish();
+        }
+        return run.finish();
+    }
+
+    /**
+     * Import products from newline-delimited JSON, one {@link ProductDto} object per line.
+     * An update row leaves the fields it omits unchanged; a null description, category or
+     * image URL clears it.
+     */
+    public ProductImportResult importNdjson(InputStream input) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        ImportRun run = new ImportRun();
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                long row = ++run.rowsRead;
+                try {
+                    JsonNode node = productReader.readTree(line);
+                    if (!node.isObject()) {
+                        run.reject(row, "Expected a JSON object");
+                        continue;
+                    }
+                    run.accept(row, productReader.readValue(node), presentColumns(node));
+                } catch (JsonProcessingException e) {
+                    run.reject(row, "Malformed JSON: " + e.getOriginalMessage());
+                }
+            }
+            run.flush();
+        } finally {
+            run.publish();
+        }
+        return run.finish();
+    }
+
+    private static List<String> nextRecord(CsvRecordReader reader, ImportRun run) throws IOException {
+        try {
+            return reader.next();
+        } catch (IllegalArgumentException e) {
+            // An unterminated quote runs to the end of the input, so no rows follow it
+            run.reject(++run.rowsRead, e.getMessage());
+            return null;
+        }
+    }
+
+    private static ProductDto toProductDto(int[] columns, List<String> fields) {
+        ProductDto product = new ProductDto();
+        for (int i = 0; i < columns.length; i++) {
+            String value = fields.get(i).strip();
+            if (value.isEmpty()) {
+                continue;
+            }
+            switch (columns[i]) {
+                case 0 -> product.setProductId(parse(value, "product ID", Long::valueOf));
+                case 1 -> product.setName(value);
+                case 2 -> product.setDescription(value);
+                case 3 -> product.setPrice(parse(value, "price", BigDecimal::new));
+                case 4 -> product.setStockQuantity(parse(value, "stock quantity", Integer::valueOf));
+                case 5 -> product.setCategory(value);
+                default -> product.setImageUrl(value);
+            }
+        }
+        return product;
+    }
+
+    /**
+     * Get the columns a CSV row supplies: those with a non-empty cell.
+     */
+    private static Set<Column> presentColumns(int[] columns, List<String> fields) {
+        Set<Column> present = EnumSet.noneOf(Column.class);
+        for (int i = 0; i < columns.length; i++) {
+            if (columns[i] > 0 && !fields.get(i).isBlank()) {
+                present.add(COLUMNS[columns[i] - 1]);
+            }
+        }
+        return present;
+    }
+
+    /**
+     * Get the columns a JSON object supplies: its keys, where only the clearable text fields may be null.
+     */
+    private static Set<Column> presentColumns(JsonNode node) {
+        Set<Column> present = EnumSet.noneOf(Column.class);
+        for (Column column : COLUMNS) {
+            JsonNode value = node.get(column.property);
+            if (value != null && (column.clearable || !value.isNull())) {
+                present.add(column);
+            }
+        }
+        return present;
+    }
+
+    private static <T> T parse(String value, String field, Function<String, T> parser) {
+        try {
+            return parser.apply(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + field + ": " + value);
+        }
+    }
+
+    private static void addMessages(List<String> messages, Set<ConstraintViolation<ProductDto>> violations) {
+        for (ConstraintViolation<ProductDto> violation : violations) {
+            messages.add(violation.getMessage());
+        }
+    }
+
+    private static int indexOf(int[] columns, int column) {
+        for (int i = 0; i < columns.length; i++) {
+            if (columns[i] == column) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Write a chunk of rows in one transaction and return the rows whose product ID does not exist.
+     * Update rows are batched by the set of columns they supply.
+     */
+    private List<Row> write(List<Row> rows) {
+        List<ProductDto> inserts = new ArrayList<>();
+        Map<Set<Column>, List<Row>> updates = new LinkedHashMap<>();
+        for (Row row : rows) {
+            if (row.product.getProductId() == null) {
+                inserts.add(row.product);
+            } else {
+                updates.computeIfAbsent(row.columns, columns -> new ArrayList<>()).add(row);
+            }
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        return transactionTemplate.execute(status -> {
+            Map<Long, Integer> stock = new LinkedHashMap<>();
+            if (!inserts.isEmpty()) {
+                // Read the generated IDs straight off the result set rather than as a map per row
+                List<Long> productIds = jdbcTemplate.execute(
+                        connection -> connection.prepareStatement(INSERT_SQL, new String[]{"product_id"}),
+                        (PreparedStatement ps) -> {
+                            for (ProductDto product : inserts) {
+                                int index = 1;
+                                for (Column column : COLUMNS) {
+                                    column.setter.set(ps, index++, product);
+                                }
+                                ps.setTimestamp(index++, now);
+                                ps.setTimestamp(index, now);
+                                ps.addBatch();
+                            }
+                            ps.executeBatch();
+                            List<Long> ids = new ArrayList<>(inserts.size());
+                            try (ResultSet keys = ps.getGeneratedKeys()) {
+                                while (keys.next()) {
+                                    ids.add(keys.getLong(1));
+                                }
+                            }
+                            return ids;
+                        });
+                for (int i = 0; i < productIds.size(); i++) {
+                    stock.put(productIds.get(i), stockQuantity(inserts.get(i)));
+                }
+            }
+            List<Row> missing = new ArrayList<>();
+            updates.forEach((columns, group) -> {
+                if (columns.contains(Column.STOCK_QUANTITY)) {
+                    // Shards before the products row, the order stock writes lock them in
+                    jdbcTemplate.batchUpdate(CLEAR_STOCK_SHARDS_SQL, group, group.size(),
+                            (ps, row) -> ps.setLong(1, row.product.getProductId()));
+                }
+                int[][] counts = jdbcTemplate.batchUpdate(updateStatement(columns), group, group.size(), (ps, row) -> {
+                    int index = 1;
+                    for (Column column : columns) {
+                        column.setter.set(ps, index++, row.product);
+                    }
+                    ps.setTimestamp(index++, now);
+                    ps.setLong(index, row.product.getProductId());
+                });
+                for (int i = 0; i < group.size(); i++) {
+                    Row row = group.get(i);
+                    if (counts[0][i] == 0) {
+                        missing.add(row);
+                    } else if (columns.contains(Column.STOCK_QUANTITY)) {
+                        stock.put(row.product.getProductId(), stockQuantity(row.product));
+                    }
+                }
+            });
+            inventoryLedger.record(stock, StockMovement.Type.IMPORT, null);
+            return missing;
+        });
+    }
+
+    private String updateStatement(Set<Column> columns) {
+        return updateStatements.computeIfAbsent(columns, key -> {
+            StringBuilder sql = new StringBuilder("UPDATE products SET ");
+            for (Column column : key) {
+                sql.append(column.column).append(" = ?, ");
+            }
+            return sql.append("updated_at = ? WHERE product_id = ?").toString();
+        });
+    }
+
+    private static int stockQuantity(ProductDto product) {
+        return product.getStockQuantity() != null ? product.getStockQuantity() : 0;
+    }
+
+    private static void setNullableString(PreparedStatement ps, int index, String value) throws SQLException {
+        if (value == null) {
+            ps.setNull(index, Types.VARCHAR);
+        } else {
+            ps.setString(index, value);
+        }
+    }
+
+    /**
+     * Product columns an import row can set, in INSERT_SQL order, with the ProductDto property
+     * each comes from. Clearable columns may be set to null by an update.
+     */
+    private enum Column {
+        NAME("name", "name", false, (ps, i, p) -> ps.setString(i, p.getName())),
+        DESCRIPTION("description", "description", true,
+                (ps, i, p) -> setNullableString(ps, i, p.getDescription())),
+        PRICE("price", "price", false, (ps, i, p) -> ps.setBigDecimal(i, p.getPrice())),
+        STOCK_QUANTITY("stockQuantity", "stock_quantity", false, (ps, i, p) -> ps.setInt(i, stockQuantity(p))),
+        CATEGORY("category", "category", true, (ps, i, p) -> setNullableString(ps, i, p.getCategory())),
+        IMAGE_URL("imageUrl", "image_url", true, (ps, i, p) -> setNullableString(ps, i, p.getImageUrl()));
+
+        private final String property;
+        private final String column;
+        private final boolean clearable;
+        private final ParameterSetter setter;
+
+        Column(String property, String column, boolean clearable, ParameterSetter setter) {
+            this.property = property;
+            this.column = column;
+            this.clearable = clearable;
+            this.setter = setter;
+        }
+    }
+
+    @FunctionalInterface
+    private interface ParameterSetter {
+        void set(PreparedStatement ps, int index, ProductDto product) throws SQLException;
+    }
+
+    /**
+     * Treats every property as reachable and cascadable, as it is for a detached DTO.
+     */
+    private static class ReachableResolver implements TraversableResolver {
+
+        @Override
+        public boolean isReachable(Object traversableObject, Path.Node traversableProperty, Class<?> rootBeanType,
+                                   Path pathToTraversableObject, ElementType elementType) {
+            return true;
+        }
+
+        @Override
+        public boolean isCascadable(Object traversableObject, Path.Node traversableProperty, Class<?> rootBeanType,
+                                    Path pathToTraversableObject, ElementType elementType) {
+            return true;
+        }
+    }
+
+    /**
+     * A valid import row and, for an update, the columns it supplies.
+     */
+    private record Row(long number, ProductDto product, Set<Column> columns) {
+    }
+
+    /**
+     * Counters and the pending chunk for one import.
+     */
+    private class ImportRun {
+
+        private final long start = System.currentTimeMillis();
+        private final List<Row> chunk = new ArrayList<>(chunkSize);
+        private final List<ProductImportResult.RowError> errors = new ArrayList<>();
+        private long rowsRead;
+        private long inserted;
+        private long updated;
+        private long failed;
+
+        /**
+         * Validate a row and add it to the chunk. An insert must be a valid product; an update
+         * only has the fields it supplies validated.
+         */
+        void accept(long row, ProductDto product, Set<Column> columns) {
+            List<String> messages = new ArrayList<>();
+            if (product.getProductId() == null) {
+                addMessages(messages, validator.validate(product));
+            } else if (columns.isEmpty()) {
+                reject(row, "No fields to update");
+                return;
+            } else {
+                for (Column column : columns) {
+                    addMessages(messages, validator.validateProperty(product, column.property));
+                }
+            }
+            if (!messages.isEmpty()) {
+                messages.sort(null);
+                reject(row, String.join("; ", messages));
+                return;
+            }
+            chunk.add(new Row(row, product, columns));
+            if (chunk.size() >= chunkSize) {
+                flush();
+            }
+        }
+
+        void reject(long row, String message) {
+            failed++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new ProductImportResult.RowError(row, message));
+            }
+        }
+
+        void flush() {
+            if (chunk.isEmpty()) {
+                return;
+            }
+            try {
+                tally(chunk, write(chunk));
+            } catch (DataAccessException e) {
+                // Retry the chunk a row at a time to find the rows the database rejects
+                for (Row row : chunk) {
+                    try {
+                        tally(List.of(row), write(List.of(row)));
+                    } catch (DataAccessException rowError) {
+                        reject(row.number, NestedExceptionUtils.getMostSpecificCause(rowError).getMessage());
+                    }
+                }
+            }
+            chunk.clear();
+        }
+
+        private void tally(List<Row> written, List<Row> missing) {
+            for (Row row : written) {
+                if (row.product.getProductId() == null) {
+                    inserted++;
+                } else if (!missing.contains(row)) {
+                    updated++;
+                }
+            }
+            for (Row row : missing) {
+                reject(row.number, "Product not found: " + row.product.getProductId());
+            }
+        }
+
+        /**
+         * Let derived catalog state catch up with the rows committed so far. Also called when
+         * reading the input fails part way, since earlier chunks are already committed.
+         */
+        void publish() {
+            if (inserted > 0 || updated > 0) {
+                eventPublisher.publishEvent(new ProductsImportedEvent(inserted, updated));
+            }
+        }
+
+        ProductImportResult finish() {
+            long elapsed = System.currentTimeMillis() - start;
+            ProductImportResult result = new ProductImportResult(rowsRead, inserted, updated, failed, elapsed, errors);
+            log.info("Product import finished: {} rows read, {} inserted, {} updated, {} failed in {} ms ({} rows/s)",
+                    rowsRead, inserted, updated, failed, elapsed, result.getRowsPerSecond());
+            return result;
+        }
+    }
+}
@@ -0,0 +1,614 @@
+package com.ecommerce.service;
+
+import com.ecommerce.event.ProductChangedEvent;
+import com.ecommerce.model.Product;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * In-memory inverted index over product name, category and description, ranked with BM25.
+ * The index is built from the database once the application is ready and then kept current
+ * from {@link ProductChangedEvent}s. Until the initial build finishes {@link #isReady()} is false
+ * and callers should fall back to the database.
+ */
+@Component
+public class ProductSearchIndex extends CatalogIndex<ProductSearchIndex.Index> {
+
+    private static final int NAME_WEIGHT = 3;
+    private static final int CATEGORY_WEIGHT = 2;
+    private static final int DESCRIPTION_WEIGHT = 1;
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int MAX_PREFIX_EXPANSIONS = 64;
+    private static final int MAX_FUZZY_EXPANSIONS = 16;
+    private static final double FUZZY_BOOST = 0.5;
+    // Documents are renumbered once more than half of them are dead, but not in indexes smaller than this
+    private static final int MIN_DOCS_TO_RENUMBER = 1024;
+
+    // Per-thread scratch space for summing the scores of several posting lists
+    private static final ThreadLocal<double[]> ACCUMULATOR = ThreadLocal.withInitial(() -> new double[0]);
+
+    private final boolean enabled;
+
+    @Autowired
+    public ProductSearchIndex(@Value("${app.search.index.enabled:true}") boolean enabled) {
+        super(false);
+        this.enabled = enabled;
+    }
+
+    @Override
+    protected boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    protected Index newIndex() {
+        return new Index();
+    }
+
+    @Override
+    protected void add(Index index, Product product) {
+        index.add(product);
+    }
+
+    @Override
+    protected void apply(Index index, ProductChangedEvent event) {
+        index.apply(event);
+    }
+
+    @Override
+    protected String describe(Index index) {
+        return index.docsByProduct.size() + " products, " + index.postings.size() + " terms";
+    }
+
+    /**
+     * Search for products matching every term of the query. The last characters typed do not need
+     * to form a whole word: each query term also matches indexed terms it is a prefix of.
+     *
+     * @return matching product IDs, best match first
+     */
+    public List<Long> search(String query) {
+        return search(query, false);
+    }
+
+    /**
+     * Search for products matching every term of the query, optionally tolerating typos.
+     * In fuzzy mode a query term also matches indexed terms within a small edit distance
+     * (one edit for terms of 3-5 characters, two for longer ones), at a lower score than exact matches.
+     *
+     * @return matching product IDs, best match first
+     */
+    public List<Long> search(String query, boolean fuzzy) {
+        return search(query, fuzzy, 0, Integer.MAX_VALUE).getProductIds();
+    }
+
+    /**
+     * Get one page of the products matching every term of the query, best match first, with the
+     * total number of matches. Only the matches up to the end of the page are put in order, so a
+     * first page of a query matching most of the catalog costs little more than counting it.
+     */
+    public Result search(String query, boolean fuzzy, int offset, int limit) {
+        List<String> queryTerms = new ArrayList<>(new LinkedHashSet<>(SearchTokenizer.tokenize(query)));
+        if (queryTerms.isEmpty()) {
+            return new Result(Collections.emptyList(), 0);
+        }
+
+        return read(index -> {
+            int docCount = index.docsByProduct.size();
+            if (docCount == 0) {
+                return new Result(Collections.emptyList(), 0);
+            }
+            double avgLength = (double) index.totalLength / docCount;
+
+            List<ScoredDocs> termScores = new ArrayList<>(queryTerms.size());
+            for (String term : queryTerms) {
+                ScoredDocs scores = index.scoreTerm(term, fuzzy, docCount, avgLength);
+                if (scores.size == 0) {
+                    return new Result(Collections.emptyList(), 0);
+                }
+                termScores.add(scores);
+            }
+
+            // Intersect starting from the most selective term
+            termScores.sort((a, b) -> Integer.compare(a.size, b.size));
+            ScoredDocs results = termScores.get(0);
+            for (int i = 1; i < termScores.size() && results.size > 0; i++) {
+                results = results.intersect(termScores.get(i));
+            }
+            return new Result(index.rank(results, offset, limit), results.size);
+        });
+    }
+
+    /**
+     * Get the number of indexed products.
+     */
+    public int size() {
+        return read(index -> index.docsByProduct.size());
+    }
+
+    private static double idf(PostingList list, int docCount) {
+        return Math.log(1 + (docCount - list.liveCount + 0.5) / (list.liveCount + 0.5));
+    }
+
+    /**
+     * Distinct trigrams of a term padded with two leading and one trailing marker,
+     * so that short terms and word boundaries produce trigrams too.
+     */
+    private static Set<String> trigrams(String term) {
+        String padded = "$$" + term + "$";
+        Set<String> trigrams = new HashSet<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            trigrams.add(padded.substring(i, i + 3));
+        }
+        return trigrams;
+    }
+
+    /**
+     * Optimal string alignment distance (edits, including transpositions of adjacent characters),
+     * giving up once it is certain to exceed {@code max}.
+     *
+     * @return the distance, or {@code max + 1} if it exceeds {@code max}
+     */
+    static int editDistance(String a, String b, int max) {
+        if (Math.abs(a.length() - b.length()) > max) {
+            return max + 1;
+        }
+        int[] previous2 = new int[b.length() + 1];
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    value = Math.min(value, previous2[j - 2] + 1);
+                }
+                current[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+            int[] recycled = previous2;
+            previous2 = previous;
+            previous = current;
+            current = recycled;
+        }
+        return Math.min(previous[b.length()], max + 1);
+    }
+
+    private static void addTerms(Map<String, Integer> frequencies, String text, int weight) {
+        for (String term : SearchTokenizer.tokenize(text)) {
+            frequencies.merge(term, weight, Integer::sum);
+        }
+    }
+
+    /**
+     * The postings and per-document data of one build of the index. Document numbers are assigned
+     * in indexing order, so posting lists stay sorted by appending. A changed product is indexed
+     * again as a new document, so once most documents are dead the live ones are renumbered densely,
+     * in the same order, rather than letting the per-document arrays grow with every change.
+     */
+    static final class Index {
+
+        private final NavigableMap<String, PostingList> postings = new TreeMap<>();
+        private final Map<String, List<String>> termsByTrigram = new HashMap<>();
+        private final Map<Long, Integer> docsByProduct = new HashMap<>();
+        private final BitSet liveDocs = new BitSet();
+        private long[] productIds = new long[1024];
+        private int[] docLengths = new int[1024];
+        private String[][] docTerms = new String[1024][];
+        private int nextDoc;
+        private int liveDocCount;
+        private long totalLength;
+
+        void apply(ProductChangedEvent event) {
+            remove(event.getProductId());
+            if (event.getProduct() != null) {
+                add(event.getProduct());
+            }
+        }
+
+        /**
+         * Score every live document matching a query term, its prefix expansions and, in fuzzy mode,
+         * its close misspellings.
+         */
+        ScoredDocs scoreTerm(String term, boolean fuzzy, int docCount, double avgLength) {
+            List<PostingList> lists = new ArrayList<>();
+            List<Double> boosts = new ArrayList<>();
+            for (PostingList list : postings.subMap(term, true, term + Character.MAX_VALUE, false).values()) {
+                if (lists.size() == MAX_PREFIX_EXPANSIONS) {
+                    break;
+                }
+                lists.add(list);
+                boosts.add(1.0);
+            }
+            if (fuzzy) {
+                for (Map.Entry<String, Integer> match : fuzzyMatches(term)) {
+                    lists.add(postings.get(match.getKey()));
+                    boosts.add(FUZZY_BOOST / match.getValue());
+                }
+            }
+
+            if (lists.size() == 1) {
+                PostingList list = lists.get(0);
+                double idf = idf(list, docCount);
+                ScoredDocs scores = new ScoredDocs(list.liveCount);
+                for (int i = 0; i < list.size; i++) {
+                    if (liveDocs.get(list.docs[i])) {
+                        scores.add(list.docs[i], bm25(idf, list.frequencies[i], list.docs[i], avgLength));
+                    }
+                }
+                return scores;
+            }
+
+            // Several lists: accumulate per document, then read the documents back in order
+            double[] accumulator = ACCUMULATOR.get();
+            if (accumulator.length < nextDoc) {
+                accumulator = new double[nextDoc];
+                ACCUMULATOR.set(accumulator);
+            }
+            BitSet touched = new BitSet(nextDoc);
+            for (int l = 0; l < lists.size(); l++) {
+                PostingList list = lists.get(l);
+                double idf = idf(list, docCount) * boosts.get(l);
+                for (int i = 0; i < list.size; i++) {
+                    int doc = list.docs[i];
+                    if (liveDocs.get(doc)) {
+                        accumulator[doc] += bm25(idf, list.frequencies[i], doc, avgLength);
+                        touched.set(doc);
+                    }
+                }
+            }
+            ScoredDocs scores = new ScoredDocs(touched.cardinality());
+            for (int doc = touched.nextSetBit(0); doc >= 0; doc = touched.nextSetBit(doc + 1)) {
+                scores.add(doc, accumulator[doc]);
+                accumulator[doc] = 0;
+            }
+            return scores;
+        }
+
+        private double bm25(double idf, double tf, int doc, double avgLength) {
+            double norm = K1 * (1 - B + B * docLengths[doc] / avgLength);
+            return idf * tf * (K1 + 1) / (tf + norm);
+        }
+
+        /**
+         * Order matching documents by score, highest first; equal scores put the most recently indexed first.
+         * Scores are packed with their document into longs so the ordering runs on primitives. When the page
+         * ends before the last match, only the best {@code offset + limit} are kept, in a min-heap.
+         */
+        List<Long> rank(ScoredDocs results, int offset, int limit) {
+            int kept = (int) Math.min(results.size, (long) offset + limit);
+            if (offset >= kept) {
+                return Collections.emptyList();
+            }
+            long[] keys = new long[kept];
+            int size = 0;
+            for (int i = 0; i < results.size; i++) {
+                // Positive floats order the same as their bit patterns
+                long key = ((long) Float.floatToIntBits((float) results.scores[i]) << 32) | results.docs[i];
+                if (kept == results.size) {
+                    keys[size++] = key;
+                } else if (size < kept) {
+                    keys[size++] = key;
+                    if (size == kept) {
+                        for (int parent = kept / 2 - 1; parent >= 0; parent--) {
+                            siftDown(keys, parent);
+                        }
+                    }
+                } else if (key > keys[0]) {
+                    keys[0] = key;
+                    siftDown(keys, 0);
+                }
+            }
+            Arrays.sort(keys);
+            List<Long> ids = new ArrayList<>(kept - offset);
+            for (int i = kept - 1 - offset; i >= 0; i--) {
+                ids.add(productIds[(int) keys[i]]);
+            }
+            return ids;
+        }
+
+        private static void siftDown(long[] heap, int node) {
+            while (true) {
+                int smallest = node;
+                int left = 2 * node + 1;
+                if (left < heap.length && heap[left] < heap[smallest]) {
+                    smallest = left;
+                }
+                if (left + 1 < heap.length && heap[left + 1] < heap[smallest]) {
+                    smallest = left + 1;
+                }
+                if (smallest == node) {
+                    return;
+                }
+                long swap = heap[node];
+                heap[node] = heap[smallest];
+                heap[smallest] = swap;
+                node = smallest;
+            }
+        }
+
+        /**
+         * Find indexed terms within the allowed edit distance of a query term, excluding the term itself
+         * and terms it is a prefix of (those already match). Candidates are the terms sharing enough
+         * trigrams with the query term, which a term within k edits must (each edit changes at most
+         * three trigrams); only candidates are checked with the exact edit distance. At most
+         * {@value #MAX_FUZZY_EXPANSIONS} matches are kept, the closest and then the most frequent,
+         * so a misspelling near many real terms does not score the postings of all of them.
+         *
+         * @return matching terms with their edit distance
+         */
+        private List<Map.Entry<String, Integer>> fuzzyMatches(String term) {
+            int maxEdits = term.length() < 3 ? 0 : term.length() <= 5 ? 1 : 2;
+            if (maxEdits == 0) {
+                return Collections.emptyList();
+            }
+            Set<String> trigrams = trigrams(term);
+            int minShared = trigrams.size() - 3 * maxEdits;
+
+            Map<String, Integer> shared = new HashMap<>();
+            for (String trigram : trigrams) {
+                for (String candidate : termsByTrigram.getOrDefault(trigram, Collections.emptyList())) {
+                    if (Math.abs(candidate.length() - term.length()) <= maxEdits) {
+                        shared.merge(candidate, 1, Integer::sum);
+                    }
+                }
+            }
+
+            List<Map.Entry<String, Integer>> matches = new ArrayList<>();
+            for (Map.Entry<String, Integer> candidate : shared.entrySet()) {
+                String candidateTerm = candidate.getKey();
+                if (candidate.getValue() < minShared || candidateTerm.startsWith(term)) {
+                    continue;
+                }
+                int distance = editDistance(term, candidateTerm, maxEdits);
+                if (distance <= maxEdits) {
+                    matches.add(Map.entry(candidateTerm, distance));
+                }
+            }
+            if (matches.size() > MAX_FUZZY_EXPANSIONS) {
+                matches.sort(Map.Entry.<String, Integer>comparingByValue()
+                        .thenComparing(match -> -postings.get(match.getKey()).liveCount));
+                return matches.subList(0, MAX_FUZZY_EXPANSIONS);
+            }
+            return matches;
+        }
+
+        void add(Product product) {
+            Map<String, Integer> frequencies = new HashMap<>();
+            addTerms(frequencies, product.getName(), NAME_WEIGHT);
+            addTerms(frequencies, product.getCategory(), CATEGORY_WEIGHT);
+            addTerms(frequencies, product.getDescription(), DESCRIPTION_WEIGHT);
+
+            int doc = nextDoc++;
+            ensureCapacity(doc);
+            int length = 0;
+            String[] terms = new String[frequencies.size()];
+            int t = 0;
+            for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+                PostingList list = postings.get(entry.getKey());
+                if (list == null) {
+                    list = new PostingList();
+                    postings.put(entry.getKey(), list);
+                    addTrigrams(entry.getKey());
+                }
+                list.append(doc, entry.getValue());
+                // Share the vocabulary's copy of the term string
+                terms[t++] = postings.ceilingKey(entry.getKey());
+                length += entry.getValue();
+            }
+
+            productIds[doc] = product.getProductId();
+            docLengths[doc] = length;
+            docTerms[doc] = terms;
+            liveDocs.set(doc);
+            liveDocCount++;
+            docsByProduct.put(product.getProductId(), doc);
+            totalLength += length;
+        }
+
+        void remove(Long productId) {
+            Integer doc = docsByProduct.remove(productId);
+            if (doc == null) {
+                return;
+            }
+            liveDocs.clear(doc);
+            liveDocCount--;
+            totalLength -= docLengths[doc];
+            for (String term : docTerms[doc]) {
+                PostingList list = postings.get(term);
+                list.liveCount--;
+                if (list.liveCount == 0) {
+                    postings.remove(term);
+                    removeTrigrams(term);
+                } else if (list.liveCount < list.size / 2) {
+                    list.compact(liveDocs);
+                }
+            }
+            docTerms[doc] = null;
+            if (nextDoc >= MIN_DOCS_TO_RENUMBER && liveDocCount < nextDoc / 2) {
+                renumber();
+            }
+        }
+
+        /**
+         * Number the live documents from 0 in their current order, dropping the dead ones.
+         */
+        private void renumber() {
+            int[] renumbered = new int[nextDoc];
+            int live = 0;
+            for (int doc = liveDocs.nextSetBit(0); doc >= 0; doc = liveDocs.nextSetBit(doc + 1)) {
+                renumbered[doc] = live;
+                productIds[live] = productIds[doc];
+                docLengths[live] = docLengths[doc];
+                docTerms[live] = docTerms[doc];
+                live++;
+            }
+            Arrays.fill(docTerms, live, nextDoc, null);
+            for (PostingList list : postings.values()) {
+                list.renumber(liveDocs, renumbered);
+            }
+            docsByProduct.replaceAll((productId, doc) -> renumbered[doc]);
+            liveDocs.clear();
+            liveDocs.set(0, live);
+            nextDoc = live;
+        }
+
+        private void ensureCapacity(int doc) {
+            if (doc >= productIds.length) {
+                int capacity = productIds.length * 2;
+                productIds = Arrays.copyOf(productIds, capacity);
+                docLengths = Arrays.copyOf(docLengths, capacity);
+                docTerms = Arrays.copyOf(docTerms, capacity);
+            }
+        }
+
+        private void addTrigrams(String term) {
+            for (String trigram : trigrams(term)) {
+                termsByTrigram.computeIfAbsent(trigram, k -> new ArrayList<>(2)).add(term);
+            }
+        }
+
+        private void removeTrigrams(String term) {
+            for (String trigram : trigrams(term)) {
+                List<String> terms = termsByTrigram.get(trigram);
+                if (terms != null) {
+                    terms.remove(term);
+                    if (terms.isEmpty()) {
+                        termsByTrigram.remove(trigram);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Documents matching a query term with their scores, in increasing document order.
+     */
+    private static final class ScoredDocs {
+
+        private final int[] docs;
+        private final double[] scores;
+        private int size;
+
+        ScoredDocs(int capacity) {
+            docs = new int[capacity];
+            scores = new double[capacity];
+        }
+
+        void add(int doc, double score) {
+            docs[size] = doc;
+            scores[size] = score;
+            size++;
+        }
+
+        /**
+         * Keep the documents also matched by another term, adding up their scores.
+         */
+        ScoredDocs intersect(ScoredDocs other) {
+            ScoredDocs result = new ScoredDocs(Math.min(size, other.size));
+            int i = 0;
+            int j = 0;
+            while (i < size && j < other.size) {
+                if (docs[i] < other.docs[j]) {
+                    i++;
+                } else if (docs[i] > other.docs[j]) {
+                    j++;
+                } else {
+                    result.add(docs[i], scores[i] + other.scores[j]);
+                    i++;
+                    j++;
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Documents containing a term, in increasing document order, with their weighted term frequency.
+     * Removed documents stay in the arrays until the list is compacted.
+     */
+    private static final class PostingList {
+
+        private int[] docs = new int[4];
+        private int[] frequencies = new int[4];
+        private int size;
+        private int liveCount;
+
+        void append(int doc, int frequency) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            docs[size] = doc;
+            frequencies[size] = frequency;
+            size++;
+            liveCount++;
+        }
+
+        void compact(BitSet liveDocs) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                if (liveDocs.get(docs[i])) {
+                    docs[kept] = docs[i];
+                    frequencies[kept] = frequencies[i];
+                    kept++;
+                }
+            }
+            size = kept;
+        }
+
+        /**
+         * Drop the removed documents and give the others their new numbers, which keep their order.
+         */
+        void renumber(BitSet liveDocs, int[] renumbered) {
+            compact(liveDocs);
+            for (int i = 0; i < size; i++) {
+                docs[i] = renumbered[docs[i]];
+            }
+        }
+    }
+
+    /**
+     * One page of search results and the total number of matches.
+     */
+    public static class Result {
+
+        private final List<Long> productIds;
+        private final int total;
+
+        public Result(List<Long> productIds, int total) {
+            this.productIds = productIds;
+            this.total = total;
+        }
+
+        public List<Long> getProductIds() {
+            return productIds;
+        }
+
+        public int getTotal() {
+            return total;
+        }
+    }
+}
@@ -1,18 +1,36 @@
 package com.ecommerce.service;
 
+import com.ecommerce.dto.CatalogVersion;
+import com.ecommerce.dto.CursorPage;
+import com.ecommerce.dto.FacetedPage;
+import com.ecommerce.dto.ProductCursor;
 import com.ecommerce.dto.ProductDto;
+import com.ecommerce.dto.ProductSummaryDto;
+import com.ecommerce.dto.SuggestionDto;
+import com.ecommerce.event.ProductChangedEvent;
 import com.ecommerce.model.Product;
+import com.ecommerce.model.StockMovement;
 import com.ecommerce.repository.ProductRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Service for product management operations.
@@ -20,11 +38,35 @@ import java.util.Optional;
 @Service
 public class ProductService {
 
+    private static final int LOAD_BATCH_SIZE = 1000;
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int MAX_STOCK_SHARDS = 64;
+
     private final ProductRepository productRepository;
+    private final ProductCatalogCache catalogCache;
+    private final ProductSearchIndex searchIndex;
+    private final RelatedProductsIndex relatedProductsIndex;
+    private final ProductSuggestIndex suggestIndex;
+    private final ProductFacetIndex facetIndex;
+    private final ProductCounts productCounts;
+    private final InventoryLedger inventoryLedger;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Autowired
-    public ProductService(ProductRepository productRepository) {
+    public ProductService(ProductRepository productRepository, ProductCatalogCache catalogCache,
+                          ProductSearchIndex searchIndex, RelatedProductsIndex relatedProductsIndex,
+                          ProductSuggestIndex suggestIndex, ProductFacetIndex facetIndex,
+                          ProductCounts productCounts, InventoryLedger inventoryLedger,
+                          ApplicationEventPublisher eventPublisher) {
         this.productRepository = productRepository;
+        this.catalogCache = catalogCache;
+        this.searchIndex = searchIndex;
+        this.relatedProductsIndex = relatedProductsIndex;
+        this.suggestIndex = suggestIndex;
+        this.facetIndex = facetIndex;
+        this.productCounts = productCounts;
+        this.inventoryLedger = inventoryLedger;
+        this.eventPublisher = eventPublisher;
     }
 
     /**
@@ -34,56 +76,241 @@ public class ProductService {
         return productRepository.findAll(Sort.by(Sort.Direction.DESC, "createdAt"));
     }
 
+    /**
+     * Pass every product, in ID order, to the given action without materialising the catalog.
+     * Rows are read through a forward-only cursor, so heap use stays flat regardless of catalog size.
+     *
+     * @return number of products streamed
+     */
+    @Transactional(readOnly = true)
+    public long streamAllProducts(Consumer<Product> action) {
+        try (Stream<Product> products = productRepository.streamAllProducts()) {
+            return forEach(products, action);
+        }
+    }
+
+    /**
+     * Pass every product modified at or after the given time, oldest change first, to the action.
+     * Streams like {@link #streamAllProducts(Consumer)}.
+     *
+     * @return number of products streamed
+     */
+    @Transactional(readOnly = true)
+    public long streamProductsUpdatedSince(LocalDateTime since, Consumer<Product> action) {
+        try (Stream<Product> products = productRepository.streamProductsUpdatedSince(since)) {
+            return forEach(products, action);
+        }
+    }
+
+    private static long forEach(Stream<Product> products, Consumer<Product> action) {
+        long count = 0;
+        for (Product product : (Iterable<Product>) products::iterator) {
+            action.accept(product);
+            count++;
+        }
+        return count;
+    }
+
     /**
      * Get all products with pagination.
      */
-    public Page<Product> getAllProducts(int page, int size) {
-        Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "createdAt"));
-        return productRepository.findAll(pageable);
+    public Page<ProductSummaryDto> getAllProducts(int page, int size) {
+        return catalogCache.getPage(null, page, size, () -> {
+            Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "createdAt"));
+            return toPage(productRepository.findAllSummaries(pageable), productCounts.countAll());
+        });
+    }
+
+    /**
+     * Get the newest products, reading only the top rows of the created_at index.
+     */
+    public List<Product> getNewestProducts(int limit) {
+        return productRepository.findAllByOrderByCreatedAtDescProductIdDesc(PageRequest.of(0, limit));
+    }
+
+    /**
+     * Get a page of products, newest first, using keyset pagination.
+     * Every page costs the same index seek regardless of depth, and no count query is run.
+     *
+     * @param category category to list, or null for all products
+     * @param cursor   cursor returned with the previous page, or null/blank for the first page
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    public CursorPage<ProductSummaryDto> getProductsAfter(String category, String cursor, int size) {
+        int limit = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        // Fetch one extra row to find out whether another page follows
+        Pageable pageable = PageRequest.of(0, limit + 1);
+        List<ProductSummaryDto> products;
+        if (cursor == null || cursor.isBlank()) {
+            products = category == null
+                    ? productRepository.findNewestSummaries(pageable)
+                    : productRepository.findNewestSummariesByCategory(category, pageable);
+        } else {
+            ProductCursor position = ProductCursor.decode(cursor);
+            products = category == null
+                    ? productRepository.findSummariesAfterCursor(position.getCreatedAt(),
+                            position.getProductId(), pageable)
+                    : productRepository.findSummariesByCategoryAfterCursor(category, position.getCreatedAt(),
+                            position.getProductId(), pageable);
+        }
+
+        String nextCursor = null;
+        if (products.size() > limit) {
+            products = products.subList(0, limit);
+            nextCursor = ProductCursor.after(products.get(limit - 1)).encode();
+        }
+        return new CursorPage<>(products, nextCursor, limit);
     }
 
     /**
      * Get product by ID.
      */
     public Optional<Product> getProductById(Long productId) {
-        return productRepository.findById(productId);
+        return catalogCache.getProduct(productId, productRepository::findById);
     }
 
     /**
-     * Get products by category.
+     * Get products related to a product (same category, closest in price).
+     * Served from the precomputed related-products index; falls back to a bounded
+     * category query while the index is being built.
      */
-    public List<Product> getProductsByCategory(String category) {
-        return productRepository.findByCategory(category);
+    public List<Product> getRelatedProducts(Product product) {
+        if (!relatedProductsIndex.isReady()) {
+            return productRepository.findTop4ByCategoryAndProductIdNot(product.getCategory(), product.getProductId());
+        }
+        List<Product> related = new ArrayList<>();
+        for (Long relatedId : relatedProductsIndex.getRelated(product.getProductId())) {
+            getProductById(relatedId).ifPresent(related::add);
+        }
+        return related;
     }
 
     /**
      * Get products by category with pagination.
      */
-    public Page<Product> getProductsByCategory(String category, int page, int size) {
-        Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "createdAt"));
-        return productRepository.findByCategory(category, pageable);
+    public Page<ProductSummaryDto> getProductsByCategory(String category, int page, int size) {
+        return catalogCache.getPage(category, page, size, () -> {
+            Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "createdAt"));
+            return toPage(productRepository.findSummariesByCategory(category, pageable),
+                    productCounts.countByCategory(category));
+        });
+    }
+
+    /**
+     * Search products with pagination, best match first.
+     * Falls back to a database LIKE search while the search index is unavailable.
+     */
+    public Page<ProductSummaryDto> searchProducts(String searchTerm, int page, int size) {
+        return searchProducts(searchTerm, false, page, size);
+    }
+
+    /**
+     * Search products with pagination, optionally tolerating typos in the search term.
+     * Fuzzy matching needs the search index; the database fallback only matches exactly.
+     * Pages hold at most 100 products.
+     */
+    public Page<ProductSummaryDto> searchProducts(String searchTerm, boolean fuzzy, int page, int size) {
+        int limit = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        Pageable pageable = PageRequest.of(Math.max(page, 0), limit, Sort.by(Sort.Direction.DESC, "createdAt"));
+        if (!useSearchIndex(searchTerm)) {
+            return toPage(productRepository.searchSummaries(searchTerm, pageable),
+                    productCounts.countSearchResults(searchTerm, () -> productRepository.countSearchResults(searchTerm)));
+        }
+        ProductSearchIndex.Result matches = searchIndex.search(searchTerm, fuzzy,
+                (int) Math.min(pageable.getOffset(), Integer.MAX_VALUE), limit);
+        return new PageImpl<>(loadInOrder(matches.getProductIds()), pageable, matches.getTotal());
+    }
+
+    /**
+     * Get a page of products matching facet filters, newest first, with the count of products
+     * matching each facet value. Empty filters do not restrict the results.
+     *
+     * @throws IllegalArgumentException if a price band is unknown
+     * @throws IllegalStateException    if the facet index is still being built
+     */
+    public FacetedPage filterProducts(List<String> categories, List<String> priceBands, Boolean inStock,
+                                      int page, int size) {
+        if (!facetIndex.isReady()) {
+            throw new IllegalStateException("Product filters are not available yet");
+        }
+        int limit = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        ProductFacetIndex.Result result = facetIndex.filter(categories, priceBands, inStock,
+                Math.max(page, 0) * limit, limit);
+        return new FacetedPage(loadInOrder(result.getProductIds()), page, limit, result.getTotal(),
+                result.getFacets());
+    }
+
+    /**
+     * Get autocomplete suggestions (product names and categories) for a typed prefix.
+     * Returns no suggestions while the suggest index is being built.
+     */
+    public List<SuggestionDto> suggestProducts(String prefix, int limit) {
+        if (!suggestIndex.isReady()) {
+            return Collections.emptyList();
+        }
+        return suggestIndex.suggest(prefix, limit);
     }
 
     /**
-     * Search products by name or description.
+     * Turn a slice into a page using a separately maintained total.
+     * A counter can lag behind the table, so the total is corrected to agree with what the slice saw:
+     * exact on the last page, and never short of the rows already fetched.
      */
-    public List<Product> searchProducts(String searchTerm) {
-        return productRepository.searchProducts(searchTerm);
+    private static Page<ProductSummaryDto> toPage(Slice<ProductSummaryDto> slice, long total) {
+        Pageable pageable = slice.getPageable();
+        long seen = pageable.getOffset() + slice.getNumberOfElements();
+        if (!slice.hasNext() && (slice.hasContent() || pageable.getOffset() == 0)) {
+            total = seen;
+        } else if (slice.hasNext()) {
+            total = Math.max(total, seen + 1);
+        }
+        return new PageImpl<>(slice.getContent(), pageable, total);
+    }
+
+    private boolean useSearchIndex(String searchTerm) {
+        return searchIndex.isReady() && !SearchTokenizer.tokenize(searchTerm).isEmpty();
     }
 
     /**
-     * Search products with pagination.
+     * Load product summaries by ID, keeping the order of the given IDs.
      */
-    public Page<Product> searchProducts(String searchTerm, int page, int size) {
-        Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "createdAt"));
-        return productRepository.searchProducts(searchTerm, pageable);
+    private List<ProductSummaryDto> loadInOrder(List<Long> productIds) {
+        Map<Long, ProductSummaryDto> byId = new HashMap<>();
+        for (int i = 0; i < productIds.size(); i += LOAD_BATCH_SIZE) {
+            List<Long> batch = productIds.subList(i, Math.min(i + LOAD_BATCH_SIZE, productIds.size()));
+            productRepository.findSummariesByIdIn(batch).forEach(product -> byId.put(product.getProductId(), product));
+        }
+        List<ProductSummaryDto> products = new ArrayList<>(productIds.size());
+        for (Long productId : productIds) {
+            ProductSummaryDto product = byId.get(productId);
+            if (product != null) {
+                products.add(product);
+            }
+        }
+        return products;
     }
 
     /**
      * Get all product categories.
      */
     public List<String> getAllCategories() {
-        return productRepository.findAllCategories();
+        return catalogCache.getCategories(productRepository::findAllCategories);
+    }
+
+    /**
+     * Get a product's version, reading only its last modification time.
+     */
+    public Optional<CatalogVersion> getProductVersion(Long productId) {
+        return productRepository.findUpdatedAtById(productId).map(updatedAt -> new CatalogVersion(1L, updatedAt));
+    }
+
+    /**
+     * Get the version of the catalog, or of one category when a category is given.
+     */
+    public CatalogVersion getCatalogVersion(String category) {
+        return catalogCache.getVersion(category, () -> category == null
+                ? productRepository.findCatalogVersion()
+                : productRepository.findCatalogVersionByCategory(category));
     }
 
     /**
@@ -102,10 +329,13 @@ public class ProductService {
         product.setName(productDto.getName());
         product.setDescription(productDto.getDescription());
         product.setPrice(productDto.getPrice());
-        product.setStockQuantity(productDto.getStockQuantity());
+        product.setRowStock(productDto.getStockQuantity());
         product.setCategory(productDto.getCategory());
         product.setImageUrl(productDto.getImageUrl());
-        return productRepository.save(product);
+        product = productRepository.save(product);
+        recordStock(product, StockMovement.Type.CREATED);
+        eventPublisher.publishEvent(ProductChangedEvent.created(product));
+        return product;
     }
 
     /**
@@ -115,15 +345,20 @@ public class ProductService {
     public Product updateProduct(Long productId, ProductDto productDto) {
         Product product = productRepository.findById(productId)
                 .orElseThrow(() -> new RuntimeException("Product not found"));
+        String previousCategory = product.getCategory();
 
         product.setName(productDto.getName());
         product.setDescription(productDto.getDescription());
         product.setPrice(productDto.getPrice());
-        product.setStockQuantity(productDto.getStockQuantity());
+        product.setRowStock(productDto.getStockQuantity());
         product.setCategory(productDto.getCategory());
         product.setImageUrl(productDto.getImageUrl());
+        productRepository.clearStockShards(product);
 
-        return productRepository.save(product);
+        product = productRepository.save(product);
+        recordStock(product, StockMovement.Type.STOCK_SET);
+        eventPublisher.publishEvent(ProductChangedEvent.updated(product, previousCategory));
+        return product;
     }
 
     /**
@@ -134,7 +369,11 @@ public class ProductService {
         if (!productRepository.existsById(productId)) {
             throw new RuntimeException("Product not found");
         }
+        String category = productRepository.findCategoryById(productId).orElse(null);
+        // Drop any stock shards first; the cascade would lock them after the products row
+        productRepository.reshardStock(productId, 0);
         productRepository.deleteById(productId);
+        eventPublisher.publishEvent(ProductChangedEvent.deleted(productId, category));
     }
 
     /**
@@ -144,24 +383,49 @@ public class ProductService {
     public void updateStock(Long productId, int quantity) {
         Product product = productRepository.findById(productId)
                 .orElseThrow(() -> new RuntimeException("Product not found"));
-        product.setStockQuantity(quantity);
+        product.setRowStock(quantity);
+        productRepository.clearStockShards(product);
         productRepository.save(product);
+        recordStock(product, StockMovement.Type.STOCK_SET);
+        eventPublisher.publishEvent(ProductChangedEvent.stockChanged(product));
     }
 
     /**
-     * Reduce stock after order placement.
+     * Split a product's stock into sub-counters so concurrent orders for it update different rows,
+     * or with zero shards keep it in the products row again. The total stock is unchanged.
+     */
+    @Transactional
+    public Product reshardStock(Long productId, int shards) {
+        if (shards < 0 || shards > MAX_STOCK_SHARDS) {
+            throw new IllegalArgumentException("Shard count must be between 0 and " + MAX_STOCK_SHARDS);
+        }
+        if (!productRepository.reshardStock(productId, shards)) {
+            throw new IllegalArgumentException("Product not found");
+        }
+        Product product = productRepository.findById(productId)
+                .orElseThrow(() -> new IllegalArgumentException("Product not found"));
+        eventPublisher.publishEvent(ProductChangedEvent.stockChanged(product));
+        return product;
+    }
+
+    /**
+     * Reduce stock after order placement, with a conditional update that cannot oversell.
      */
     @Transactional
     public void reduceStock(Long productId, int quantity) {
         Product product = productRepository.findById(productId)
                 .orElseThrow(() -> new RuntimeException("Product not found"));
 
-        int newStock = product.getStockQuantity() - quantity;
-        if (newStock < 0) {
+        if (!productRepository.decrementStock(Map.of(product, quantity)).isEmpty()) {
             throw new RuntimeException("Insufficient stock for product: " + product.getName());
         }
-        product.setStockQuantity(newStock);
-        productRepository.save(product);
+        inventoryLedger.record(productId, StockMovement.Type.ORDER, quantity, null);
+        eventPublisher.publishEvent(ProductChangedEvent.stockChanged(product));
+    }
+
+    private void recordStock(Product product, StockMovement.Type type) {
+        Integer stock = product.getStockQuantity();
+        inventoryLedger.record(product.getProductId(), type, stock != null ? stock : 0, null);
     }
 
     /**
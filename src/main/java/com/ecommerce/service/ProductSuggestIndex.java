@@ -0,0 +1,490 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.SuggestionDto;
+import com.ecommerce.event.ProductChangedEvent;
+import com.ecommerce.event.ProductsSoldEvent;
+import com.ecommerce.model.Product;
+import com.ecommerce.repository.OrderItemRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Search-as-you-type suggestions over product names and categories.
+ * Suggestions live in a radix trie keyed by their normalized text and by every word start within it,
+ * so "head" completes "Wireless Headphones". Each trie node keeps its top suggestions by weight,
+ * so a lookup is a walk down the typed prefix with no sorting and no database access.
+ * A suggestion's weight grows with the number of units of its products sold by orders that are not cancelled.
+ */
+@Component
+public class ProductSuggestIndex extends CatalogIndex<ProductSuggestIndex.Index> {
+
+    private static final int MAX_WORD_STARTS = 8;
+
+    private static final Comparator<Suggestion> BY_WEIGHT = Comparator
+            .comparingLong((Suggestion s) -> s.weight).reversed()
+            .thenComparing(s -> s.text);
+
+    private final OrderItemRepository orderItemRepository;
+    private final int maxSuggestions;
+
+    @Autowired
+    public ProductSuggestIndex(OrderItemRepository orderItemRepository,
+                               @Value("${app.search.suggest.max-results:10}") int maxSuggestions) {
+        super(false);
+        this.orderItemRepository = orderItemRepository;
+        this.maxSuggestions = maxSuggestions;
+    }
+
+    /**
+     * Reweigh the suggestions of the products a committed order placement or cancellation sold.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductsSold(ProductsSoldEvent event) {
+        update(index -> event.getQuantities().forEach(index::sold));
+    }
+
+    @Override
+    protected Index newIndex() {
+        return new Index();
+    }
+
+    @Override
+    protected void prepare(Index index) {
+        for (Object[] row : orderItemRepository.sumQuantityByProduct()) {
+            index.unitsSold.put((Long) row[0], ((Number) row[1]).longValue());
+        }
+    }
+
+    @Override
+    protected void add(Index index, Product product) {
+        index.add(product);
+    }
+
+    @Override
+    protected void apply(Index index, ProductChangedEvent event) {
+        index.apply(event);
+    }
+
+    /**
+     * Rank every trie node once at the end of a build rather than on every insert.
+     */
+    @Override
+    protected void complete(Index index) {
+        index.rankAll();
+    }
+
+    @Override
+    protected String describe(Index index) {
+        return index.suggestions.size() + " suggestions";
+    }
+
+    /**
+     * Get the best suggestions for a typed prefix, highest weight first.
+     */
+    public List<SuggestionDto> suggest(String prefix, int limit) {
+        String key = normalize(prefix);
+        if (key.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        if (!Character.isLetterOrDigit(prefix.charAt(prefix.length() - 1))) {
+            // The last word is complete, so only match it whole
+            key += ' ';
+        }
+        String lookupKey = key;
+        return read(index -> {
+            Node node = index.find(lookupKey);
+            if (node == null) {
+                return Collections.emptyList();
+            }
+            int count = Math.min(limit, node.top.length);
+            List<SuggestionDto> result = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                result.add(new SuggestionDto(node.top[i].text, node.top[i].type));
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Keys a suggestion is reachable under: its text from each of its first few word starts.
+     */
+    private static List<String> trieKeys(String normalized) {
+        List<String> keys = new ArrayList<>();
+        int start = 0;
+        while (start >= 0 && keys.size() < MAX_WORD_STARTS) {
+            keys.add(normalized.substring(start));
+            int space = normalized.indexOf(' ', start);
+            start = space < 0 ? -1 : space + 1;
+        }
+        return keys;
+    }
+
+    private static String normalize(String text) {
+        return String.join(" ", SearchTokenizer.words(text));
+    }
+
+    private static int commonPrefix(String label, String key, int pos) {
+        int length = 0;
+        while (length < label.length() && pos + length < key.length()
+                && label.charAt(length) == key.charAt(pos + length)) {
+            length++;
+        }
+        return length;
+    }
+
+    private static Suggestion[] without(Suggestion[] suggestions, Suggestion removed) {
+        for (int i = 0; i < suggestions.length; i++) {
+            if (suggestions[i] == removed) {
+                Suggestion[] result = new Suggestion[suggestions.length - 1];
+                System.arraycopy(suggestions, 0, result, 0, i);
+                System.arraycopy(suggestions, i + 1, result, i, suggestions.length - i - 1);
+                return result;
+            }
+        }
+        return suggestions;
+    }
+
+    /**
+     * The trie and suggestion weights of one build of the index.
+     */
+    final class Index {
+
+        private final Node root = new Node("");
+        private final Map<String, Suggestion> suggestions = new HashMap<>();
+        private final Map<Long, Contribution> contributions = new HashMap<>();
+        private final Map<Long, Long> unitsSold = new HashMap<>();
+        private boolean building = true;
+
+        void apply(ProductChangedEvent event) {
+            remove(event.getProductId());
+            if (event.getProduct() != null) {
+                add(event.getProduct());
+            } else {
+                unitsSold.remove(event.getProductId());
+            }
+        }
+
+        /**
+         * Count units of a product sold (negative when an order is cancelled) and reweigh its suggestions.
+         */
+        void sold(Long productId, int quantity) {
+            long units = unitsSold.merge(productId, (long) quantity, Long::sum);
+            Contribution contribution = contributions.get(productId);
+            if (contribution == null) {
+                return;
+            }
+            long weight = 1 + Math.max(0, units);
+            reweigh(contribution.nameKey(), weight - contribution.weight());
+            reweigh(contribution.categoryKey(), weight - contribution.weight());
+            contributions.put(productId, new Contribution(contribution.nameKey(), contribution.categoryKey(), weight));
+        }
+
+        void add(Product product) {
+            long weight = 1 + Math.max(0, unitsSold.getOrDefault(product.getProductId(), 0L));
+            String nameKey = adjust(SuggestionDto.TYPE_PRODUCT, product.getName(), weight);
+            String categoryKey = adjust(SuggestionDto.TYPE_CATEGORY, product.getCategory(), weight);
+            contributions.put(product.getProductId(), new Contribution(nameKey, categoryKey, weight));
+        }
+
+        void remove(Long productId) {
+            Contribution contribution = contributions.remove(productId);
+            if (contribution == null) {
+                return;
+            }
+            release(contribution.nameKey(), contribution.weight());
+            release(contribution.categoryKey(), contribution.weight());
+        }
+
+        /**
+         * Add a product's weight to the suggestion for some text, creating it if needed.
+         *
+         * @return the suggestion's key, or null if the text has no words
+         */
+        private String adjust(String type, String text, long weight) {
+            String normalized = normalize(text);
+            if (normalized.isEmpty()) {
+                return null;
+            }
+            String key = type + ':' + normalized;
+            Suggestion suggestion = suggestions.get(key);
+            boolean created = suggestion == null;
+            if (created) {
+                suggestion = new Suggestion(text.trim(), type, normalized);
+                suggestions.put(key, suggestion);
+            }
+            suggestion.weight += weight;
+            suggestion.references++;
+            for (String trieKey : trieKeys(normalized)) {
+                List<Node> path = new ArrayList<>();
+                if (created) {
+                    insert(trieKey, suggestion, path);
+                } else {
+                    walk(trieKey, path);
+                }
+                refresh(trieKey, path);
+            }
+            return key;
+        }
+
+        private void reweigh(String key, long delta) {
+            if (key == null || delta == 0) {
+                return;
+            }
+            Suggestion suggestion = suggestions.get(key);
+            suggestion.weight += delta;
+            for (String trieKey : trieKeys(suggestion.normalized)) {
+                List<Node> path = new ArrayList<>();
+                walk(trieKey, path);
+                refresh(trieKey, path);
+            }
+        }
+
+        private void release(String key, long weight) {
+            if (key == null) {
+                return;
+            }
+            Suggestion suggestion = suggestions.get(key);
+            suggestion.weight -= weight;
+            suggestion.references--;
+            boolean removed = suggestion.references == 0;
+            if (removed) {
+                suggestions.remove(key);
+            }
+            for (String trieKey : trieKeys(suggestion.normalized)) {
+                List<Node> path = new ArrayList<>();
+                if (walk(trieKey, path) && removed) {
+                    Node terminal = path.get(path.size() - 1);
+                    terminal.terminals = without(terminal.terminals, suggestion);
+                }
+                refresh(trieKey, path);
+            }
+        }
+
+        /**
+         * Insert a suggestion under a key, splitting edges as needed, recording the nodes on the way down.
+         */
+        private void insert(String key, Suggestion suggestion, List<Node> path) {
+            Node node = root;
+            path.add(node);
+            int pos = 0;
+            while (pos < key.length()) {
+                int index = node.indexOf(key.charAt(pos));
+                if (index < 0) {
+                    Node leaf = new Node(key.substring(pos));
+                    node.insertChild(-index - 1, leaf);
+                    node = leaf;
+                    path.add(node);
+                    break;
+                }
+                Node child = node.children[index];
+                int common = commonPrefix(child.label, key, pos);
+                if (common < child.label.length()) {
+                    child = node.split(index, common);
+                }
+                node = child;
+                path.add(node);
+                pos += common;
+            }
+            node.terminals = Arrays.copyOf(node.terminals, node.terminals.length + 1);
+            node.terminals[node.terminals.length - 1] = suggestion;
+        }
+
+        /**
+         * Walk down an existing key, recording the nodes on the way.
+         *
+         * @return true if the whole key was found
+         */
+        private boolean walk(String key, List<Node> path) {
+            Node node = root;
+            path.add(node);
+            int pos = 0;
+            while (pos < key.length()) {
+                int index = node.indexOf(key.charAt(pos));
+                if (index < 0 || !key.startsWith(node.children[index].label, pos)) {
+                    return false;
+                }
+                node = node.children[index];
+                path.add(node);
+                pos += node.label.length();
+            }
+            return true;
+        }
+
+        /**
+         * Find the node whose subtree holds every key starting with the prefix.
+         */
+        Node find(String prefix) {
+            Node node = root;
+            int pos = 0;
+            while (pos < prefix.length()) {
+                int index = node.indexOf(prefix.charAt(pos));
+                if (index < 0) {
+                    return null;
+                }
+                Node child = node.children[index];
+                int common = commonPrefix(child.label, prefix, pos);
+                if (pos + common == prefix.length()) {
+                    return child;
+                }
+                if (common < child.label.length()) {
+                    return null;
+                }
+                node = child;
+                pos += common;
+            }
+            return node;
+        }
+
+        /**
+         * Re-rank the nodes on a path bottom-up, pruning nodes left empty.
+         * While the index is being built ranking is deferred to {@link #rankAll()}.
+         */
+        private void refresh(String key, List<Node> path) {
+            for (int i = path.size() - 1; i >= 0; i--) {
+                Node node = path.get(i);
+                if (i > 0 && node.terminals.length == 0 && node.children.length == 0) {
+                    path.get(i - 1).removeChild(node);
+                } else if (!building) {
+                    node.rank(maxSuggestions);
+                }
+            }
+        }
+
+        /**
+         * Rank every node bottom-up, ending the build.
+         */
+        void rankAll() {
+            rank(root);
+            building = false;
+        }
+
+        private void rank(Node node) {
+            for (Node child : node.children) {
+                rank(child);
+            }
+            node.rank(maxSuggestions);
+        }
+    }
+
+    /**
+     * A product's share of the suggestions it feeds.
+     */
+    private record Contribution(String nameKey, String categoryKey, long weight) {
+    }
+
+    /**
+     * A suggested text, weighted by the products behind it. Identical texts share one suggestion.
+     */
+    private static final class Suggestion {
+
+        static final Suggestion[] NONE = new Suggestion[0];
+
+        private final String text;
+        private final String type;
+        private final String normalized;
+        private long weight;
+        private int references;
+
+        Suggestion(String text, String type, String normalized) {
+            this.text = text;
+            this.type = type;
+            this.normalized = normalized;
+        }
+    }
+
+    /**
+     * Radix trie node. Children are kept sorted by the first character of their edge label.
+     */
+    private static final class Node {
+
+        static final Node[] NO_CHILDREN = new Node[0];
+
+        private String label;
+        private Node[] children = NO_CHILDREN;
+        private Suggestion[] terminals = Suggestion.NONE;
+        private Suggestion[] top = Suggestion.NONE;
+
+        Node(String label) {
+            this.label = label;
+        }
+
+        int indexOf(char c) {
+            int low = 0;
+            int high = children.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                char midChar = children[mid].label.charAt(0);
+                if (midChar < c) {
+                    low = mid + 1;
+                } else if (midChar > c) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(low + 1);
+        }
+
+        void insertChild(int index, Node child) {
+            Node[] result = new Node[children.length + 1];
+            System.arraycopy(children, 0, result, 0, index);
+            result[index] = child;
+            System.arraycopy(children, index, result, index + 1, children.length - index);
+            children = result;
+        }
+
+        void removeChild(Node child) {
+            int index = indexOf(child.label.charAt(0));
+            if (index >= 0 && children[index] == child) {
+                Node[] result = new Node[children.length - 1];
+                System.arraycopy(children, 0, result, 0, index);
+                System.arraycopy(children, index + 1, result, index, children.length - index - 1);
+                children = result;
+            }
+        }
+
+        /**
+         * Split the edge to a child after its first {@code length} characters.
+         *
+         * @return the new intermediate node
+         */
+        Node split(int index, int length) {
+            Node child = children[index];
+            Node middle = new Node(child.label.substring(0, length));
+            child.label = child.label.substring(length);
+            middle.children = new Node[] {child};
+            middle.top = child.top;
+            children[index] = middle;
+            return middle;
+        }
+
+        /**
+         * Recompute this node's top suggestions from its own and its children's.
+         */
+        void rank(int limit) {
+            Map<Suggestion, Boolean> candidates = new IdentityHashMap<>();
+            for (Suggestion suggestion : terminals) {
+                candidates.put(suggestion, Boolean.TRUE);
+            }
+            for (Node child : children) {
+                for (Suggestion suggestion : child.top) {
+                    candidates.put(suggestion, Boolean.TRUE);
+                }
+            }
+            List<Suggestion> ranked = new ArrayList<>(candidates.keySet());
+            ranked.sort(BY_WEIGHT);
+            top = ranked.subList(0, Math.min(limit, ranked.size())).toArray(Suggestion.NONE);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.ecommerce.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs the full rebuilds of the in-memory indexes one at a time and coalesces requests made while a
+ * rebuild is running: a request is satisfied by any rebuild that started after it was made, so a
+ * burst of imports triggers at most one more rebuild rather than one each.
+ */
+final class RebuildCoordinator {
+
+    private final AtomicLong requested = new AtomicLong();
+    private long completed;
+
+    /**
+     * Run the rebuild unless one that started after this call has already finished.
+     * Returns once the index reflects the catalog as of the call.
+     */
+    void run(Runnable rebuild) {
+        long request = requested.incrementAndGet();
+        synchronized (this) {
+            if (completed >= request) {
+                return;
+            }
+            long covered = requested.get();
+            rebuild.run();
+            completed = covered;
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.ecommerce.service;
+
+import com.ecommerce.event.ProductChangedEvent;
+import com.ecommerce.model.Product;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Precomputed "related products" for the product details page.
+ * A product's related products are the ones in the same category closest to it in price.
+ * The top N are stored per product, so a lookup is a single map read; only the neighbours of a
+ * changed product are recomputed when the catalog changes.
+ */
+@Component
+public class RelatedProductsIndex extends CatalogIndex<RelatedProductsIndex.Index> {
+
+    private final int relatedCount;
+
+    @Autowired
+    public RelatedProductsIndex(@Value("${app.catalog.related.size:4}") int relatedCount) {
+        super(false);
+        this.relatedCount = relatedCount;
+    }
+
+    /**
+     * Get the IDs of the products related to a product, closest in price first.
+     */
+    public List<Long> getRelated(Long productId) {
+        return read(index -> index.related.getOrDefault(productId, Collections.emptyList()));
+    }
+
+    @Override
+    protected Index newIndex() {
+        return new Index();
+    }
+
+    @Override
+    protected void add(Index index, Product product) {
+        index.insert(product);
+    }
+
+    @Override
+    protected void apply(Index index, ProductChangedEvent event) {
+        index.apply(event);
+    }
+
+    @Override
+    protected void complete(Index index) {
+        for (Map.Entry<Long, PricePoint> entry : index.points.entrySet()) {
+            index.related.put(entry.getKey(), index.computeRelated(entry.getValue()));
+        }
+    }
+
+    @Override
+    protected String describe(Index index) {
+        return index.points.size() + " products";
+    }
+
+    /**
+     * The category price orders and related lists of one build of the index.
+     */
+    final class Index {
+
+        private final Map<String, NavigableSet<PricePoint>> categories = new HashMap<>();
+        private final Map<Long, PricePoint> points = new HashMap<>();
+        private final Map<Long, List<Long>> related = new HashMap<>();
+
+        /**
+         * Apply a product change, recomputing the related products of it and its neighbours.
+         */
+        void apply(ProductChangedEvent event) {
+            Set<Long> affected = new HashSet<>();
+
+            PricePoint previous = points.get(event.getProductId());
+            if (previous != null) {
+                affected.addAll(neighbours(previous));
+                remove(previous);
+            }
+            related.remove(event.getProductId());
+
+            Product product = event.getProduct();
+            if (product != null) {
+                PricePoint inserted = insert(product);
+                affected.add(inserted.productId());
+                affected.addAll(neighbours(inserted));
+            }
+
+            for (Long productId : affected) {
+                PricePoint point = points.get(productId);
+                if (point != null) {
+                    related.put(productId, computeRelated(point));
+                }
+            }
+        }
+
+        /**
+         * Find the products that can have the given one among their nearest N: at most N positions
+         * away from it on either side in the category's price order.
+         */
+        private List<Long> neighbours(PricePoint point) {
+            NavigableSet<PricePoint> members = categories.get(point.category());
+            List<Long> result = new ArrayList<>();
+            if (members == null) {
+                return result;
+            }
+            collect(members.headSet(point, false).descendingIterator(), relatedCount, result);
+            collect(members.tailSet(point, false).iterator(), relatedCount, result);
+            return result;
+        }
+
+        /**
+         * Pick the N products closest in price to the given one, walking outwards in both directions.
+         */
+        List<Long> computeRelated(PricePoint point) {
+            NavigableSet<PricePoint> members = categories.get(point.category());
+            if (members == null) {
+                return Collections.emptyList();
+            }
+            Iterator<PricePoint> below = members.headSet(point, false).descendingIterator();
+            Iterator<PricePoint> above = members.tailSet(point, false).iterator();
+            PricePoint nextBelow = below.hasNext() ? below.next() : null;
+            PricePoint nextAbove = above.hasNext() ? above.next() : null;
+
+            List<Long> result = new ArrayList<>(relatedCount);
+            while (result.size() < relatedCount && (nextBelow != null || nextAbove != null)) {
+                boolean takeBelow = nextAbove == null || (nextBelow != null
+                        && point.priceCents() - nextBelow.priceCents() <= nextAbove.priceCents() - point.priceCents());
+                if (takeBelow) {
+                    result.add(nextBelow.productId());
+                    nextBelow = below.hasNext() ? below.next() : null;
+                } else {
+                    result.add(nextAbove.productId());
+                    nextAbove = above.hasNext() ? above.next() : null;
+                }
+            }
+            return List.copyOf(result);
+        }
+
+        PricePoint insert(Product product) {
+            PricePoint point = new PricePoint(Objects.toString(product.getCategory(), ""),
+                    toCents(product.getPrice()), product.getProductId());
+            PricePoint previous = points.put(point.productId(), point);
+            if (previous != null) {
+                remove(previous);
+                points.put(point.productId(), point);
+            }
+            categories.computeIfAbsent(point.category(), c -> new TreeSet<>()).add(point);
+            return point;
+        }
+
+        private void remove(PricePoint point) {
+            points.remove(point.productId());
+            NavigableSet<PricePoint> members = categories.get(point.category());
+            if (members != null) {
+                members.remove(point);
+                if (members.isEmpty()) {
+                    categories.remove(point.category());
+                }
+            }
+        }
+    }
+
+    private static void collect(Iterator<PricePoint> iterator, int limit, List<Long> result) {
+        for (int i = 0; i < limit && iterator.hasNext(); i++) {
+            result.add(iterator.next().productId());
+        }
+    }
+
+    private static long toCents(BigDecimal price) {
+        return price == null ? 0 : price.movePointRight(2).longValue();
+    }
+
+    /**
+     * A product's position in its category's price order; ties are broken by product ID.
+     */
+    private record PricePoint(String category, long priceCents, long productId) implements Comparable<PricePoint> {
+
+        @Override
+        public int compareTo(PricePoint other) {
+            int byPrice = Long.compare(priceCents, other.priceCents);
+            return byPrice != 0 ? byPrice : Long.compare(productId, other.productId);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.ecommerce.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Splits product text into lower-case search terms.
+ * Shared by the in-memory search structures so that indexing and querying agree.
+ */
+public final class SearchTokenizer {
+
+    private static final Pattern SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "are", "as", "at", "by", "for", "from", "in",
+            "is", "it", "of", "on", "or", "the", "to", "with");
+
+    private SearchTokenizer() {
+    }
+
+    /**
+     * Tokenize text into terms, dropping stop words. Returns an empty list for null text.
+     */
+    public static List<String> tokenize(String text) {
+        List<String> terms = words(text);
+        terms.removeIf(STOP_WORDS::contains);
+        return terms;
+    }
+
+    /**
+     * Split text into lower-case words, keeping stop words. Returns an empty list for null text.
+     */
+    public static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return words;
+        }
+        for (String token : SEPARATOR.split(text.toLowerCase(Locale.ROOT))) {
+            if (!token.isEmpty()) {
+                words.add(token);
+            }
+        }
+        return words;
+    }
+}
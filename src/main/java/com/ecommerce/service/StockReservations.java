@@ -0,0 +1,269 @@
+package com.ecommerce.service;
+
+import com.ecommerce.model.Product;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Time-limited stock holds for cart lines (app.cart.reservations.*). Adding or updating a cart
+ * line holds its quantity for the user until the line is removed, the cart is checked out or the
+ * hold expires; the available-to-sell figure of a product is its stock minus everyone else's holds.
+ * Holds are kept in memory per product and expire through a delay queue, so releasing expired holds
+ * costs one queue poll each and never touches the database. Holds live in the memory of one
+ * instance; the stock check at checkout stays the final word.
+ */
+@Component
+public class StockReservations {
+
+    private final boolean enabled;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+    private final Map<Long, ProductHolds> holdsByProduct = new ConcurrentHashMap<>();
+    private final DelayQueue<Hold> expiries = new DelayQueue<>();
+
+    @Autowired
+    public StockReservations(@Value("${app.cart.reservations.enabled:true}") boolean enabled,
+                             @Value("${app.cart.reservations.ttl-minutes:15}") long ttlMinutes) {
+        this(enabled, TimeUnit.MINUTES.toMillis(ttlMinutes), System::currentTimeMillis);
+    }
+
+    StockReservations(boolean enabled, long ttlMillis, LongSupplier clock) {
+        this.enabled = enabled;
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Hold a quantity of a product for a user, replacing the user's previous hold on it.
+     *
+     * @throws IllegalArgumentException if the quantity exceeds the stock available to the user
+     */
+    public void reserve(Long userId, Product product, int quantity) {
+        reserveAll(userId, Map.of(product.getProductId(), quantity), Map.of(product.getProductId(), product));
+    }
+
+    /**
+     * Hold quantities of several products for a user, replacing the user's previous holds on them.
+     * Either all holds are placed or, if one product lacks stock, none is changed. Holds that keep
+     * their quantity are only extended, without checking stock again. Inside a transaction the
+     * holds are placed right away, so the stock check sees them, and put back if it rolls back.
+     *
+     * @param lines    product ID to quantity to hold
+     * @param products the products of the lines, with current stock
+     * @throws IllegalArgumentException if a quantity exceeds the stock available to the user
+     */
+    public void reserveAll(Long userId, Map<Long, Integer> lines, Map<Long, Product> products) {
+        if (!enabled) {
+            lines.forEach((productId, quantity) -> {
+                Product product = products.get(productId);
+                if (!product.hasAvailableStock(quantity)) {
+                    throw new IllegalArgumentException(insufficientStock(product, product.getStockQuantity()));
+                }
+            });
+            return;
+        }
+        Map<Long, Integer> previous = new LinkedHashMap<>();
+        try {
+            for (Map.Entry<Long, Integer> line : lines.entrySet()) {
+                Product product = products.get(line.getKey());
+                previous.put(line.getKey(), hold(userId, product, line.getValue(), true));
+            }
+        } catch (RuntimeException e) {
+            restore(userId, previous, products);
+            throw e;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        restore(userId, previous, products);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Release a user's holds on products. Inside a transaction they are released once it commits,
+     * so a rolled back removal or checkout keeps them.
+     */
+    public void release(Long userId, Collection<Long> productIds) {
+        if (!enabled || productIds.isEmpty()) {
+            return;
+        }
+        List<Long> released = new ArrayList<>(productIds);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    released.forEach(productId -> remove(userId, productId));
+                }
+            });
+        } else {
+            released.forEach(productId -> remove(userId, productId));
+        }
+    }
+
+    /**
+     * Get the quantity of a product that can still be sold: its stock minus all holds.
+     */
+    public int getAvailableToSell(Product product) {
+        return product.getStockQuantity() - getReserved(product.getProductId());
+    }
+
+    /**
+     * Get the quantity of a product a user can hold: its stock minus the holds of other users.
+     */
+    public int getAvailableToSell(Long userId, Product product) {
+        ProductHolds holds = holdsByProduct.get(product.getProductId());
+        if (holds == null) {
+            return product.getStockQuantity();
+        }
+        synchronized (holds) {
+            Hold own = holds.byUser.get(userId);
+            return product.getStockQuantity() - holds.reserved + (own != null ? own.quantity : 0);
+        }
+    }
+
+    /**
+     * Get the total quantity of a product held by all users.
+     */
+    public int getReserved(Long productId) {
+        ProductHolds holds = holdsByProduct.get(productId);
+        if (holds == null) {
+            return 0;
+        }
+        synchronized (holds) {
+            return holds.reserved;
+        }
+    }
+
+    /**
+     * Release all holds that have expired.
+     *
+     * @return number of holds released
+     */
+    public int expire() {
+        int expired = 0;
+        Hold hold;
+        while ((hold = expiries.poll()) != null) {
+            ProductHolds holds = holdsByProduct.get(hold.productId);
+            if (holds == null) {
+                continue;
+            }
+            synchronized (holds) {
+                // Replaced holds stay queued until their old expiry; only the current one counts
+                if (holds.byUser.get(hold.userId) == hold) {
+                    holds.byUser.remove(hold.userId);
+                    holds.reserved -= hold.quantity;
+                    expired++;
+                }
+            }
+        }
+        return expired;
+    }
+
+    @Scheduled(fixedDelay = 1, initialDelay = 1, timeUnit = TimeUnit.SECONDS)
+    void scheduledExpire() {
+        if (enabled) {
+            expire();
+        }
+    }
+
+    /**
+     * Set a user's hold on a product, returning the quantity held before (0 if none).
+     */
+    private int hold(Long userId, Product product, int quantity, boolean checkStock) {
+        ProductHolds holds = holdsByProduct.computeIfAbsent(product.getProductId(), id -> new ProductHolds());
+        synchronized (holds) {
+            Hold current = holds.byUser.get(userId);
+            int held = current != null ? current.quantity : 0;
+            if (checkStock && quantity != held) {
+                int available = product.getStockQuantity() - holds.reserved + held;
+                if (quantity > available) {
+                    throw new IllegalArgumentException(insufficientStock(product, Math.max(available, 0)));
+                }
+            }
+            if (quantity <= 0) {
+                holds.byUser.remove(userId);
+            } else {
+                Hold hold = new Hold(userId, product.getProductId(), quantity, clock.getAsLong() + ttlMillis);
+                holds.byUser.put(userId, hold);
+                expiries.add(hold);
+            }
+            holds.reserved += quantity - held;
+            return held;
+        }
+    }
+
+    private void restore(Long userId, Map<Long, Integer> previous, Map<Long, Product> products) {
+        previous.forEach((productId, quantity) -> hold(userId, products.get(productId), quantity, false));
+    }
+
+    private void remove(Long userId, Long productId) {
+        ProductHolds holds = holdsByProduct.get(productId);
+        if (holds == null) {
+            return;
+        }
+        synchronized (holds) {
+            Hold hold = holds.byUser.remove(userId);
+            if (hold != null) {
+                holds.reserved -= hold.quantity;
+            }
+        }
+    }
+
+    private static String insufficientStock(Product product, int available) {
+        return "Insufficient stock for " + product.getName() + ". Available: " + available;
+    }
+
+    private static final class ProductHolds {
+        private final Map<Long, Hold> byUser = new HashMap<>();
+        private int reserved;
+    }
+
+    private final class Hold implements Delayed {
+        private final Long userId;
+        private final Long productId;
+        private final int quantity;
+        private final long expiresAt;
+
+        private Hold(Long userId, Long productId, int quantity, long expiresAt) {
+            this.userId = userId;
+            this.productId = productId;
+            this.quantity = quantity;
+            this.expiresAt = expiresAt;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(expiresAt - clock.getAsLong(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(expiresAt, ((Hold) other).expiresAt);
+        }
+    }
+}
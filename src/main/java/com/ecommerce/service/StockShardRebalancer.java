@@ -0,0 +1,70 @@
+package com.ecommerce.service;
+
+import com.ecommerce.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodic rebalance of sharded product stock (app.inventory.shards.*). Orders drain shards
+ * unevenly and returned stock lands in the products row; when a product has stock left in its
+ * products row or a shard below half the average, its stock is spread evenly over its shards again,
+ * one product per short transaction, so orders keep finding a shard that covers them. Products whose
+ * shards orders took stock from also get their updated_at set, which orders leave alone to keep
+ * off the products row, so their ETag, catalog version and feed entry trail the stock by at most
+ * one interval.
+ */
+@Component
+public class StockShardRebalancer {
+
+    private static final Logger log = LoggerFactory.getLogger(StockShardRebalancer.class);
+
+    private final ProductRepository productRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+
+    @Autowired
+    public StockShardRebalancer(ProductRepository productRepository, PlatformTransactionManager transactionManager,
+                                @Value("${app.inventory.shards.rebalance-enabled:true}") boolean enabled) {
+        this.productRepository = productRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+    }
+
+    /**
+     * Rebalance every sharded product that needs it.
+     *
+     * @return number of products rebalanced
+     */
+    public int rebalance() {
+        List<Long> productIds = transactionTemplate.execute(status -> productRepository.findUnbalancedStockShards());
+        for (Long productId : productIds) {
+            transactionTemplate.executeWithoutResult(status -> productRepository.rebalanceStockShards(productId));
+        }
+        if (!productIds.isEmpty()) {
+            log.debug("Rebalanced the stock shards of {} products", productIds.size());
+        }
+        return productIds.size();
+    }
+
+    @Scheduled(fixedDelayString = "${app.inventory.shards.rebalance-interval-seconds:10}",
+            initialDelayString = "${app.inventory.shards.rebalance-interval-seconds:10}", timeUnit = TimeUnit.SECONDS)
+    void rebalanceQuietly() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            rebalance();
+        } catch (RuntimeException e) {
+            log.error("Stock shard rebalance failed", e);
+        }
+    }
+}
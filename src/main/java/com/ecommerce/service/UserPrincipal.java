@@ -0,0 +1,36 @@
+package com.ecommerce.service;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.Collection;
+
+/**
+ * Authenticated user. Besides the email (username) it carries the user and cart IDs resolved at
+ * login, so request handling can use them directly instead of looking the user up by email.
+ */
+public class UserPrincipal extends User {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Long userId;
+    private final Long cartId;
+
+    public UserPrincipal(Long userId, Long cartId, String email, String password,
+                         Collection<? extends GrantedAuthority> authorities) {
+        super(email, password, authorities);
+        this.userId = userId;
+        this.cartId = cartId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    /**
+     * Get the ID of the user's cart, or null if the user had no cart at login.
+     */
+    public Long getCartId() {
+        return cartId;
+    }
+}
@@ -37,14 +37,17 @@ public class UserService implements UserDetailsService {
     }
 
     /**
-     * Load user by username (email) for Spring Security.
+     * Load user by username (email) for Spring Security. The returned {@link UserPrincipal} also
+     * carries the user and cart IDs.
      */
     @Override
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
         User user = userRepository.findByEmail(email)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found with email: " + email));
 
-        return new org.springframework.security.core.userdetails.User(
+        return new UserPrincipal(
+                user.getUserId(),
+                cartRepository.findCartIdByUserId(user.getUserId()).orElse(null),
                 user.getEmail(),
                 user.getPassword(),
                 Collections.singletonList(new SimpleGrantedAuthority("ROLE_" + user.getRole().name()))
@@ -145,4 +148,12 @@ public class UserService implements UserDetailsService {
         return userRepository.findByEmail(email)
                 .orElseThrow(() -> new RuntimeException("User not found"));
     }
+
+    /**
+     * Get the current authenticated user by ID.
+     */
+    public User getCurrentUser(Long userId) {
+        return userRepository.findById(userId)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+    }
 }
@@ -0,0 +1,456 @@
+package com.ecommerce.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Optional write-behind store for shopping carts (app.cart.write-behind.enabled).
+ * Active carts are kept in memory as product ID to quantity maps and mutated there; a background
+ * task writes the latest state of every changed cart to cart/cart_items in batched transactions,
+ * so any number of mutations between two flushes cost one write. The database stays the durable
+ * copy: carts are loaded from it on first use, checkout clears the cart in the order transaction,
+ * and a crash loses at most the changes of the last flush interval. Carts live in the memory of one
+ * instance, so several instances need sticky sessions.
+ */
+@Component
+public class WriteBehindCartStore {
+
+    private static final Logger log = LoggerFactory.getLogger(WriteBehindCartStore.class);
+
+    private static final String LOAD_CART_SQL = "SELECT cart_id FROM cart WHERE user_id = ? ORDER BY cart_id";
+    private static final String LOAD_ITEMS_SQL =
+            "SELECT product_id, quantity FROM cart_items WHERE cart_id = ? ORDER BY cart_item_id";
+    private static final String INSERT_CART_SQL = "INSERT INTO cart (user_id) VALUES (?)";
+    private static final String TOUCH_CART_SQL =
+            "UPDATE cart SET updated_at = ?, reminder_sent_at = NULL WHERE cart_id = ?";
+    private static final String DELETE_ITEMS_SQL = "DELETE FROM cart_items WHERE cart_id = ?";
+    private static final String INSERT_ITEM_SQL =
+            "INSERT INTO cart_items (cart_id, product_id, quantity) VALUES (?, ?, ?)";
+    private static final String EXISTING_PRODUCTS_SQL = "SELECT product_id FROM products WHERE product_id IN (";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long idleMillis;
+    private final Map<Long, CartState> carts = new ConcurrentHashMap<>();
+
+    @Autowired
+    public WriteBehindCartStore(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                @Value("${app.cart.write-behind.enabled:false}") boolean enabled,
+                                @Value("${app.cart.write-behind.batch-size:500}") int batchSize,
+                                @Value("${app.cart.write-behind.idle-seconds:1800}") long idleSeconds) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.idleMillis = TimeUnit.SECONDS.toMillis(idleSeconds);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Check whether a user's cart is currently held in memory. Its database row may lag behind.
+     */
+    public boolean isActive(Long userId) {
+        return carts.containsKey(userId);
+    }
+
+    /**
+     * Get a copy of the items of a user's cart, loading the cart on first use.
+     *
+     * @return product ID to quantity, in the order the products were added
+     */
+    public Map<Long, Integer> getItems(Long userId) {
+        while (true) {
+            CartState state = acquire(userId);
+            synchronized (state) {
+                if (!state.evicted) {
+                    state.lastAccess = System.currentTimeMillis();
+                    return new LinkedHashMap<>(state.items);
+                }
+            }
+        }
+    }
+
+    /**
+     * Apply a mutation to the items of a user's cart. The change is written to the database by the
+     * next flush. A mutation that throws leaves the cart unchanged.
+     *
+     * @return a copy of the items after the mutation
+     */
+    public Map<Long, Integer> update(Long userId, Consumer<Map<Long, Integer>> mutation) {
+        while (true) {
+            CartState state = acquire(userId);
+            synchronized (state) {
+                if (state.evicted) {
+                    continue;
+                }
+                Map<Long, Integer> items = new LinkedHashMap<>(state.items);
+                mutation.accept(items);
+                if (!items.equals(state.items)) {
+                    state.items.clear();
+                    state.items.putAll(items);
+                    state.version++;
+                }
+                state.lastAccess = System.currentTimeMillis();
+                return items;
+            }
+        }
+    }
+
+    /**
+     * Start checking out a user's cart in the current transaction. Background flushes of the cart
+     * are held back until the transaction completes, so they cannot overwrite the cleared cart.
+     *
+     * @return a copy of the items to order
+     */
+    public Map<Long, Integer> beginCheckout(Long userId) {
+        requireTransaction();
+        while (true) {
+            CartState state = acquire(userId);
+            synchronized (state) {
+                if (state.evicted) {
+                    continue;
+                }
+                while (state.flushing) {
+                    try {
+                        state.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IllegalStateException("Interrupted while waiting for cart flush", e);
+                    }
+                }
+                if (state.evicted) {
+                    continue;
+                }
+                state.checkingOut = true;
+                state.lastAccess = System.currentTimeMillis();
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        synchronized (state) {
+                            state.checkingOut = false;
+                        }
+                    }
+                });
+                return new LinkedHashMap<>(state.items);
+            }
+        }
+    }
+
+    /**
+     * Empty a user's cart as part of the checkout transaction started with
+     * {@link #beginCheckout(Long)}. The rows are deleted in that transaction, so the order and the
+     * empty cart become durable together; the in-memory cart is cleared once it commits.
+     */
+    public void completeCheckout(Long userId) {
+        requireTransaction();
+        CartState state = acquire(userId);
+        Long cartId;
+        synchronized (state) {
+            cartId = state.cartId;
+        }
+        if (cartId != null) {
+            jdbcTemplate.update(DELETE_ITEMS_SQL, cartId);
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                synchronized (state) {
+                    state.items.clear();
+                    state.version++;
+                    state.flushedVersion = state.version;
+                }
+            }
+        });
+    }
+
+    /**
+     * Write every changed cart to the database.
+     *
+     * @return number of carts written
+     */
+    public int flush() {
+        List<CartSnapshot> pending = new ArrayList<>();
+        for (CartState state : carts.values()) {
+            synchronized (state) {
+                if (state.isDirty() && !state.checkingOut && !state.flushing && !state.evicted) {
+                    state.flushing = true;
+                    pending.add(new CartSnapshot(state));
+                }
+            }
+        }
+        int written = 0;
+        for (int from = 0; from < pending.size(); from += batchSize) {
+            written += writeBatch(pending.subList(from, Math.min(from + batchSize, pending.size())));
+        }
+        evictIdleCarts();
+        return written;
+    }
+
+    /**
+     * Get the number of carts held in memory.
+     */
+    public int size() {
+        return carts.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (enabled) {
+            flushQuietly();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.cart.write-behind.flush-interval-ms:1000}",
+            initialDelayString = "${app.cart.write-behind.flush-interval-ms:1000}")
+    void scheduledFlush() {
+        if (enabled) {
+            flushQuietly();
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            int written = flush();
+            if (written > 0) {
+                log.debug("Flushed {} carts", written);
+            }
+        } catch (RuntimeException e) {
+            log.error("Cart flush failed", e);
+        }
+    }
+
+    private int writeBatch(List<CartSnapshot> batch) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> write(batch));
+            batch.forEach(snapshot -> snapshot.complete(true));
+            return batch.size();
+        } catch (DataAccessException e) {
+            batch.forEach(CartSnapshot::rollback);
+            if (batch.size() == 1) {
+                CartSnapshot snapshot = batch.get(0);
+                // Most likely a product that was deleted: drop its line and write the rest of the cart
+                List<Long> deleted = findDeletedProducts(snapshot.items.keySet());
+                if (!deleted.isEmpty()) {
+                    log.info("Removing deleted products {} from cart of user {}", deleted, snapshot.state.userId);
+                    snapshot.removeLines(deleted);
+                    return writeBatch(batch);
+                }
+                // Otherwise reload the cart from its last stored state
+                log.warn("Discarding unsaved changes to cart of user {}: {}", snapshot.state.userId,
+                        e.getMostSpecificCause().getMessage());
+                snapshot.complete(false);
+                return 0;
+            }
+            int written = 0;
+            for (CartSnapshot snapshot : batch) {
+                written += writeBatch(List.of(snapshot));
+            }
+            return written;
+        } catch (RuntimeException e) {
+            batch.forEach(CartSnapshot::rollback);
+            batch.forEach(CartSnapshot::release);
+            throw e;
+        }
+    }
+
+    private void write(List<CartSnapshot> batch) {
+        for (CartSnapshot snapshot : batch) {
+            if (snapshot.cartId == null) {
+                KeyHolder keyHolder = new GeneratedKeyHolder();
+                jdbcTemplate.update(connection -> {
+                    PreparedStatement statement =
+                            connection.prepareStatement(INSERT_CART_SQL, Statement.RETURN_GENERATED_KEYS);
+                    statement.setLong(1, snapshot.state.userId);
+                    return statement;
+                }, keyHolder);
+                snapshot.cartId = keyHolder.getKey().longValue();
+            }
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(TOUCH_CART_SQL, batch, batch.size(), (statement, snapshot) -> {
+            statement.setTimestamp(1, now);
+            statement.setLong(2, snapshot.cartId);
+        });
+        jdbcTemplate.batchUpdate(DELETE_ITEMS_SQL, batch, batch.size(),
+                (statement, snapshot) -> statement.setLong(1, snapshot.cartId));
+        List<Object[]> rows = new ArrayList<>();
+        for (CartSnapshot snapshot : batch) {
+            snapshot.items.forEach((productId, quantity) ->
+                    rows.add(new Object[]{snapshot.cartId, productId, quantity}));
+        }
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_ITEM_SQL, rows);
+        }
+    }
+
+    private List<Long> findDeletedProducts(Collection<Long> productIds) {
+        if (productIds.isEmpty()) {
+            return List.of();
+        }
+        String in = String.join(", ", Collections.nCopies(productIds.size(), "?"));
+        Set<Long> existing = new HashSet<>(
+                jdbcTemplate.queryForList(EXISTING_PRODUCTS_SQL + in + ")", Long.class, productIds.toArray()));
+        List<Long> deleted = new ArrayList<>();
+        for (Long productId : productIds) {
+            if (!existing.contains(productId)) {
+                deleted.add(productId);
+            }
+        }
+        return deleted;
+    }
+
+    private void evictIdleCarts() {
+        long cutoff = System.currentTimeMillis() - idleMillis;
+        carts.values().removeIf(state -> {
+            synchronized (state) {
+                if (state.lastAccess < cutoff && !state.isDirty() && !state.checkingOut && !state.flushing) {
+                    state.evicted = true;
+                }
+                return state.evicted;
+            }
+        });
+    }
+
+    private CartState acquire(Long userId) {
+        CartState state = carts.get(userId);
+        if (state != null) {
+            return state;
+        }
+        CartState loaded = load(userId);
+        state = carts.putIfAbsent(userId, loaded);
+        return state != null ? state : loaded;
+    }
+
+    private CartState load(Long userId) {
+        List<Long> cartIds = jdbcTemplate.queryForList(LOAD_CART_SQL, Long.class, userId);
+        CartState state = new CartState(userId, cartIds.isEmpty() ? null : cartIds.get(0));
+        if (state.cartId != null) {
+            jdbcTemplate.query(LOAD_ITEMS_SQL,
+                    rs -> {
+                        state.items.merge(rs.getLong(1), rs.getInt(2), Integer::sum);
+                    }, state.cartId);
+        }
+        return state;
+    }
+
+    private static void requireTransaction() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Checkout must run inside a transaction");
+        }
+    }
+
+    /**
+     * In-memory cart. Guarded by its own monitor; version counts mutations and flushedVersion is
+     * the last version known to be in the database.
+     */
+    private static final class CartState {
+        private final Long userId;
+        private Long cartId;
+        private final Map<Long, Integer> items = new LinkedHashMap<>();
+        private long version;
+        private long flushedVersion;
+        private long lastAccess = System.currentTimeMillis();
+        private boolean flushing;
+        private boolean checkingOut;
+        private boolean evicted;
+
+        private CartState(Long userId, Long cartId) {
+            this.userId = userId;
+            this.cartId = cartId;
+        }
+
+        private boolean isDirty() {
+            return version != flushedVersion;
+        }
+    }
+
+    /**
+     * Copy of a cart taken for a flush.
+     */
+    private final class CartSnapshot {
+        private final CartState state;
+        private final Map<Long, Integer> items;
+        private final long version;
+        private final Long storedCartId;
+        private Long cartId;
+
+        private CartSnapshot(CartState state) {
+            this.state = state;
+            this.items = new LinkedHashMap<>(state.items);
+            this.version = state.version;
+            this.storedCartId = state.cartId;
+            this.cartId = state.cartId;
+        }
+
+        private void rollback() {
+            cartId = storedCartId;
+        }
+
+        /**
+         * Remove lines from the snapshot and from the cart itself. The version stays: the cart is
+         * either as snapshotted, so writing the snapshot stores it, or changed since and still dirty.
+         */
+        private void removeLines(List<Long> productIds) {
+            items.keySet().removeAll(productIds);
+            synchronized (state) {
+                state.items.keySet().removeAll(productIds);
+            }
+        }
+
+        private void complete(boolean written) {
+            synchronized (state) {
+                if (written) {
+                    state.cartId = cartId;
+                    state.flushedVersion = Math.max(state.flushedVersion, version);
+                } else {
+                    state.evicted = true;
+                    carts.remove(state.userId, state);
+                }
+                release();
+            }
+        }
+
+        private void release() {
+            synchronized (state) {
+                state.flushing = false;
+                state.notifyAll();
+            }
+        }
+    }
+}
@@ -0,0 +1,7 @@
+-- Number of stock shards of a product, kept by resharding, so that loading a product only sums
+-- product_stock_shards for the products that have shards.
+
+ALTER TABLE products ADD COLUMN stock_shards INT NOT NULL DEFAULT 0;
+
+UPDATE products p SET stock_shards = (SELECT COUNT(*) FROM product_stock_shards s WHERE s.product_id = p.product_id)
+WHERE EXISTS (SELECT 1 FROM product_stock_shards s WHERE s.product_id = p.product_id);
@@ -0,0 +1,11 @@
+-- Each running flash sale names the instance holding its tokens, which renews heartbeat_at while it
+-- runs. Other instances only close a sale whose heartbeat is older than the lease, so a restart or a
+-- second instance no longer returns the units of a sale that is still running elsewhere. Rows written
+-- before this change have no owner and are closed once their lease has run out.
+
+ALTER TABLE flash_sales ADD COLUMN owner VARCHAR(64) NOT NULL DEFAULT '';
+ALTER TABLE flash_sales ADD COLUMN heartbeat_at TIMESTAMP(6) NULL;
+
+UPDATE flash_sales SET heartbeat_at = started_at;
+
+ALTER TABLE flash_sales MODIFY heartbeat_at TIMESTAMP(6) NOT NULL;
@@ -0,0 +1,6 @@
+-- Indexes supporting keyset (cursor) pagination of the newest-first product listings.
+-- Listings seek on (created_at, product_id) instead of scanning past an OFFSET.
+
+CREATE INDEX idx_products_created_at ON products (created_at, product_id);
+
+CREATE INDEX idx_products_category_created_at ON products (category, created_at, product_id);
@@ -0,0 +1,11 @@
+-- Last modification time of each product, used as the HTTP validator (ETag / Last-Modified)
+-- for catalog responses. Existing rows start from their creation time.
+
+ALTER TABLE products ADD COLUMN updated_at TIMESTAMP(6) NULL;
+
+UPDATE products SET updated_at = COALESCE(created_at, CURRENT_TIMESTAMP);
+
+-- Lets MAX(updated_at) per catalog or category be read from the index instead of the table.
+CREATE INDEX idx_products_updated_at ON products (updated_at);
+
+CREATE INDEX idx_products_category_updated_at ON products (category, updated_at);
@@ -0,0 +1,11 @@
+-- Last modification time of each cart and when an abandoned cart reminder was sent for it, used by
+-- the abandoned cart sweeper. Existing carts start as modified now, so none is purged right away.
+
+ALTER TABLE cart ADD COLUMN updated_at TIMESTAMP(6) NULL;
+
+ALTER TABLE cart ADD COLUMN reminder_sent_at TIMESTAMP(6) NULL;
+
+UPDATE cart SET updated_at = CURRENT_TIMESTAMP(6);
+
+-- Idle carts are walked in (updated_at, cart_id) order, so each chunk is an index range read.
+CREATE INDEX idx_cart_updated_at ON cart (updated_at, cart_id);
@@ -0,0 +1,12 @@
+-- Optional sharded stock for hot products: a product with shard rows keeps part of its stock in N
+-- sub-counters, so concurrent orders update different rows instead of queueing on the products row.
+-- Its stock is products.stock_quantity plus the sum of its shards.
+
+CREATE TABLE product_stock_shards (
+    product_id BIGINT NOT NULL,
+    shard_no INT NOT NULL,
+    quantity INT NOT NULL DEFAULT 0,
+    PRIMARY KEY (product_id, shard_no),
+    CONSTRAINT fk_product_stock_shards_product FOREIGN KEY (product_id)
+        REFERENCES products (product_id) ON DELETE CASCADE
+);
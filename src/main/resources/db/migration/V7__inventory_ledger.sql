@@ -0,0 +1,29 @@
+-- Append-only ledger of stock movements. A movement either changes a product's stock by its
+-- quantity or, for the types that set the stock outright (CREATED, STOCK_SET, IMPORT), replaces it.
+-- Rows outlive their product so its history stays auditable.
+
+CREATE TABLE stock_movements (
+    movement_id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    product_id BIGINT NOT NULL,
+    movement_type VARCHAR(20) NOT NULL,
+    quantity INT NOT NULL,
+    reference_id BIGINT NULL,
+    created_at TIMESTAMP(6) NOT NULL,
+    INDEX idx_stock_movements_product (product_id, movement_id)
+);
+
+-- Stock of each product as of a movement; the ledger stock is the snapshot plus the later movements.
+CREATE TABLE stock_snapshots (
+    product_id BIGINT PRIMARY KEY,
+    movement_id BIGINT NOT NULL,
+    quantity INT NOT NULL,
+    taken_at TIMESTAMP(6) NOT NULL
+);
+
+-- Opening balance of the existing products, including their stock shards
+INSERT INTO stock_snapshots (product_id, movement_id, quantity, taken_at)
+SELECT p.product_id, 0,
+       COALESCE(p.stock_quantity, 0)
+           + COALESCE((SELECT SUM(s.quantity) FROM product_stock_shards s WHERE s.product_id = p.product_id), 0),
+       CURRENT_TIMESTAMP(6)
+FROM products p;
@@ -0,0 +1,5 @@
+-- Orders that take stock from a shard leave products.updated_at alone, so the products row stays
+-- out of their way. They flag the shard instead; the periodic shard rebalance clears the flags and
+-- bumps updated_at, so product ETags, catalog versions and incremental feeds see the new stock.
+
+ALTER TABLE product_stock_shards ADD COLUMN changed BOOLEAN NOT NULL DEFAULT FALSE;
@@ -0,0 +1,10 @@
+-- Flash sales that are running, so tokens held in memory survive a crash. A row is written in the
+-- transaction that takes the sale's stock and deleted in the one that returns the unclaimed units;
+-- rows left by an instance that died are closed on startup, returning the units no flash sale
+-- order claimed (FLASH_SALE_CLAIM movements after the sale's FLASH_SALE movement).
+
+CREATE TABLE flash_sales (
+    product_id BIGINT PRIMARY KEY,
+    quantity INT NOT NULL,
+    started_at TIMESTAMP(6) NOT NULL
+);
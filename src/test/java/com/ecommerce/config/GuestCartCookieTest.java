@@ -0,0 +1,77 @@
+package com.ecommerce.config;
+
+import com.ecommerce.service.CartService;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for GuestCartCookie.
+ */
+public class GuestCartCookieTest {
+
+    private final GuestCartCookie guestCartCookie = new GuestCartCookie("test-secret", 30, false);
+
+    private Map<Long, Integer> readBack(String value) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setCookies(new Cookie(GuestCartCookie.NAME, value));
+        return guestCartCookie.read(request);
+    }
+
+    @Test
+    public void testWriteAndRead_KeepsOrder() {
+        Map<Long, Integer> items = new LinkedHashMap<>();
+        items.put(7L, 2);
+        items.put(3L, 1);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        guestCartCookie.write(response, items);
+
+        String header = response.getHeader(HttpHeaders.SET_COOKIE);
+        assertTrue(header.contains("HttpOnly"));
+        assertTrue(header.contains("SameSite=Lax"));
+        Map<Long, Integer> read = readBack(response.getCookie(GuestCartCookie.NAME).getValue());
+        assertEquals(List.of(7L, 3L), List.copyOf(read.keySet()));
+        assertEquals(items, read);
+    }
+
+    @Test
+    public void testRead_RejectsTamperedOrForeignCookie() {
+        String value = guestCartCookie.encode(Map.of(1L, 1));
+        String forged = new GuestCartCookie("other-secret", 30, false).encode(Map.of(1L, 50));
+
+        assertTrue(readBack(value.replace('.', 'x')).isEmpty());
+        assertTrue(readBack("AAAA" + value).isEmpty());
+        assertTrue(readBack(forged).isEmpty());
+        assertTrue(guestCartCookie.read(new MockHttpServletRequest()).isEmpty());
+    }
+
+    @Test
+    public void testRead_RejectsMoreLinesThanGuestCartsHold() {
+        Map<Long, Integer> items = new LinkedHashMap<>();
+        for (long id = 1; id <= CartService.GUEST_CART_MAX_LINES; id++) {
+            items.put(id, 1);
+        }
+        assertEquals(items, readBack(guestCartCookie.encode(items)));
+
+        items.put(1000L, 1);
+        assertTrue(readBack(guestCartCookie.encode(items)).isEmpty());
+    }
+
+    @Test
+    public void testWrite_EmptyItemsDeletesCookie() {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        guestCartCookie.clear(response);
+
+        assertEquals(0, response.getCookie(GuestCartCookie.NAME).getMaxAge());
+    }
+}
@@ -0,0 +1,77 @@
+package com.ecommerce.config;
+
+import com.ecommerce.service.CartService;
+import com.ecommerce.service.UserPrincipal;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.RememberMeAuthenticationToken;
+import org.springframework.security.authentication.event.InteractiveAuthenticationSuccessEvent;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.web.authentication.rememberme.RememberMeAuthenticationFilter;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Unit tests for GuestCartLoginHandler.
+ */
+@ExtendWith(MockitoExtension.class)
+public class GuestCartLoginHandlerTest {
+
+    @Mock
+    private CartService cartService;
+
+    private final GuestCartCookie guestCartCookie = new GuestCartCookie("test-secret", 30, false);
+    private GuestCartLoginHandler handler;
+    private MockHttpServletResponse response;
+    private Authentication authentication;
+
+    @BeforeEach
+    public void setUp() {
+        handler = new GuestCartLoginHandler(cartService, guestCartCookie);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setCookies(new Cookie(GuestCartCookie.NAME, guestCartCookie.encode(Map.of(5L, 2))));
+        response = new MockHttpServletResponse();
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request, response));
+        UserPrincipal principal = new UserPrincipal(1L, 10L, "user@example.com", "secret", List.of());
+        authentication = new RememberMeAuthenticationToken("key", principal, principal.getAuthorities());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    public void testRememberMeLogin_MergesGuestCart() {
+        handler.onInteractiveAuthenticationSuccess(
+                new InteractiveAuthenticationSuccessEvent(authentication, RememberMeAuthenticationFilter.class));
+
+        verify(cartService).mergeGuestCart(1L, 10L, Map.of(5L, 2));
+        assertEquals(0, response.getCookie(GuestCartCookie.NAME).getMaxAge());
+    }
+
+    @Test
+    public void testFormLoginEvent_LeftToSuccessHandler() {
+        handler.onInteractiveAuthenticationSuccess(
+                new InteractiveAuthenticationSuccessEvent(authentication, UsernamePasswordAuthenticationFilter.class));
+
+        verify(cartService, never()).mergeGuestCart(any(), any(), any());
+        assertNull(response.getCookie(GuestCartCookie.NAME));
+    }
+}
@@ -1,5 +1,6 @@
 package com.ecommerce.controller;
 
+import com.ecommerce.config.GuestCartLoginHandler;
 import com.ecommerce.config.SecurityConfig;
 import com.ecommerce.dto.UserRegistrationDto;
 import com.ecommerce.model.User;
@@ -32,6 +33,9 @@ public class AuthControllerTest {
     @MockBean
     private UserService userService;
 
+    @MockBean
+    private GuestCartLoginHandler guestCartLoginHandler;
+
     @Test
     public void testLoginPage() throws Exception {
         mockMvc.perform(get("/login"))
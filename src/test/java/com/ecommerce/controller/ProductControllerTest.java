@@ -1,5 +1,7 @@
 package com.ecommerce.controller;
 
+import com.ecommerce.dto.CursorPage;
+import com.ecommerce.dto.ProductSummaryDto;
 import com.ecommerce.model.Product;
 import com.ecommerce.service.ProductService;
 import com.ecommerce.service.UserService;
@@ -17,6 +19,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.Optional;
 
+import static org.hamcrest.Matchers.containsString;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
@@ -43,16 +46,20 @@ public class ProductControllerTest {
         product.setName("Test Product");
         product.setDescription("Test Description");
         product.setPrice(new BigDecimal("99.99"));
-        product.setStockQuantity(100);
+        product.setRowStock(100);
         product.setCategory("Electronics");
         return product;
     }
 
+    private ProductSummaryDto createTestSummary() {
+        return new ProductSummaryDto(1L, "Test Product", new BigDecimal("99.99"), null, "Electronics", 100, null);
+    }
+
     @Test
     @WithMockUser
     public void testListProducts() throws Exception {
-        Product product = createTestProduct();
-        Page<Product> productPage = new PageImpl<>(Arrays.asList(product));
+        ProductSummaryDto product = createTestSummary();
+        Page<ProductSummaryDto> productPage = new PageImpl<>(Arrays.asList(product));
 
         when(productService.getAllProducts(anyInt(), anyInt())).thenReturn(productPage);
         when(productService.getAllCategories()).thenReturn(Arrays.asList("Electronics", "Clothing"));
@@ -72,12 +79,13 @@ public class ProductControllerTest {
         Product product = createTestProduct();
 
         when(productService.getProductById(1L)).thenReturn(Optional.of(product));
-        when(productService.getProductsByCategory("Electronics")).thenReturn(Collections.emptyList());
+        when(productService.getRelatedProducts(product)).thenReturn(Collections.emptyList());
 
         mockMvc.perform(get("/products/1"))
                 .andExpect(status().isOk())
                 .andExpect(view().name("product-details"))
-                .andExpect(model().attributeExists("product"));
+                .andExpect(model().attributeExists("product"))
+                .andExpect(model().attributeExists("relatedProducts"));
     }
 
     @Test
@@ -93,8 +101,8 @@ public class ProductControllerTest {
     @Test
     @WithMockUser
     public void testProductsByCategory() throws Exception {
-        Product product = createTestProduct();
-        Page<Product> productPage = new PageImpl<>(Arrays.asList(product));
+        ProductSummaryDto product = createTestSummary();
+        Page<ProductSummaryDto> productPage = new PageImpl<>(Arrays.asList(product));
 
         when(productService.getProductsByCategory(eq("Electronics"), anyInt(), anyInt())).thenReturn(productPage);
         when(productService.getAllCategories()).thenReturn(Arrays.asList("Electronics", "Clothing"));
@@ -109,10 +117,10 @@ public class ProductControllerTest {
     @Test
     @WithMockUser
     public void testSearchProducts() throws Exception {
-        Product product = createTestProduct();
-        Page<Product> productPage = new PageImpl<>(Arrays.asList(product));
+        ProductSummaryDto product = createTestSummary();
+        Page<ProductSummaryDto> productPage = new PageImpl<>(Arrays.asList(product));
 
-        when(productService.searchProducts(eq("Test"), anyInt(), anyInt())).thenReturn(productPage);
+        when(productService.searchProducts(eq("Test"), eq(false), anyInt(), anyInt())).thenReturn(productPage);
         when(productService.getAllCategories()).thenReturn(Arrays.asList("Electronics", "Clothing"));
 
         mockMvc.perform(get("/search").param("q", "Test"))
@@ -122,10 +130,29 @@ public class ProductControllerTest {
                 .andExpect(model().attribute("searchTerm", "Test"));
     }
 
+    @Test
+    @WithMockUser
+    public void testListProducts_Cursor() throws Exception {
+        ProductSummaryDto product = createTestSummary();
+        CursorPage<ProductSummaryDto> productPage = new CursorPage<>(Arrays.asList(product), "next", 12);
+
+        when(productService.getProductsAfter(isNull(), eq(""), anyInt())).thenReturn(productPage);
+        when(productService.getAllCategories()).thenReturn(Arrays.asList("Electronics", "Clothing"));
+
+        mockMvc.perform(get("/products").param("cursor", ""))
+                .andExpect(status().isOk())
+                .andExpect(view().name("products"))
+                .andExpect(model().attributeExists("products"))
+                .andExpect(model().attribute("nextCursor", "next"))
+                .andExpect(model().attribute("size", 12))
+                .andExpect(content().string(containsString("/products?cursor=next&amp;size=12")))
+                .andExpect(model().attributeDoesNotExist("totalPages"));
+    }
+
     @Test
     @WithMockUser
     public void testListProducts_EmptyResult() throws Exception {
-        Page<Product> emptyPage = new PageImpl<>(Collections.emptyList());
+        Page<ProductSummaryDto> emptyPage = new PageImpl<>(Collections.emptyList());
 
         when(productService.getAllProducts(anyInt(), anyInt())).thenReturn(emptyPage);
         when(productService.getAllCategories()).thenReturn(Collections.emptyList());
@@ -0,0 +1,176 @@
+package com.ecommerce.controller.api;
+
+import com.ecommerce.dto.CatalogVersion;
+import com.ecommerce.dto.CursorPage;
+import com.ecommerce.dto.ProductSummaryDto;
+import com.ecommerce.model.Product;
+import com.ecommerce.service.ProductService;
+import com.ecommerce.service.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Integration tests for ApiProductController.
+ */
+@WebMvcTest(ApiProductController.class)
+public class ApiProductControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private ProductService productService;
+
+    @MockBean
+    private UserService userService;
+
+    private final CatalogVersion catalogVersion = new CatalogVersion(2L, LocalDateTime.of(2024, 3, 1, 12, 0));
+
+    @BeforeEach
+    public void setUp() {
+        when(productService.getCatalogVersion(any())).thenReturn(catalogVersion);
+    }
+
+    private Product createTestProduct(Long id) {
+        Product product = new Product("Product " + id, "Description", new BigDecimal("9.99"), 10, "Electronics");
+        product.setProductId(id);
+        return product;
+    }
+
+    @Test
+    @WithMockUser
+    public void testGetAllProducts_LinksToNextPage() throws Exception {
+        ProductSummaryDto summary = new ProductSummaryDto(1L, "Product 1", new BigDecimal("9.99"), null,
+                "Electronics", 10, null);
+        CursorPage<ProductSummaryDto> page = new CursorPage<>(Arrays.asList(summary), "abc", 1);
+        when(productService.getProductsAfter(isNull(), isNull(), eq(1))).thenReturn(page);
+
+        mockMvc.perform(get("/api/v1/products").param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].productId").value(1))
+                .andExpect(header().string("Link", containsString("cursor=abc")));
+    }
+
+    @Test
+    @WithMockUser
+    public void testGetProductsByCategory_ReturnsOnePageAndLinksToNext() throws Exception {
+        ProductSummaryDto summary = new ProductSummaryDto(1L, "Product 1", new BigDecimal("9.99"), null,
+                "Electronics", 10, null);
+        CursorPage<ProductSummaryDto> page = new CursorPage<>(Arrays.asList(summary), "abc", 1);
+        when(productService.getProductsAfter(eq("Electronics"), isNull(), eq(1))).thenReturn(page);
+
+        mockMvc.perform(get("/api/v1/products/category/Electronics").param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].category").value("Electronics"))
+                .andExpect(header().string("Link", containsString("/category/Electronics?")))
+                .andExpect(header().string("Link", containsString("cursor=abc")));
+    }
+
+    @Test
+    @WithMockUser
+    public void testSearchProducts_ReturnsOnePageAndLinksToNext() throws Exception {
+        ProductSummaryDto summary = new ProductSummaryDto(1L, "Product 1", new BigDecimal("9.99"), null,
+                "Electronics", 10, null);
+        when(productService.searchProducts("lamp", false, 0, 1))
+                .thenReturn(new PageImpl<>(Arrays.asList(summary), PageRequest.of(0, 1), 3));
+
+        mockMvc.perform(get("/api/v1/products/search").param("q", "lamp").param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].productId").value(1))
+                .andExpect(header().string("Link", containsString("page=1")));
+    }
+
+    @Test
+    @WithMockUser
+    public void testGetProductById_ReturnsValidators() throws Exception {
+        CatalogVersion version = new CatalogVersion(1L, LocalDateTime.of(2024, 3, 1, 12, 0));
+        when(productService.getProductVersion(1L)).thenReturn(Optional.of(version));
+        when(productService.getProductById(1L)).thenReturn(Optional.of(createTestProduct(1L)));
+
+        mockMvc.perform(get("/api/v1/products/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", version.getETag()))
+                .andExpect(header().exists("Last-Modified"))
+                .andExpect(header().string("Cache-Control", containsString("s-maxage")));
+    }
+
+    @Test
+    @WithMockUser
+    public void testGetProductById_NotModified() throws Exception {
+        CatalogVersion version = new CatalogVersion(1L, LocalDateTime.of(2024, 3, 1, 12, 0));
+        when(productService.getProductVersion(1L)).thenReturn(Optional.of(version));
+
+        mockMvc.perform(get("/api/v1/products/1").header("If-None-Match", version.getETag()))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        verify(productService, never()).getProductById(anyLong());
+    }
+
+    @Test
+    @WithMockUser
+    public void testGetAllCategories_NotModified() throws Exception {
+        mockMvc.perform(get("/api/v1/products/categories").header("If-None-Match", catalogVersion.getETag()))
+                .andExpect(status().isNotModified());
+
+        verify(productService, never()).getAllCategories();
+    }
+
+    @Test
+    @WithMockUser
+    public void testGetAllProducts_InvalidCursor() throws Exception {
+        when(productService.getProductsAfter(isNull(), eq("bad"), anyInt()))
+                .thenThrow(new IllegalArgumentException("Invalid cursor: bad"));
+
+        mockMvc.perform(get("/api/v1/products").param("cursor", "bad"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @WithMockUser
+    @SuppressWarnings("unchecked")
+    public void testStreamAllProducts() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<Product> action = invocation.getArgument(0);
+            action.accept(createTestProduct(1L));
+            action.accept(createTestProduct(2L));
+            return 2L;
+        }).when(productService).streamAllProducts(any(Consumer.class));
+
+        MvcResult result = mockMvc.perform(get("/api/v1/products").accept("application/x-ndjson"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        assertEquals(600_000L, result.getRequest().getAsyncContext().getTimeout());
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andExpect(content().string(containsString("\"productId\":1")))
+                .andExpect(content().string(containsString("}\n{\"productId\":2")));
+    }
+}
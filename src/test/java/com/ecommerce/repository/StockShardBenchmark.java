@@ -0,0 +1,123 @@
+package com.ecommerce.repository;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Measures checkout throughput for one hot product as its stock is split into more shards. Each
+ * worker runs order transactions that take one unit and then hold their locks for a while, standing
+ * in for the rest of the order transaction; with one counter the orders queue on its row lock.
+ * Disabled by default; run with {@code mvn test -Dtest=StockShardBenchmark -Dbenchmark=true}
+ * and optionally {@code -Dbenchmark.shards.threads=...} (default 16),
+ * {@code -Dbenchmark.shards.hold-ms=...} (default 2), {@code -Dbenchmark.shards.seconds=...} per
+ * shard count (default 3) and {@code -Dbenchmark.shards.min-speedup=...} for 16 shards over the
+ * products row (default 3). Runs against in-memory H2 unless {@code -Dbenchmark.jdbc.url},
+ * {@code .user} and {@code .password} point at a database with the products and
+ * product_stock_shards tables, e.g. a local MySQL; product 1 gets its stock reset.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class StockShardBenchmark {
+
+    private static final int[] SHARD_COUNTS = {0, 2, 4, 8, 16};
+    private static final String TAKE_FROM_PRODUCT_SQL = "UPDATE products SET stock_quantity = stock_quantity - 1 "
+            + "WHERE product_id = 1 AND stock_quantity >= 1";
+
+    @Test
+    public void benchmarkShardedStock() throws Exception {
+        int threads = Integer.getInteger("benchmark.shards.threads", 16);
+        long holdMillis = Long.getLong("benchmark.shards.hold-ms", 2);
+        long seconds = Long.getLong("benchmark.shards.seconds", 3);
+        double minSpeedup = Double.parseDouble(System.getProperty("benchmark.shards.min-speedup", "3"));
+
+        try (Connection setup = connect()) {
+            if (System.getProperty("benchmark.jdbc.url") == null) {
+                try (Statement statement = setup.createStatement()) {
+                    statement.execute("CREATE TABLE products (product_id BIGINT PRIMARY KEY, stock_quantity INT, "
+                            + "updated_at TIMESTAMP, stock_shards INT DEFAULT 0 NOT NULL)");
+                    statement.execute("CREATE TABLE product_stock_shards (product_id BIGINT, shard_no INT, "
+                            + "quantity INT, changed BOOLEAN DEFAULT FALSE, PRIMARY KEY (product_id, shard_no))");
+                    statement.execute("INSERT INTO products VALUES (1, 0, CURRENT_TIMESTAMP, 0)");
+                }
+            }
+
+            double baseline = 0;
+            double sharded = 0;
+            for (int shards : SHARD_COUNTS) {
+                StockShards.reshard(setup, 1L, 0);
+                try (Statement statement = setup.createStatement()) {
+                    statement.execute("UPDATE products SET stock_quantity = 100000000 WHERE product_id = 1");
+                }
+                StockShards.reshard(setup, 1L, shards);
+                double ordersPerSecond = run(threads, holdMillis, seconds, shards > 0);
+                System.out.printf("%2d shards: %,10.0f orders/s%n", shards, ordersPerSecond);
+                if (shards == 0) {
+                    baseline = ordersPerSecond;
+                } else {
+                    sharded = ordersPerSecond;
+                }
+            }
+            StockShards.reshard(setup, 1L, 0);
+
+            assertTrue(sharded >= baseline * minSpeedup, String.format(
+                    "%d shards reached %.0f orders/s, not %.1fx the %.0f orders/s of the products row",
+                    SHARD_COUNTS[SHARD_COUNTS.length - 1], sharded, minSpeedup, baseline));
+        }
+    }
+
+    private static double run(int threads, long holdMillis, long seconds, boolean sharded) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.SECONDS.toNanos(seconds);
+        List<Future<Integer>> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            workers.add(executor.submit(() -> {
+                int orders = 0;
+                try (Connection connection = connect();
+                     PreparedStatement takeFromProduct = connection.prepareStatement(TAKE_FROM_PRODUCT_SQL)) {
+                    connection.setAutoCommit(false);
+                    while (System.nanoTime() < deadline) {
+                        Timestamp now = new Timestamp(System.currentTimeMillis());
+                        boolean taken = sharded
+                                ? StockShards.decrement(connection, 1L, 1, now) >= 0
+                                : takeFromProduct.executeUpdate() == 1;
+                        Thread.sleep(holdMillis);
+                        connection.commit();
+                        if (taken) {
+                            orders++;
+                        }
+                    }
+                }
+                return orders;
+            }));
+        }
+        int orders = 0;
+        for (Future<Integer> worker : workers) {
+            orders += worker.get();
+        }
+        executor.shutdown();
+        return orders / ((System.nanoTime() - start) / 1e9);
+    }
+
+    private static Connection connect() throws SQLException {
+        String url = System.getProperty("benchmark.jdbc.url");
+        return url != null
+                ? DriverManager.getConnection(url, System.getProperty("benchmark.jdbc.user"),
+                        System.getProperty("benchmark.jdbc.password"))
+                : DriverManager.getConnection("jdbc:h2:mem:stock_shard_benchmark;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000");
+    }
+}
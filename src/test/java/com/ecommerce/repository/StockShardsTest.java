@@ -0,0 +1,156 @@
+package com.ecommerce.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for StockShards against an in-memory H2 database.
+ */
+public class StockShardsTest {
+
+    private static final long PRODUCT_ID = 1L;
+    private static final Timestamp NOW = Timestamp.valueOf("2024-06-01 12:00:00");
+
+    private Connection connection;
+
+    @BeforeEach
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:stock_shards");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE products (product_id BIGINT PRIMARY KEY, stock_quantity INT, "
+                    + "updated_at TIMESTAMP, stock_shards INT DEFAULT 0 NOT NULL)");
+            statement.execute("CREATE TABLE product_stock_shards (product_id BIGINT, shard_no INT, quantity INT, "
+                    + "changed BOOLEAN DEFAULT FALSE NOT NULL, PRIMARY KEY (product_id, shard_no))");
+            statement.execute("INSERT INTO products VALUES (1, 20, TIMESTAMP '2024-01-01 00:00:00', 0)");
+        }
+    }
+
+    @AfterEach
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    private int productRow() throws SQLException {
+        return query("SELECT stock_quantity FROM products WHERE product_id = 1").get(0);
+    }
+
+    private Timestamp updatedAt() throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT updated_at FROM products WHERE product_id = 1")) {
+            resultSet.next();
+            return resultSet.getTimestamp(1);
+        }
+    }
+
+    private int stockShards() throws SQLException {
+        return query("SELECT stock_shards FROM products WHERE product_id = 1").get(0);
+    }
+
+    private List<Integer> shards() throws SQLException {
+        return query("SELECT quantity FROM product_stock_shards WHERE product_id = 1 ORDER BY shard_no");
+    }
+
+    private List<Integer> query(String sql) throws SQLException {
+        List<Integer> values = new ArrayList<>();
+        try (Statement statement = connection.createStatement(); ResultSet resultSet = statement.executeQuery(sql)) {
+            while (resultSet.next()) {
+                values.add(resultSet.getInt(1));
+            }
+        }
+        return values;
+    }
+
+    @Test
+    public void testReshard_SpreadsStockEvenly() throws SQLException {
+        assertTrue(StockShards.reshard(connection, PRODUCT_ID, 3));
+
+        assertEquals(0, productRow());
+        assertEquals(List.of(7, 7, 6), shards());
+        assertEquals(3, stockShards());
+        assertFalse(StockShards.reshard(connection, 99L, 3));
+    }
+
+    @Test
+    public void testReshard_ZeroShardsMovesStockBack() throws SQLException {
+        StockShards.reshard(connection, PRODUCT_ID, 4);
+        StockShards.decrement(connection, PRODUCT_ID, 3, NOW);
+
+        StockShards.reshard(connection, PRODUCT_ID, 0);
+
+        assertEquals(17, productRow());
+        assertTrue(shards().isEmpty());
+        assertEquals(0, stockShards());
+    }
+
+    @Test
+    public void testDecrement_TakesFromOneShard() throws SQLException {
+        StockShards.reshard(connection, PRODUCT_ID, 4);
+
+        assertEquals(0, StockShards.decrement(connection, PRODUCT_ID, 3, NOW));
+
+        List<Integer> shards = shards();
+        assertEquals(17, shards.stream().mapToInt(Integer::intValue).sum());
+        assertEquals(3, shards.stream().filter(quantity -> quantity == 5).count());
+    }
+
+    @Test
+    public void testDecrement_GathersWhenNoRowCoversQuantity() throws SQLException {
+        StockShards.reshard(connection, PRODUCT_ID, 4);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("UPDATE product_stock_shards SET quantity = 1");
+            statement.execute("UPDATE products SET stock_quantity = 2");
+        }
+
+        assertEquals(2, StockShards.decrement(connection, PRODUCT_ID, 5, NOW));
+
+        assertEquals(0, productRow());
+        assertEquals(NOW, updatedAt());
+        assertEquals(List.of(0, 0, 0, 1), shards());
+        assertEquals(-1, StockShards.decrement(connection, PRODUCT_ID, 2, NOW));
+        assertEquals(List.of(0, 0, 0, 1), shards());
+    }
+
+    @Test
+    public void testRebalance_UnbalancedShards() throws SQLException {
+        StockShards.reshard(connection, PRODUCT_ID, 2);
+        assertTrue(StockShards.findUnbalanced(connection).isEmpty());
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("UPDATE product_stock_shards SET quantity = 1 WHERE shard_no = 0");
+            statement.execute("UPDATE products SET stock_quantity = 3");
+        }
+
+        assertEquals(List.of(PRODUCT_ID), StockShards.findUnbalanced(connection));
+        StockShards.rebalance(connection, PRODUCT_ID, NOW);
+
+        assertEquals(0, productRow());
+        assertEquals(List.of(7, 7), shards());
+        assertTrue(StockShards.findUnbalanced(connection).isEmpty());
+    }
+
+    @Test
+    public void testRebalance_SetsUpdatedAtAfterShardTakes() throws SQLException {
+        StockShards.reshard(connection, PRODUCT_ID, 4);
+        Timestamp before = updatedAt();
+
+        StockShards.decrement(connection, PRODUCT_ID, 1, NOW);
+
+        assertEquals(before, updatedAt());
+        assertEquals(List.of(PRODUCT_ID), StockShards.findUnbalanced(connection));
+        StockShards.rebalance(connection, PRODUCT_ID, NOW);
+
+        assertEquals(NOW, updatedAt());
+        assertTrue(StockShards.findUnbalanced(connection).isEmpty());
+    }
+}
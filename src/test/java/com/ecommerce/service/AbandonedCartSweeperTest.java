@@ -0,0 +1,112 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.AbandonedCartDto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for AbandonedCartSweeper against an in-memory H2 database.
+ */
+public class AbandonedCartSweeperTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private EmailService emailService;
+    private WriteBehindCartStore cartStore;
+    private AbandonedCartSweeper sweeper;
+
+    @BeforeEach
+    public void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:cart_sweeper;DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE users (user_id BIGINT PRIMARY KEY, email VARCHAR(100), name VARCHAR(100))");
+        jdbcTemplate.execute("CREATE TABLE cart (cart_id BIGINT PRIMARY KEY, user_id BIGINT REFERENCES users(user_id), "
+                + "updated_at TIMESTAMP(6), reminder_sent_at TIMESTAMP(6))");
+        jdbcTemplate.execute("CREATE TABLE cart_items (cart_item_id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                + "cart_id BIGINT REFERENCES cart(cart_id) ON DELETE CASCADE, product_id BIGINT, quantity INT)");
+        emailService = mock(EmailService.class);
+        cartStore = mock(WriteBehindCartStore.class);
+        sweeper = new AbandonedCartSweeper(jdbcTemplate, new DataSourceTransactionManager(dataSource), emailService,
+                cartStore, new CartTotals(1000, 300), false, 24, 30, 2);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+    }
+
+    private void insertCart(long id, long idleHours, boolean withItems) {
+        jdbcTemplate.update("INSERT INTO users (user_id, email, name) VALUES (?, ?, ?)", id, "user" + id + "@example.com",
+                "User " + id);
+        jdbcTemplate.update("INSERT INTO cart (cart_id, user_id, updated_at) VALUES (?, ?, ?)", id, id,
+                Timestamp.valueOf(LocalDateTime.now().minusHours(idleHours)));
+        if (withItems) {
+            jdbcTemplate.update("INSERT INTO cart_items (cart_id, product_id, quantity) VALUES (?, 1, 1)", id);
+        }
+    }
+
+    private List<Long> cartIds() {
+        return jdbcTemplate.queryForList("SELECT cart_id FROM cart ORDER BY cart_id", Long.class);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String> remindedEmails() {
+        ArgumentCaptor<List<AbandonedCartDto>> captor = ArgumentCaptor.forClass(List.class);
+        verify(emailService, atLeast(0)).sendCartReminders(captor.capture());
+        List<String> emails = new ArrayList<>();
+        captor.getAllValues().forEach(batch -> batch.forEach(cart -> emails.add(cart.getEmail())));
+        return emails;
+    }
+
+    @Test
+    public void testSendReminders_IdleCartsWithItemsOnlyOnce() {
+        insertCart(1, 48, true);
+        insertCart(2, 30, true);
+        insertCart(3, 25, true);
+        insertCart(4, 48, false);
+        insertCart(5, 1, true);
+
+        assertEquals(3, sweeper.sendReminders());
+        assertEquals(0, sweeper.sendReminders());
+
+        assertEquals(List.of("user1@example.com", "user2@example.com", "user3@example.com"), remindedEmails());
+        verify(emailService, times(2)).sendCartReminders(any());
+    }
+
+    @Test
+    public void testSendReminders_SkipsAlreadyRemindedCart() {
+        insertCart(1, 48, true);
+        jdbcTemplate.update("UPDATE cart SET reminder_sent_at = CURRENT_TIMESTAMP WHERE cart_id = 1");
+
+        assertEquals(0, sweeper.sendReminders());
+        verifyNoInteractions(emailService);
+    }
+
+    @Test
+    public void testPurgeStaleCarts_DeletesInChunks() {
+        insertCart(1, 31 * 24, true);
+        insertCart(2, 40 * 24, false);
+        insertCart(3, 35 * 24, true);
+        insertCart(4, 29 * 24, true);
+        insertCart(5, 60 * 24, true);
+        when(cartStore.isActive(5L)).thenReturn(true);
+
+        assertEquals(3, sweeper.purgeStaleCarts());
+
+        assertEquals(List.of(4L, 5L), cartIds());
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM cart_items", Integer.class));
+    }
+}
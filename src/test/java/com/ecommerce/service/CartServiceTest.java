@@ -1,5 +1,8 @@
 package com.ecommerce.service;
 
+import com.ecommerce.dto.CartContentsDto;
+import com.ecommerce.dto.CartOperationDto;
+import com.ecommerce.dto.CartSummaryDto;
 import com.ecommerce.model.Cart;
 import com.ecommerce.model.CartItem;
 import com.ecommerce.model.Product;
@@ -13,14 +16,20 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 /**
@@ -41,6 +50,18 @@ public class CartServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private ProductService productService;
+
+    @Mock
+    private WriteBehindCartStore cartStore;
+
+    @Spy
+    private CartTotals cartTotals = new CartTotals(1000, 300);
+
+    @Spy
+    private StockReservations reservations = new StockReservations(true, 60_000, System::currentTimeMillis);
+
     @InjectMocks
     private CartService cartService;
 
@@ -64,7 +85,7 @@ public class CartServiceTest {
         testProduct.setProductId(1L);
         testProduct.setName("Test Product");
         testProduct.setPrice(new BigDecimal("99.99"));
-        testProduct.setStockQuantity(100);
+        testProduct.setRowStock(100);
     }
 
     @Test
@@ -94,7 +115,7 @@ public class CartServiceTest {
     @Test
     public void testGetCartByUserEmail() {
         when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(testUser));
-        when(cartRepository.findByUser(testUser)).thenReturn(Optional.of(testCart));
+        when(cartRepository.findByUserUserId(1L)).thenReturn(Optional.of(testCart));
 
         Cart result = cartService.getCartByUserEmail("test@example.com");
 
@@ -114,9 +135,8 @@ public class CartServiceTest {
     @Test
     public void testAddToCart_NewItem() {
         when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(testUser));
-        when(cartRepository.findByUser(testUser)).thenReturn(Optional.of(testCart));
+        when(cartRepository.findByUserUserId(1L)).thenReturn(Optional.of(testCart));
         when(productRepository.findById(1L)).thenReturn(Optional.of(testProduct));
-        when(cartItemRepository.findByCartAndProduct(testCart, testProduct)).thenReturn(Optional.empty());
         when(cartItemRepository.save(any(CartItem.class))).thenReturn(new CartItem());
         when(cartRepository.save(testCart)).thenReturn(testCart);
 
@@ -133,9 +153,8 @@ public class CartServiceTest {
         testCart.getItems().add(existingItem);
 
         when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(testUser));
-        when(cartRepository.findByUser(testUser)).thenReturn(Optional.of(testCart));
+        when(cartRepository.findByUserUserId(1L)).thenReturn(Optional.of(testCart));
         when(productRepository.findById(1L)).thenReturn(Optional.of(testProduct));
-        when(cartItemRepository.findByCartAndProduct(testCart, testProduct)).thenReturn(Optional.of(existingItem));
         when(cartItemRepository.save(any(CartItem.class))).thenReturn(existingItem);
         when(cartRepository.save(testCart)).thenReturn(testCart);
 
@@ -148,7 +167,7 @@ public class CartServiceTest {
     @Test
     public void testAddToCart_InsufficientStock() {
         when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(testUser));
-        when(cartRepository.findByUser(testUser)).thenReturn(Optional.of(testCart));
+        when(cartRepository.findByUserUserId(1L)).thenReturn(Optional.of(testCart));
         when(productRepository.findById(1L)).thenReturn(Optional.of(testProduct));
 
         assertThrows(RuntimeException.class, () -> {
@@ -162,7 +181,7 @@ public class CartServiceTest {
         testCart.getItems().add(cartItem);
 
         when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(testUser));
-        when(cartRepository.findByUser(testUser)).thenReturn(Optional.of(testCart));
+        when(cartRepository.findByUserUserId(1L)).thenReturn(Optional.of(testCart));
         when(cartRepository.save(testCart)).thenReturn(testCart);
 
         Cart result = cartService.removeFromCart("test@example.com", 1L);
@@ -178,7 +197,7 @@ public class CartServiceTest {
         testCart.getItems().add(cartItem);
 
         when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(testUser));
-        when(cartRepository.findByUser(testUser)).thenReturn(Optional.of(testCart));
+        when(cartRepository.findByUserUserId(1L)).thenReturn(Optional.of(testCart));
         when(productRepository.findById(1L)).thenReturn(Optional.of(testProduct));
         when(cartItemRepository.save(any(CartItem.class))).thenReturn(cartItem);
         when(cartRepository.save(testCart)).thenReturn(testCart);
@@ -195,7 +214,7 @@ public class CartServiceTest {
         testCart.getItems().add(cartItem);
 
         when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(testUser));
-        when(cartRepository.findByUser(testUser)).thenReturn(Optional.of(testCart));
+        when(cartRepository.findByUserUserId(1L)).thenReturn(Optional.of(testCart));
         when(cartRepository.save(testCart)).thenReturn(testCart);
 
         cartService.clearCart("test@example.com");
@@ -206,34 +225,48 @@ public class CartServiceTest {
 
     @Test
     public void testGetCartTotal() {
-        CartItem cartItem = new CartItem(testCart, testProduct, 2);
-        testCart.getItems().add(cartItem);
-
         when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(testUser));
-        when(cartRepository.findByUser(testUser)).thenReturn(Optional.of(testCart));
+        when(cartItemRepository.summarizeByUserId(1L))
+                .thenReturn(new CartSummaryDto(2L, new BigDecimal("199.98")));
 
         BigDecimal result = cartService.getCartTotal("test@example.com");
 
         assertEquals(new BigDecimal("199.98"), result);
+        verifyNoInteractions(cartRepository);
     }
 
     @Test
     public void testGetCartItemCount() {
-        CartItem cartItem = new CartItem(testCart, testProduct, 3);
-        testCart.getItems().add(cartItem);
-
         when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(testUser));
-        when(cartRepository.findByUser(testUser)).thenReturn(Optional.of(testCart));
+        when(cartItemRepository.summarizeByUserId(1L))
+                .thenReturn(new CartSummaryDto(3L, new BigDecimal("299.97")));
 
         int result = cartService.getCartItemCount("test@example.com");
+        cartService.getCartItemCount("test@example.com");
 
         assertEquals(3, result);
+        verify(cartItemRepository, times(1)).summarizeByUserId(1L);
+    }
+
+    @Test
+    public void testGetCartSummary_MaintainedByMutations() {
+        when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(testUser));
+        when(cartRepository.findByUserUserId(1L)).thenReturn(Optional.of(testCart));
+        when(productRepository.findById(1L)).thenReturn(Optional.of(testProduct));
+        when(cartRepository.save(testCart)).thenReturn(testCart);
+
+        cartService.addToCart("test@example.com", 1L, 2);
+        CartSummaryDto summary = cartService.getCartSummary("test@example.com");
+
+        assertEquals(2, summary.getItemCount());
+        assertEquals(new BigDecimal("199.98"), summary.getTotal());
+        verify(cartItemRepository, never()).summarizeByUserId(any());
     }
 
     @Test
     public void testIsCartEmpty_True() {
         when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(testUser));
-        when(cartRepository.findByUser(testUser)).thenReturn(Optional.of(testCart));
+        when(cartRepository.findByUserUserId(1L)).thenReturn(Optional.of(testCart));
 
         boolean result = cartService.isCartEmpty("test@example.com");
 
@@ -246,10 +279,189 @@ public class CartServiceTest {
         testCart.getItems().add(cartItem);
 
         when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(testUser));
-        when(cartRepository.findByUser(testUser)).thenReturn(Optional.of(testCart));
+        when(cartRepository.findByUserUserId(1L)).thenReturn(Optional.of(testCart));
 
         boolean result = cartService.isCartEmpty("test@example.com");
 
         assertFalse(result);
     }
+
+    @SuppressWarnings("unchecked")
+    private Map<Long, Integer> stubWriteBehindStore(Map<Long, Integer> items) {
+        when(cartStore.isEnabled()).thenReturn(true);
+        lenient().when(cartStore.update(eq(1L), any(Consumer.class))).thenAnswer(invocation -> {
+            Map<Long, Integer> updated = new LinkedHashMap<>(items);
+            ((Consumer<Map<Long, Integer>>) invocation.getArgument(1)).accept(updated);
+            items.clear();
+            items.putAll(updated);
+            return updated;
+        });
+        return items;
+    }
+
+    @Test
+    public void testAddToCart_WriteBehindStore() {
+        Map<Long, Integer> items = stubWriteBehindStore(new LinkedHashMap<>(Map.of(1L, 1)));
+        when(productService.getProductById(1L)).thenReturn(Optional.of(testProduct));
+
+        Cart result = cartService.addToCart(1L, 1L, 1L, 2);
+
+        assertEquals(3, result.getTotalItems());
+        assertEquals(Integer.valueOf(3), items.get(1L));
+        verifyNoInteractions(userRepository, cartRepository, cartItemRepository, productRepository);
+    }
+
+    @Test
+    public void testAddToCart_WriteBehindStoreInsufficientStock() {
+        Map<Long, Integer> items = stubWriteBehindStore(new LinkedHashMap<>(Map.of(1L, 99)));
+        when(productService.getProductById(1L)).thenReturn(Optional.of(testProduct));
+
+        assertThrows(RuntimeException.class, () -> cartService.addToCart(1L, 1L, 1L, 2));
+        assertEquals(Integer.valueOf(99), items.get(1L));
+    }
+
+    @Test
+    public void testGetCartForCheckout_WriteBehindStoreLoadsManagedProducts() {
+        when(cartStore.isEnabled()).thenReturn(true);
+        when(cartStore.beginCheckout(1L)).thenReturn(new LinkedHashMap<>(Map.of(1L, 2)));
+        when(productRepository.findAllById(any())).thenReturn(List.of(testProduct));
+
+        Cart result = cartService.getCartForCheckout(1L, 1L);
+
+        assertEquals(1, result.getItems().size());
+        assertSame(testProduct, result.getItems().get(0).getProduct());
+        verify(productService, never()).getProductById(any());
+    }
+
+    @Test
+    public void testApplyCartOperations() {
+        Product otherProduct = new Product("Other Product", null, new BigDecimal("10.00"), 5, "Home");
+        otherProduct.setProductId(2L);
+        testCart.getItems().add(new CartItem(testCart, testProduct, 1));
+        when(productRepository.findAllById(any())).thenReturn(List.of(testProduct, otherProduct));
+        when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(testUser));
+        when(cartRepository.findByUserUserId(1L)).thenReturn(Optional.of(testCart));
+        when(cartRepository.save(testCart)).thenReturn(testCart);
+
+        CartContentsDto result = cartService.applyCartOperations("test@example.com", List.of(
+                new CartOperationDto(CartOperationDto.Action.UPDATE, 1L, 4),
+                new CartOperationDto(CartOperationDto.Action.ADD, 2L, 2),
+                new CartOperationDto(CartOperationDto.Action.ADD, 2L, 1)));
+
+        assertEquals(2, result.getItems().size());
+        assertEquals(7, result.getItemCount());
+        assertEquals(new BigDecimal("429.96"), result.getTotal());
+        verify(productRepository, times(1)).findAllById(any());
+        verify(productRepository, never()).findById(any());
+        verify(cartRepository, times(1)).save(testCart);
+    }
+
+    @Test
+    public void testApplyCartOperations_InsufficientStockChangesNothing() {
+        testCart.getItems().add(new CartItem(testCart, testProduct, 1));
+        when(productRepository.findAllById(any())).thenReturn(List.of(testProduct));
+        when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(testUser));
+        when(cartRepository.findByUserUserId(1L)).thenReturn(Optional.of(testCart));
+
+        assertThrows(IllegalArgumentException.class, () -> cartService.applyCartOperations("test@example.com",
+                List.of(new CartOperationDto(CartOperationDto.Action.ADD, 1L, 60),
+                        new CartOperationDto(CartOperationDto.Action.ADD, 1L, 60))));
+
+        assertEquals(Integer.valueOf(1), testCart.getItems().get(0).getQuantity());
+        verify(cartRepository, never()).save(any(Cart.class));
+    }
+
+    @Test
+    public void testApplyCartOperations_InvalidOperation() {
+        assertThrows(IllegalArgumentException.class, () -> cartService.applyCartOperations(1L, 1L,
+                List.of(new CartOperationDto(CartOperationDto.Action.ADD, 1L, 0))));
+        verifyNoInteractions(productRepository, cartRepository);
+    }
+
+    @Test
+    public void testAddToCart_ByIdsSkipsUserLookup() {
+        when(cartRepository.findById(1L)).thenReturn(Optional.of(testCart));
+        when(productRepository.findById(1L)).thenReturn(Optional.of(testProduct));
+        when(cartRepository.save(testCart)).thenReturn(testCart);
+
+        Cart result = cartService.addToCart(1L, 1L, 1L, 2);
+
+        assertEquals(2, result.getTotalItems());
+        verifyNoInteractions(userRepository);
+        verify(cartRepository, never()).findByUserUserId(any());
+    }
+
+    @Test
+    public void testUpdateCartItemQuantity_ZeroRemovesWithoutSecondLookup() {
+        testCart.getItems().add(new CartItem(testCart, testProduct, 1));
+        when(cartRepository.findById(1L)).thenReturn(Optional.of(testCart));
+        when(cartRepository.save(testCart)).thenReturn(testCart);
+
+        Cart result = cartService.updateCartItemQuantity(1L, 1L, 1L, 0);
+
+        assertTrue(result.getItems().isEmpty());
+        verify(cartRepository, times(1)).findById(1L);
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    public void testAddToGuestCart_NoDatabaseWrites() {
+        when(productService.getProductById(1L)).thenReturn(Optional.of(testProduct));
+        Map<Long, Integer> items = new LinkedHashMap<>();
+
+        cartService.addToGuestCart(items, 1L, 2);
+        cartService.addToGuestCart(items, 1L, 1);
+
+        assertEquals(Map.of(1L, 3), items);
+        assertEquals(new BigDecimal("299.97"), cartService.getGuestCartSummary(items).getTotal());
+        verifyNoInteractions(cartRepository, cartItemRepository, userRepository, cartStore);
+    }
+
+    @Test
+    public void testAddToGuestCart_InsufficientStock() {
+        when(productService.getProductById(1L)).thenReturn(Optional.of(testProduct));
+        Map<Long, Integer> items = new LinkedHashMap<>(Map.of(1L, 99));
+
+        assertThrows(RuntimeException.class, () -> cartService.addToGuestCart(items, 1L, 2));
+        assertEquals(Map.of(1L, 99), items);
+    }
+
+    @Test
+    public void testMergeGuestCart_AddsQuantitiesCappedAtStock() {
+        Product otherProduct = new Product();
+        otherProduct.setProductId(2L);
+        otherProduct.setPrice(BigDecimal.TEN);
+        otherProduct.setRowStock(5);
+        testCart.getItems().add(new CartItem(testCart, testProduct, 98));
+        when(productRepository.findAllById(any())).thenReturn(List.of(testProduct, otherProduct));
+        when(cartRepository.findById(1L)).thenReturn(Optional.of(testCart));
+        when(cartRepository.save(testCart)).thenReturn(testCart);
+        Map<Long, Integer> guestItems = new LinkedHashMap<>();
+        guestItems.put(1L, 5);
+        guestItems.put(2L, 2);
+        guestItems.put(3L, 1);
+
+        cartService.mergeGuestCart(1L, 1L, guestItems);
+
+        assertEquals(2, testCart.getItems().size());
+        assertEquals(Integer.valueOf(100), testCart.getItems().get(0).getQuantity());
+        assertEquals(Integer.valueOf(2), testCart.getItems().get(1).getQuantity());
+        verify(cartRepository, times(1)).save(testCart);
+    }
+
+    @Test
+    public void testAddToCart_HoldsStockAgainstOtherCarts() {
+        testProduct.setRowStock(5);
+        reservations.reserve(2L, testProduct, 4);
+        when(cartRepository.findById(1L)).thenReturn(Optional.of(testCart));
+        when(productRepository.findById(1L)).thenReturn(Optional.of(testProduct));
+        when(cartRepository.save(testCart)).thenReturn(testCart);
+
+        cartService.addToCart(1L, 1L, 1L, 1);
+
+        assertThrows(RuntimeException.class, () -> cartService.addToCart(1L, 1L, 1L, 1));
+        assertEquals(5, reservations.getReserved(1L));
+        cartService.removeFromCart(1L, 1L, 1L);
+        assertEquals(4, reservations.getReserved(1L));
+    }
 }
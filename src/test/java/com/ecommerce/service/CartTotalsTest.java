@@ -0,0 +1,83 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.CartSummaryDto;
+import com.ecommerce.event.ProductChangedEvent;
+import com.ecommerce.model.Cart;
+import com.ecommerce.model.CartItem;
+import com.ecommerce.model.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for CartTotals.
+ */
+public class CartTotalsTest {
+
+    private CartTotals cartTotals;
+    private Product product;
+
+    @BeforeEach
+    public void setUp() {
+        cartTotals = new CartTotals(1000, 300);
+        product = new Product("Lamp", null, new BigDecimal("12.50"), 10, "Home");
+        product.setProductId(1L);
+    }
+
+    private Cart cartWith(int quantity) {
+        Cart cart = new Cart();
+        cart.getItems().add(new CartItem(cart, product, quantity));
+        return cart;
+    }
+
+    @Test
+    public void testUpdate_ServesAggregatesWithoutLoading() {
+        cartTotals.update(1L, cartWith(3));
+
+        CartSummaryDto summary = cartTotals.get(1L, () -> fail("should not load"));
+
+        assertEquals(3, summary.getItemCount());
+        assertEquals(new BigDecimal("37.50"), summary.getTotal());
+    }
+
+    @Test
+    public void testOnProductChanged_PriceUpdateDropsAggregates() {
+        cartTotals.update(1L, cartWith(3));
+        cartTotals.onProductChanged(ProductChangedEvent.stockChanged(product));
+        assertEquals(3, cartTotals.get(1L, () -> CartSummaryDto.EMPTY).getItemCount());
+
+        cartTotals.onProductChanged(ProductChangedEvent.updated(product, "Home"));
+
+        assertEquals(0, cartTotals.get(1L, () -> CartSummaryDto.EMPTY).getItemCount());
+    }
+
+    @Test
+    public void testUpdate_StoredOnlyOnceTransactionCommits() {
+        cartTotals.update(1L, cartWith(1));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            cartTotals.update(1L, cartWith(3));
+            assertEquals(1, cartTotals.get(1L, () -> fail("should not load")).getItemCount());
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertEquals(3, cartTotals.get(1L, () -> fail("should not load")).getItemCount());
+    }
+
+    @Test
+    public void testClear() {
+        cartTotals.update(1L, cartWith(3));
+
+        cartTotals.clear(1L);
+
+        assertSame(CartSummaryDto.EMPTY, cartTotals.get(1L, () -> fail("should not load")));
+    }
+}
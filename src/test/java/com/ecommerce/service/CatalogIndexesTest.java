@@ -0,0 +1,50 @@
+package com.ecommerce.service;
+
+import com.ecommerce.model.Product;
+import com.ecommerce.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for CatalogIndexes.
+ */
+@ExtendWith(MockitoExtension.class)
+public class CatalogIndexesTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Test
+    public void testRebuild_BuildsEnabledIndexesFromOneScan() {
+        Product product = new Product("Desk Lamp", null, new BigDecimal("30.00"), 5, "Home");
+        product.setProductId(1L);
+        when(productRepository.findByProductIdGreaterThanOrderByProductIdAsc(anyLong(), any(Pageable.class)))
+                .thenReturn(List.of(product));
+        ProductSearchIndex searchIndex = new ProductSearchIndex(true);
+        ProductFacetIndex facetIndex = new ProductFacetIndex(List.of(new BigDecimal("50")));
+        ProductSearchIndex disabledIndex = new ProductSearchIndex(false);
+
+        new CatalogIndexes(new CatalogScanner(productRepository), List.of(searchIndex, facetIndex, disabledIndex))
+                .rebuild();
+
+        verify(productRepository, times(1)).findByProductIdGreaterThanOrderByProductIdAsc(anyLong(), any(Pageable.class));
+        assertTrue(searchIndex.isReady());
+        assertEquals(List.of(1L), searchIndex.search("lamp"));
+        assertTrue(facetIndex.isReady());
+        assertEquals(1, facetIndex.filter(List.of("Home"), List.of(), null, 0, 10).getTotal());
+        assertFalse(disabledIndex.isReady());
+    }
+}
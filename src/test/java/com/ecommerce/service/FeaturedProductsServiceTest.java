@@ -0,0 +1,72 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.HomePageDto;
+import com.ecommerce.event.ProductChangedEvent;
+import com.ecommerce.model.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for FeaturedProductsService.
+ */
+@ExtendWith(MockitoExtension.class)
+public class FeaturedProductsServiceTest {
+
+    @Mock
+    private ProductService productService;
+
+    private FeaturedProductsService featuredProductsService;
+
+    private Product featured;
+
+    @BeforeEach
+    public void setUp() {
+        featuredProductsService = new FeaturedProductsService(productService, 8, 60);
+        featured = new Product("Featured", null, new BigDecimal("10.00"), 5, "Electronics");
+        featured.setProductId(1L);
+        when(productService.getNewestProducts(8)).thenReturn(Arrays.asList(featured));
+        when(productService.getAllCategories()).thenReturn(Arrays.asList("Electronics"));
+    }
+
+    @Test
+    public void testGetHomePage_Cached() {
+        featuredProductsService.getHomePage();
+        HomePageDto homePage = featuredProductsService.getHomePage();
+
+        assertEquals(List.of(featured), homePage.getFeaturedProducts());
+        assertEquals(List.of("Electronics"), homePage.getCategories());
+        verify(productService, times(1)).getNewestProducts(8);
+    }
+
+    @Test
+    public void testOnProductChanged_FeaturedProductInvalidates() {
+        featuredProductsService.getHomePage();
+
+        featuredProductsService.onProductChanged(ProductChangedEvent.stockChanged(featured));
+        featuredProductsService.getHomePage();
+
+        verify(productService, times(2)).getNewestProducts(8);
+    }
+
+    @Test
+    public void testOnProductChanged_OtherProductStockKeepsCache() {
+        featuredProductsService.getHomePage();
+        Product other = new Product("Other", null, new BigDecimal("5.00"), 5, "Electronics");
+        other.setProductId(2L);
+
+        featuredProductsService.onProductChanged(ProductChangedEvent.stockChanged(other));
+        featuredProductsService.getHomePage();
+
+        verify(productService, times(1)).getNewestProducts(8);
+    }
+}
@@ -0,0 +1,228 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.FlashSaleStatusDto;
+import com.ecommerce.dto.FlashSaleStatusDto.Status;
+import com.ecommerce.model.Product;
+import com.ecommerce.model.StockMovement;
+import com.ecommerce.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for FlashSaleService.
+ */
+@ExtendWith(MockitoExtension.class)
+public class FlashSaleServiceTest {
+
+    private static final Long PRODUCT_ID = 1L;
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private InventoryLedger inventoryLedger;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private Product product;
+    private FlashSaleService flashSaleService;
+
+    @BeforeEach
+    public void setUp() {
+        product = new Product("Console", "Limited edition", new BigDecimal("499.00"), 10, "Electronics");
+        product.setProductId(PRODUCT_ID);
+        lenient().when(productRepository.findById(PRODUCT_ID)).thenReturn(Optional.of(product));
+        lenient().when(productRepository.decrementStock(anyMap())).thenReturn(List.of());
+        flashSaleService = new FlashSaleService(productRepository, eventPublisher, inventoryLedger, jdbcTemplate,
+                transactionManager, 60_000, 100, 30_000, now::get);
+    }
+
+    @Test
+    public void testStartSale_TakesQuantityFromStock() {
+        FlashSaleStatusDto status = flashSaleService.startSale(PRODUCT_ID, 2);
+
+        verify(productRepository).decrementStock(Map.of(product, 2));
+        verify(inventoryLedger).record(PRODUCT_ID, StockMovement.Type.FLASH_SALE, 2, null);
+        verify(jdbcTemplate).update(anyString(), eq(PRODUCT_ID), eq(2), any(Timestamp.class), anyString(),
+                eq(new Timestamp(now.get())));
+        assertEquals(2, status.getTokensLeft());
+        assertTrue(flashSaleService.isOnSale(PRODUCT_ID));
+        assertThrows(IllegalArgumentException.class, () -> flashSaleService.startSale(PRODUCT_ID, 1));
+    }
+
+    @Test
+    public void testStartSale_InsufficientStock() {
+        when(productRepository.decrementStock(anyMap())).thenReturn(List.of(product));
+
+        assertThrows(IllegalArgumentException.class, () -> flashSaleService.startSale(PRODUCT_ID, 50));
+        assertFalse(flashSaleService.isOnSale(PRODUCT_ID));
+    }
+
+    @Test
+    public void testStartSale_ConcurrentStartTakesNoStock() {
+        when(productRepository.decrementStock(anyMap())).thenAnswer(invocation -> {
+            // A second start while the first is taking stock must not take any itself
+            assertThrows(IllegalArgumentException.class, () -> flashSaleService.startSale(PRODUCT_ID, 3));
+            return List.of();
+        });
+
+        flashSaleService.startSale(PRODUCT_ID, 2);
+
+        verify(productRepository, times(1)).decrementStock(anyMap());
+        assertEquals(2, flashSaleService.getStatus(PRODUCT_ID, null).getTokensLeft());
+    }
+
+    @Test
+    public void testAdmit_InArrivalOrderWhileTokensLast() {
+        flashSaleService.startSale(PRODUCT_ID, 2);
+        flashSaleService.join(PRODUCT_ID, 11L);
+        flashSaleService.join(PRODUCT_ID, 12L);
+        FlashSaleStatusDto third = flashSaleService.join(PRODUCT_ID, 13L);
+        assertEquals(Status.WAITING, third.getStatus());
+        assertEquals(3, third.getPosition());
+
+        assertEquals(2, flashSaleService.admit());
+
+        assertEquals(Status.ADMITTED, flashSaleService.getStatus(PRODUCT_ID, 11L).getStatus());
+        assertEquals(Status.ADMITTED, flashSaleService.getStatus(PRODUCT_ID, 12L).getStatus());
+        FlashSaleStatusDto waiting = flashSaleService.getStatus(PRODUCT_ID, 13L);
+        assertEquals(Status.WAITING, waiting.getStatus());
+        assertEquals(1, waiting.getPosition());
+        assertEquals(0, waiting.getTokensLeft());
+    }
+
+    @Test
+    public void testClaim_RequiresAdmission() {
+        flashSaleService.startSale(PRODUCT_ID, 1);
+        flashSaleService.join(PRODUCT_ID, 11L);
+
+        assertThrows(IllegalStateException.class, () -> flashSaleService.claim(PRODUCT_ID, 11L));
+
+        flashSaleService.admit();
+        flashSaleService.claim(PRODUCT_ID, 11L);
+
+        assertEquals(Status.CLAIMED, flashSaleService.getStatus(PRODUCT_ID, 11L).getStatus());
+        assertEquals(Status.SOLD_OUT, flashSaleService.getStatus(PRODUCT_ID, 12L).getStatus());
+        assertThrows(IllegalStateException.class, () -> flashSaleService.claim(PRODUCT_ID, 11L));
+    }
+
+    @Test
+    public void testAdmit_ExpiredAdmissionPassesTokenOn() {
+        flashSaleService.startSale(PRODUCT_ID, 1);
+        flashSaleService.join(PRODUCT_ID, 11L);
+        flashSaleService.join(PRODUCT_ID, 12L);
+        flashSaleService.admit();
+
+        now.addAndGet(60_001);
+        assertEquals(1, flashSaleService.admit());
+
+        assertEquals(Status.EXPIRED, flashSaleService.getStatus(PRODUCT_ID, 11L).getStatus());
+        assertEquals(Status.ADMITTED, flashSaleService.getStatus(PRODUCT_ID, 12L).getStatus());
+        assertThrows(IllegalStateException.class, () -> flashSaleService.claim(PRODUCT_ID, 11L));
+        assertEquals(Status.WAITING, flashSaleService.join(PRODUCT_ID, 11L).getStatus());
+    }
+
+    @Test
+    public void testEndSale_ReturnsUnclaimedTokensToStock() {
+        flashSaleService.startSale(PRODUCT_ID, 3);
+        flashSaleService.join(PRODUCT_ID, 11L);
+        flashSaleService.join(PRODUCT_ID, 12L);
+        flashSaleService.admit();
+        flashSaleService.claim(PRODUCT_ID, 11L);
+        when(jdbcTemplate.update(anyString(), eq(PRODUCT_ID), anyString())).thenReturn(1);
+
+        assertEquals(2, flashSaleService.endSale(PRODUCT_ID));
+
+        verify(productRepository).incrementStock(Map.of(product, 2));
+        verify(jdbcTemplate).update(anyString(), eq(PRODUCT_ID), anyString());
+        assertFalse(flashSaleService.isOnSale(PRODUCT_ID));
+        assertThrows(IllegalArgumentException.class, () -> flashSaleService.endSale(PRODUCT_ID));
+    }
+
+    @Test
+    public void testEndSale_ClosedByAnotherInstanceReturnsNothing() {
+        flashSaleService.startSale(PRODUCT_ID, 3);
+
+        assertEquals(0, flashSaleService.endSale(PRODUCT_ID));
+
+        verify(productRepository, never()).incrementStock(anyMap());
+        assertFalse(flashSaleService.isOnSale(PRODUCT_ID));
+    }
+
+    @Test
+    public void testHeartbeat_RenewsOwnSales() {
+        flashSaleService.heartbeat();
+        verify(jdbcTemplate, never()).update(anyString(), any(Timestamp.class), anyString());
+
+        flashSaleService.startSale(PRODUCT_ID, 3);
+        now.addAndGet(10_000);
+        flashSaleService.heartbeat();
+
+        verify(jdbcTemplate).update(anyString(), eq(new Timestamp(now.get())), anyString());
+    }
+
+    private void expiredSale(int quantity) throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getLong(1)).thenReturn(PRODUCT_ID);
+        when(rs.getInt(2)).thenReturn(quantity);
+        when(rs.getString(3)).thenReturn("gone");
+        doAnswer(invocation -> {
+            invocation.<RowCallbackHandler>getArgument(1).processRow(rs);
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class), eq(new Timestamp(now.get() - 30_000)),
+                anyString());
+    }
+
+    @Test
+    public void testRecoverSales_ReturnsUnitsNoOrderClaimed() throws Exception {
+        expiredSale(5);
+        when(jdbcTemplate.update(anyString(), eq(PRODUCT_ID), eq("gone"), any(Timestamp.class))).thenReturn(1);
+        when(inventoryLedger.countFlashSaleClaims(PRODUCT_ID)).thenReturn(2);
+
+        flashSaleService.recoverSales();
+
+        verify(productRepository).incrementStock(Map.of(product, 3));
+        verify(inventoryLedger).record(PRODUCT_ID, StockMovement.Type.FLASH_SALE_RETURN, 3, null);
+    }
+
+    @Test
+    public void testRecoverSales_SkipsSaleClosedOrRenewedMeanwhile() throws Exception {
+        expiredSale(5);
+
+        flashSaleService.recoverSales();
+
+        verify(jdbcTemplate).update(anyString(), eq(PRODUCT_ID), eq("gone"), any(Timestamp.class));
+        verify(productRepository, never()).incrementStock(anyMap());
+        verify(inventoryLedger, never()).countFlashSaleClaims(PRODUCT_ID);
+    }
+}
@@ -0,0 +1,144 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.StockDiscrepancyDto;
+import com.ecommerce.dto.StockMovementDto;
+import com.ecommerce.model.StockMovement;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for InventoryLedger against an in-memory H2 database.
+ */
+public class InventoryLedgerTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private InventoryLedger ledger;
+
+    @BeforeEach
+    public void setUp() {
+        DriverManagerDataSource dataSource =
+                new DriverManagerDataSource("jdbc:h2:mem:inventory_ledger;DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        jdbcTemplate.execute("CREATE TABLE products (product_id BIGINT PRIMARY KEY, stock_quantity INT)");
+        jdbcTemplate.execute("CREATE TABLE product_stock_shards (product_id BIGINT, shard_no INT, quantity INT, "
+                + "PRIMARY KEY (product_id, shard_no))");
+        jdbcTemplate.execute("CREATE TABLE stock_movements (movement_id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                + "product_id BIGINT NOT NULL, movement_type VARCHAR(20) NOT NULL, quantity INT NOT NULL, "
+                + "reference_id BIGINT, created_at TIMESTAMP(6) NOT NULL)");
+        jdbcTemplate.execute("CREATE TABLE stock_snapshots (product_id BIGINT PRIMARY KEY, "
+                + "movement_id BIGINT NOT NULL, quantity INT NOT NULL, taken_at TIMESTAMP(6) NOT NULL)");
+        ledger = new InventoryLedger(jdbcTemplate, transactionManager, false, 0, 2);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+    }
+
+    private int countMovements() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM stock_movements", Integer.class);
+    }
+
+    @Test
+    public void testRecord_InsertsWhenTransactionCommits() {
+        transactionTemplate.executeWithoutResult(status -> {
+            ledger.record(Map.of(1L, 2, 2L, 1), StockMovement.Type.ORDER, 7L);
+            assertEquals(0, countMovements());
+        });
+
+        assertEquals(2, countMovements());
+        List<StockMovementDto> movements = ledger.getMovements(1L, 0, 10);
+        assertEquals(1, movements.size());
+        assertEquals(StockMovement.Type.ORDER, movements.get(0).getType());
+        assertEquals(-2, movements.get(0).getQuantity());
+        assertEquals(Long.valueOf(7), movements.get(0).getReferenceId());
+    }
+
+    @Test
+    public void testRecord_RollbackDropsMovements() {
+        transactionTemplate.executeWithoutResult(status -> {
+            ledger.record(1L, StockMovement.Type.ORDER, 1, null);
+            status.setRollbackOnly();
+        });
+
+        assertEquals(0, countMovements());
+        assertNull(ledger.getStock(1L));
+    }
+
+    @Test
+    public void testGetStock_ReplaysMovementsFromLastAbsoluteOne() {
+        ledger.record(1L, StockMovement.Type.CREATED, 10, null);
+        ledger.record(1L, StockMovement.Type.ORDER, 3, 1L);
+        ledger.record(1L, StockMovement.Type.ORDER_CANCELLED, 1, 1L);
+        assertEquals(Integer.valueOf(8), ledger.getStock(1L));
+
+        ledger.record(1L, StockMovement.Type.STOCK_SET, 50, null);
+        ledger.record(1L, StockMovement.Type.FLASH_SALE, 20, null);
+
+        assertEquals(Integer.valueOf(30), ledger.getStock(1L));
+    }
+
+    @Test
+    public void testCountFlashSaleClaims_CountsClaimsOfLatestSale() {
+        ledger.record(1L, StockMovement.Type.FLASH_SALE, 5, null);
+        ledger.record(1L, StockMovement.Type.FLASH_SALE_CLAIM, 1, 7L);
+        ledger.record(1L, StockMovement.Type.FLASH_SALE_RETURN, 4, null);
+        ledger.record(1L, StockMovement.Type.FLASH_SALE, 3, null);
+        ledger.record(1L, StockMovement.Type.FLASH_SALE_CLAIM, 1, 8L);
+        ledger.record(2L, StockMovement.Type.FLASH_SALE_CLAIM, 1, 9L);
+
+        assertEquals(1, ledger.countFlashSaleClaims(1L));
+        // Claims move no stock: 5 taken, 4 returned, 3 taken
+        assertEquals(Integer.valueOf(-4), ledger.getStock(1L));
+    }
+
+    @Test
+    public void testSnapshot_FoldsMovementsOfProductsThatMoved() {
+        jdbcTemplate.update("INSERT INTO stock_snapshots VALUES (1, 0, 5, CURRENT_TIMESTAMP)");
+        ledger.record(Map.of(1L, 2, 2L, 4, 3L, 1), StockMovement.Type.ORDER_CANCELLED, null);
+
+        assertEquals(3, ledger.snapshot());
+        assertEquals(0, ledger.snapshot());
+
+        assertEquals(Integer.valueOf(7), jdbcTemplate.queryForObject(
+                "SELECT quantity FROM stock_snapshots WHERE product_id = 1", Integer.class));
+        assertEquals(3, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM stock_snapshots", Integer.class));
+
+        ledger.record(2L, StockMovement.Type.ORDER, 1, null);
+        assertEquals(1, ledger.snapshot());
+        assertEquals(Integer.valueOf(3), ledger.getStock(2L));
+        assertEquals(Integer.valueOf(7), ledger.getStock(1L));
+    }
+
+    @Test
+    public void testReconcile_ReportsProductsWhoseStockDiffers() {
+        jdbcTemplate.update("INSERT INTO products VALUES (1, 4), (2, 0), (3, 9)");
+        jdbcTemplate.update("INSERT INTO product_stock_shards VALUES (2, 0, 3), (2, 1, 3)");
+        ledger.record(Map.of(1L, 5, 2L, 6), StockMovement.Type.IMPORT, null);
+        ledger.record(1L, StockMovement.Type.ORDER, 1, null);
+        ledger.snapshot();
+        ledger.record(2L, StockMovement.Type.ORDER, 1, null);
+
+        List<StockDiscrepancyDto> discrepancies = ledger.reconcile();
+
+        assertEquals(2, discrepancies.size());
+        assertEquals(Long.valueOf(2), discrepancies.get(0).getProductId());
+        assertEquals(6, discrepancies.get(0).getStockQuantity());
+        assertEquals(Integer.valueOf(5), discrepancies.get(0).getLedgerStock());
+        assertEquals(Long.valueOf(3), discrepancies.get(1).getProductId());
+        assertNull(discrepancies.get(1).getLedgerStock());
+    }
+}
@@ -0,0 +1,152 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.CatalogVersion;
+import com.ecommerce.dto.ProductSummaryDto;
+import com.ecommerce.event.ProductChangedEvent;
+import com.ecommerce.model.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ProductCatalogCache.
+ */
+public class ProductCatalogCacheTest {
+
+    private ProductCatalogCache catalogCache;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    public void setUp() {
+        catalogCache = new ProductCatalogCache(100, 100, 60);
+        loads = new AtomicInteger();
+    }
+
+    private Product createProduct(Long id, String category) {
+        Product product = new Product("Product " + id, "Description", new BigDecimal("10.00"), 5, category);
+        product.setProductId(id);
+        return product;
+    }
+
+    private Page<ProductSummaryDto> loadPage(Product... products) {
+        loads.incrementAndGet();
+        return new PageImpl<>(Arrays.stream(products)
+                .map(p -> new ProductSummaryDto(p.getProductId(), p.getName(), p.getPrice(), p.getImageUrl(),
+                        p.getCategory(), p.getStockQuantity(), p.getCreatedAt()))
+                .toList());
+    }
+
+    @Test
+    public void testGetProduct_LoadsOnce() {
+        Product product = createProduct(1L, "Electronics");
+
+        catalogCache.getProduct(1L, id -> { loads.incrementAndGet(); return Optional.of(product); });
+        Optional<Product> result = catalogCache.getProduct(1L, id -> { loads.incrementAndGet(); return Optional.of(product); });
+
+        assertTrue(result.isPresent());
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void testGetProduct_MissNotCached() {
+        catalogCache.getProduct(1L, id -> { loads.incrementAndGet(); return Optional.empty(); });
+        catalogCache.getProduct(1L, id -> { loads.incrementAndGet(); return Optional.empty(); });
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testStockChange_EvictsOnlyPagesContainingProduct() {
+        Product laptop = createProduct(1L, "Electronics");
+        Product shirt = createProduct(2L, "Clothing");
+        catalogCache.getPage("Electronics", 0, 12, () -> loadPage(laptop));
+        catalogCache.getPage("Clothing", 0, 12, () -> loadPage(shirt));
+
+        catalogCache.onProductChanged(ProductChangedEvent.stockChanged(laptop));
+
+        catalogCache.getPage("Electronics", 0, 12, () -> loadPage(laptop));
+        catalogCache.getPage("Clothing", 0, 12, () -> loadPage(shirt));
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    public void testCreate_EvictsListingAndCategories() {
+        Product laptop = createProduct(1L, "Electronics");
+        Product shirt = createProduct(2L, "Clothing");
+        catalogCache.getPage(null, 0, 12, () -> loadPage(laptop, shirt));
+        catalogCache.getPage("Electronics", 1, 12, () -> loadPage(laptop));
+        catalogCache.getPage("Clothing", 0, 12, () -> loadPage(shirt));
+        catalogCache.getCategories(() -> { loads.incrementAndGet(); return List.of("Clothing", "Electronics"); });
+
+        catalogCache.onProductChanged(ProductChangedEvent.created(createProduct(3L, "Electronics")));
+
+        catalogCache.getPage(null, 0, 12, () -> loadPage(laptop, shirt));
+        catalogCache.getPage("Electronics", 1, 12, () -> loadPage(laptop));
+        catalogCache.getPage("Clothing", 0, 12, () -> loadPage(shirt));
+        catalogCache.getCategories(() -> { loads.incrementAndGet(); return List.of("Clothing", "Electronics"); });
+        assertEquals(7, loads.get());
+    }
+
+    @Test
+    public void testStockChange_AdvancesVersionsWithoutReloading() {
+        LocalDateTime loaded = LocalDateTime.of(2024, 3, 1, 12, 0);
+        Supplier<CatalogVersion> loader = () -> {
+            loads.incrementAndGet();
+            return new CatalogVersion(1L, loaded);
+        };
+        catalogCache.getVersion(null, loader);
+        catalogCache.getVersion("Electronics", loader);
+        catalogCache.getVersion("Clothing", loader);
+
+        Product product = createProduct(1L, "Electronics");
+        product.setUpdatedAt(loaded.plusMinutes(5));
+        catalogCache.onProductChanged(ProductChangedEvent.stockChanged(product));
+
+        assertEquals(loaded.plusMinutes(5), catalogCache.getVersion(null, loader).getLastModified());
+        assertEquals(loaded.plusMinutes(5), catalogCache.getVersion("Electronics", loader).getLastModified());
+        assertEquals(loaded, catalogCache.getVersion("Clothing", loader).getLastModified());
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    public void testDelete_ReloadsVersionsOfCatalogAndCategory() {
+        Supplier<CatalogVersion> loader = () -> {
+            loads.incrementAndGet();
+            return new CatalogVersion(1L, LocalDateTime.now());
+        };
+        catalogCache.getVersion(null, loader);
+        catalogCache.getVersion("Electronics", loader);
+        catalogCache.getVersion("Clothing", loader);
+
+        catalogCache.onProductChanged(ProductChangedEvent.deleted(1L, "Electronics"));
+
+        catalogCache.getVersion(null, loader);
+        catalogCache.getVersion("Electronics", loader);
+        catalogCache.getVersion("Clothing", loader);
+        assertEquals(5, loads.get());
+    }
+
+    @Test
+    public void testGetStats() {
+        Product product = createProduct(1L, "Electronics");
+        catalogCache.getProduct(1L, id -> Optional.of(product));
+        catalogCache.getProduct(1L, id -> Optional.of(product));
+
+        Map<String, Map<String, Object>> stats = catalogCache.getStats();
+
+        assertEquals(1L, stats.get("products").get("hitCount"));
+        assertEquals(1L, stats.get("products").get("missCount"));
+    }
+}
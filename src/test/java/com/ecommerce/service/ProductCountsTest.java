@@ -0,0 +1,86 @@
+package com.ecommerce.service;
+
+import com.ecommerce.event.ProductChangedEvent;
+import com.ecommerce.model.Product;
+import com.ecommerce.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for ProductCounts.
+ */
+@ExtendWith(MockitoExtension.class)
+public class ProductCountsTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    private ProductCounts productCounts;
+
+    @BeforeEach
+    public void setUp() {
+        productCounts = new ProductCounts(productRepository, 300, 30);
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[]{"Electronics", 3L});
+        rows.add(new Object[]{"Clothing", 2L});
+        lenient().when(productRepository.countGroupedByCategory()).thenReturn(rows);
+    }
+
+    private Product createProduct(Long id, String category) {
+        Product product = new Product("Product " + id, null, new BigDecimal("10.00"), 1, category);
+        product.setProductId(id);
+        return product;
+    }
+
+    @Test
+    public void testCounts_LoadedOnce() {
+        assertEquals(5, productCounts.countAll());
+        assertEquals(3, productCounts.countByCategory("Electronics"));
+        assertEquals(0, productCounts.countByCategory("Books"));
+        verify(productRepository, times(1)).countGroupedByCategory();
+    }
+
+    @Test
+    public void testCounts_AdjustedByProductChanges() {
+        productCounts.countAll();
+
+        productCounts.onProductChanged(ProductChangedEvent.created(createProduct(6L, "Books")));
+        productCounts.onProductChanged(ProductChangedEvent.deleted(1L, "Electronics"));
+        productCounts.onProductChanged(ProductChangedEvent.updated(createProduct(4L, "Books"), "Clothing"));
+        productCounts.onProductChanged(ProductChangedEvent.stockChanged(createProduct(2L, "Electronics")));
+
+        assertEquals(5, productCounts.countAll());
+        assertEquals(2, productCounts.countByCategory("Electronics"));
+        assertEquals(1, productCounts.countByCategory("Clothing"));
+        assertEquals(2, productCounts.countByCategory("Books"));
+        verify(productRepository, times(1)).countGroupedByCategory();
+    }
+
+    @Test
+    public void testCounts_ReloadedAfterClear() {
+        productCounts.countAll();
+        productCounts.clear();
+        productCounts.countAll();
+
+        verify(productRepository, times(2)).countGroupedByCategory();
+    }
+
+    @Test
+    public void testCountSearchResults_CachedIgnoringCase() {
+        when(productRepository.countSearchResults("desk")).thenReturn(7L);
+
+        assertEquals(7, productCounts.countSearchResults("desk", () -> productRepository.countSearchResults("desk")));
+        assertEquals(7, productCounts.countSearchResults("Desk", () -> productRepository.countSearchResults("Desk")));
+        verify(productRepository, times(1)).countSearchResults(anyString());
+    }
+}
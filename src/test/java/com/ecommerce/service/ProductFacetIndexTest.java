@@ -0,0 +1,95 @@
+package com.ecommerce.service;
+
+import com.ecommerce.event.ProductChangedEvent;
+import com.ecommerce.model.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ProductFacetIndex.
+ */
+public class ProductFacetIndexTest {
+
+    private ProductFacetIndex facetIndex;
+
+    @BeforeEach
+    public void setUp() {
+        facetIndex = new ProductFacetIndex(Arrays.asList(new BigDecimal("50"), new BigDecimal("100")));
+        facetIndex.onProductChanged(ProductChangedEvent.created(createProduct(1L, "Electronics", "29.99", 5)));
+        facetIndex.onProductChanged(ProductChangedEvent.created(createProduct(2L, "Electronics", "199.99", 0)));
+        facetIndex.onProductChanged(ProductChangedEvent.created(createProduct(3L, "Clothing", "19.99", 10)));
+        facetIndex.onProductChanged(ProductChangedEvent.created(createProduct(4L, "Clothing", "79.99", 3)));
+    }
+
+    private Product createProduct(Long id, String category, String price, int stock) {
+        Product product = new Product("Product " + id, null, new BigDecimal(price), stock, category);
+        product.setProductId(id);
+        return product;
+    }
+
+    @Test
+    public void testGetPriceBands() {
+        assertEquals(Arrays.asList("0-50", "50-100", "100+"), facetIndex.getPriceBands());
+    }
+
+    @Test
+    public void testFilter_CombinesFiltersNewestFirst() {
+        ProductFacetIndex.Result result = facetIndex.filter(List.of(), List.of("0-50", "50-100"), true, 0, 10);
+
+        assertEquals(3, result.getTotal());
+        assertEquals(Arrays.asList(4L, 3L, 1L), result.getProductIds());
+
+        result = facetIndex.filter(List.of("Clothing"), List.of(), true, 1, 1);
+        assertEquals(2, result.getTotal());
+        assertEquals(List.of(3L), result.getProductIds());
+    }
+
+    @Test
+    public void testFilter_FacetCountsIgnoreOwnFilter() {
+        ProductFacetIndex.Result result = facetIndex.filter(List.of("Electronics"), List.of(), true, 0, 10);
+
+        Map<String, Map<String, Long>> facets = result.getFacets();
+        assertEquals(1L, facets.get(ProductFacetIndex.CATEGORY).get("Electronics"));
+        assertEquals(2L, facets.get(ProductFacetIndex.CATEGORY).get("Clothing"));
+        assertEquals(1L, facets.get(ProductFacetIndex.PRICE_BAND).get("0-50"));
+        assertEquals(0L, facets.get(ProductFacetIndex.PRICE_BAND).get("100+"));
+        assertEquals(1L, facets.get(ProductFacetIndex.IN_STOCK).get("true"));
+        assertEquals(1L, facets.get(ProductFacetIndex.IN_STOCK).get("false"));
+    }
+
+    @Test
+    public void testFilter_UnknownPriceBand() {
+        assertThrows(IllegalArgumentException.class,
+                () -> facetIndex.filter(List.of(), List.of("1-2"), null, 0, 10));
+    }
+
+    @Test
+    public void testIndex_ProductIdsBeyondIntRange() {
+        long id = Integer.MAX_VALUE + 10L;
+        facetIndex.onProductChanged(ProductChangedEvent.created(createProduct(id, "Clothing", "9.99", 0)));
+
+        ProductFacetIndex.Result result = facetIndex.filter(List.of("Clothing"), List.of(), false, 0, 10);
+
+        assertEquals(List.of(id), result.getProductIds());
+        assertEquals(1L, result.getFacets().get(ProductFacetIndex.IN_STOCK).get("false"));
+        assertEquals(2L, result.getFacets().get(ProductFacetIndex.IN_STOCK).get("true"));
+    }
+
+    @Test
+    public void testOnProductChanged_TracksStockAndDeletes() {
+        Product sold = createProduct(1L, "Electronics", "29.99", 0);
+        facetIndex.onProductChanged(ProductChangedEvent.stockChanged(sold));
+        assertEquals(0, facetIndex.filter(List.of("Electronics"), List.of(), true, 0, 10).getTotal());
+
+        facetIndex.onProductChanged(ProductChangedEvent.deleted(3L, "Clothing"));
+        ProductFacetIndex.Result result = facetIndex.filter(List.of("Clothing"), List.of(), null, 0, 10);
+        assertEquals(List.of(4L), result.getProductIds());
+    }
+}
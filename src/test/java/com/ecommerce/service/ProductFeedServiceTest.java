@@ -0,0 +1,138 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.ProductFeedResult;
+import com.ecommerce.model.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for ProductFeedService.
+ */
+@ExtendWith(MockitoExtension.class)
+public class ProductFeedServiceTest {
+
+    @Mock
+    private ProductService productService;
+
+    @TempDir
+    private Path feedDirectory;
+
+    private ProductFeedService feedService;
+
+    @BeforeEach
+    public void setUp() {
+        feedService = new ProductFeedService(productService, "https://shop.example.com/", "usd",
+                feedDirectory.toString(), 60);
+    }
+
+    private Product createProduct(Long id, String name, String description, int stock) {
+        Product product = new Product(name, description, new BigDecimal("19.99"), stock, "Home");
+        product.setProductId(id);
+        return product;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void stubAllProducts(Product... products) {
+        doAnswer(invocation -> {
+            Consumer<Product> action = invocation.getArgument(0);
+            for (Product product : products) {
+                action.accept(product);
+            }
+            return (long) products.length;
+        }).when(productService).streamAllProducts(any(Consumer.class));
+    }
+
+    private static String gunzip(InputStream input) throws IOException {
+        try (GZIPInputStream gzip = new GZIPInputStream(input)) {
+            return new String(gzip.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    public void testWriteFeed_Csv() throws Exception {
+        stubAllProducts(createProduct(1L, "Desk Lamp", "Warm, \"dimmable\" light", 5),
+                createProduct(2L, "Rug", null, 0));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        long count = feedService.writeFeed(output, ProductFeedService.Format.CSV, null);
+
+        String[] lines = gunzip(new ByteArrayInputStream(output.toByteArray())).split("\n");
+        assertEquals(2, count);
+        assertEquals("id,title,description,link,image_link,price,availability,product_type,updated_at", lines[0]);
+        assertEquals("1,Desk Lamp,\"Warm, \"\"dimmable\"\" light\",https://shop.example.com/products/1,,"
+                + "19.99 USD,in_stock,Home,", lines[1]);
+        assertEquals("2,Rug,,https://shop.example.com/products/2,,19.99 USD,out_of_stock,Home,", lines[2]);
+    }
+
+    @Test
+    public void testWriteFeed_Xml() throws Exception {
+        stubAllProducts(createProduct(1L, "Lamp & Shade", "<b>Bright</b>", 5));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        feedService.writeFeed(output, ProductFeedService.Format.XML, null);
+
+        String xml = gunzip(new ByteArrayInputStream(output.toByteArray()));
+        assertTrue(xml.contains("xmlns:g=\"http://base.google.com/ns/1.0\""));
+        assertTrue(xml.contains("<g:title>Lamp &amp; Shade</g:title>"));
+        assertTrue(xml.contains("<g:description>&lt;b&gt;Bright&lt;/b&gt;</g:description>"));
+        assertTrue(xml.contains("<g:availability>in_stock</g:availability>"));
+        assertTrue(xml.endsWith("</channel></rss>"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testWriteFeed_IncrementalStreamsChangedProductsOnly() throws Exception {
+        LocalDateTime since = LocalDateTime.of(2024, 1, 1, 0, 0);
+        when(productService.streamProductsUpdatedSince(eq(since), any(Consumer.class))).thenReturn(0L);
+
+        feedService.writeFeed(new ByteArrayOutputStream(), ProductFeedService.Format.CSV, since);
+
+        verify(productService, never()).streamAllProducts(any(Consumer.class));
+        assertEquals("products-since-20240101T000000.csv.gz",
+                feedService.getFileName(ProductFeedService.Format.CSV, since));
+    }
+
+    @Test
+    public void testWriteFeedFile() throws Exception {
+        stubAllProducts(createProduct(1L, "Desk Lamp", null, 5));
+
+        ProductFeedResult result = feedService.writeFeedFile(ProductFeedService.Format.XML, null);
+
+        assertEquals("products.xml.gz", result.getFileName());
+        assertEquals(1, result.getProducts());
+        assertTrue(result.getWatermark().isBefore(LocalDateTime.now()));
+        Path file = feedDirectory.resolve("products.xml.gz");
+        assertEquals(Files.size(file), result.getBytes());
+        assertTrue(gunzip(Files.newInputStream(file)).contains("<g:id>1</g:id>"));
+        try (var files = Files.list(feedDirectory)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    public void testFormatFromName() {
+        assertEquals(ProductFeedService.Format.CSV, ProductFeedService.Format.fromName("CSV"));
+        assertThrows(IllegalArgumentException.class, () -> ProductFeedService.Format.fromName("json"));
+    }
+}
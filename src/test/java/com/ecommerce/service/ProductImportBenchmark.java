@@ -0,0 +1,77 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.ProductImportResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Measures bulk import throughput for a generated CSV catalog.
+ * Disabled by default; run with {@code mvn test -Dtest=ProductImportBenchmark -Dbenchmark=true}
+ * and optionally {@code -Dbenchmark.import.rows=...} (default 200,000),
+ * {@code -Dbenchmark.import.warmup-rows=...} (default 100,000, imported untimed first so the
+ * measured run is not dominated by JIT compilation) and
+ * {@code -Dbenchmark.import.min-rows-per-second=...} (default 20,000). Runs against in-memory H2
+ * unless {@code -Dbenchmark.jdbc.url}, {@code .user} and {@code .password} point at a database
+ * that already has the products table, e.g. a local MySQL with {@code rewriteBatchedStatements=true}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class ProductImportBenchmark {
+
+    @Test
+    public void benchmarkCsvImport() throws Exception {
+        int rows = Integer.getInteger("benchmark.import.rows", 200_000);
+        int warmupRows = Integer.getInteger("benchmark.import.warmup-rows", 100_000);
+        long minRowsPerSecond = Long.getLong("benchmark.import.min-rows-per-second", 20_000);
+        String url = System.getProperty("benchmark.jdbc.url");
+
+        DriverManagerDataSource dataSource = url != null
+                ? new DriverManagerDataSource(url, System.getProperty("benchmark.jdbc.user"),
+                        System.getProperty("benchmark.jdbc.password"))
+                : new DriverManagerDataSource("jdbc:h2:mem:import_benchmark;DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        if (url == null) {
+            jdbcTemplate.execute("CREATE TABLE products (product_id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                    + "name VARCHAR(255) NOT NULL, description CLOB, price DECIMAL(10,2) NOT NULL, "
+                    + "stock_quantity INT, category VARCHAR(100), image_url VARCHAR(500), "
+                    + "created_at TIMESTAMP, updated_at TIMESTAMP)");
+            jdbcTemplate.execute("CREATE TABLE product_stock_shards (product_id BIGINT, shard_no INT, quantity INT, "
+                    + "PRIMARY KEY (product_id, shard_no))");
+        }
+        ProductImportService importService = new ProductImportService(jdbcTemplate,
+                new DataSourceTransactionManager(dataSource), Validation.buildDefaultValidatorFactory(),
+                new ObjectMapper(), mock(ApplicationEventPublisher.class), mock(InventoryLedger.class), 1000);
+
+        if (warmupRows > 0) {
+            importService.importCsv(new ByteArrayInputStream(catalogCsv(warmupRows)));
+        }
+        ProductImportResult result = importService.importCsv(new ByteArrayInputStream(catalogCsv(rows)));
+
+        System.out.printf("Imported %,d rows in %,d ms: %,d rows/s%n",
+                result.getInserted(), result.getElapsedMillis(), result.getRowsPerSecond());
+        assertEquals(rows, result.getInserted());
+        assertTrue(result.getRowsPerSecond() >= minRowsPerSecond,
+                "Import throughput " + result.getRowsPerSecond() + " rows/s is below " + minRowsPerSecond);
+    }
+
+    private static byte[] catalogCsv(int rows) {
+        StringBuilder csv = new StringBuilder("name,description,price,stockQuantity,category\n");
+        for (int i = 0; i < rows; i++) {
+            csv.append("Product ").append(i).append(",\"Imported product, number ").append(i).append("\",")
+                    .append(10 + i % 500).append(".99,").append(i % 100).append(",Category ").append(i % 40).append('\n');
+        }
+        return csv.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,169 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.ProductImportResult;
+import com.ecommerce.event.ProductsImportedEvent;
+import com.ecommerce.model.StockMovement;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for ProductImportService, run against an in-memory H2 database.
+ */
+@ExtendWith(MockitoExtension.class)
+public class ProductImportServiceTest {
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private InventoryLedger inventoryLedger;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private ProductImportService importService;
+
+    @BeforeEach
+    public void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE products (product_id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                + "name VARCHAR(255) NOT NULL, description CLOB, price DECIMAL(10,2) NOT NULL, "
+                + "stock_quantity INT, category VARCHAR(100), image_url VARCHAR(500), "
+                + "created_at TIMESTAMP, updated_at TIMESTAMP)");
+        jdbcTemplate.execute("CREATE TABLE product_stock_shards (product_id BIGINT, shard_no INT, quantity INT, "
+                + "PRIMARY KEY (product_id, shard_no))");
+        importService = new ProductImportService(jdbcTemplate, new DataSourceTransactionManager(dataSource),
+                Validation.buildDefaultValidatorFactory(), new ObjectMapper(), eventPublisher,
+                inventoryLedger, 2);
+    }
+
+    private static InputStream input(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private long countProducts() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM products", Long.class);
+    }
+
+    @Test
+    public void testImportCsv_InsertsValidRowsAndReportsInvalidOnes() throws Exception {
+        String csv = "name,price,stock_quantity,category,description\n"
+                + "Desk Lamp,29.99,5,Home,\"Warm light, dimmable\"\n"
+                + ",10.00,1,Home,\n"
+                + "Chair,not-a-price,1,Home,\n"
+                + "Table,199.00,2,Home\n"
+                + "Rug,89.50,,Home,\"Wool \"\"Persian\"\" style\"\n";
+
+        ProductImportResult result = importService.importCsv(input(csv));
+
+        assertEquals(5, result.getRowsRead());
+        assertEquals(2, result.getInserted());
+        assertEquals(3, result.getFailed());
+        assertEquals(2, result.getErrors().get(0).getRow());
+        assertEquals("Product name is required", result.getErrors().get(0).getMessage());
+        assertEquals("Invalid price: not-a-price", result.getErrors().get(1).getMessage());
+        assertEquals(4, result.getErrors().get(2).getRow());
+        assertEquals(2, countProducts());
+        assertEquals("Wool \"Persian\" style", jdbcTemplate.queryForObject(
+                "SELECT description FROM products WHERE name = 'Rug'", String.class));
+        verify(eventPublisher).publishEvent(any(ProductsImportedEvent.class));
+    }
+
+    @Test
+    public void testImportCsv_UnknownColumn() {
+        assertThrows(IllegalArgumentException.class, () -> importService.importCsv(input("name,price,colour\n")));
+    }
+
+    @Test
+    public void testImportNdjson_UpdatesRowsWithProductId() throws Exception {
+        jdbcTemplate.update("INSERT INTO products (name, price, stock_quantity) VALUES ('Old Name', 5.00, 1)");
+        Long productId = jdbcTemplate.queryForObject("SELECT product_id FROM products", Long.class);
+        String ndjson = "{\"productId\":" + productId + ",\"name\":\"New Name\",\"price\":7.50,\"stockQuantity\":3}\n"
+                + "{\"productId\":999,\"name\":\"Ghost\",\"price\":1.00}\n"
+                + "{\"name\":\"Fresh\",\"price\":2.00}\n"
+                + "{not json}\n";
+
+        ProductImportResult result = importService.importNdjson(input(ndjson));
+
+        assertEquals(4, result.getRowsRead());
+        assertEquals(1, result.getInserted());
+        assertEquals(1, result.getUpdated());
+        assertEquals(2, result.getFailed());
+        assertEquals("Product not found: 999", result.getErrors().get(0).getMessage());
+        assertTrue(result.getErrors().get(1).getMessage().startsWith("Malformed JSON"));
+        assertEquals(new BigDecimal("7.50"), jdbcTemplate.queryForObject(
+                "SELECT price FROM products WHERE product_id = ?", BigDecimal.class, productId));
+        verify(inventoryLedger).record(Map.of(productId, 3), StockMovement.Type.IMPORT, null);
+        verify(inventoryLedger).record(Map.of(productId + 1, 0), StockMovement.Type.IMPORT, null);
+    }
+
+    @Test
+    public void testImportCsv_DatabaseErrorRejectsOnlyTheBadRow() throws Exception {
+        String csv = "name,price,category\n"
+                + "Lamp,10.00,Home\n"
+                + "Sofa,20.00," + "x".repeat(150) + "\n";
+
+        ProductImportResult result = importService.importCsv(input(csv));
+
+        assertEquals(1, result.getInserted());
+        assertEquals(1, result.getFailed());
+        assertEquals(2, result.getErrors().get(0).getRow());
+        assertEquals(1, countProducts());
+    }
+
+    @Test
+    public void testImportNdjson_NothingWrittenPublishesNoEvent() throws Exception {
+        ProductImportResult result = importService.importNdjson(input("{\"name\":\"\",\"price\":0}\n"));
+
+        assertEquals(1, result.getFailed());
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    public void testImport_UpdateRowsOnlyChangeSuppliedFields() throws Exception {
+        jdbcTemplate.update("INSERT INTO products (name, description, price, stock_quantity, category, image_url) "
+                + "VALUES ('Lamp', 'Warm light', 5.00, 7, 'Home', 'lamp.png')");
+        Long productId = jdbcTemplate.queryForObject("SELECT product_id FROM products", Long.class);
+        jdbcTemplate.update("INSERT INTO product_stock_shards VALUES (?, 0, 4)", productId);
+
+        ProductImportResult csv = importService.importCsv(input("productId,name,price,description\n"
+                + productId + ",Desk Lamp,6.50,\n"));
+        ProductImportResult ndjson = importService.importNdjson(input(
+                "{\"productId\":" + productId + ",\"imageUrl\":null}\n"
+                        + "{\"productId\":" + productId + "}\n"));
+
+        assertEquals(1, csv.getUpdated());
+        assertEquals(1, ndjson.getUpdated());
+        assertEquals("No fields to update", ndjson.getErrors().get(0).getMessage());
+        Map<String, Object> row = jdbcTemplate.queryForMap("SELECT * FROM products WHERE product_id = ?", productId);
+        assertEquals("Desk Lamp", row.get("NAME"));
+        assertEquals("Warm light", row.get("DESCRIPTION"));
+        assertEquals(new BigDecimal("6.50"), row.get("PRICE"));
+        assertEquals(7, row.get("STOCK_QUANTITY"));
+        assertEquals("Home", row.get("CATEGORY"));
+        assertNull(row.get("IMAGE_URL"));
+        assertEquals(4, jdbcTemplate.queryForObject("SELECT quantity FROM product_stock_shards", Integer.class));
+        verify(inventoryLedger, times(2)).record(Map.of(), StockMovement.Type.IMPORT, null);
+    }
+}
@@ -0,0 +1,175 @@
+package com.ecommerce.service;
+
+import com.ecommerce.event.ProductChangedEvent;
+import com.ecommerce.model.Product;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares the in-memory search index against the repository's LIKE query on a large catalog,
+ * and checks that a first page of fuzzy search results stays within a latency budget.
+ * Disabled by default; run with {@code mvn test -Dtest=ProductSearchBenchmark -Dbenchmark=true}
+ * and optionally {@code -Dbenchmark.catalog.size=...} (default 1,000,000) and
+ * {@code -Dbenchmark.fuzzy.p99-ms=...} (default 50).
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class ProductSearchBenchmark {
+
+    private static final String[] WORDS = buildVocabulary(5000);
+    private static final String[] QUERIES = {"wireless", "headphones", "cotton shirt", "steel", "organic"};
+    private static final int ITERATIONS = 20;
+    private static final int FUZZY_QUERIES = 1000;
+    private static final int PAGE_SIZE = 20;
+
+    @Test
+    public void benchmarkSearch() throws Exception {
+        int catalogSize = Integer.getInteger("benchmark.catalog.size", 1_000_000);
+        ProductSearchIndex searchIndex = new ProductSearchIndex(true);
+        Random random = new Random(42);
+
+        try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:search_benchmark")) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("CREATE TABLE products (product_id BIGINT PRIMARY KEY, name VARCHAR(255), "
+                        + "description CLOB, category VARCHAR(100))");
+            }
+
+            long loadStart = System.nanoTime();
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "INSERT INTO products VALUES (?, ?, ?, ?)")) {
+                for (long id = 1; id <= catalogSize; id++) {
+                    Product product = new Product(phrase(random, 3), phrase(random, 20),
+                            BigDecimal.TEN, 1, WORDS[random.nextInt(50)]);
+                    product.setProductId(id);
+                    searchIndex.onProductChanged(ProductChangedEvent.created(product));
+
+                    insert.setLong(1, id);
+                    insert.setString(2, product.getName());
+                    insert.setString(3, product.getDescription());
+                    insert.setString(4, product.getCategory());
+                    insert.addBatch();
+                    if (id % 10_000 == 0) {
+                        insert.executeBatch();
+                    }
+                }
+                insert.executeBatch();
+            }
+            System.out.printf("Loaded %,d products in %d ms%n", catalogSize,
+                    (System.nanoTime() - loadStart) / 1_000_000);
+
+            try (PreparedStatement like = connection.prepareStatement(
+                    "SELECT product_id FROM products WHERE LOWER(name) LIKE ? OR LOWER(description) LIKE ?")) {
+                for (String query : QUERIES) {
+                    long likeNanos = 0;
+                    long indexNanos = 0;
+                    int likeHits = 0;
+                    int indexHits = 0;
+                    for (int i = 0; i < ITERATIONS; i++) {
+                        long start = System.nanoTime();
+                        like.setString(1, "%" + query + "%");
+                        like.setString(2, "%" + query + "%");
+                        likeHits = 0;
+                        try (ResultSet rs = like.executeQuery()) {
+                            while (rs.next()) {
+                                likeHits++;
+                            }
+                        }
+                        likeNanos += System.nanoTime() - start;
+
+                        start = System.nanoTime();
+                        indexHits = searchIndex.search(query).size();
+                        indexNanos += System.nanoTime() - start;
+                    }
+                    System.out.printf("%-14s LIKE: %8.2f ms (%,d hits)   index: %8.2f ms (%,d hits)%n", query,
+                            likeNanos / 1e6 / ITERATIONS, likeHits, indexNanos / 1e6 / ITERATIONS, indexHits);
+                }
+            }
+        }
+        assertFalse(searchIndex.search(QUERIES[0]).isEmpty());
+
+        benchmarkFuzzySearch(searchIndex, random);
+    }
+
+    private void benchmarkFuzzySearch(ProductSearchIndex searchIndex, Random random) {
+        long budgetMillis = Long.getLong("benchmark.fuzzy.p99-ms", 50);
+        long[] nanos = new long[FUZZY_QUERIES];
+        int found = 0;
+        for (int i = 0; i < FUZZY_QUERIES; i++) {
+            String query = typo(WORDS[(int) (WORDS.length * Math.pow(random.nextDouble(), 3))], random);
+            long start = System.nanoTime();
+            if (searchIndex.search(query, true, 0, PAGE_SIZE).getTotal() > 0) {
+                found++;
+            }
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        double p50 = nanos[FUZZY_QUERIES / 2] / 1e6;
+        double p99 = nanos[FUZZY_QUERIES * 99 / 100] / 1e6;
+        System.out.printf("fuzzy (1 typo) p50: %.2f ms   p99: %.2f ms   (%d/%d queries matched)%n",
+                p50, p99, found, FUZZY_QUERIES);
+        assertTrue(p99 <= budgetMillis, "fuzzy search p99 " + p99 + " ms exceeds " + budgetMillis + " ms");
+    }
+
+    /**
+     * Apply one random edit (substitution, deletion, insertion or transposition) to a word.
+     */
+    private static String typo(String word, Random random) {
+        StringBuilder sb = new StringBuilder(word);
+        int pos = random.nextInt(word.length() - 1);
+        char letter = (char) ('a' + random.nextInt(26));
+        switch (random.nextInt(4)) {
+            case 0 -> sb.setCharAt(pos, letter);
+            case 1 -> sb.deleteCharAt(pos);
+            case 2 -> sb.insert(pos, letter);
+            default -> {
+                sb.setCharAt(pos, word.charAt(pos + 1));
+                sb.setCharAt(pos + 1, word.charAt(pos));
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String phrase(Random random, int words) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                sb.append(' ');
+            }
+            // Skew word choice so a few words are common and most are rare, as in real catalogs
+            int index = (int) (WORDS.length * Math.pow(random.nextDouble(), 3));
+            sb.append(WORDS[index]);
+        }
+        return sb.toString();
+    }
+
+    private static String[] buildVocabulary(int size) {
+        String[] seeds = {"wireless", "headphones", "cotton", "shirt", "steel", "organic", "leather",
+                "bluetooth", "portable", "kitchen", "garden", "running", "shoes", "laptop", "stand"};
+        String[] words = new String[size];
+        Random random = new Random(7);
+        for (int i = 0; i < size; i++) {
+            if (i < seeds.length) {
+                words[i] = seeds[i];
+            } else {
+                StringBuilder sb = new StringBuilder();
+                int length = 4 + random.nextInt(6);
+                for (int c = 0; c < length; c++) {
+                    sb.append((char) ('a' + random.nextInt(26)));
+                }
+                words[i] = sb.toString();
+            }
+        }
+        return words;
+    }
+}
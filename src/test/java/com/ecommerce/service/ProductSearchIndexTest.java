@@ -0,0 +1,226 @@
+package com.ecommerce.service;
+
+import com.ecommerce.event.ProductChangedEvent;
+import com.ecommerce.model.Product;
+import com.ecommerce.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for ProductSearchIndex.
+ */
+@ExtendWith(MockitoExtension.class)
+public class ProductSearchIndexTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    private ProductSearchIndex searchIndex;
+    private CatalogIndexes catalogIndexes;
+
+    @BeforeEach
+    public void setUp() {
+        searchIndex = new ProductSearchIndex(true);
+        catalogIndexes = new CatalogIndexes(new CatalogScanner(productRepository), List.of(searchIndex));
+    }
+
+    private Product createProduct(Long id, String name, String description, String category) {
+        Product product = new Product(name, description, new BigDecimal("10.00"), 5, category);
+        product.setProductId(id);
+        return product;
+    }
+
+    @Test
+    public void testRebuild() {
+        when(productRepository.findByProductIdGreaterThanOrderByProductIdAsc(eq(0L), any(Pageable.class)))
+                .thenReturn(Arrays.asList(
+                        createProduct(1L, "Wireless Headphones", "Noise cancelling", "Electronics"),
+                        createProduct(2L, "Cotton T-Shirt", "Soft cotton", "Clothing")));
+
+        assertFalse(searchIndex.isReady());
+        catalogIndexes.rebuild();
+
+        assertTrue(searchIndex.isReady());
+        assertEquals(2, searchIndex.size());
+        assertEquals(List.of(1L), searchIndex.search("headphones"));
+    }
+
+    @Test
+    public void testSearch_RanksNameMatchesFirst() {
+        searchIndex.onProductChanged(ProductChangedEvent.created(
+                createProduct(1L, "Laptop Stand", "Holds a laptop", "Accessories")));
+        searchIndex.onProductChanged(ProductChangedEvent.created(
+                createProduct(2L, "Desk Lamp", "Bright enough for a laptop desk", "Home")));
+
+        assertEquals(Arrays.asList(1L, 2L), searchIndex.search("laptop"));
+    }
+
+    @Test
+    public void testSearch_AllTermsMustMatch() {
+        searchIndex.onProductChanged(ProductChangedEvent.created(
+                createProduct(1L, "Wireless Mouse", null, "Electronics")));
+        searchIndex.onProductChanged(ProductChangedEvent.created(
+                createProduct(2L, "Wired Mouse", null, "Electronics")));
+
+        assertEquals(List.of(1L), searchIndex.search("wireless mouse"));
+    }
+
+    @Test
+    public void testSearch_MatchesPrefix() {
+        searchIndex.onProductChanged(ProductChangedEvent.created(
+                createProduct(1L, "Wireless Headphones", null, "Electronics")));
+
+        assertEquals(List.of(1L), searchIndex.search("headph"));
+        assertEquals(Collections.emptyList(), searchIndex.search("phones"));
+    }
+
+    @Test
+    public void testSearch_PageMatchesFullRanking() {
+        for (long id = 1; id <= 50; id++) {
+            String name = "Lamp " + "shade ".repeat((int) (id % 7));
+            searchIndex.onProductChanged(ProductChangedEvent.created(
+                    createProduct(id, name, "Lamp number " + id, "Home")));
+        }
+        List<Long> ranking = searchIndex.search("lamp");
+        assertEquals(50, ranking.size());
+
+        ProductSearchIndex.Result page = searchIndex.search("lamp", false, 10, 10);
+
+        assertEquals(50, page.getTotal());
+        assertEquals(ranking.subList(10, 20), page.getProductIds());
+        assertEquals(ranking.subList(45, 50), searchIndex.search("lamp", false, 45, 10).getProductIds());
+        assertTrue(searchIndex.search("lamp", false, 60, 10).getProductIds().isEmpty());
+    }
+
+    @Test
+    public void testSearch_FuzzyToleratesTypos() {
+        searchIndex.onProductChanged(ProductChangedEvent.created(
+                createProduct(1L, "Wireless Headphones", null, "Electronics")));
+        searchIndex.onProductChanged(ProductChangedEvent.created(createProduct(2L, "Headband", null, "Accessories")));
+
+        assertTrue(searchIndex.search("hedphones").isEmpty());
+        assertEquals(List.of(1L), searchIndex.search("hedphones", true));
+        assertEquals(List.of(1L), searchIndex.search("wirelses headphnoes", true));
+        assertTrue(searchIndex.search("xyzzy", true).isEmpty());
+    }
+
+    @Test
+    public void testSearch_FuzzyRanksExactMatchesFirst() {
+        searchIndex.onProductChanged(ProductChangedEvent.created(createProduct(1L, "Leather Boots", null, "Shoes")));
+        searchIndex.onProductChanged(ProductChangedEvent.created(createProduct(2L, "Leather Boats", null, "Toys")));
+
+        assertEquals(Arrays.asList(1L, 2L), searchIndex.search("boots", true));
+    }
+
+    @Test
+    public void testEditDistance() {
+        assertEquals(0, ProductSearchIndex.editDistance("shoe", "shoe", 2));
+        assertEquals(1, ProductSearchIndex.editDistance("hedphones", "headphones", 2));
+        assertEquals(1, ProductSearchIndex.editDistance("sohe", "shoe", 2));
+        assertEquals(3, ProductSearchIndex.editDistance("laptop", "desk", 2));
+    }
+
+    @Test
+    public void testOnProductChanged_UpdatesAndRemoves() {
+        Product product = createProduct(1L, "Running Shoes", null, "Sports");
+        searchIndex.onProductChanged(ProductChangedEvent.created(product));
+
+        product.setName("Trail Boots");
+        searchIndex.onProductChanged(ProductChangedEvent.updated(product, "Sports"));
+        assertTrue(searchIndex.search("running").isEmpty());
+        assertEquals(List.of(1L), searchIndex.search("boots"));
+
+        searchIndex.onProductChanged(ProductChangedEvent.deleted(1L, "Sports"));
+        assertTrue(searchIndex.search("boots").isEmpty());
+        assertEquals(0, searchIndex.size());
+    }
+
+    @Test
+    public void testOnProductChanged_RenumbersDocumentsKeepingOrder() {
+        for (long id = 1; id <= 3; id++) {
+            searchIndex.onProductChanged(ProductChangedEvent.created(createProduct(id, "Desk Lamp", null, "Home")));
+        }
+
+        // Every change indexes a new document; enough of them trigger renumbering several times
+        Product product = createProduct(1L, "Desk Lamp", null, "Home");
+        for (int i = 0; i < 3000; i++) {
+            searchIndex.onProductChanged(ProductChangedEvent.updated(product, "Home"));
+        }
+        assertEquals(Arrays.asList(1L, 3L, 2L), searchIndex.search("lamp"));
+
+        searchIndex.onProductChanged(ProductChangedEvent.updated(createProduct(2L, "Desk Lamp", null, "Home"), "Home"));
+        assertEquals(Arrays.asList(2L, 1L, 3L), searchIndex.search("lamp"));
+        assertEquals(3, searchIndex.size());
+    }
+
+    @Test
+    public void testRebuild_ReplaysChangesMadeDuringScan() {
+        searchIndex.onProductChanged(ProductChangedEvent.created(
+                createProduct(1L, "Wireless Headphones", null, "Electronics")));
+        Product renamed = createProduct(1L, "Studio Monitors", null, "Electronics");
+        when(productRepository.findByProductIdGreaterThanOrderByProductIdAsc(eq(0L), any(Pageable.class)))
+                .thenAnswer(invocation -> {
+                    // Committed while the scan runs, after it read the old rows
+                    searchIndex.onProductChanged(ProductChangedEvent.updated(renamed, "Electronics"));
+                    searchIndex.onProductChanged(ProductChangedEvent.deleted(2L, "Clothing"));
+                    assertEquals(List.of(1L), searchIndex.search("monitors"));
+                    return Arrays.asList(createProduct(1L, "Wireless Headphones", null, "Electronics"),
+                            createProduct(2L, "Cotton T-Shirt", null, "Clothing"));
+                });
+
+        catalogIndexes.rebuild();
+
+        assertEquals(1, searchIndex.size());
+        assertEquals(List.of(1L), searchIndex.search("monitors"));
+        assertTrue(searchIndex.search("headphones").isEmpty());
+    }
+
+    @Test
+    public void testRebuild_RequestsDuringRebuildAreCoalesced() throws Exception {
+        CountDownLatch scanning = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(productRepository.findByProductIdGreaterThanOrderByProductIdAsc(eq(0L), any(Pageable.class)))
+                .thenAnswer(invocation -> {
+                    scanning.countDown();
+                    release.await();
+                    return Arrays.asList(createProduct(1L, "Wireless Headphones", null, "Electronics"),
+                            createProduct(2L, "Cotton T-Shirt", null, "Clothing"));
+                });
+
+        Thread first = new Thread(catalogIndexes::rebuild);
+        first.start();
+        scanning.await();
+        Thread second = new Thread(catalogIndexes::rebuild);
+        Thread third = new Thread(catalogIndexes::rebuild);
+        second.start();
+        third.start();
+        while (second.getState() != Thread.State.BLOCKED || third.getState() != Thread.State.BLOCKED) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+        first.join();
+        second.join();
+        third.join();
+
+        verify(productRepository, times(2)).findByProductIdGreaterThanOrderByProductIdAsc(eq(0L), any(Pageable.class));
+        assertEquals(2, searchIndex.size());
+        assertEquals(List.of(1L), searchIndex.search("headphones"));
+    }
+}
@@ -1,22 +1,37 @@
 package com.ecommerce.service;
 
+import com.ecommerce.dto.CursorPage;
+import com.ecommerce.dto.ProductCursor;
 import com.ecommerce.dto.ProductDto;
+import com.ecommerce.dto.ProductSummaryDto;
+import com.ecommerce.event.ProductChangedEvent;
 import com.ecommerce.model.Product;
+import com.ecommerce.model.StockMovement;
 import com.ecommerce.repository.ProductRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 /**
@@ -28,6 +43,30 @@ public class ProductServiceTest {
     @Mock
     private ProductRepository productRepository;
 
+    @Mock
+    private ProductSearchIndex searchIndex;
+
+    @Mock
+    private RelatedProductsIndex relatedProductsIndex;
+
+    @Mock
+    private ProductSuggestIndex suggestIndex;
+
+    @Mock
+    private ProductFacetIndex facetIndex;
+
+    @Mock
+    private ProductCounts productCounts;
+
+    @Mock
+    private InventoryLedger inventoryLedger;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Spy
+    private ProductCatalogCache catalogCache = new ProductCatalogCache(100, 100, 60);
+
     @InjectMocks
     private ProductService productService;
 
@@ -40,10 +79,14 @@ public class ProductServiceTest {
         testProduct.setName("Test Product");
         testProduct.setDescription("Test Description");
         testProduct.setPrice(new BigDecimal("99.99"));
-        testProduct.setStockQuantity(100);
+        testProduct.setRowStock(100);
         testProduct.setCategory("Electronics");
     }
 
+    private ProductSummaryDto createSummary(Long id, LocalDateTime createdAt) {
+        return new ProductSummaryDto(id, "Test Product", new BigDecimal("99.99"), null, "Electronics", 100, createdAt);
+    }
+
     @Test
     public void testGetAllProducts() {
         List<Product> products = Arrays.asList(testProduct);
@@ -68,6 +111,17 @@ public class ProductServiceTest {
         verify(productRepository, times(1)).findById(1L);
     }
 
+    @Test
+    public void testGetProductById_Cached() {
+        when(productRepository.findById(1L)).thenReturn(Optional.of(testProduct));
+
+        productService.getProductById(1L);
+        Optional<Product> result = productService.getProductById(1L);
+
+        assertTrue(result.isPresent());
+        verify(productRepository, times(1)).findById(1L);
+    }
+
     @Test
     public void testGetProductById_NotFound() {
         when(productRepository.findById(999L)).thenReturn(Optional.empty());
@@ -79,28 +133,88 @@ public class ProductServiceTest {
     }
 
     @Test
-    public void testGetProductsByCategory() {
-        List<Product> products = Arrays.asList(testProduct);
-        when(productRepository.findByCategory("Electronics")).thenReturn(products);
+    public void testGetProductsAfter_FirstPage() {
+        LocalDateTime newest = LocalDateTime.of(2024, 2, 1, 0, 0);
+        when(productRepository.findNewestSummaries(any(Pageable.class)))
+                .thenReturn(Arrays.asList(createSummary(1L, newest),
+                        createSummary(2L, LocalDateTime.of(2024, 1, 1, 0, 0))));
+
+        CursorPage<ProductSummaryDto> result = productService.getProductsAfter(null, null, 1);
+
+        assertEquals(1, result.getContent().size());
+        assertTrue(result.isHasNext());
+        ProductCursor cursor = ProductCursor.decode(result.getNextCursor());
+        assertEquals(1L, cursor.getProductId());
+        assertEquals(newest, cursor.getCreatedAt());
+    }
 
-        List<Product> result = productService.getProductsByCategory("Electronics");
+    @Test
+    public void testGetProductsAfter_InvalidCursor() {
+        assertThrows(IllegalArgumentException.class, () -> productService.getProductsAfter(null, "not-a-cursor", 10));
+    }
 
-        assertNotNull(result);
-        assertEquals(1, result.size());
-        assertEquals("Electronics", result.get(0).getCategory());
-        verify(productRepository, times(1)).findByCategory("Electronics");
+    @Test
+    public void testGetAllProducts_Paged_UsesCountersInsteadOfCountQuery() {
+        Pageable pageable = PageRequest.of(0, 1);
+        when(productRepository.findAllSummaries(any(Pageable.class)))
+                .thenReturn(new SliceImpl<>(Arrays.asList(createSummary(1L, null)), pageable, true));
+        when(productCounts.countAll()).thenReturn(5L);
+
+        Page<ProductSummaryDto> result = productService.getAllProducts(0, 1);
+
+        assertEquals(5, result.getTotalElements());
+        assertEquals(5, result.getTotalPages());
     }
 
     @Test
-    public void testSearchProducts() {
-        List<Product> products = Arrays.asList(testProduct);
-        when(productRepository.searchProducts("Test")).thenReturn(products);
+    public void testGetProductsByCategory_Paged_LastPageCorrectsStaleCount() {
+        Pageable pageable = PageRequest.of(1, 2);
+        when(productRepository.findSummariesByCategory(eq("Electronics"), any(Pageable.class)))
+                .thenReturn(new SliceImpl<>(Arrays.asList(createSummary(3L, null)), pageable, false));
+        when(productCounts.countByCategory("Electronics")).thenReturn(7L);
 
-        List<Product> result = productService.searchProducts("Test");
+        Page<ProductSummaryDto> result = productService.getProductsByCategory("Electronics", 1, 2);
 
-        assertNotNull(result);
-        assertEquals(1, result.size());
-        verify(productRepository, times(1)).searchProducts("Test");
+        assertEquals(3, result.getTotalElements());
+    }
+
+    @Test
+    public void testSearchProducts_Paged_UsesCachedCount() {
+        Pageable pageable = PageRequest.of(0, 1);
+        when(productRepository.searchSummaries(eq("Test"), any(Pageable.class)))
+                .thenReturn(new SliceImpl<>(Arrays.asList(createSummary(1L, null)), pageable, true));
+        when(productCounts.countSearchResults(eq("Test"), any())).thenReturn(4L);
+
+        Page<ProductSummaryDto> result = productService.searchProducts("Test", 0, 1);
+
+        assertEquals(4, result.getTotalElements());
+        verify(productRepository, never()).countSearchResults(anyString());
+    }
+
+    @Test
+    public void testSearchProducts_CapsPageSize() {
+        when(searchIndex.isReady()).thenReturn(true);
+        when(searchIndex.search("Test", true, 200, 100)).thenReturn(new ProductSearchIndex.Result(List.of(), 500));
+
+        Page<ProductSummaryDto> result = productService.searchProducts("Test", true, 2, 100_000);
+
+        assertEquals(100, result.getSize());
+        assertEquals(500, result.getTotalElements());
+        verify(productRepository, never()).searchSummaries(anyString(), any(Pageable.class));
+    }
+
+    @Test
+    public void testSearchProducts_UsesIndexWhenReady() {
+        when(searchIndex.isReady()).thenReturn(true);
+        when(searchIndex.search("Test", false, 0, 12)).thenReturn(new ProductSearchIndex.Result(Arrays.asList(1L), 1));
+        when(productRepository.findSummariesByIdIn(Arrays.asList(1L)))
+                .thenReturn(Arrays.asList(createSummary(1L, null)));
+
+        Page<ProductSummaryDto> result = productService.searchProducts("Test", 0, 12);
+
+        assertEquals(1, result.getTotalElements());
+        assertEquals("Test Product", result.getContent().get(0).getName());
+        verify(productRepository, never()).searchSummaries(anyString(), any(Pageable.class));
     }
 
     @Test
@@ -118,6 +232,7 @@ public class ProductServiceTest {
 
         assertNotNull(result);
         verify(productRepository, times(1)).save(any(Product.class));
+        verify(eventPublisher, times(1)).publishEvent(any(ProductChangedEvent.class));
     }
 
     @Test
@@ -174,21 +289,24 @@ public class ProductServiceTest {
     @Test
     public void testReduceStock() {
         when(productRepository.findById(1L)).thenReturn(Optional.of(testProduct));
-        when(productRepository.save(any(Product.class))).thenReturn(testProduct);
+        when(productRepository.decrementStock(Map.of(testProduct, 10))).thenReturn(List.of());
 
         productService.reduceStock(1L, 10);
 
         verify(productRepository, times(1)).findById(1L);
-        verify(productRepository, times(1)).save(any(Product.class));
+        verify(productRepository, never()).save(any(Product.class));
+        verify(inventoryLedger).record(1L, StockMovement.Type.ORDER, 10, null);
     }
 
     @Test
     public void testReduceStock_InsufficientStock() {
         when(productRepository.findById(1L)).thenReturn(Optional.of(testProduct));
+        when(productRepository.decrementStock(Map.of(testProduct, 150))).thenReturn(List.of(testProduct));
 
         assertThrows(RuntimeException.class, () -> {
             productService.reduceStock(1L, 150); // More than available stock
         });
+        verifyNoInteractions(inventoryLedger);
     }
 
     @Test
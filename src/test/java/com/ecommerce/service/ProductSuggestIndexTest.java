@@ -0,0 +1,132 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.SuggestionDto;
+import com.ecommerce.event.ProductChangedEvent;
+import com.ecommerce.event.ProductsSoldEvent;
+import com.ecommerce.model.Product;
+import com.ecommerce.repository.OrderItemRepository;
+import com.ecommerce.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for ProductSuggestIndex.
+ */
+@ExtendWith(MockitoExtension.class)
+public class ProductSuggestIndexTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private OrderItemRepository orderItemRepository;
+
+    private ProductSuggestIndex suggestIndex;
+    private CatalogIndexes catalogIndexes;
+
+    @BeforeEach
+    public void setUp() {
+        suggestIndex = new ProductSuggestIndex(orderItemRepository, 10);
+        catalogIndexes = new CatalogIndexes(new CatalogScanner(productRepository), List.of(suggestIndex));
+    }
+
+    private Product createProduct(Long id, String name, String category, int stock) {
+        Product product = new Product(name, null, new BigDecimal("10.00"), stock, category);
+        product.setProductId(id);
+        return product;
+    }
+
+    private List<String> suggestTexts(String prefix) {
+        return suggestIndex.suggest(prefix, 10).stream().map(SuggestionDto::getText).toList();
+    }
+
+    @Test
+    public void testRebuild_WeightsBySales() {
+        when(orderItemRepository.sumQuantityByProduct())
+                .thenReturn(Collections.singletonList(new Object[] {2L, 5L}));
+        when(productRepository.findByProductIdGreaterThanOrderByProductIdAsc(eq(0L), any(Pageable.class)))
+                .thenReturn(Arrays.asList(
+                        createProduct(1L, "Wireless Mouse", "Electronics", 10),
+                        createProduct(2L, "Wireless Headphones", "Electronics", 10)));
+
+        catalogIndexes.rebuild();
+
+        assertTrue(suggestIndex.isReady());
+        assertEquals(Arrays.asList("Wireless Headphones", "Wireless Mouse"), suggestTexts("wire"));
+    }
+
+    @Test
+    public void testSuggest_MatchesWordStartsAndCategories() {
+        suggestIndex.onProductChanged(ProductChangedEvent.created(
+                createProduct(1L, "Wireless Headphones", "Electronics", 10)));
+        suggestIndex.onProductChanged(ProductChangedEvent.created(
+                createProduct(2L, "Leather Wallet", "Accessories", 10)));
+
+        assertEquals(List.of("Wireless Headphones"), suggestTexts("Head"));
+        List<SuggestionDto> categories = suggestIndex.suggest("acc", 10);
+        assertEquals(1, categories.size());
+        assertEquals(SuggestionDto.TYPE_CATEGORY, categories.get(0).getType());
+        assertTrue(suggestTexts("xyz").isEmpty());
+    }
+
+    @Test
+    public void testSuggest_SharedPrefixesAndLimit() {
+        suggestIndex.onProductChanged(ProductChangedEvent.created(createProduct(1L, "Desk Lamp", "Home", 10)));
+        suggestIndex.onProductChanged(ProductChangedEvent.created(createProduct(2L, "Desk Chair", "Home", 10)));
+        suggestIndex.onProductChanged(ProductChangedEvent.created(createProduct(3L, "Desktop Stand", "Home", 10)));
+
+        assertEquals(Arrays.asList("Desk Chair", "Desk Lamp", "Desktop Stand"), suggestTexts("desk"));
+        assertEquals(Arrays.asList("Desk Chair", "Desk Lamp"), suggestTexts("desk "));
+        assertEquals(1, suggestIndex.suggest("desk", 1).size());
+    }
+
+    @Test
+    public void testOnProductsSold_OrdersRaiseAndCancellationsLowerWeight() {
+        Product mouse = createProduct(1L, "Wireless Mouse", "Electronics", 10);
+        suggestIndex.onProductChanged(ProductChangedEvent.created(mouse));
+        suggestIndex.onProductChanged(ProductChangedEvent.created(
+                createProduct(2L, "Wireless Headphones", "Electronics", 10)));
+        assertEquals("Wireless Headphones", suggestTexts("wireless").get(0));
+
+        // A stock change alone is not a sale
+        mouse.setRowStock(2);
+        suggestIndex.onProductChanged(ProductChangedEvent.stockChanged(mouse));
+        assertEquals("Wireless Headphones", suggestTexts("wireless").get(0));
+
+        suggestIndex.onProductsSold(ProductsSoldEvent.orderPlaced(Map.of(1L, 3)));
+        assertEquals("Wireless Mouse", suggestTexts("wireless").get(0));
+
+        suggestIndex.onProductsSold(ProductsSoldEvent.orderCancelled(Map.of(1L, 3)));
+        assertEquals("Wireless Headphones", suggestTexts("wireless").get(0));
+    }
+
+    @Test
+    public void testOnProductChanged_RenameAndDelete() {
+        Product product = createProduct(1L, "Running Shoes", "Sports", 10);
+        suggestIndex.onProductChanged(ProductChangedEvent.created(product));
+
+        product.setName("Trail Boots");
+        suggestIndex.onProductChanged(ProductChangedEvent.updated(product, "Sports"));
+        assertTrue(suggestTexts("run").isEmpty());
+        assertEquals(List.of("Trail Boots"), suggestTexts("boo"));
+
+        suggestIndex.onProductChanged(ProductChangedEvent.deleted(1L, "Sports"));
+        assertTrue(suggestTexts("trail").isEmpty());
+        assertTrue(suggestTexts("sports").isEmpty());
+    }
+}
@@ -0,0 +1,81 @@
+package com.ecommerce.service;
+
+import com.ecommerce.event.ProductChangedEvent;
+import com.ecommerce.model.Product;
+import com.ecommerce.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for RelatedProductsIndex.
+ */
+@ExtendWith(MockitoExtension.class)
+public class RelatedProductsIndexTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    private RelatedProductsIndex relatedIndex;
+
+    @BeforeEach
+    public void setUp() {
+        relatedIndex = new RelatedProductsIndex(2);
+        when(productRepository.findByProductIdGreaterThanOrderByProductIdAsc(eq(0L), any(Pageable.class)))
+                .thenReturn(Arrays.asList(
+                        createProduct(1L, "10.00", "Electronics"),
+                        createProduct(2L, "20.00", "Electronics"),
+                        createProduct(3L, "35.00", "Electronics"),
+                        createProduct(4L, "100.00", "Electronics"),
+                        createProduct(5L, "15.00", "Clothing")));
+        new CatalogIndexes(new CatalogScanner(productRepository), List.of(relatedIndex)).rebuild();
+    }
+
+    private Product createProduct(Long id, String price, String category) {
+        Product product = new Product("Product " + id, null, new BigDecimal(price), 5, category);
+        product.setProductId(id);
+        return product;
+    }
+
+    @Test
+    public void testGetRelated_ClosestPriceInCategory() {
+        assertTrue(relatedIndex.isReady());
+        assertEquals(List.of(1L, 3L), relatedIndex.getRelated(2L));
+        assertEquals(List.of(3L, 2L), relatedIndex.getRelated(4L));
+        assertTrue(relatedIndex.getRelated(5L).isEmpty());
+    }
+
+    @Test
+    public void testOnProductChanged_Created() {
+        relatedIndex.onProductChanged(ProductChangedEvent.created(createProduct(6L, "95.00", "Electronics")));
+
+        assertEquals(List.of(6L, 3L), relatedIndex.getRelated(4L));
+        assertEquals(List.of(4L, 3L), relatedIndex.getRelated(6L));
+    }
+
+    @Test
+    public void testOnProductChanged_CategoryChangedAndDeleted() {
+        Product moved = createProduct(3L, "35.00", "Clothing");
+        relatedIndex.onProductChanged(ProductChangedEvent.updated(moved, "Electronics"));
+
+        assertEquals(List.of(1L, 4L), relatedIndex.getRelated(2L));
+        assertEquals(List.of(3L), relatedIndex.getRelated(5L));
+
+        relatedIndex.onProductChanged(ProductChangedEvent.deleted(3L, "Clothing"));
+
+        assertTrue(relatedIndex.getRelated(5L).isEmpty());
+        assertTrue(relatedIndex.getRelated(3L).isEmpty());
+    }
+}
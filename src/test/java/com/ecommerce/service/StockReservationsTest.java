@@ -0,0 +1,123 @@
+package com.ecommerce.service;
+
+import com.ecommerce.model.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for StockReservations.
+ */
+public class StockReservationsTest {
+
+    private final AtomicLong now = new AtomicLong(1_000);
+    private StockReservations reservations;
+    private Product lamp;
+    private Product rug;
+
+    @BeforeEach
+    public void setUp() {
+        reservations = new StockReservations(true, 60_000, now::get);
+        lamp = createProduct(1L, "Lamp", 10);
+        rug = createProduct(2L, "Rug", 3);
+    }
+
+    private Product createProduct(Long id, String name, int stock) {
+        Product product = new Product(name, null, new BigDecimal("9.99"), stock, "Home");
+        product.setProductId(id);
+        return product;
+    }
+
+    @Test
+    public void testReserve_OtherUsersSeeReducedStock() {
+        reservations.reserve(1L, lamp, 7);
+        reservations.reserve(1L, lamp, 8);
+
+        assertEquals(2, reservations.getAvailableToSell(lamp));
+        assertEquals(10, reservations.getAvailableToSell(1L, lamp));
+        assertEquals(2, reservations.getAvailableToSell(2L, lamp));
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> reservations.reserve(2L, lamp, 3));
+        assertEquals("Insufficient stock for Lamp. Available: 2", e.getMessage());
+    }
+
+    @Test
+    public void testReserveAll_AllOrNothing() {
+        reservations.reserve(1L, lamp, 2);
+        reservations.reserve(2L, rug, 2);
+        Map<Long, Integer> lines = new LinkedHashMap<>();
+        lines.put(1L, 5);
+        lines.put(2L, 2);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> reservations.reserveAll(1L, lines, Map.of(1L, lamp, 2L, rug)));
+
+        assertEquals(2, reservations.getReserved(1L));
+        assertEquals(2, reservations.getReserved(2L));
+    }
+
+    @Test
+    public void testReserve_RollbackRestoresPreviousHold() {
+        reservations.reserve(1L, lamp, 2);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            reservations.reserve(1L, lamp, 6);
+            assertEquals(6, reservations.getReserved(1L));
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertEquals(2, reservations.getReserved(1L));
+    }
+
+    @Test
+    public void testExpire_ReleasesOnlyCurrentHolds() {
+        reservations.reserve(1L, lamp, 4);
+        now.addAndGet(30_000);
+        reservations.reserve(1L, lamp, 5);
+        reservations.reserve(2L, rug, 1);
+
+        now.addAndGet(31_000);
+        assertEquals(0, reservations.expire());
+        assertEquals(5, reservations.getReserved(1L));
+
+        now.addAndGet(30_000);
+        assertEquals(2, reservations.expire());
+        assertEquals(0, reservations.getReserved(1L));
+        assertEquals(0, reservations.getReserved(2L));
+    }
+
+    @Test
+    public void testRelease() {
+        reservations.reserve(1L, lamp, 4);
+        reservations.reserve(2L, lamp, 3);
+
+        reservations.release(1L, List.of(1L, 2L));
+
+        assertEquals(3, reservations.getReserved(1L));
+        assertEquals(0, reservations.expire());
+    }
+
+    @Test
+    public void testDisabled_ChecksStockOnly() {
+        StockReservations disabled = new StockReservations(false, 60_000, now::get);
+
+        disabled.reserve(1L, rug, 3);
+        disabled.reserve(2L, rug, 3);
+
+        assertEquals(0, disabled.getReserved(2L));
+        assertThrows(IllegalArgumentException.class, () -> disabled.reserve(1L, rug, 4));
+    }
+}
@@ -0,0 +1,142 @@
+package com.ecommerce.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for WriteBehindCartStore against an in-memory H2 database.
+ */
+public class WriteBehindCartStoreTest {
+
+    private static final Long USER_ID = 1L;
+
+    private JdbcTemplate jdbcTemplate;
+    private DataSourceTransactionManager transactionManager;
+    private WriteBehindCartStore cartStore;
+
+    @BeforeEach
+    public void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:cart_store;DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionManager = new DataSourceTransactionManager(dataSource);
+        jdbcTemplate.execute("CREATE TABLE products (product_id BIGINT PRIMARY KEY)");
+        jdbcTemplate.execute("CREATE TABLE cart (cart_id BIGINT AUTO_INCREMENT PRIMARY KEY, user_id BIGINT, "
+                + "updated_at TIMESTAMP(6), reminder_sent_at TIMESTAMP(6))");
+        jdbcTemplate.execute("CREATE TABLE cart_items (cart_item_id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                + "cart_id BIGINT, product_id BIGINT REFERENCES products(product_id), quantity INT)");
+        jdbcTemplate.update("INSERT INTO products (product_id) VALUES (1), (2), (3)");
+        cartStore = newStore();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+    }
+
+    private WriteBehindCartStore newStore() {
+        return new WriteBehindCartStore(jdbcTemplate, transactionManager, true, 500, 1800);
+    }
+
+    private List<Map<String, Object>> storedItems() {
+        return jdbcTemplate.queryForList("SELECT product_id, quantity FROM cart_items ORDER BY cart_item_id");
+    }
+
+    @Test
+    public void testFlush_CoalescesMutations() {
+        cartStore.update(USER_ID, items -> items.put(1L, 1));
+        cartStore.update(USER_ID, items -> items.merge(1L, 2, Integer::sum));
+        cartStore.update(USER_ID, items -> items.put(2L, 5));
+        cartStore.update(USER_ID, items -> items.remove(2L));
+
+        assertTrue(storedItems().isEmpty());
+        assertEquals(1, cartStore.flush());
+        assertEquals(0, cartStore.flush());
+
+        List<Map<String, Object>> stored = storedItems();
+        assertEquals(1, stored.size());
+        assertEquals(3, ((Number) stored.get(0).get("QUANTITY")).intValue());
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM cart", Integer.class));
+    }
+
+    @Test
+    public void testGetItems_RecoversFlushedCartAfterRestart() {
+        cartStore.update(USER_ID, items -> {
+            items.put(2L, 1);
+            items.put(1L, 4);
+        });
+        cartStore.flush();
+
+        Map<Long, Integer> items = newStore().getItems(USER_ID);
+
+        assertEquals(List.of(2L, 1L), List.copyOf(items.keySet()));
+        assertEquals(Integer.valueOf(4), items.get(1L));
+    }
+
+    @Test
+    public void testCheckout_ClearsCartWithTransaction() {
+        cartStore.update(USER_ID, items -> items.put(1L, 2));
+        cartStore.flush();
+        cartStore.update(USER_ID, items -> items.put(3L, 1));
+
+        Map<Long, Integer> ordered = new TransactionTemplate(transactionManager).execute(status -> {
+            Map<Long, Integer> items = cartStore.beginCheckout(USER_ID);
+            assertEquals(0, cartStore.flush());
+            cartStore.completeCheckout(USER_ID);
+            return items;
+        });
+
+        assertEquals(Map.of(1L, 2, 3L, 1), ordered);
+        assertTrue(storedItems().isEmpty());
+        assertTrue(cartStore.getItems(USER_ID).isEmpty());
+        assertEquals(0, cartStore.flush());
+    }
+
+    @Test
+    public void testCheckout_RollbackKeepsCart() {
+        cartStore.update(USER_ID, items -> items.put(1L, 2));
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            cartStore.beginCheckout(USER_ID);
+            status.setRollbackOnly();
+        });
+
+        assertEquals(Map.of(1L, 2), cartStore.getItems(USER_ID));
+        assertEquals(1, cartStore.flush());
+    }
+
+    @Test
+    public void testFlush_DropsOnlyLinesOfDeletedProducts() {
+        cartStore.update(USER_ID, items -> items.put(1L, 1));
+        cartStore.flush();
+        cartStore.update(USER_ID, items -> {
+            items.put(99L, 1);
+            items.put(2L, 3);
+        });
+
+        assertEquals(1, cartStore.flush());
+
+        assertEquals(Map.of(1L, 1, 2L, 3), cartStore.getItems(USER_ID));
+        assertEquals(Map.of(1L, 1, 2L, 3), newStore().getItems(USER_ID));
+        assertEquals(0, cartStore.flush());
+    }
+
+    @Test
+    public void testFlush_CreatesCartForUserWithoutOne() {
+        cartStore.update(USER_ID, items -> items.put(3L, 1));
+
+        cartStore.flush();
+
+        assertEquals(USER_ID, jdbcTemplate.queryForObject("SELECT user_id FROM cart", Long.class));
+        assertEquals(Map.of(3L, 1), newStore().getItems(USER_ID));
+    }
+}